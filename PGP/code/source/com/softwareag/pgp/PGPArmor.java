@@ -0,0 +1,233 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.bouncycastle.bcpg.ArmoredOutputStream;
+import org.bouncycastle.openpgp.PGPUtil;
+
+/**
+ * This class selects the codec for ASCII-armored messages. The block codec
+ * of {@link PGPArmoredOutputStream} and {@link PGPArmoredInputStream}
+ * encodes and decodes whole buffers at a time with lookup tables for the
+ * Base64 characters and the CRC24 checksum; the Bouncy Castle streams do so
+ * one byte at a time. Both codecs write the same armor, so messages do not
+ * depend on the codec.
+ *
+ * The codec can be set through the system property watt.pgp.armor.codec:
+ * BLOCK (default) or BC. Clear-signed messages and armor without header
+ * lines are always decoded by Bouncy Castle.
+ */
+public class PGPArmor {
+
+    /**
+     * The armor codec: BLOCK for the block codec, BC for Bouncy Castle
+     */
+    private static final String CODEC = System.getProperty(
+            "watt.pgp.armor.codec", "BLOCK");
+
+    /**
+     * The start of armor header lines
+     */
+    private static final byte[] BEGIN = ascii("-----BEGIN PGP ");
+
+    /**
+     * The start of the header line of clear-signed messages
+     */
+    private static final byte[] SIGNED = ascii("-----BEGIN PGP SIGNED MESSAGE");
+
+    /**
+     * The Base64 characters by value
+     */
+    static final byte[] ENCODE = ascii(
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/");
+
+    /**
+     * The values of Base64 characters; whitespace is {@link #SPACE}, other
+     * characters are {@link #INVALID}
+     */
+    static final int[] DECODE = new int[256];
+
+    static final int INVALID = -1;
+    static final int SPACE = -2;
+
+    /**
+     * The initial value of the CRC24 checksum
+     */
+    static final int CRC_INIT = 0xb704ce;
+
+    /**
+     * The CRC24 generator polynomial, aligned to the top of an int
+     */
+    private static final int CRC_POLY = 0x864cfb << 8;
+
+    /**
+     * CRC24 remainders of a byte followed by 0 to 3 zero bytes, aligned to
+     * the top of an int, so four bytes are added with four lookups
+     */
+    private static final int[][] CRC_TABLES = new int[4][256];
+
+    static {
+        for (int i = 0; i < DECODE.length; i++) {
+            DECODE[i] = INVALID;
+        }
+        for (int i = 0; i < ENCODE.length; i++) {
+            DECODE[ENCODE[i]] = i;
+        }
+        DECODE[' '] = SPACE;
+        DECODE['\t'] = SPACE;
+        DECODE['\r'] = SPACE;
+        DECODE['\n'] = SPACE;
+
+        for (int i = 0; i < 256; i++) {
+            int r = i << 24;
+            for (int bit = 0; bit < 8; bit++) {
+                r = (r & 0x80000000) != 0 ? (r << 1) ^ CRC_POLY : r << 1;
+            }
+            CRC_TABLES[0][i] = r;
+        }
+        for (int t = 1; t < CRC_TABLES.length; t++) {
+            for (int i = 0; i < 256; i++) {
+                int r = CRC_TABLES[t - 1][i];
+                CRC_TABLES[t][i] = (r << 8) ^ CRC_TABLES[0][r >>> 24];
+            }
+        }
+    }
+
+    /**
+     * Returns the armor codec in use
+     *
+     * @return BLOCK or BC
+     */
+    public static String getCodec() {
+        return CODEC.equalsIgnoreCase("BC") ? "BC" : "BLOCK";
+    }
+
+    /**
+     * Creates a stream that writes data ASCII-armored. Closing the stream
+     * writes the end of the armor; the underlying stream is not closed.
+     *
+     * @param out The stream for the armored data
+     * @return The armoring stream
+     */
+    public static OutputStream getEncoderStream(OutputStream out) {
+
+        if (getCodec().equals("BC")) {
+            return new ArmoredOutputStream(out);
+        }
+        return new PGPArmoredOutputStream(out);
+    }
+
+    /**
+     * Returns a stream of the binary data of a message that is either binary
+     * or ASCII-armored
+     *
+     * @param in The message
+     * @return The binary data
+     * @throws IOException If the message cannot be read
+     */
+    public static InputStream getDecoderStream(InputStream in) throws IOException {
+
+        if (!in.markSupported()) {
+            in = new BufferedInputStream(in);
+        }
+        byte[] head = new byte[SIGNED.length];
+        in.mark(head.length);
+        int length = 0;
+        int read;
+        while (length < head.length
+                && (read = in.read(head, length, head.length - length)) >= 0) {
+            length += read;
+        }
+        in.reset();
+
+        if (length > 0 && (head[0] & 0x80) != 0) {
+            // Binary packets
+            return in;
+        }
+        if (getCodec().equals("BLOCK") && startsWith(head, length, BEGIN)
+                && !startsWith(head, length, SIGNED)) {
+            return new PGPArmoredInputStream(in);
+        }
+        return PGPUtil.getDecoderStream(in);
+    }
+
+    /**
+     * Adds data to a CRC24 checksum, four bytes at a time
+     *
+     * @param crc The checksum of the preceding data
+     * @param data The data
+     * @param off The offset of the data
+     * @param len The length of the data
+     * @return The checksum including the data
+     */
+    static int updateCrc(int crc, byte[] data, int off, int len) {
+
+        int[] t0 = CRC_TABLES[0];
+        int[] t1 = CRC_TABLES[1];
+        int[] t2 = CRC_TABLES[2];
+        int[] t3 = CRC_TABLES[3];
+        int r = crc << 8;
+        int end = off + (len & ~3);
+        while (off < end) {
+            r ^= (data[off] & 0xff) << 24 | (data[off + 1] & 0xff) << 16
+                    | (data[off + 2] & 0xff) << 8 | (data[off + 3] & 0xff);
+            r = t3[r >>> 24] ^ t2[(r >>> 16) & 0xff] ^ t1[(r >>> 8) & 0xff]
+                    ^ t0[r & 0xff];
+            off += 4;
+        }
+        end += len & 3;
+        while (off < end) {
+            r = (r << 8) ^ t0[(r >>> 24) ^ (data[off++] & 0xff)];
+        }
+        return r >>> 8;
+    }
+
+    /**
+     * Returns the bytes of an ASCII string
+     */
+    static byte[] ascii(String text) {
+
+        byte[] bytes = new byte[text.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) text.charAt(i);
+        }
+        return bytes;
+    }
+
+    /**
+     * Checks whether data starts with a prefix
+     */
+    private static boolean startsWith(byte[] data, int length, byte[] prefix) {
+
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * This class reads the data of an ASCII-armored message. The armor header
+ * lines are skipped when the stream is created; the Base64 lines are then
+ * decoded a buffer at a time, four characters per step where no whitespace
+ * or padding interrupts them, and the CRC24 checksum is computed over every
+ * decoded block. The checksum line is optional; if present, a checksum that
+ * does not match the data fails the read of the last data.
+ *
+ * Clear-signed messages are not supported. Closing the stream closes the
+ * underlying stream.
+ */
+public class PGPArmoredInputStream extends InputStream {
+
+    /**
+     * The size of the buffer for armored data
+     */
+    private static final int INPUT_SIZE = 1 << 16;
+
+    /**
+     * The size of the buffer for decoded data
+     */
+    private static final int OUTPUT_SIZE = 3 * (1 << 14);
+
+    private final InputStream in;
+
+    private final byte[] input = new byte[INPUT_SIZE];
+    private int inPos;
+    private int inLength;
+
+    private final byte[] output = new byte[OUTPUT_SIZE];
+    private int outPos;
+    private int outLength;
+
+    /**
+     * The bits of an incomplete group of four characters
+     */
+    private int quad;
+    private int quadLength;
+
+    /**
+     * The number of padding characters still expected
+     */
+    private int padding;
+
+    private int crc = PGPArmor.CRC_INIT;
+    private boolean finished;
+
+    /**
+     * Creates the stream and reads the armor header lines
+     *
+     * @param in The armored message
+     * @throws IOException If the message cannot be read or has no armor
+     *             header line
+     */
+    public PGPArmoredInputStream(InputStream in) throws IOException {
+
+        this.in = in;
+        String line;
+        do {
+            line = readLine();
+            if (line == null) {
+                throw new IOException("No armor header found");
+            }
+        } while (!line.startsWith("-----BEGIN PGP "));
+
+        // Header lines end with an empty line
+        do {
+            line = readLine();
+            if (line == null) {
+                throw new IOException("Armor header not terminated");
+            }
+        } while (line.trim().length() > 0);
+    }
+
+    @Override
+    public int read() throws IOException {
+
+        if (outPos == outLength && fill() == 0) {
+            return -1;
+        }
+        return output[outPos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+
+        if (len == 0) {
+            return 0;
+        }
+        if (outPos == outLength && fill() == 0) {
+            return -1;
+        }
+        int n = Math.min(len, outLength - outPos);
+        System.arraycopy(output, outPos, b, off, n);
+        outPos += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return outLength - outPos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Decodes the next block of data
+     *
+     * @return The number of bytes decoded, 0 at the end of the data
+     */
+    private int fill() throws IOException {
+
+        outPos = 0;
+        outLength = 0;
+        while (outLength == 0 && !finished) {
+            if (inPos == inLength && !readInput()) {
+                // Armor without checksum and footer
+                finish();
+                break;
+            }
+            int start = outLength;
+            int end = decode();
+            crc = PGPArmor.updateCrc(crc, output, start, outLength - start);
+            if (end == '=') {
+                finish();
+                checkCrc();
+            } else if (end == '-') {
+                finish();
+            }
+        }
+        return outLength;
+    }
+
+    /**
+     * Decodes the buffered characters until the decoded data buffer is full
+     * or the armor data ends
+     *
+     * @return '=' at the checksum line, '-' at the footer line, otherwise 0
+     */
+    private int decode() throws IOException {
+
+        int[] dec = PGPArmor.DECODE;
+        byte[] src = input;
+        byte[] dst = output;
+        int pos = inPos;
+        int limit = inLength;
+        int out = outLength;
+        int end = 0;
+        while (pos < limit && out <= dst.length - 3) {
+            if (quadLength == 0 && pos <= limit - 4) {
+                // Four characters at a time; any whitespace makes it negative
+                int bits = dec[src[pos] & 0xff] << 18 | dec[src[pos + 1] & 0xff] << 12
+                        | dec[src[pos + 2] & 0xff] << 6 | dec[src[pos + 3] & 0xff];
+                if (bits >= 0) {
+                    dst[out] = (byte) (bits >>> 16);
+                    dst[out + 1] = (byte) (bits >>> 8);
+                    dst[out + 2] = (byte) bits;
+                    out += 3;
+                    pos += 4;
+                    continue;
+                }
+            }
+            int c = src[pos] & 0xff;
+            int value = dec[c];
+            if (value >= 0) {
+                if (padding > 0) {
+                    throw new IOException("Armor data continues after padding");
+                }
+                quad = quad << 6 | value;
+                if (++quadLength == 4) {
+                    dst[out++] = (byte) (quad >>> 16);
+                    dst[out++] = (byte) (quad >>> 8);
+                    dst[out++] = (byte) quad;
+                    quad = 0;
+                    quadLength = 0;
+                }
+            } else if (value == PGPArmor.SPACE) {
+                // Line breaks
+            } else if (c == '=' && quadLength >= 2) {
+                // Padding of the last group
+                dst[out++] = (byte) (quad >>> (quadLength == 2 ? 4 : 10));
+                if (quadLength == 3) {
+                    dst[out++] = (byte) (quad >>> 2);
+                }
+                padding = 3 - quadLength;
+                quad = 0;
+                quadLength = 0;
+            } else if (c == '=' && padding > 0) {
+                padding--;
+            } else if ((c == '=' || c == '-') && quadLength == 0) {
+                end = c;
+                pos++;
+                break;
+            } else {
+                throw new IOException("Invalid armor character: " + c);
+            }
+            pos++;
+        }
+        inPos = pos;
+        outLength = out;
+        return end;
+    }
+
+    /**
+     * Reads the checksum following the '=' of the checksum line and compares
+     * it with the checksum of the data
+     */
+    private void checkCrc() throws IOException {
+
+        int expected = 0;
+        for (int i = 0; i < 4; i++) {
+            int c = readByte();
+            int value = c < 0 ? PGPArmor.INVALID : PGPArmor.DECODE[c];
+            if (value < 0) {
+                throw new IOException("Invalid armor checksum");
+            }
+            expected = expected << 6 | value;
+        }
+        if (expected != crc) {
+            throw new IOException("crc check failed in armored message.");
+        }
+    }
+
+    /**
+     * Ends the data, which must not end in an incomplete group
+     */
+    private void finish() throws IOException {
+
+        finished = true;
+        if (quadLength != 0) {
+            throw new IOException("Armor data truncated");
+        }
+    }
+
+    /**
+     * Reads a header line
+     *
+     * @return The line without line break, or null at the end of the stream
+     */
+    private String readLine() throws IOException {
+
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = readByte()) >= 0 && c != '\n') {
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return c < 0 && line.length() == 0 ? null : line.toString();
+    }
+
+    /**
+     * Reads a byte of armored data
+     *
+     * @return The byte, or -1 at the end of the stream
+     */
+    private int readByte() throws IOException {
+
+        if (inPos == inLength && !readInput()) {
+            return -1;
+        }
+        return input[inPos++] & 0xff;
+    }
+
+    /**
+     * Reads the next block of armored data
+     *
+     * @return False at the end of the stream
+     */
+    private boolean readInput() throws IOException {
+
+        int read = in.read(input, 0, input.length);
+        if (read <= 0) {
+            return false;
+        }
+        inPos = 0;
+        inLength = read;
+        return true;
+    }
+}
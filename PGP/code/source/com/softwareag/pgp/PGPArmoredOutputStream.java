@@ -0,0 +1,258 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.bouncycastle.bcpg.PacketTags;
+
+/**
+ * This class writes data ASCII-armored, byte for byte as the armor of Bouncy
+ * Castle 1.45: the armor type follows from the first packet, lines hold 64
+ * Base64 characters and end with the line separator of the platform, and
+ * the CRC24 checksum follows the last line. Data is encoded in whole lines
+ * into a buffer that is written to the underlying stream when full, and the
+ * checksum is computed over every block written.
+ *
+ * Closing the stream writes the end of the armor and flushes the underlying
+ * stream, which is not closed. If no data was written, nothing is written.
+ */
+public class PGPArmoredOutputStream extends OutputStream {
+
+    /**
+     * The version header of the Bouncy Castle armor
+     */
+    private static final String VERSION = "BCPG v1.45";
+
+    /**
+     * The number of data bytes per line
+     */
+    private static final int LINE_BYTES = 48;
+
+    /**
+     * The number of lines encoded into the buffer before it is written
+     */
+    private static final int LINES = 256;
+
+    private final OutputStream out;
+    private final byte[] nl;
+    private final byte[] buffer;
+    private int count;
+
+    /**
+     * The data bytes of an incomplete group of three bytes
+     */
+    private final byte[] rest = new byte[3];
+    private int restLength;
+
+    /**
+     * The number of characters in the current line
+     */
+    private int column;
+
+    private int crc = PGPArmor.CRC_INIT;
+    private String type;
+    private boolean closed;
+
+    /**
+     * Creates the stream
+     *
+     * @param out The stream for the armored data
+     */
+    public PGPArmoredOutputStream(OutputStream out) {
+        this.out = out;
+        this.nl = PGPArmor.ascii(System.getProperty("line.separator"));
+        this.buffer = new byte[LINES * (LINE_BYTES / 3 * 4 + nl.length)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+
+        if (closed) {
+            throw new IOException("Stream is closed");
+        }
+        if (len <= 0) {
+            return;
+        }
+        if (type == null) {
+            writeHeader(b[off]);
+        }
+        crc = PGPArmor.updateCrc(crc, b, off, len);
+
+        // Complete an incomplete group
+        while (restLength > 0 && len > 0) {
+            rest[restLength++] = b[off++];
+            len--;
+            if (restLength == 3) {
+                encode(rest, 0, 1);
+                restLength = 0;
+            }
+        }
+
+        int groups = len / 3;
+        encode(b, off, groups);
+        off += groups * 3;
+        len -= groups * 3;
+        for (int i = 0; i < len; i++) {
+            rest[restLength++] = b[off + i];
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writeBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (type == null) {
+            return;
+        }
+
+        // Last group with padding
+        if (restLength > 0) {
+            ensure(4);
+            byte[] enc = PGPArmor.ENCODE;
+            int bits = (rest[0] & 0xff) << 16;
+            if (restLength > 1) {
+                bits |= (rest[1] & 0xff) << 8;
+            }
+            buffer[count++] = enc[bits >>> 18];
+            buffer[count++] = enc[(bits >>> 12) & 0x3f];
+            buffer[count++] = restLength > 1 ? enc[(bits >>> 6) & 0x3f] : (byte) '=';
+            buffer[count++] = (byte) '=';
+            column += 4;
+        }
+        if (column > 0) {
+            append(nl);
+        }
+
+        // Checksum and footer
+        ensure(5);
+        buffer[count++] = (byte) '=';
+        buffer[count++] = PGPArmor.ENCODE[crc >>> 18];
+        buffer[count++] = PGPArmor.ENCODE[(crc >>> 12) & 0x3f];
+        buffer[count++] = PGPArmor.ENCODE[(crc >>> 6) & 0x3f];
+        buffer[count++] = PGPArmor.ENCODE[crc & 0x3f];
+        append(nl);
+        append(PGPArmor.ascii("-----END PGP " + type + "-----"));
+        append(nl);
+        flush();
+    }
+
+    /**
+     * Writes the armor header lines for the packet starting with a byte
+     */
+    private void writeHeader(byte first) throws IOException {
+
+        int tag = (first & 0x40) != 0 ? first & 0x3f : (first & 0x3f) >> 2;
+        switch (tag) {
+        case PacketTags.PUBLIC_KEY:
+            type = "PUBLIC KEY BLOCK";
+            break;
+        case PacketTags.SECRET_KEY:
+            type = "PRIVATE KEY BLOCK";
+            break;
+        case PacketTags.SIGNATURE:
+            type = "SIGNATURE";
+            break;
+        default:
+            type = "MESSAGE";
+        }
+        append(PGPArmor.ascii("-----BEGIN PGP " + type + "-----"));
+        append(nl);
+        append(PGPArmor.ascii("Version: " + VERSION));
+        append(nl);
+        append(nl);
+    }
+
+    /**
+     * Encodes groups of three bytes, a line or the rest of a line at a time
+     */
+    private void encode(byte[] b, int off, int groups) throws IOException {
+
+        byte[] enc = PGPArmor.ENCODE;
+        int lineLength = LINE_BYTES / 3 * 4;
+        while (groups > 0) {
+            int n = Math.min(groups, (lineLength - column) >> 2);
+            ensure(n * 4 + nl.length);
+            byte[] buf = buffer;
+            int pos = count;
+            for (int end = off + n * 3; off < end; off += 3) {
+                int bits = (b[off] & 0xff) << 16 | (b[off + 1] & 0xff) << 8
+                        | (b[off + 2] & 0xff);
+                buf[pos] = enc[bits >>> 18];
+                buf[pos + 1] = enc[(bits >>> 12) & 0x3f];
+                buf[pos + 2] = enc[(bits >>> 6) & 0x3f];
+                buf[pos + 3] = enc[bits & 0x3f];
+                pos += 4;
+            }
+            count = pos;
+            groups -= n;
+            column += n << 2;
+            if (column == lineLength) {
+                append(nl);
+                column = 0;
+            }
+        }
+    }
+
+    /**
+     * Appends bytes to the buffer
+     */
+    private void append(byte[] bytes) throws IOException {
+
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    /**
+     * Writes the buffer unless it has room for a number of bytes
+     */
+    private void ensure(int length) throws IOException {
+
+        if (buffer.length - count < length) {
+            writeBuffer();
+        }
+    }
+
+    /**
+     * Writes the buffer to the underlying stream
+     */
+    private void writeBuffer() throws IOException {
+
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+}
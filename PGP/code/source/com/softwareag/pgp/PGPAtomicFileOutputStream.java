@@ -0,0 +1,123 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * This class writes a file through a temporary file in the same directory.
+ * The data is streamed to the temporary file, which is moved into place when
+ * the output is committed, so readers of the destination never see a
+ * partially written file. If the stream is closed without commit, the
+ * temporary file is deleted and the destination is left untouched.
+ */
+public class PGPAtomicFileOutputStream extends FilterOutputStream {
+
+    /**
+     * The buffer size for writing the temporary file
+     */
+    private static final int BUFFER = 65536;
+
+    private final File file;
+    private final File temp;
+    private boolean closed = false;
+    private boolean committed = false;
+
+    /**
+     * Creates a temporary file for a destination file
+     *
+     * @param file The destination file
+     * @throws IOException If the temporary file cannot be created
+     */
+    public PGPAtomicFileOutputStream(File file) throws IOException {
+        this(file, File.createTempFile(file.getName(), ".tmp",
+                file.getAbsoluteFile().getParentFile()));
+    }
+
+    private PGPAtomicFileOutputStream(File file, File temp) throws IOException {
+        super(new BufferedOutputStream(Files.newOutputStream(temp.toPath()), BUFFER));
+        this.file = file;
+        this.temp = temp;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+    }
+
+    /**
+     * Closes the temporary file and moves it to the destination
+     *
+     * @throws IOException If the file cannot be written or moved
+     */
+    public void commit() throws IOException {
+
+        if (closed) {
+            throw new IOException("Stream is closed");
+        }
+        closed = true;
+        out.close();
+        try {
+            Files.move(temp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException amnse) {
+            Files.move(temp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            temp.delete();
+        }
+        committed = true;
+    }
+
+    /**
+     * Returns the destination file
+     *
+     * @return The file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Discards the temporary file unless the output has been committed
+     */
+    @Override
+    public void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            out.close();
+        } finally {
+            if (!committed) {
+                temp.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class runs the items of a batch of independent messages on a bounded
+ * pool of worker threads. Encrypting or decrypting one message is
+ * sequential, but the messages of a batch are not related, so a batch uses
+ * up to the given number of threads. The calling thread works on the batch
+ * as well; worker threads join as they become available, so a batch always
+ * completes even if all workers are busy with other batches. Results are
+ * returned in the order of the tasks.
+ *
+ * The number of worker threads can be set through the system property
+ * watt.pgp.batch.threads (default: the number of processors). Idle workers
+ * end after a minute.
+ */
+public class PGPBatchExecutor {
+
+    /**
+     * The maximum number of worker threads
+     */
+    public static final int THREADS = Math.max(1, Integer.getInteger(
+            "watt.pgp.batch.threads", Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * The worker pool, shared by all batches
+     */
+    private static final ThreadPoolExecutor pool = createPool();
+
+    /**
+     * Runs the tasks of a batch. If failFast is set, no further tasks are
+     * started after a task has failed; tasks that were not started are
+     * returned as skipped.
+     *
+     * @param tasks The tasks
+     * @param parallelism The maximum number of threads working on the batch,
+     *            including the calling thread; 0 to use all worker threads
+     * @param failFast Whether to stop at the first failure
+     * @return The results in the order of the tasks
+     */
+    public static <T> List<Result<T>> execute(List<? extends Callable<T>> tasks,
+            int parallelism, boolean failFast) {
+
+        if (parallelism <= 0 || parallelism > THREADS + 1) {
+            parallelism = THREADS + 1;
+        }
+        Batch<T> batch = new Batch<T>(tasks, failFast);
+        for (int i = 1; i < Math.min(parallelism, tasks.size()); i++) {
+            pool.execute(batch);
+        }
+        batch.run();
+        batch.await();
+        return batch.getResults();
+    }
+
+    /**
+     * Returns the number of worker threads that are currently running tasks
+     * @return The active thread count
+     */
+    public static int getActiveCount() {
+        return pool.getActiveCount();
+    }
+
+    private static ThreadPoolExecutor createPool() {
+
+        final AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "PGP batch worker "
+                                + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * The state of a running batch. Every thread that works on the batch
+     * claims the next task until all tasks are claimed or the batch is
+     * stopped.
+     */
+    private static class Batch<T> implements Runnable {
+
+        private final List<? extends Callable<T>> tasks;
+        private final boolean failFast;
+        private final List<Result<T>> results;
+        private int next = 0;
+        private int active = 0;
+        private boolean stopped = false;
+
+        private Batch(List<? extends Callable<T>> tasks, boolean failFast) {
+            this.tasks = tasks;
+            this.failFast = failFast;
+            this.results = new ArrayList<Result<T>>(tasks.size());
+            for (int i = 0; i < tasks.size(); i++) {
+                results.add(new Result<T>(null, null, true));
+            }
+        }
+
+        @Override
+        public void run() {
+
+            synchronized (this) {
+                // A worker that starts late has nothing left to do
+                if (stopped || next >= tasks.size()) {
+                    return;
+                }
+                active++;
+            }
+            try {
+                int index;
+                while ((index = claim()) >= 0) {
+                    Result<T> result;
+                    try {
+                        result = new Result<T>(tasks.get(index).call(), null, false);
+                    } catch (Exception e) {
+                        result = new Result<T>(null, e, false);
+                        if (failFast) {
+                            stop();
+                        }
+                    }
+                    synchronized (this) {
+                        results.set(index, result);
+                    }
+                }
+            } finally {
+                synchronized (this) {
+                    active--;
+                    notifyAll();
+                }
+            }
+        }
+
+        private synchronized int claim() {
+            return stopped || next >= tasks.size() ? -1 : next++;
+        }
+
+        private synchronized void stop() {
+            stopped = true;
+        }
+
+        /**
+         * Waits until all claimed tasks are completed. If the calling thread
+         * is interrupted, no further tasks are started.
+         */
+        private synchronized void await() {
+
+            boolean interrupted = false;
+            while (active > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                    stopped = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private synchronized List<Result<T>> getResults() {
+            return results;
+        }
+    }
+
+    /**
+     * The result of a task: its value, the exception it failed with, or
+     * neither if it was skipped
+     */
+    public static class Result<T> {
+
+        private final T value;
+        private final Exception error;
+        private final boolean skipped;
+
+        private Result(T value, Exception error, boolean skipped) {
+            this.value = value;
+            this.error = error;
+            this.skipped = skipped;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public Exception getError() {
+            return error;
+        }
+
+        /**
+         * Checks whether the task was not run because the batch stopped
+         * @return True if the task was skipped
+         */
+        public boolean isSkipped() {
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,383 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.Provider;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.bouncycastle.bcpg.ArmoredInputStream;
+import org.bouncycastle.bcpg.ArmoredOutputStream;
+import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
+import org.bouncycastle.openpgp.PGPEncryptedDataGenerator;
+import org.bouncycastle.openpgp.PGPEncryptedDataList;
+import org.bouncycastle.openpgp.PGPObjectFactory;
+import org.bouncycastle.openpgp.PGPPBEEncryptedData;
+
+/**
+ * This class runs micro-benchmarks of the package outside of Integration
+ * Server. Each benchmark compares an optimized code path with the code path
+ * it replaced at 1 to 64 concurrent threads and prints the throughput of
+ * both. Run it with the jars of the package on the class path:
+ *
+ * java com.softwareag.pgp.PGPBenchmark random [messages]
+ * java com.softwareag.pgp.PGPBenchmark cipher [messages] [size in MB]
+ * java com.softwareag.pgp.PGPBenchmark armor [messages] [size in MB]
+ */
+public class PGPBenchmark {
+
+    /**
+     * The numbers of concurrent threads
+     */
+    private static final int[] THREADS = { 1, 2, 4, 8, 16, 32, 64 };
+
+    /**
+     * The random bytes used per message: session key, initialization vector
+     * and key exchange padding
+     */
+    private static final int RANDOM_BYTES = 256;
+
+    /**
+     * The block size for writing and reading message data
+     */
+    private static final int BLOCK = 1 << 16;
+
+    /**
+     * The password of benchmark messages
+     */
+    private static final char[] PASSWORD = "benchmark".toCharArray();
+
+    public static void main(String[] args) throws Exception {
+
+        String name = args.length > 0 ? args[0] : "";
+        int messages = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        if (name.equals("random")) {
+            random(messages > 0 ? messages : 200000);
+        } else if (name.equals("cipher")) {
+            int size = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+            cipher(messages > 0 ? messages : 64, size << 20);
+        } else if (name.equals("armor")) {
+            int size = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+            armor(messages > 0 ? messages : 64, size << 20);
+        } else {
+            System.err.println("Usage: PGPBenchmark random [messages]");
+            System.err.println("       PGPBenchmark cipher [messages] [size in MB]");
+            System.err.println("       PGPBenchmark armor [messages] [size in MB]");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compares a new SecureRandom per message with the generators of
+     * {@link PGPRandom}
+     *
+     * @param messages The number of messages per run
+     * @throws Exception If a run fails
+     */
+    private static void random(int messages) throws Exception {
+
+        Task legacy = new Task() {
+            @Override
+            public void run() {
+                new SecureRandom().nextBytes(new byte[RANDOM_BYTES]);
+            }
+        };
+        Task managed = new Task() {
+            @Override
+            public void run() {
+                PGPRandom.get().nextBytes(new byte[RANDOM_BYTES]);
+            }
+        };
+        System.out.println("Random bytes per message: new SecureRandom() vs. PGPRandom ("
+                + PGPRandom.getAlgorithm() + "), messages/s");
+        compare(messages, 1, "messages/s", legacy, managed);
+    }
+
+    /**
+     * Compares the Bouncy Castle and JCA cipher backends by encrypting and
+     * decrypting the data packet of AES_256 messages with integrity
+     * protection; the session key is protected with a password, so the
+     * key exchange does not distort the result
+     *
+     * @param messages The number of messages per run
+     * @param size The size of a message in bytes
+     * @throws Exception If a run fails
+     */
+    private static void cipher(int messages, int size) throws Exception {
+
+        final byte[] plain = new byte[size];
+        new Random(size).nextBytes(plain);
+        final Provider provider = new PGPDataProvider(PGPInit.PROVIDER);
+
+        // Check that the backends produce compatible messages
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size + 1024);
+        encryptData(plain, out, PGPInit.PROVIDER);
+        final byte[] cipher = out.toByteArray();
+        out = new ByteArrayOutputStream(size);
+        decryptData(cipher, out, provider);
+        if (!Arrays.equals(plain, out.toByteArray())) {
+            throw new IllegalStateException("JCA backend cannot decrypt BC data");
+        }
+
+        // Messages are not kept, so memory does not grow with the threads
+        final OutputStream discard = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+        Task bc = new Task() {
+            @Override
+            public void run() throws Exception {
+                encryptData(plain, discard, PGPInit.PROVIDER);
+                decryptData(cipher, discard, PGPInit.PROVIDER);
+            }
+        };
+        Task jca = new Task() {
+            @Override
+            public void run() throws Exception {
+                encryptData(plain, discard, provider);
+                decryptData(cipher, discard, provider);
+            }
+        };
+        System.out.println("AES_256 encrypt and decrypt of " + (size >> 20)
+                + " MB messages: BC vs. JCA backend, MB/s");
+        compare(messages, 2.0 * size / (1 << 20), "MB/s", bc, jca);
+    }
+
+    /**
+     * Compares the Bouncy Castle armor streams with the block codec of
+     * {@link PGPArmoredOutputStream} and {@link PGPArmoredInputStream} by
+     * armoring and decoding messages
+     *
+     * @param messages The number of messages per run
+     * @param size The size of a message in bytes
+     * @throws Exception If a run fails
+     */
+    private static void armor(int messages, int size) throws Exception {
+
+        final byte[] plain = new byte[size];
+        new Random(size).nextBytes(plain);
+
+        // Check that the codecs write the same armor and read each other's
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size * 4 / 3 + 1024);
+        armorData(plain, new ArmoredOutputStream(out));
+        final byte[] armored = out.toByteArray();
+        out = new ByteArrayOutputStream(armored.length);
+        armorData(plain, new PGPArmoredOutputStream(out));
+        if (!Arrays.equals(armored, out.toByteArray())) {
+            throw new IllegalStateException("Block codec writes different armor");
+        }
+        out = new ByteArrayOutputStream(size);
+        readData(new PGPArmoredInputStream(new ByteArrayInputStream(armored)), out);
+        if (!Arrays.equals(plain, out.toByteArray())) {
+            throw new IllegalStateException("Block codec cannot decode BC armor");
+        }
+
+        final OutputStream discard = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+        Task bc = new Task() {
+            @Override
+            public void run() throws Exception {
+                armorData(plain, new ArmoredOutputStream(discard));
+                readData(new ArmoredInputStream(new ByteArrayInputStream(armored)), discard);
+            }
+        };
+        Task block = new Task() {
+            @Override
+            public void run() throws Exception {
+                armorData(plain, new PGPArmoredOutputStream(discard));
+                readData(new PGPArmoredInputStream(new ByteArrayInputStream(armored)), discard);
+            }
+        };
+        System.out.println("Armor encode and decode of " + (size >> 20)
+                + " MB messages: BC vs. block codec, MB/s");
+        compare(messages, 2.0 * size / (1 << 20), "MB/s", bc, block);
+    }
+
+    /**
+     * Writes data to an armoring stream in blocks and closes the stream
+     *
+     * @param plain The data
+     * @param armor The armoring stream
+     * @throws Exception If writing fails
+     */
+    private static void armorData(byte[] plain, OutputStream armor) throws Exception {
+
+        for (int i = 0; i < plain.length; i += BLOCK) {
+            armor.write(plain, i, Math.min(BLOCK, plain.length - i));
+        }
+        armor.close();
+    }
+
+    /**
+     * Reads a stream in blocks
+     *
+     * @param in The stream
+     * @param out An output stream for the data
+     * @throws Exception If reading fails
+     */
+    private static void readData(InputStream in, OutputStream out) throws Exception {
+
+        byte[] buffer = new byte[BLOCK];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    /**
+     * Encrypts data with a password
+     *
+     * @param plain The plain data
+     * @param out An output stream for the encrypted data packet
+     * @param provider The cipher provider
+     * @throws Exception If encryption fails
+     */
+    private static void encryptData(byte[] plain, OutputStream out,
+            Provider provider) throws Exception {
+
+        PGPEncryptedDataGenerator generator = new PGPEncryptedDataGenerator(
+                SymmetricKeyAlgorithmTags.AES_256, true, PGPRandom.get(), provider);
+        generator.addMethod(PASSWORD);
+        OutputStream data = generator.open(out, new byte[1 << 16]);
+        for (int i = 0; i < plain.length; i += BLOCK) {
+            data.write(plain, i, Math.min(BLOCK, plain.length - i));
+        }
+        data.close();
+    }
+
+    /**
+     * Decrypts data with a password
+     *
+     * @param cipher The encrypted data packet
+     * @param out An output stream for the plain data
+     * @param provider The cipher provider
+     * @throws Exception If decryption fails
+     */
+    private static void decryptData(byte[] cipher, OutputStream out,
+            Provider provider) throws Exception {
+
+        PGPEncryptedDataList list = (PGPEncryptedDataList) new PGPObjectFactory(cipher).nextObject();
+        PGPPBEEncryptedData encrypted = (PGPPBEEncryptedData) list.get(0);
+        InputStream data = encrypted.getDataStream(PASSWORD, provider);
+        byte[] buffer = new byte[BLOCK];
+        int read;
+        while ((read = data.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        if (!encrypted.verify()) {
+            throw new IllegalStateException("Integrity check failed");
+        }
+    }
+
+    /**
+     * Runs two tasks at all thread counts and prints their throughput
+     *
+     * @param messages The number of messages per run
+     * @param units The units of throughput per task run
+     * @param unit The name of the throughput unit
+     * @param before The task of the replaced code path
+     * @param after The task of the optimized code path
+     * @throws Exception If a run fails
+     */
+    private static void compare(int messages, double units, String unit,
+            Task before, Task after) throws Exception {
+
+        System.out.println(String.format("%8s %14s %14s %8s", "threads",
+                "before", "after", "speedup"));
+        for (int threads : THREADS) {
+            // Warm up both code paths first
+            measure(threads, messages / 10, before);
+            measure(threads, messages / 10, after);
+            double first = measure(threads, messages, before) * units;
+            double second = measure(threads, messages, after) * units;
+            System.out.println(String.format("%8d %14.0f %14.0f %7.2fx",
+                    threads, first, second, second / first));
+        }
+    }
+
+    /**
+     * Runs a task on a number of threads that start at the same time
+     *
+     * @param threads The number of threads
+     * @param messages The total number of task runs
+     * @param task The task
+     * @return The task runs per second
+     * @throws Exception If a task fails
+     */
+    private static double measure(int threads, int messages, final Task task)
+            throws Exception {
+
+        final int perThread = Math.max(1, messages / threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < perThread; j++) {
+                            task.run();
+                        }
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            workers[i].start();
+        }
+        long time = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        time = System.nanoTime() - time;
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return (double) perThread * threads * 1000000000L / time;
+    }
+
+    /**
+     * A benchmarked operation
+     */
+    private interface Task {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class pools the I/O buffers of encryption and decryption, so that
+ * messages do not allocate new buffers for copying and packet streams. The
+ * buffers come in size classes of 8 KB, 64 KB, 256 KB and 1 MB. Small or
+ * unknown input uses the smallest class; large input uses a class of about
+ * a sixteenth of the input size, so large files are copied and packetized
+ * in fewer, larger blocks. Buffers that are not returned to the pool are
+ * simply reclaimed by the garbage collector. Returned buffers are cleared,
+ * so plain data does not stay in idle or discarded buffers or reach the
+ * next message.
+ *
+ * The number of idle buffers kept per size class can be set through the
+ * system property watt.pgp.bufferPool.size (default 8, 0 to disable
+ * pooling).
+ */
+public class PGPBufferPool {
+
+    /**
+     * The buffer sizes, ascending powers of two as required for partial
+     * packet lengths
+     */
+    private static final int[] SIZES = { 8 * 1024, 64 * 1024, 256 * 1024, 1024 * 1024 };
+
+    /**
+     * The maximum number of idle buffers per size class
+     */
+    private static final int SIZE = Integer.getInteger(
+            "watt.pgp.bufferPool.size", 8);
+
+    /**
+     * Idle buffers per size class
+     */
+    private static final Pool[] pools = new Pool[SIZES.length];
+
+    /**
+     * Statistics
+     */
+    private static final AtomicLong allocations = new AtomicLong();
+    private static final AtomicLong allocatedBytes = new AtomicLong();
+    private static final AtomicLong reuses = new AtomicLong();
+    private static final AtomicLong reusedBytes = new AtomicLong();
+    private static final AtomicLong discards = new AtomicLong();
+
+    static {
+        for (int i = 0; i < pools.length; i++) {
+            pools[i] = new Pool();
+        }
+    }
+
+    /**
+     * Returns the buffer size for input of a given size
+     *
+     * @param inputSize The size of the input, or 0 or less if not known
+     * @return The buffer size
+     */
+    public static int getBufferSize(long inputSize) {
+
+        long wanted = inputSize / 16;
+        for (int i = 0; i < SIZES.length; i++) {
+            if (SIZES[i] >= wanted) {
+                return SIZES[i];
+            }
+        }
+        return SIZES[SIZES.length - 1];
+    }
+
+    /**
+     * Takes a buffer from the pool, or allocates one if none is idle. The
+     * buffer has the size of the smallest class that holds the requested
+     * size, so it may be larger than requested.
+     *
+     * @param size The minimum buffer size
+     * @return The buffer
+     */
+    public static byte[] acquire(int size) {
+
+        int index = getIndex(size);
+        if (index >= 0) {
+            byte[] buffer = pools[index].buffers.poll();
+            if (buffer != null) {
+                pools[index].idle.decrementAndGet();
+                reuses.incrementAndGet();
+                reusedBytes.addAndGet(buffer.length);
+                return buffer;
+            }
+            size = SIZES[index];
+        }
+        allocations.incrementAndGet();
+        allocatedBytes.addAndGet(size);
+        return new byte[size];
+    }
+
+    /**
+     * Clears a buffer and returns it to the pool. The buffer must no longer
+     * be used by the caller. Buffers of other sizes and buffers beyond the
+     * pool size are discarded.
+     *
+     * @param buffer The buffer, or null
+     */
+    public static void release(byte[] buffer) {
+
+        if (buffer == null) {
+            return;
+        }
+        Arrays.fill(buffer, (byte) 0);
+        int index = getIndex(buffer.length);
+        if (index < 0 || SIZES[index] != buffer.length) {
+            discards.incrementAndGet();
+            return;
+        }
+        Pool pool = pools[index];
+        if (pool.idle.incrementAndGet() > SIZE) {
+            pool.idle.decrementAndGet();
+            discards.incrementAndGet();
+            return;
+        }
+        pool.buffers.offer(buffer);
+    }
+
+    /**
+     * Returns the number of buffers allocated because none was idle
+     * @return The allocation count
+     */
+    public static long getAllocations() {
+        return allocations.get();
+    }
+
+    /**
+     * Returns the number of bytes allocated because no buffer was idle
+     * @return The allocated bytes
+     */
+    public static long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    /**
+     * Returns the number of buffers taken from the pool instead of being
+     * allocated
+     * @return The reuse count
+     */
+    public static long getReuses() {
+        return reuses.get();
+    }
+
+    /**
+     * Returns the number of bytes taken from the pool instead of being
+     * allocated
+     * @return The reused bytes
+     */
+    public static long getReusedBytes() {
+        return reusedBytes.get();
+    }
+
+    /**
+     * Returns the number of returned buffers that did not fit into the pool
+     * @return The discard count
+     */
+    public static long getDiscards() {
+        return discards.get();
+    }
+
+    /**
+     * Returns the number of idle buffers in the pool
+     * @return The idle buffer count
+     */
+    public static int getIdleCount() {
+
+        int count = 0;
+        for (Pool pool : pools) {
+            count += pool.idle.get();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of bytes held by idle buffers in the pool
+     * @return The idle bytes
+     */
+    public static long getIdleBytes() {
+
+        long bytes = 0;
+        for (int i = 0; i < pools.length; i++) {
+            bytes += (long) pools[i].idle.get() * SIZES[i];
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the index of the smallest size class that holds a size
+     *
+     * @param size The size
+     * @return The index, or -1 if the size is larger than all classes
+     */
+    private static int getIndex(int size) {
+
+        for (int i = 0; i < SIZES.length; i++) {
+            if (SIZES[i] >= size) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The idle buffers of a size class
+     */
+    private static class Pool {
+
+        private final ConcurrentLinkedQueue<byte[]> buffers = new ConcurrentLinkedQueue<byte[]>();
+        private final AtomicInteger idle = new AtomicInteger();
+    }
+}
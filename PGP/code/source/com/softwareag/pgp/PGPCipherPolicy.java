@@ -0,0 +1,253 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.PGPSignatureSubpacketVector;
+
+/**
+ * This class chooses the encryption algorithm for messages that are
+ * encrypted with the algorithm AUTO: the first algorithm of the server
+ * policy that all recipients accept. A recipient accepts the algorithms
+ * listed in the preferred symmetric algorithms of its key's self-signature,
+ * and TRIPLE_DES, which every implementation must support. The algorithms
+ * accepted by a key are determined once per key ID, when its key file is
+ * loaded or when the key is first used.
+ *
+ * The policy is a fixed ranking, so the same recipients always get the same
+ * algorithm on every server. By default, AES_128 comes first, as it is the
+ * fastest algorithm with hardware support on common servers, followed by
+ * the larger AES keys and TWOFISH. Ciphers with a 64-bit block, such as
+ * CAST5 and TRIPLE_DES, are not allowed by default, as large messages
+ * approach the limit of data that such a cipher can safely encrypt with
+ * one key; recipients that accept nothing else must then be given an
+ * algorithm explicitly, or the policy must list it.
+ *
+ * The policy can be set through the system properties
+ * watt.pgp.encryption.policy (allowed algorithms in order of preference,
+ * default: AES_128,AES_192,AES_256,TWOFISH) and
+ * watt.pgp.encryption.defaultPreferences (algorithms accepted by keys
+ * without preferences, default: AES_128,TRIPLE_DES).
+ */
+public class PGPCipherPolicy {
+
+    /**
+     * The algorithm that is chosen per message
+     */
+    public static final int AUTO = -1;
+
+    /**
+     * The algorithms allowed by the server
+     */
+    private static final String POLICY = System.getProperty(
+            "watt.pgp.encryption.policy", "AES_128,AES_192,AES_256,TWOFISH");
+
+    /**
+     * The algorithms accepted by keys without preferences
+     */
+    private static final String DEFAULTS = System.getProperty(
+            "watt.pgp.encryption.defaultPreferences", "AES_128,TRIPLE_DES");
+
+    /**
+     * The algorithms accepted by a key ID, as a bit set of algorithm codes
+     */
+    private static final ConcurrentHashMap<Long, Integer> accepted = new ConcurrentHashMap<Long, Integer>();
+
+    /**
+     * The allowed algorithms in order of preference; parsed on first use
+     */
+    private static volatile int[] ranking;
+
+    /**
+     * Returns the first algorithm of the policy that all recipients accept
+     *
+     * @param keys The public keys of the recipients
+     * @return The encryption algorithm
+     * @throws PGPException If the recipients have no allowed algorithm in
+     *             common
+     */
+    public static int select(PGPPublicKey[] keys) throws PGPException {
+
+        int common = ~0;
+        for (PGPPublicKey key : keys) {
+            common &= getAccepted(key);
+        }
+        for (int algorithm : getRanking()) {
+            if ((common & (1 << algorithm)) != 0) {
+                return algorithm;
+            }
+        }
+        throw new PGPException("No encryption algorithm allowed by watt.pgp.encryption.policy"
+                + " is accepted by all recipients");
+    }
+
+    /**
+     * Determines the algorithms accepted by an encryption key from the
+     * self-signatures of the key or, if they have no preferences, of its
+     * master key. The result replaces the algorithms previously determined
+     * for the key ID.
+     *
+     * @param master The master key of the key ring
+     * @param key The encryption key
+     */
+    static void register(PGPPublicKey master, PGPPublicKey key) {
+
+        int[] preferences = getPreferences(key, key.isMasterKey() ? key : master);
+        if (preferences == null && master != null && master != key) {
+            preferences = getPreferences(master, master);
+        }
+        int mask;
+        if (preferences == null) {
+            mask = toMask(DEFAULTS);
+        } else {
+            mask = 1 << SymmetricKeyAlgorithmTags.TRIPLE_DES;
+            for (int algorithm : preferences) {
+                if (algorithm >= 0 && algorithm < 32) {
+                    mask |= 1 << algorithm;
+                }
+            }
+        }
+        accepted.put(key.getKeyID(), mask);
+    }
+
+    /**
+     * Returns the allowed algorithms in order of preference
+     *
+     * @return The algorithm names, preferred first
+     */
+    public static List<String> listRanking() {
+
+        List<String> names = new ArrayList<String>();
+        for (int algorithm : getRanking()) {
+            names.add(PGPInit.getAlgorithm(algorithm));
+        }
+        return names;
+    }
+
+    /**
+     * Returns the algorithms accepted by a key, determining them from the
+     * key alone if its key ring was not registered
+     */
+    private static int getAccepted(PGPPublicKey key) {
+
+        Integer mask = accepted.get(key.getKeyID());
+        if (mask == null) {
+            register(null, key);
+            mask = accepted.get(key.getKeyID());
+        }
+        return mask;
+    }
+
+    /**
+     * Returns the preferred symmetric algorithms of the newest
+     * self-signature of a key that has preferences
+     *
+     * @param key The key whose signatures are searched
+     * @param signer The master key that made the self-signatures, or null
+     *            to accept any signature
+     * @return The algorithms, or null if no signature has preferences
+     */
+    private static int[] getPreferences(PGPPublicKey key, PGPPublicKey signer) {
+
+        int[] preferences = null;
+        Date newest = null;
+        for (Iterator<?> i = key.getSignatures(); i.hasNext();) {
+            PGPSignature signature = (PGPSignature) i.next();
+            if (signer != null && signature.getKeyID() != signer.getKeyID()) {
+                continue;
+            }
+            PGPSignatureSubpacketVector hashed = signature.getHashedSubPackets();
+            if (hashed == null || hashed.getPreferredSymmetricAlgorithms() == null) {
+                continue;
+            }
+            Date created = signature.getCreationTime();
+            if (newest == null || created.after(newest)) {
+                newest = created;
+                preferences = hashed.getPreferredSymmetricAlgorithms();
+            }
+        }
+        return preferences;
+    }
+
+    /**
+     * Returns the allowed algorithms in order of preference
+     */
+    private static int[] getRanking() {
+
+        int[] result = ranking;
+        if (result == null) {
+            result = parse(POLICY);
+            ranking = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the algorithms of a comma-separated list of algorithm names in
+     * their order, without duplicates, AUTO and unknown names
+     */
+    private static int[] parse(String names) {
+
+        List<Integer> algorithms = new ArrayList<Integer>();
+        for (String name : names.split(",")) {
+            try {
+                int algorithm = PGPInit.getAlgorithm(name.trim());
+                if (algorithm >= 0 && algorithm < 32 && !algorithms.contains(algorithm)) {
+                    algorithms.add(algorithm);
+                }
+            } catch (IllegalArgumentException iae) {
+                // Ignore unknown algorithms
+            }
+        }
+        int[] result = new int[algorithms.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = algorithms.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the bit set of a comma-separated list of algorithm names
+     */
+    private static int toMask(String names) {
+
+        int mask = 0;
+        for (String name : Arrays.asList(names.split(","))) {
+            try {
+                int algorithm = PGPInit.getAlgorithm(name.trim());
+                if (algorithm >= 0 && algorithm < 32) {
+                    mask |= 1 << algorithm;
+                }
+            } catch (IllegalArgumentException iae) {
+                // Ignore unknown algorithms
+            }
+        }
+        return mask;
+    }
+}
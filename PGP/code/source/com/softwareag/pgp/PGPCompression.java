@@ -0,0 +1,178 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.util.zip.Deflater;
+
+import org.bouncycastle.bcpg.CompressionAlgorithmTags;
+
+/**
+ * This class holds the compression settings of a message: the compression
+ * algorithm and level. The algorithm AUTO compresses with ZLIB unless a
+ * sample of the plain data, the first packet buffer of it, shows that the
+ * data is already compressed, e.g. ZIP archives, PDF or JPEG files, in
+ * which case the data is not compressed at all. Instances are immutable and shared between
+ * threads.
+ *
+ * The minimum saving for AUTO can be set through the system property
+ * watt.pgp.compression.minSaving (percent of the sample, default: 10).
+ */
+public class PGPCompression {
+
+    /**
+     * The algorithm that decides per message whether to compress
+     */
+    public static final int AUTO = -1;
+
+    /**
+     * The algorithm of the default settings, which compress with ZIP, or
+     * with ZLIB if the message is signed
+     */
+    private static final int DEFAULT_ALGORITHM = -2;
+
+    /**
+     * The default settings, as used before compression was configurable
+     */
+    public static final PGPCompression DEFAULT = new PGPCompression(
+            DEFAULT_ALGORITHM, Deflater.DEFAULT_COMPRESSION);
+
+    /**
+     * The percentage a sample must shrink by to be compressed in AUTO mode
+     */
+    private static final int MIN_SAVING = Integer.getInteger(
+            "watt.pgp.compression.minSaving", 10);
+
+    private final int algorithm;
+    private final int level;
+
+    /**
+     * Creates compression settings
+     *
+     * @param algorithm The compression algorithm or AUTO
+     * @param level The compression level from 0 to 9, or -1 for the default
+     *            level of the algorithm
+     */
+    public PGPCompression(int algorithm, int level) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level not supported: " + level);
+        }
+        this.algorithm = algorithm;
+        this.level = level;
+    }
+
+    /**
+     * Returns compression settings by name
+     *
+     * @param algorithm The algorithm name (see
+     *            {@link PGPInit#listCompressionAlgorithms()}), or null for
+     *            the default settings
+     * @param level The compression level, or null for the default level
+     * @return The compression settings
+     */
+    public static PGPCompression getCompression(String algorithm, String level) {
+
+        if ((algorithm == null || algorithm.equals(""))
+                && (level == null || level.equals(""))) {
+            return DEFAULT;
+        }
+        int number = DEFAULT_ALGORITHM;
+        if (algorithm != null && !algorithm.equals("")) {
+            number = PGPInit.getCompressionAlgorithm(algorithm);
+        }
+        int value = Deflater.DEFAULT_COMPRESSION;
+        if (level != null && !level.equals("")) {
+            try {
+                value = Integer.parseInt(level);
+            } catch (NumberFormatException nfe) {
+                throw new IllegalArgumentException("Compression level not supported: " + level);
+            }
+        }
+        return new PGPCompression(number, value);
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    @Override
+    public int hashCode() {
+        return algorithm * 31 + level;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof PGPCompression)) {
+            return false;
+        }
+        PGPCompression other = (PGPCompression) o;
+        return algorithm == other.algorithm && level == other.level;
+    }
+
+    /**
+     * Checks whether the algorithm is decided per message
+     * @return True for AUTO
+     */
+    public boolean isAuto() {
+        return algorithm == AUTO;
+    }
+
+    /**
+     * Returns the compression algorithm of a message
+     *
+     * @param signed Whether the message is signed
+     * @return The algorithm; UNCOMPRESSED if not compressing
+     */
+    public int getAlgorithm(boolean signed) {
+
+        if (algorithm == DEFAULT_ALGORITHM) {
+            return signed ? CompressionAlgorithmTags.ZLIB : CompressionAlgorithmTags.ZIP;
+        }
+        return algorithm == AUTO ? CompressionAlgorithmTags.ZLIB : algorithm;
+    }
+
+    /**
+     * Checks whether compressing a sample of plain data pays off, by
+     * compressing the sample with the fastest deflate level
+     *
+     * @param buffer The sample
+     * @param offset The start of the sample
+     * @param length The length of the sample
+     * @return True if the sample shrinks by at least the minimum saving
+     */
+    public static boolean isCompressible(byte[] buffer, int offset, int length) {
+
+        if (length == 0) {
+            return false;
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(buffer, offset, length);
+            deflater.finish();
+            byte[] out = new byte[length];
+            int size = 0;
+            while (!deflater.finished() && size < out.length) {
+                size += deflater.deflate(out, size, out.length - size);
+            }
+            return deflater.finished()
+                    && size <= (long) length * (100 - MIN_SAVING) / 100;
+        } finally {
+            deflater.end();
+        }
+    }
+}
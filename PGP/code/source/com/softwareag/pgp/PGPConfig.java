@@ -0,0 +1,255 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+/**
+ * This class provides an immutable snapshot of the package configuration
+ * (config.xml): the keys indexed by user ID and the encryption profiles
+ * indexed by name. The configuration is parsed once and the
+ * current snapshot is published through an atomic reference, so lookups take
+ * constant time and need no locking. A new snapshot is loaded on explicit
+ * reload or when the configuration file has changed on disk.
+ */
+public class PGPConfig {
+
+    /**
+     * The current configuration snapshot
+     */
+    private static final AtomicReference<PGPConfig> current = new AtomicReference<PGPConfig>();
+
+    private final File file;
+    private final long modified;
+    private final long length;
+    private final Map<String, PGPKeyConfig> keys;
+    private final Map<String, PGPProfileConfig> profiles;
+
+    private PGPConfig(File file, long modified, long length,
+            Map<String, PGPKeyConfig> keys,
+            Map<String, PGPProfileConfig> profiles) {
+        this.file = file;
+        this.modified = modified;
+        this.length = length;
+        this.keys = Collections.unmodifiableMap(keys);
+        this.profiles = Collections.unmodifiableMap(profiles);
+    }
+
+    /**
+     * Returns the current configuration. If the configuration file has
+     * changed since it was loaded, it is loaded again.
+     *
+     * @return The current configuration, or null if none has been loaded
+     * @throws IOException If a changed configuration file cannot be read
+     */
+    public static PGPConfig getConfig() throws IOException {
+
+        PGPConfig config = current.get();
+        if (config != null && !config.isCurrent()) {
+            PGPConfig next = load(config.file);
+            // Only publish if no other thread has replaced the snapshot
+            config = current.compareAndSet(config, next) ? next : current.get();
+        }
+        return config;
+    }
+
+    /**
+     * Returns the current configuration without checking the configuration
+     * file
+     *
+     * @return The current configuration, or null if none has been loaded
+     */
+    static PGPConfig getCurrent() {
+        return current.get();
+    }
+
+    /**
+     * Loads a configuration file and publishes it as the current
+     * configuration
+     *
+     * @param file The configuration file
+     * @return The new configuration
+     * @throws IOException If the file cannot be read or parsed
+     */
+    public static PGPConfig reload(File file) throws IOException {
+
+        PGPConfig config = load(file);
+        current.set(config);
+        return config;
+    }
+
+    /**
+     * Parses a configuration file
+     *
+     * @param file The configuration file
+     * @return The configuration
+     * @throws IOException If the file cannot be read or parsed
+     */
+    public static PGPConfig load(File file) throws IOException {
+
+        // Take the file state before parsing, so that a change while parsing
+        // is picked up by the next lookup
+        long modified = file.lastModified();
+        long length = file.length();
+
+        Document doc = null;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setExpandEntityReferences(false);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            doc = builder.parse(file);
+        } catch (ParserConfigurationException pce) {
+            throw new IOException("Unable to parse configuration: " + pce.getMessage());
+        } catch (SAXException se) {
+            throw new IOException("Invalid configuration " + file + ": " + se.getMessage());
+        }
+
+        // Index keys by user ID and profiles by name
+        Map<String, PGPKeyConfig> keys = new LinkedHashMap<String, PGPKeyConfig>();
+        Map<String, PGPProfileConfig> profiles = new LinkedHashMap<String, PGPProfileConfig>();
+        for (Node node = doc.getDocumentElement().getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeType() == Node.ELEMENT_NODE && "profile".equals(node.getNodeName())) {
+                Element profile = (Element) node;
+                String name = profile.getAttribute("name");
+                List<String> userIds = new ArrayList<String>();
+                for (Node child = profile.getFirstChild(); child != null; child = child.getNextSibling()) {
+                    if (child.getNodeType() == Node.ELEMENT_NODE && "userId".equals(child.getNodeName())) {
+                        userIds.add(child.getTextContent().trim());
+                    }
+                }
+                if (name.equals("") || userIds.isEmpty()) {
+                    throw new IOException("Invalid configuration " + file
+                            + ": profile without name or userId");
+                }
+                profiles.put(name, new PGPProfileConfig(name, userIds,
+                        getText(profile, "encryptionAlgorithm"),
+                        getText(profile, "signer"),
+                        getText(profile, "signingAlgorithm"),
+                        getText(profile, "compression"),
+                        getText(profile, "compressionLevel"),
+                        getText(profile, "armor")));
+            } else if (node.getNodeType() == Node.ELEMENT_NODE && "key".equals(node.getNodeName())) {
+                Element key = (Element) node;
+                String userId = key.getAttribute("userId");
+                Element pub = getChild(key, "pub");
+                Element sec = getChild(key, "sec");
+                keys.put(userId, new PGPKeyConfig(userId,
+                        getText(pub, "filename"),
+                        getText(pub, "exchangeAlgorithm"),
+                        getText(sec, "filename"),
+                        getText(sec, "secret"),
+                        getText(pub, "compression"),
+                        getText(pub, "compressionLevel"),
+                        getText(pub, "armor")));
+            }
+        }
+        return new PGPConfig(file, modified, length, keys, profiles);
+    }
+
+    /**
+     * Returns the configuration of a user ID
+     *
+     * @param userId The user ID
+     * @return The key configuration, or null if not configured
+     */
+    public PGPKeyConfig getKey(String userId) {
+        return keys.get(userId);
+    }
+
+    /**
+     * Returns the configuration of all user IDs
+     *
+     * @return The key configurations in file order
+     */
+    public Collection<PGPKeyConfig> getKeys() {
+        return keys.values();
+    }
+
+    /**
+     * Returns the configuration of an encryption profile
+     *
+     * @param name The profile name
+     * @return The profile configuration, or null if not configured
+     */
+    public PGPProfileConfig getProfile(String name) {
+        return profiles.get(name);
+    }
+
+    /**
+     * Returns the configuration of all encryption profiles
+     *
+     * @return The profile configurations in file order
+     */
+    public Collection<PGPProfileConfig> getProfiles() {
+        return profiles.values();
+    }
+
+    /**
+     * Returns the configuration file
+     *
+     * @return The file this configuration was loaded from
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Checks whether the configuration file is unchanged since it was loaded
+     *
+     * @return True if modification time and size are unchanged
+     */
+    private boolean isCurrent() {
+        return file.lastModified() == modified && file.length() == length;
+    }
+
+    private static Element getChild(Element parent, String name) {
+
+        if (parent != null) {
+            for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+                if (node.getNodeType() == Node.ELEMENT_NODE && name.equals(node.getNodeName())) {
+                    return (Element) node;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String getText(Element parent, String name) {
+
+        Element child = getChild(parent, name);
+        return child == null ? null : child.getTextContent().trim();
+    }
+}
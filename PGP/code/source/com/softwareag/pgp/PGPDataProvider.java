@@ -0,0 +1,212 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.security.AlgorithmParameters;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.CipherSpi;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
+
+/**
+ * This class provides the bulk symmetric ciphers and message digests of
+ * OpenPGP messages from the providers of the Java runtime, SunJCE and SUN,
+ * whose AES and SHA implementations use the processor's AES and SHA
+ * instructions where available. All other services, i.e. key exchange,
+ * signatures, key factories and the OpenPGP specific CFB mode of messages
+ * without integrity protection, are taken from the Bouncy Castle provider.
+ *
+ * Ciphers are requested with a complete transformation, e.g.
+ * AES/CFB/NoPadding, so the cipher of the Java runtime is created with that
+ * transformation and wrapped; cipher names and modes the Java runtime does
+ * not provide are left to Bouncy Castle.
+ */
+class PGPDataProvider extends Provider {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The symmetric ciphers taken from the Java runtime
+     */
+    private static final Set<String> CIPHERS = new HashSet<String>(Arrays.asList(
+            "AES", "DESede", "Blowfish"));
+
+    /**
+     * The modes of the symmetric ciphers taken from the Java runtime
+     */
+    private static final Set<String> MODES = new HashSet<String>(Arrays.asList("CFB"));
+
+    private final transient Provider fallback;
+    private final transient Provider ciphers;
+    private final transient Provider digests;
+
+    /**
+     * Creates the provider
+     *
+     * @param fallback The provider for all other services
+     */
+    PGPDataProvider(Provider fallback) {
+        super("PGPData", 1.0, "Java runtime ciphers and digests for OpenPGP data");
+        this.fallback = fallback;
+        this.ciphers = Security.getProvider("SunJCE");
+        this.digests = Security.getProvider("SUN");
+    }
+
+    @Override
+    public synchronized Service getService(String type, String algorithm) {
+
+        Service service = null;
+        if (type.equals("Cipher") && ciphers != null) {
+            service = getCipher(algorithm);
+        } else if (type.equals("MessageDigest") && digests != null) {
+            service = digests.getService(type, algorithm);
+        }
+        return service != null ? service : fallback.getService(type, algorithm);
+    }
+
+    /**
+     * Returns a cipher of the Java runtime for a complete transformation
+     *
+     * @param transformation The transformation
+     * @return The cipher service, or null if not taken from the Java runtime
+     */
+    private Service getCipher(final String transformation) {
+
+        String[] parts = transformation.split("/");
+        if (parts.length != 3 || !CIPHERS.contains(parts[0])
+                || !MODES.contains(parts[1].toUpperCase())
+                || ciphers.getService("Cipher", parts[0]) == null) {
+            return null;
+        }
+        return new Service(this, "Cipher", transformation,
+                JcaCipher.class.getName(), null, null) {
+            @Override
+            public Object newInstance(Object parameter) throws NoSuchAlgorithmException {
+                try {
+                    return new JcaCipher(Cipher.getInstance(transformation, ciphers));
+                } catch (NoSuchPaddingException nspe) {
+                    throw new NoSuchAlgorithmException(nspe.getMessage(), nspe);
+                }
+            }
+        };
+    }
+
+    /**
+     * A cipher of the Java runtime with a fixed transformation
+     */
+    private static class JcaCipher extends CipherSpi {
+
+        private final Cipher cipher;
+
+        private JcaCipher(Cipher cipher) {
+            this.cipher = cipher;
+        }
+
+        @Override
+        protected void engineSetMode(String mode) throws NoSuchAlgorithmException {
+            // The mode is part of the transformation
+        }
+
+        @Override
+        protected void engineSetPadding(String padding) throws NoSuchPaddingException {
+            // The padding is part of the transformation
+        }
+
+        @Override
+        protected int engineGetBlockSize() {
+            return cipher.getBlockSize();
+        }
+
+        @Override
+        protected int engineGetOutputSize(int inputLen) {
+            return cipher.getOutputSize(inputLen);
+        }
+
+        @Override
+        protected byte[] engineGetIV() {
+            return cipher.getIV();
+        }
+
+        @Override
+        protected AlgorithmParameters engineGetParameters() {
+            return cipher.getParameters();
+        }
+
+        @Override
+        protected void engineInit(int opmode, Key key, SecureRandom random)
+                throws InvalidKeyException {
+            cipher.init(opmode, key, random);
+        }
+
+        @Override
+        protected void engineInit(int opmode, Key key,
+                AlgorithmParameterSpec params, SecureRandom random)
+                throws InvalidKeyException, InvalidAlgorithmParameterException {
+            cipher.init(opmode, key, params, random);
+        }
+
+        @Override
+        protected void engineInit(int opmode, Key key,
+                AlgorithmParameters params, SecureRandom random)
+                throws InvalidKeyException, InvalidAlgorithmParameterException {
+            cipher.init(opmode, key, params, random);
+        }
+
+        @Override
+        protected byte[] engineUpdate(byte[] input, int inputOffset, int inputLen) {
+            return cipher.update(input, inputOffset, inputLen);
+        }
+
+        @Override
+        protected int engineUpdate(byte[] input, int inputOffset, int inputLen,
+                byte[] output, int outputOffset) throws ShortBufferException {
+            return cipher.update(input, inputOffset, inputLen, output, outputOffset);
+        }
+
+        @Override
+        protected byte[] engineDoFinal(byte[] input, int inputOffset, int inputLen)
+                throws IllegalBlockSizeException, BadPaddingException {
+            // Cipher passes no input for doFinal() without arguments
+            return input == null ? cipher.doFinal()
+                    : cipher.doFinal(input, inputOffset, inputLen);
+        }
+
+        @Override
+        protected int engineDoFinal(byte[] input, int inputOffset, int inputLen,
+                byte[] output, int outputOffset) throws ShortBufferException,
+                IllegalBlockSizeException, BadPaddingException {
+            return input == null ? cipher.doFinal(output, outputOffset)
+                    : cipher.doFinal(input, inputOffset, inputLen, output, outputOffset);
+        }
+    }
+}
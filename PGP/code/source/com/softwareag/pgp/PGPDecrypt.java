@@ -23,23 +23,17 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.security.NoSuchProviderException;
-import java.security.SignatureException;
 import java.util.Iterator;
-import org.bouncycastle.openpgp.PGPCompressedData;
 import org.bouncycastle.openpgp.PGPEncryptedDataList;
 import org.bouncycastle.openpgp.PGPException;
-import org.bouncycastle.openpgp.PGPLiteralData;
 import org.bouncycastle.openpgp.PGPObjectFactory;
-import org.bouncycastle.openpgp.PGPOnePassSignature;
-import org.bouncycastle.openpgp.PGPOnePassSignatureList;
 import org.bouncycastle.openpgp.PGPPrivateKey;
 import org.bouncycastle.openpgp.PGPPublicKey;
 import org.bouncycastle.openpgp.PGPPublicKeyEncryptedData;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
 import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
 import org.bouncycastle.openpgp.PGPSecretKey;
 import org.bouncycastle.openpgp.PGPSecretKeyRingCollection;
-import org.bouncycastle.openpgp.PGPSignatureList;
-import org.bouncycastle.openpgp.PGPUtil;
 
 /**
  * This class provides functionality for decrypting and optionally verifying
@@ -72,74 +66,35 @@ public class PGPDecrypt {
             PGPSecretKeyRingCollection ringSecret, char[] password)
             throws PGPException, IOException, NoSuchProviderException {
 
-        // Decode inputstream
-        cipher = PGPUtil.getDecoderStream(cipher);
-
-        // Find encrypted objects
-        PGPObjectFactory factory = new PGPObjectFactory(cipher);
-        PGPEncryptedDataList encrypted = null;
-        Object object = factory.nextObject();
-        if (PGPEncryptedDataList.class.isAssignableFrom(object.getClass())) {
-            encrypted = (PGPEncryptedDataList) object;
-        } else {
-            encrypted = (PGPEncryptedDataList) factory.nextObject();
-        }
-        if (encrypted == null) {
-            throw new PGPException("Invalid cipher data");
-        }
-
-        // Find encrypted data
-        PGPPublicKeyEncryptedData pbe = null;
-        PGPPrivateKey key = null;
-        for (Iterator<?> i = encrypted.getEncryptedDataObjects(); i.hasNext();) {
-            object = i.next();
-            if (PGPPublicKeyEncryptedData.class.isAssignableFrom(object
-                    .getClass())) {
-                pbe = (PGPPublicKeyEncryptedData) object;
-                PGPSecretKey secret = ringSecret.getSecretKey(pbe.getKeyID());
-                if (secret != null) {
-                    key = secret.extractPrivateKey(password, PGPInit.PROVIDER);
-                } else {
-                    throw new PGPException("Private key not found");
-                }
-                break;
-            }
-        }
-        if (pbe == null) {
-            throw new PGPException("No cipher data available");
-        }
-        if (key == null) {
-            throw new PGPException("Private key not valid");
-        }
+        decrypt(cipher, plain, ringSecret, password, null);
+    }
 
-        // Get encrypted data
-        InputStream clear = pbe.getDataStream(key, PGPInit.PROVIDER.getName());
-        factory = new PGPObjectFactory(clear);
-        PGPCompressedData compressed = null;
-        while ((object = factory.nextObject()) != null) {
-            if (PGPCompressedData.class.isAssignableFrom(object.getClass())) {
-                compressed = (PGPCompressedData) object;
-                break;
-            }
-        }
+    /**
+     * Decrypts cipher data from an input stream and writes plain data to an
+     * output stream. The private key is taken from the secret key ring or,
+     * if the ring is not given or does not contain the key, from the key
+     * index together with its configured password.
+     * 
+     * @param cipher An input stream with cipher data
+     * @param plain An output stream with plain data
+     * @param ringSecret A secret key ring collection, or null
+     * @param password A password for the private key in the ring
+     * @param index A key index, or null
+     * @throws PGPException If the message cannot be decrypted
+     * @throws IOException If the streams cannot be accessed
+     * @throws NoSuchProviderException If the key types are not supported
+     */
+    public static void decrypt(InputStream cipher, OutputStream plain,
+            PGPSecretKeyRingCollection ringSecret, char[] password,
+            PGPKeyIndex index)
+            throws PGPException, IOException, NoSuchProviderException {
 
-        factory = new PGPObjectFactory(compressed.getDataStream());
-        PGPLiteralData literal = null;
-        while ((object = factory.nextObject()) != null) {
-            if (PGPLiteralData.class.isAssignableFrom(object.getClass())) {
-                literal = (PGPLiteralData) object;
-                break;
-            }
-        }
-        clear = literal.getInputStream();
+        int size = PGPBufferPool.getBufferSize(cipher.available());
+        PGPDecryptingInputStream clear = new PGPDecryptingInputStream(cipher,
+                false, ringSecret, password, null, index, false);
 
         // Write decrypted data
-        byte[] buffer = new byte[512];
-        int read = 0;
-        while ((read = clear.read(buffer)) > 0) {
-            plain.write(buffer, 0, read);
-        }
-        plain.flush();
+        copy(clear, plain, size);
     }
 
     /**
@@ -165,8 +120,103 @@ public class PGPDecrypt {
             PGPPublicKeyRingCollection ringPub)
             throws PGPException, IOException, NoSuchProviderException {
 
+        return decryptAndVerify(cipher, plain, ringSecret, password, ringPub, null);
+    }
+
+    /**
+     * Decrypts cipher data from an input stream, writes plain data to an
+     * output stream and verifies the signature. The private key is taken
+     * from the given secret key ring or, if the ring is not given or does not
+     * contain the key, from the key index. The public key of the signer is
+     * taken from the given public key ring or, only if no public key ring is
+     * given, from the key index. A signature by a key that cannot be found is
+     * reported as not verified.
+     * 
+     * @param cipher An input stream with cipher data
+     * @param plain An output stream with plain data
+     * @param ringSecret A secret key ring collection, or null
+     * @param password A password for the private key in the ring
+     * @param ringPub A public key ring collection, or null
+     * @param index A key index, or null
+     * @return 0 if not signed, 1 if verified, -1 if not verified
+     * @throws PGPException If the message cannot be decrypted
+     * @throws IOException If the streams cannot be accessed
+     * @throws NoSuchProviderException If the key types are not supported
+     */
+    public static int decryptAndVerify(InputStream cipher, OutputStream plain,
+            PGPSecretKeyRingCollection ringSecret, char[] password, 
+            PGPPublicKeyRingCollection ringPub, PGPKeyIndex index)
+            throws PGPException, IOException, NoSuchProviderException {
+
+        long size = cipher.available();
+        PGPDecryptingInputStream clear = new PGPDecryptingInputStream(cipher,
+                false, ringSecret, password, ringPub, index, true);
+
+        // Write decrypted data; the signature is verified at the end
+        decrypt(clear, plain, size);
+        return clear.getVerified();
+    }
+
+    /**
+     * Writes the plain data of an opened message to an output stream. If the
+     * message is signed, the result of the verification and the signer are
+     * available from the stream afterwards.
+     *
+     * @param clear The opened message
+     * @param plain An output stream with plain data
+     * @param size The size of the cipher data, or 0 if not known
+     * @throws IOException If the streams cannot be accessed
+     */
+    public static void decrypt(PGPDecryptingInputStream clear,
+            OutputStream plain, long size) throws IOException {
+
+        copy(clear, plain, PGPBufferPool.getBufferSize(size));
+    }
+
+    /**
+     * Writes decrypted data to an output stream until the end of the plain
+     * data, using a pooled buffer
+     *
+     * @param clear The decrypted data
+     * @param plain An output stream with plain data
+     * @param size The buffer size
+     * @throws IOException If the streams cannot be accessed
+     */
+    private static void copy(InputStream clear, OutputStream plain, int size)
+            throws IOException {
+
+        byte[] buffer = PGPBufferPool.acquire(size);
+        try {
+            int read = 0;
+            while ((read = clear.read(buffer)) >= 0) {
+                plain.write(buffer, 0, read);
+            }
+        } finally {
+            PGPBufferPool.release(buffer);
+        }
+        plain.flush();
+    }
+
+    /**
+     * Decodes cipher data and opens the encrypted data for which a private
+     * key is available
+     *
+     * @param cipher An input stream with cipher data
+     * @param ringSecret A secret key ring collection, or null
+     * @param password A password for the private key in the ring
+     * @param index A key index, or null
+     * @return The decrypted data stream
+     * @throws PGPException If the message cannot be decrypted
+     * @throws IOException If the stream cannot be accessed
+     * @throws NoSuchProviderException If the key types are not supported
+     */
+    static InputStream open(InputStream cipher,
+            PGPSecretKeyRingCollection ringSecret, char[] password,
+            PGPKeyIndex index)
+            throws PGPException, IOException, NoSuchProviderException {
+
         // Decode inputstream
-        cipher = PGPUtil.getDecoderStream(cipher);
+        cipher = PGPArmor.getDecoderStream(cipher);
 
         // Find encrypted objects
         PGPObjectFactory factory = new PGPObjectFactory(cipher);
@@ -182,87 +232,151 @@ public class PGPDecrypt {
             throw new PGPException("Invalid cipher data");
         }
 
-        // Find encrypted data
+        // Find encrypted data for which a private key is available
         PGPPublicKeyEncryptedData pbe = null;
         PGPPrivateKey key = null;
-        for (Iterator<?> i = encrypted.getEncryptedDataObjects(); i.hasNext();) {
+        for (Iterator<?> i = encrypted.getEncryptedDataObjects(); key == null && i.hasNext();) {
             object = i.next();
             if (PGPPublicKeyEncryptedData.class.isAssignableFrom(object
                     .getClass())) {
                 pbe = (PGPPublicKeyEncryptedData) object;
-                PGPSecretKey secret = ringSecret.getSecretKey(pbe.getKeyID());
-                if (secret != null) {
-                    key = secret.extractPrivateKey(password, PGPInit.PROVIDER);
-                } else {
-                    throw new PGPException("Private key not found");
-                }
-                break;
+                key = extractPrivateKey(pbe.getKeyID(), ringSecret, password, index);
             }
         }
         if (pbe == null) {
             throw new PGPException("No cipher data available");
         }
         if (key == null) {
-            throw new PGPException("Private key not valid");
+            throw new PGPException("Private key not found");
         }
+        return pbe.getDataStream(key, PGPInit.PROVIDER, PGPInit.getDataProvider());
+    }
 
-        // Get encrypted data
-        InputStream clear = pbe.getDataStream(key, PGPInit.PROVIDER.getName());
-        factory = new PGPObjectFactory(clear);
-        PGPCompressedData compressed = null;
-        while ((object = factory.nextObject()) != null) {
-            if (PGPCompressedData.class.isAssignableFrom(object.getClass())) {
-                compressed = (PGPCompressedData) object;
-                break;
-            }
-        }
+    /**
+     * Extracts the private key of a key ID from the secret key ring or, if
+     * not contained, from the key index. Key IDs that are not found are
+     * remembered in the negative cache for the ring and index searched.
+     *
+     * @param keyId The key identifier
+     * @param ringSecret A secret key ring collection, or null
+     * @param password A password for the private key in the ring
+     * @param index A key index, or null
+     * @return The private key, or null if the key is not available
+     * @throws PGPException If the private key cannot be extracted
+     * @throws NoSuchProviderException If the key type is not supported
+     */
+    private static PGPPrivateKey extractPrivateKey(long keyId,
+            PGPSecretKeyRingCollection ringSecret, char[] password,
+            PGPKeyIndex index) throws PGPException, NoSuchProviderException {
 
-        int verified = 0;
-        
-        factory = new PGPObjectFactory(compressed.getDataStream());
-        PGPLiteralData literal = null;
-        PGPOnePassSignatureList signatures = null;
-        PGPOnePassSignature ops = null;
-        PGPPublicKey pubKey = null;
-        while ((object = factory.nextObject()) != null) {
-            if (PGPOnePassSignatureList.class.isAssignableFrom(object
-                    .getClass())) {
-                // Verify signature
-                signatures = (PGPOnePassSignatureList) object;
-                ops = signatures.get(0);
-                pubKey = ringPub.getPublicKey(ops.getKeyID());
-                ops.initVerify(pubKey, PGPInit.PROVIDER);
-            } else if (PGPLiteralData.class.isAssignableFrom(object.getClass())) {
-                literal = (PGPLiteralData) object;
-                clear = literal.getInputStream();
-
-                // Write decrypted data
-                try {
-                    byte[] buffer = new byte[8192];
-                    int read = 0;
-                    while ((read = clear.read(buffer)) > 0) {
-                        plain.write(buffer, 0, read);
-                        if (ops != null) {
-                            ops.update(buffer, 0, read);
-                        }
-                    }
-                    if (ops != null) {
-                        if (ops.verify(((PGPSignatureList)factory.nextObject()).get(0))) {
-                            verified = 1;
-                        } else {
-                            verified = -1;
-                        }
-                    } else {
-                        verified = 0;
-                    }
-                } catch (SignatureException se) {
-                    se.printStackTrace();
+        MissingKey missing = new MissingKey(keyId, ringSecret, index);
+        if (PGPNegativeCache.get(missing) != null) {
+            return null;
+        }
+        PGPSecretKey secret = null;
+        if (ringSecret != null) {
+            secret = ringSecret.getSecretKey(keyId);
+        }
+        if (secret == null && index != null) {
+            PGPKeyIndex.Entry entry = index.get(keyId);
+            if (entry != null && entry.getSecretKey() != null) {
+                secret = entry.getSecretKey();
+                if (entry.getPassword() != null) {
+                    password = entry.getPassword();
                 }
-            } else {
             }
         }
+        if (secret == null) {
+            PGPNegativeCache.put(missing, "Private key not found");
+            return null;
+        }
+        PGPPrivateKey key = PGPPrivateKeyCache.extractPrivateKey(secret,
+                password != null ? password : new char[0]);
+        if (key == null) {
+            throw new PGPException("Private key not valid");
+        }
+        return key;
+    }
 
-        plain.flush();
-        return verified;
+    /**
+     * Returns the public key of a key ID from the public key ring or, if no
+     * ring is given, from the key index. A given ring is never widened, so
+     * only its keys are accepted as signers.
+     *
+     * @param keyId The key identifier
+     * @param ringPub A public key ring collection, or null
+     * @param index A key index, or null
+     * @return The public key, or null if the key is not available
+     * @throws PGPException If the key ring cannot be searched
+     */
+    static PGPPublicKey getPublicKey(long keyId,
+            PGPPublicKeyRingCollection ringPub, PGPKeyIndex index)
+            throws PGPException {
+
+        if (ringPub != null) {
+            return ringPub.getPublicKey(keyId);
+        }
+        return index != null ? index.getPublicKey(keyId) : null;
+    }
+
+    /**
+     * Returns the user ID of a key ID: the first user ID of its key ring in
+     * the public key ring or, if no ring is given, the configured user ID of
+     * the key in the key index
+     *
+     * @param keyId The key identifier
+     * @param ringPub A public key ring collection, or null
+     * @param index A key index, or null
+     * @return The user ID, or null if not known
+     * @throws PGPException If the key ring cannot be searched
+     */
+    static String getUserId(long keyId, PGPPublicKeyRingCollection ringPub,
+            PGPKeyIndex index) throws PGPException {
+
+        if (ringPub != null) {
+            PGPPublicKeyRing ring = ringPub.getPublicKeyRing(keyId);
+            Iterator<?> userIds = ring != null ? ring.getPublicKey().getUserIDs() : null;
+            return userIds != null && userIds.hasNext() ? (String) userIds.next() : null;
+        }
+        PGPKeyIndex.Entry entry = index != null ? index.get(keyId) : null;
+        return entry != null ? entry.getUserId() : null;
+    }
+
+    /**
+     * A key ID that was not found in a secret key ring and key index. The
+     * ring is identified by a hash of its key IDs and the index by its
+     * generation, so the cache holds no references to key rings or indexes
+     * and a rebuilt index is searched again.
+     */
+    private static class MissingKey {
+
+        private final long keyId;
+        private final long ringId;
+        private final long generation;
+
+        private MissingKey(long keyId, PGPSecretKeyRingCollection ringSecret,
+                PGPKeyIndex index) {
+            this.keyId = keyId;
+            // Computed once per key ring, with its key selection
+            this.ringId = ringSecret != null
+                    ? PGPKeySelection.get(ringSecret).getRingId() : 0;
+            this.generation = index != null ? index.getGeneration() : 0;
+        }
+
+        @Override
+        public int hashCode() {
+            long h = keyId * 31 + ringId * 17 + generation;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof MissingKey)) {
+                return false;
+            }
+            MissingKey other = (MissingKey) o;
+            return keyId == other.keyId && ringId == other.ringId
+                    && generation == other.generation;
+        }
     }
 }
@@ -0,0 +1,287 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.NoSuchProviderException;
+import java.security.SignatureException;
+
+import org.bouncycastle.openpgp.PGPCompressedData;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPLiteralData;
+import org.bouncycastle.openpgp.PGPObjectFactory;
+import org.bouncycastle.openpgp.PGPOnePassSignature;
+import org.bouncycastle.openpgp.PGPOnePassSignatureList;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
+import org.bouncycastle.openpgp.PGPSecretKeyRingCollection;
+import org.bouncycastle.openpgp.PGPSignatureList;
+
+/**
+ * This class provides the plain data of an encrypted message as an input
+ * stream. Armor, session key, compression and literal data are unwrapped as
+ * the caller reads, so the plain data is never held in memory as a whole.
+ * If the message is signed, the signature is verified when the stream
+ * reaches the end of the plain data; the result is then available from
+ * {@link #getVerified()} and the signer from {@link #getSignerKeyId()} and
+ * {@link #getSignerUserId()}. The public key of the signer is taken from the
+ * given public key ring or, only if no ring is given, from the key index.
+ *
+ * Consumers that cannot check the result, e.g. flows that pass the stream
+ * on, open the stream with signatures required: reading the end of the
+ * plain data then throws an IOException if the message is signed and the
+ * signature does not verify, and the stream cannot be opened if the
+ * signer is not known. Unsigned messages are read as usual.
+ */
+public class PGPDecryptingInputStream extends InputStream {
+
+    private final InputStream cipher;
+    private final boolean closeCipher;
+    private final PGPObjectFactory factory;
+    private final InputStream literal;
+    private final boolean required;
+    private PGPOnePassSignature ops;
+    private int verified = 0;
+    private long signerKeyId = 0;
+    private String signerUserId;
+    private boolean complete = false;
+    private boolean closed = false;
+    private String failure;
+
+    /**
+     * Opens an encrypted message and reads up to the start of the plain data
+     *
+     * @param cipher An input stream with cipher data
+     * @param closeCipher Whether to close the cipher data stream when this
+     *            stream is closed
+     * @param ringSecret A secret key ring collection, or null
+     * @param password A password for the private key in the ring
+     * @param ringPub A public key ring collection, or null
+     * @param index A key index, or null
+     * @param verify Whether to verify the signature, if the message is signed
+     * @throws PGPException If the message cannot be decrypted
+     * @throws IOException If the stream cannot be accessed
+     * @throws NoSuchProviderException If the key types are not supported
+     */
+    public PGPDecryptingInputStream(InputStream cipher, boolean closeCipher,
+            PGPSecretKeyRingCollection ringSecret, char[] password,
+            PGPPublicKeyRingCollection ringPub, PGPKeyIndex index,
+            boolean verify) throws PGPException, IOException,
+            NoSuchProviderException {
+        this(cipher, closeCipher, ringSecret, password, ringPub, index, verify,
+                false);
+    }
+
+    /**
+     * Opens an encrypted message and reads up to the start of the plain
+     * data, optionally requiring the signature of a signed message to verify
+     *
+     * @param cipher An input stream with cipher data
+     * @param closeCipher Whether to close the cipher data stream when this
+     *            stream is closed
+     * @param ringSecret A secret key ring collection, or null
+     * @param password A password for the private key in the ring
+     * @param ringPub A public key ring collection, or null
+     * @param index A key index, or null
+     * @param verify Whether to verify the signature, if the message is signed
+     * @param required Whether reading the end of a signed message fails
+     *            unless the signature is verified; requires verify
+     * @throws PGPException If the message cannot be decrypted, or the signer
+     *             of a message whose signature is required is not known
+     * @throws IOException If the stream cannot be accessed
+     * @throws NoSuchProviderException If the key types are not supported
+     */
+    public PGPDecryptingInputStream(InputStream cipher, boolean closeCipher,
+            PGPSecretKeyRingCollection ringSecret, char[] password,
+            PGPPublicKeyRingCollection ringPub, PGPKeyIndex index,
+            boolean verify, boolean required) throws PGPException, IOException,
+            NoSuchProviderException {
+        this.cipher = cipher;
+        this.closeCipher = closeCipher;
+        this.required = required && verify;
+
+        // Unwrap the session key and the compressed data
+        InputStream clear = PGPDecrypt.open(cipher, ringSecret, password, index);
+        PGPObjectFactory factory = new PGPObjectFactory(clear);
+        Object object = factory.nextObject();
+        if (object instanceof PGPCompressedData) {
+            factory = new PGPObjectFactory(((PGPCompressedData) object).getDataStream());
+            object = factory.nextObject();
+        }
+
+        // Set up verification and find the literal data
+        while (object != null && !(object instanceof PGPLiteralData)) {
+            if (object instanceof PGPOnePassSignatureList && verify) {
+                PGPOnePassSignature next = ((PGPOnePassSignatureList) object).get(0);
+                signerKeyId = next.getKeyID();
+                PGPPublicKey pubKey = PGPDecrypt.getPublicKey(signerKeyId, ringPub, index);
+                if (pubKey != null) {
+                    next.initVerify(pubKey, PGPInit.getDataProvider());
+                    ops = next;
+                    signerUserId = PGPDecrypt.getUserId(signerKeyId, ringPub, index);
+                } else if (this.required) {
+                    throw new PGPException("Public key of signer not found: "
+                            + signerKeyId);
+                } else {
+                    // Unknown signer, the signature cannot be verified
+                    verified = -1;
+                }
+            }
+            object = factory.nextObject();
+        }
+        if (object == null) {
+            throw new PGPException("Invalid cipher data");
+        }
+        this.factory = factory;
+        this.literal = ((PGPLiteralData) object).getInputStream();
+    }
+
+    @Override
+    public int read() throws IOException {
+
+        byte[] one = new byte[1];
+        int read = read(one, 0, 1);
+        return read < 0 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+
+        if (closed) {
+            throw new IOException("Stream is closed");
+        }
+        if (complete) {
+            return end();
+        }
+        int read = literal.read(b, off, len);
+        if (read < 0) {
+            finish();
+            return end();
+        }
+        if (ops != null) {
+            try {
+                ops.update(b, off, read);
+            } catch (SignatureException se) {
+                // The signature cannot be verified
+                ops = null;
+                verified = -1;
+            }
+        }
+        return read;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return complete ? 0 : literal.available();
+    }
+
+    /**
+     * Returns the result of the signature verification. The result is final
+     * once the stream has reached the end of the plain data.
+     *
+     * @return 0 if not signed, 1 if verified, -1 if not verified
+     */
+    public int getVerified() {
+        return verified;
+    }
+
+    /**
+     * Returns the key ID of the signing key named by the message
+     *
+     * @return The key ID, or 0 if the message is not signed or not verified
+     */
+    public long getSignerKeyId() {
+        return signerKeyId;
+    }
+
+    /**
+     * Returns the user ID of the signing key, from the key ring or key index
+     * the key was found in
+     *
+     * @return The user ID, or null if the signer is not known
+     */
+    public String getSignerUserId() {
+        return signerUserId;
+    }
+
+    /**
+     * Checks whether the plain data has been read to its end
+     *
+     * @return True if the end of the plain data was reached
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (closeCipher) {
+            cipher.close();
+        }
+    }
+
+    /**
+     * Returns the end of the stream, unless a required signature is not
+     * verified
+     *
+     * @return -1
+     * @throws IOException If the required signature is not verified
+     */
+    private int end() throws IOException {
+
+        if (failure != null) {
+            throw new IOException(failure);
+        }
+        return -1;
+    }
+
+    /**
+     * Verifies the signature that follows the plain data
+     *
+     * @throws IOException If the signature cannot be read
+     */
+    private void finish() throws IOException {
+
+        complete = true;
+        if (ops != null) {
+            Object object = factory.nextObject();
+            try {
+                if (object instanceof PGPSignatureList
+                        && ops.verify(((PGPSignatureList) object).get(0))) {
+                    verified = 1;
+                } else {
+                    verified = -1;
+                }
+            } catch (PGPException pgpe) {
+                verified = -1;
+            } catch (SignatureException se) {
+                verified = -1;
+            }
+        }
+        if (required && verified == -1) {
+            failure = "Signature of signer " + signerKeyId + " not verified";
+        }
+    }
+}
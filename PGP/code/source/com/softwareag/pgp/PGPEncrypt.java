@@ -23,12 +23,12 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
-import java.security.SecureRandom;
 import java.security.SignatureException;
-import java.util.Iterator;
-import java.util.Stack;
-import org.bouncycastle.bcpg.ArmoredOutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import org.bouncycastle.bcpg.BCPGOutputStream;
+import org.bouncycastle.bcpg.CompressionAlgorithmTags;
 import org.bouncycastle.openpgp.PGPCompressedDataGenerator;
 import org.bouncycastle.openpgp.PGPEncryptedDataGenerator;
 import org.bouncycastle.openpgp.PGPException;
@@ -36,9 +36,7 @@ import org.bouncycastle.openpgp.PGPLiteralData;
 import org.bouncycastle.openpgp.PGPLiteralDataGenerator;
 import org.bouncycastle.openpgp.PGPPrivateKey;
 import org.bouncycastle.openpgp.PGPPublicKey;
-import org.bouncycastle.openpgp.PGPSignature;
 import org.bouncycastle.openpgp.PGPSignatureGenerator;
-import org.bouncycastle.openpgp.PGPSignatureSubpacketGenerator;
 
 /**
  * This class provides functionality for encrypting and optionally signing data
@@ -46,11 +44,6 @@ import org.bouncycastle.openpgp.PGPSignatureSubpacketGenerator;
  */
 public class PGPEncrypt {
 
-    /**
-     * The default block size
-     */
-    private static final int BLOCK = 8192;
-
     static {
         // Initialize PGP provider
         PGPInit.init();
@@ -60,7 +53,9 @@ public class PGPEncrypt {
      * Encrypts plain data from an input stream and writes cipher data to an
      * output stream. If the useArmor flag is set, the cipher data is written to
      * the output stream as an ASCII text. If not set, the output data is
-     * written as raw bytes.
+     * written as raw bytes. The plain data is read until the end of the
+     * stream and written in partial-length packets, so streams of unknown
+     * size are encrypted in one pass.
      * 
      * @param plain An intput stream with plain data
      * @param cipher An output stream with cipher data
@@ -75,58 +70,49 @@ public class PGPEncrypt {
             PGPPublicKey key, int algorithm, boolean useArmor, String filename)
             throws PGPException, IOException, NoSuchProviderException {
 
-        // Stream stack
-        Stack<OutputStream> streams = new Stack<OutputStream>();
-
-        // Create armored output stream
-        OutputStream out = cipher;
-        if (useArmor) {
-            out = new ArmoredOutputStream(cipher);
-        }
+        encrypt(plain, cipher, new PGPPublicKey[] { key }, algorithm,
+                useArmor, filename, PGPCompression.DEFAULT);
+    }
 
-        // Create encrypting stream
-        streams.push(out);
-        PGPEncryptedDataGenerator encrypt = new PGPEncryptedDataGenerator(
-                algorithm, true, new SecureRandom(), PGPInit.PROVIDER);
-        encrypt.addMethod(key);
-        out = encrypt.open(out, new byte[BLOCK]);
-
-        // Create compressed stream
-        streams.push(out);
-        PGPCompressedDataGenerator compress = new PGPCompressedDataGenerator(
-                PGPCompressedDataGenerator.ZIP);
-        out = compress.open(out);
-
-        // Create literal stream
-        streams.push(out);
-        PGPLiteralDataGenerator literal = new PGPLiteralDataGenerator();
-        out = literal.open(out, PGPLiteralData.BINARY, PGPLiteralData.CONSOLE,
-                plain.available(), PGPLiteralData.NOW);
-
-        // Write plain to encrypted stream");
-        byte[] buffer = new byte[BLOCK];
-        while (plain.available() > 0) {
-            int read = plain.read(buffer);
-            out.write(buffer, 0, read);
-        }
+    /**
+     * Encrypts plain data for several recipients. The plain data is
+     * compressed and encrypted once with a session key, which is encrypted
+     * with the public key of every recipient, so any of the recipients can
+     * decrypt the message.
+     * 
+     * @param plain An intput stream with plain data
+     * @param cipher An output stream with cipher data
+     * @param keys The PGP public keys of the recipients
+     * @param algorithm The symmetric key encryption algorithm
+     * @param useArmor Flag for encoding output to ASCII
+     * @param compression The compression settings
+     * @throws PGPException If the message cannot be encrypted
+     * @throws IOException If the streams cannot be accessed
+     * @throws NoSuchProviderException If the keys or algorithms are not supported
+     */
+    public static void encrypt(InputStream plain, OutputStream cipher,
+            PGPPublicKey[] keys, int algorithm, boolean useArmor,
+            String filename, PGPCompression compression) throws PGPException,
+            IOException, NoSuchProviderException {
 
-        // Close all streams
-        while (!streams.isEmpty()) {
-            try {
-                OutputStream next = streams.pop();
-                next.flush();
-                next.close();
-            } catch (Exception e) {
-            }
+        // Not signing, so no signature or hash algorithm failures
+        try {
+            encrypt(plain, cipher, new PGPEncryptProfile(keys, algorithm,
+                    useArmor, null, 0, compression));
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new PGPException("Unable to encrypt data", nsae);
+        } catch (SignatureException se) {
+            throw new PGPException("Unable to encrypt data", se);
         }
-        cipher.flush();
     }
 
     /**
      * Encrypts plain data from an input stream and writes cipher data to an
      * output stream. If the useArmor flag is set, the cipher data is written to
      * the output stream as an ASCII text. If not set, the output data is
-     * written as raw bytes.
+     * written as raw bytes. The plain data is read until the end of the
+     * stream and written in partial-length packets, so streams of unknown
+     * size are encrypted in one pass.
      * 
      * @param plain An intput stream with plain data
      * @param cipher An output stream with cipher data
@@ -148,69 +134,339 @@ public class PGPEncrypt {
         throws PGPException, IOException, NoSuchProviderException, 
             SignatureException, NoSuchAlgorithmException {
 
-        Stack<OutputStream> streams = new Stack<OutputStream>();
+        encryptAndSign(plain, cipher, new PGPPublicKey[] { key }, algorithm,
+                useArmor, keyPrivate, password, hash, PGPCompression.DEFAULT);
+    }
 
-        // Create armored output stream
-        OutputStream out = cipher;
-        if (useArmor) {
-            out = new ArmoredOutputStream(cipher);
+    /**
+     * Encrypts and signs plain data for several recipients. The plain data is
+     * compressed, signed and encrypted once with a session key, which is
+     * encrypted with the public key of every recipient.
+     * 
+     * @param plain An intput stream with plain data
+     * @param cipher An output stream with cipher data
+     * @param keys The PGP public keys of the recipients
+     * @param algorithm The encryption algorithm
+     * @param useArmor Flag for encoding output to ASCII
+     * @param keyPrivate A private key for signing the data
+     * @param password The password for the private key
+     * @param hash The algorithm for signing (hash/digest)
+     * @param compression The compression settings
+     * @throws PGPException If the message cannot be encrypted
+     * @throws IOException If the streams cannot be accessed
+     * @throws NoSuchProviderException If the key types are not supported
+     * @throws SignatureException If the signature cannot be created
+     * @throws NoSuchAlgorithmException If the algorithms are not supported
+     */
+    public static void encryptAndSign(InputStream plain, OutputStream cipher,
+            PGPPublicKey[] keys, int algorithm, boolean useArmor,
+            PGPPrivateKey keyPrivate, char[] password, int hash,
+            PGPCompression compression)
+        throws PGPException, IOException, NoSuchProviderException,
+            SignatureException, NoSuchAlgorithmException {
+
+        encrypt(plain, cipher, new PGPEncryptProfile(keys, algorithm,
+                useArmor, keyPrivate, hash, compression));
+    }
+
+    /**
+     * Encrypts and, if the profile has a signing key, signs plain data with
+     * the settings of a profile. The profile can be shared by concurrent
+     * calls.
+     * 
+     * @param plain An intput stream with plain data
+     * @param cipher An output stream with cipher data
+     * @param profile The recipients, algorithms and output format
+     * @throws PGPException If the message cannot be encrypted
+     * @throws IOException If the streams cannot be accessed
+     * @throws NoSuchProviderException If the key types are not supported
+     * @throws SignatureException If the signature cannot be created
+     * @throws NoSuchAlgorithmException If the algorithms are not supported
+     */
+    public static void encrypt(InputStream plain, OutputStream cipher,
+            PGPEncryptProfile profile)
+        throws PGPException, IOException, NoSuchProviderException,
+            SignatureException, NoSuchAlgorithmException {
+
+        int size = PGPBufferPool.getBufferSize(plain.available());
+        Writer writer = Writer.open(cipher, profile, size);
+        copy(plain, writer, size);
+        writer.finish();
+    }
+
+    /**
+     * Writes plain data from an input stream to an encrypting writer until
+     * the end of the stream, using a pooled buffer
+     *
+     * @param plain The plain data
+     * @param writer The writer
+     * @param size The buffer size
+     * @throws IOException If the streams cannot be accessed
+     * @throws SignatureException If the data cannot be signed
+     */
+    private static void copy(InputStream plain, Writer writer, int size)
+            throws IOException, SignatureException {
+
+        byte[] buffer = PGPBufferPool.acquire(size);
+        try {
+            int read = 0;
+            while ((read = plain.read(buffer)) >= 0) {
+                writer.write(buffer, 0, read);
+            }
+        } finally {
+            PGPBufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * This class writes plain data into the packet streams of an encrypted
+     * and optionally signed message. The cipher data is written to the
+     * underlying output stream as the plain data is written, in
+     * partial-length packets, so the size of the plain data need not be
+     * known before it ends. With AUTO compression, the plain data is held
+     * back until a full packet buffer of it, or the whole message if it is
+     * shorter, has been written; this sample decides whether the data is
+     * compressed, and the packets inside the encrypted data are opened
+     * with it. The sample and packet buffers are taken
+     * from the buffer pool and returned when the message is finished.
+     */
+    static class Writer {
+
+        private final ArrayDeque<OutputStream> streams = new ArrayDeque<OutputStream>(4);
+        private final List<byte[]> buffers = new ArrayList<byte[]>(3);
+        private final OutputStream cipher;
+        private final PGPEncryptProfile profile;
+        private final PGPSignatureGenerator signer;
+        private final PGPCompression compression;
+        private final int bufferSize;
+        private OutputStream out;
+        private BCPGOutputStream bcp;
+        private byte[] sample;
+        private int sampled;
+
+        private Writer(OutputStream cipher, PGPEncryptProfile profile,
+                PGPSignatureGenerator signer, int bufferSize) {
+            this.cipher = cipher;
+            this.profile = profile;
+            this.signer = signer;
+            this.compression = profile.getCompression();
+            this.bufferSize = bufferSize;
+        }
+
+        /**
+         * Opens the packet streams of a message
+         *
+         * @param cipher An output stream for the cipher data
+         * @param profile The recipients, algorithms and output format
+         * @param bufferSize The packet buffer size, see
+         *            {@link PGPBufferPool#getBufferSize(long)}
+         * @return The writer
+         * @throws PGPException If the message cannot be encrypted
+         * @throws IOException If the stream cannot be accessed
+         * @throws NoSuchProviderException If the key types are not supported
+         * @throws NoSuchAlgorithmException If the algorithms are not supported
+         */
+        static Writer open(OutputStream cipher, PGPEncryptProfile profile,
+                int bufferSize) throws PGPException, IOException,
+                NoSuchProviderException, NoSuchAlgorithmException {
+
+            Writer writer = new Writer(cipher, profile, profile.acquireSigner(),
+                    bufferSize);
+
+            // Create armored output stream; the cipher stream itself belongs
+            // to the caller and is not closed
+            OutputStream out = cipher;
+            if (profile.isArmored()) {
+                out = PGPArmor.getEncoderStream(cipher);
+                writer.streams.push(out);
+            }
+
+            // Create encrypting stream; the session key is encrypted for
+            // every recipient, the data only once
+            PGPEncryptedDataGenerator encrypt = new PGPEncryptedDataGenerator(
+                    profile.getAlgorithm(), true, PGPRandom.get(),
+                    PGPInit.getDataProvider());
+            for (PGPPublicKey key : profile.keys()) {
+                encrypt.addMethod(key);
+            }
+            out = encrypt.open(out, writer.acquire());
+            writer.streams.push(out);
+
+            if (!writer.compression.isAuto()) {
+                writer.openData(writer.compression.getAlgorithm(writer.signer != null));
+            }
+            return writer;
         }
 
-        // Create encrypting stream
-        streams.push(out);
-        PGPEncryptedDataGenerator encrypt = new PGPEncryptedDataGenerator(
-                algorithm, true, new SecureRandom(),
-                PGPInit.PROVIDER);
-        encrypt.addMethod(key);
-        out = encrypt.open(out, new byte[BLOCK]);
-
-        // Set up signing
-        int sign = PGPInit.getKeyExchangeAlgorithm(keyPrivate.getKey().getAlgorithm());
-        PGPSignatureGenerator signer = new PGPSignatureGenerator(sign, hash,
-                PGPInit.PROVIDER);
-        signer.initSign(PGPSignature.BINARY_DOCUMENT, keyPrivate);
-        Iterator<?> iterator = key.getUserIDs();
-        if (iterator.hasNext()) {
-            PGPSignatureSubpacketGenerator gen = new PGPSignatureSubpacketGenerator();
-            gen.setSignerUserID(false, (String) iterator.next());
-            signer.setHashedSubpackets(gen.generate());
+        /**
+         * Opens the compressed data, if compressing, the one-pass signature,
+         * if signing, and the literal data
+         *
+         * @param algorithm The compression algorithm
+         * @throws PGPException If the message cannot be encrypted
+         * @throws IOException If the stream cannot be accessed
+         */
+        private void openData(int algorithm) throws PGPException, IOException {
+
+            // Create compressed stream
+            OutputStream out = streams.peek();
+            if (algorithm != CompressionAlgorithmTags.UNCOMPRESSED) {
+                PGPCompressedDataGenerator compress = new PGPCompressedDataGenerator(
+                        algorithm, compression.getLevel());
+                out = compress.open(out, acquire());
+                streams.push(out);
+            }
+
+            // Create signature streams
+            if (signer != null) {
+                bcp = new BCPGOutputStream(out);
+                signer.generateOnePassVersion(false).encode(bcp);
+                out = bcp;
+            }
+
+            // Create literal stream with partial lengths, as the size of the
+            // plain data is not known before the end of the stream
+            PGPLiteralDataGenerator literal = new PGPLiteralDataGenerator();
+            this.out = literal.open(out, PGPLiteralData.BINARY, PGPLiteralData.CONSOLE,
+                    PGPLiteralData.NOW, acquire());
         }
 
-        // Create signature streams
-        streams.push(out);
-        PGPCompressedDataGenerator cdg = new PGPCompressedDataGenerator(
-                PGPCompressedDataGenerator.ZLIB);
-        BCPGOutputStream bcp = new BCPGOutputStream(cdg.open(out));
-        signer.generateOnePassVersion(false).encode(bcp);
-        out = bcp;
-
-        // Create literal stream
-        streams.push(out);
-        PGPLiteralDataGenerator literal = new PGPLiteralDataGenerator();
-        out = literal.open(out, PGPLiteralData.BINARY, PGPLiteralData.CONSOLE,
-                plain.available(), PGPLiteralData.NOW);
-
-        // Write plain to encrypted stream
-        byte[] buffer = new byte[BLOCK];
-        while (plain.available() > 0) {
-            int read = plain.read(buffer);
-            signer.update(buffer, 0, read);
-            out.write(buffer, 0, read);
+        /**
+         * Writes plain data to the message
+         *
+         * @param buffer The plain data
+         * @param offset The start of the data
+         * @param length The length of the data
+         * @throws IOException If the stream cannot be accessed
+         * @throws SignatureException If the data cannot be signed
+         */
+        void write(byte[] buffer, int offset, int length) throws IOException,
+                SignatureException {
+
+            if (out == null) {
+                // Hold the data back until the sample is full, as a short
+                // first write does not show whether the data compresses
+                if (sample == null) {
+                    sample = acquire();
+                }
+                int taken = Math.min(length, bufferSize - sampled);
+                System.arraycopy(buffer, offset, sample, sampled, taken);
+                sampled += taken;
+                if (sampled < bufferSize) {
+                    return;
+                }
+                openSampled();
+                offset += taken;
+                length -= taken;
+                if (length == 0) {
+                    return;
+                }
+            }
+            if (signer != null) {
+                signer.update(buffer, offset, length);
+            }
+            out.write(buffer, offset, length);
+        }
+
+        /**
+         * Completes the message: closes the literal data, writes the
+         * signature if signing, and closes all packet streams from the
+         * innermost stream outwards. All streams are closed even if one
+         * fails, and the first failure is thrown, so an incomplete message
+         * is not mistaken for a complete one.
+         *
+         * @throws PGPException If the signature cannot be created
+         * @throws IOException If a stream cannot be completed
+         * @throws SignatureException If the signature cannot be created
+         */
+        void finish() throws PGPException, IOException, SignatureException {
+
+            IOException failure = null;
+            try {
+                if (out == null) {
+                    // The message is shorter than the sample
+                    openSampled();
+                }
+                out.close();
+                if (signer != null) {
+                    bcp.flush();
+                    signer.generate().encode(bcp);
+                }
+            } catch (IOException ioe) {
+                failure = ioe;
+            }
+            while (!streams.isEmpty()) {
+                try {
+                    OutputStream next = streams.pop();
+                    next.flush();
+                    next.close();
+                } catch (IOException ioe) {
+                    if (failure == null) {
+                        failure = ioe;
+                    }
+                }
+            }
+            // The packet streams are closed, so their buffers are unused
+            for (byte[] buffer : buffers) {
+                PGPBufferPool.release(buffer);
+            }
+            buffers.clear();
+            if (failure != null) {
+                throw failure;
+            }
+            // The signature is generated, which resets the signer
+            profile.releaseSigner(signer);
+            cipher.flush();
+        }
+
+        /**
+         * Takes a packet buffer from the pool
+         *
+         * @return The buffer
+         */
+        private byte[] acquire() {
+
+            byte[] buffer = PGPBufferPool.acquire(bufferSize);
+            buffers.add(buffer);
+            return buffer;
+        }
+
+        /**
+         * Opens the data packets in AUTO mode with the sampled plain data,
+         * compressing unless the sample is already compressed, and writes
+         * the sample to the message
+         *
+         * @throws IOException If the stream cannot be accessed
+         * @throws SignatureException If the data cannot be signed
+         */
+        private void openSampled() throws IOException, SignatureException {
+
+            if (sample == null) {
+                // No plain data
+                open(false);
+                return;
+            }
+            open(PGPCompression.isCompressible(sample, 0, sampled));
+            if (signer != null) {
+                signer.update(sample, 0, sampled);
+            }
+            out.write(sample, 0, sampled);
         }
 
-        // Generating signature
-        bcp.flush();
-        signer.generate().encode(bcp);
+        /**
+         * Opens the data packets in AUTO mode
+         *
+         * @param compress Whether to compress the data
+         * @throws IOException If the stream cannot be accessed
+         */
+        private void open(boolean compress) throws IOException {
 
-        // Close all streams
-        while (!streams.isEmpty()) {
             try {
-                OutputStream next = streams.pop();
-                next.flush();
-                next.close();
-            } catch (Exception e) {
+                openData(compress ? compression.getAlgorithm(signer != null)
+                        : CompressionAlgorithmTags.UNCOMPRESSED);
+            } catch (PGPException pgpe) {
+                throw new IOException("Unable to compress data: " + pgpe.getMessage(), pgpe);
             }
         }
-        cipher.flush();
     }
 }
@@ -0,0 +1,790 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPrivateKey;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPSecretKey;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.PGPSignatureGenerator;
+import org.bouncycastle.openpgp.PGPSignatureSubpacketGenerator;
+import org.bouncycastle.openpgp.PGPSignatureSubpacketVector;
+
+/**
+ * This class holds the settings of encrypted messages for a set of
+ * recipients: the public keys, the encryption algorithm, the signing key and
+ * hash algorithm, the compression and the output format. Everything that
+ * does not depend on the message is resolved once, when the profile is
+ * created: an AUTO encryption algorithm, the signature algorithm of the
+ * signing key and the signer user ID subpacket. Signature generators are
+ * initialized once and reused by later messages after a message is
+ * complete, so encrypting a message with a profile only sets up the packet
+ * streams of the message.
+ *
+ * Profiles are immutable and can be used by any number of threads at the
+ * same time. They can be registered by name, so services can refer to them
+ * by name. A profile registered with its recipients and signer given by
+ * user ID ({@link PGPProfileConfig}) is resolved again from the configured
+ * key files when a key file is parsed again, a key is rotated or the
+ * configuration changes, so it always encrypts to the current keys; a
+ * profile registered with its keys keeps them until it is removed or
+ * replaced. The profiles of the package configuration are registered by
+ * {@link #load(Collection, File)}.
+ *
+ * Services that are called with keys and settings instead of a profile name
+ * take their profile from a cache ({@link #lookup}), so repeated calls for
+ * the same recipients and settings reuse the resolved profile. Cached
+ * profiles are identified by the fingerprints of the recipient keys and
+ * expire after a time-to-live, so they do not keep a signing key longer
+ * than the private key cache. The cache size and time-to-live can be set
+ * through the system properties watt.pgp.profileCache.size and
+ * watt.pgp.profileCache.ttl (seconds).
+ */
+public class PGPEncryptProfile {
+
+    /**
+     * The registered profiles by name
+     */
+    private static final ConcurrentHashMap<String, Registration> profiles = new ConcurrentHashMap<String, Registration>();
+
+    /**
+     * The maximum number of cached profiles
+     */
+    private static final int CACHE_SIZE = Integer.getInteger(
+            "watt.pgp.profileCache.size", 256);
+
+    /**
+     * The time-to-live of a cached profile in milliseconds
+     */
+    private static final long CACHE_TTL = Long.getLong(
+            "watt.pgp.profileCache.ttl", 900) * 1000L;
+
+    /**
+     * The profiles created for the keys and settings of service calls
+     */
+    private static final ConcurrentHashMap<CacheKey, Cached> cache = new ConcurrentHashMap<CacheKey, Cached>();
+
+    private final PGPPublicKey[] keys;
+    private final int algorithm;
+    private final boolean useArmor;
+    private final PGPPrivateKey keyPrivate;
+    private final int hash;
+    private final int sign;
+    private final PGPSignatureSubpacketVector subpackets;
+    private final PGPCompression compression;
+
+    /**
+     * Idle signature generators, initialized with the signing key
+     */
+    private final ConcurrentLinkedQueue<PGPSignatureGenerator> signers;
+
+    /**
+     * The number of messages encrypted with the profile
+     */
+    private final AtomicLong uses;
+
+    /**
+     * The profile with the other armor setting, created on first use
+     */
+    private volatile PGPEncryptProfile other;
+
+    /**
+     * Creates a profile
+     *
+     * @param keys The PGP public keys of the recipients
+     * @param algorithm The encryption algorithm, or
+     *            {@link PGPCipherPolicy#AUTO}
+     * @param useArmor Flag for encoding output to ASCII
+     * @param keyPrivate A private key for signing the data, or null
+     * @param hash The algorithm for signing (hash/digest)
+     * @param compression The compression settings, or null for the default
+     * @throws PGPException If no public key is given or no encryption
+     *             algorithm is accepted by all recipients
+     */
+    public PGPEncryptProfile(PGPPublicKey[] keys, int algorithm,
+            boolean useArmor, PGPPrivateKey keyPrivate, int hash,
+            PGPCompression compression) throws PGPException {
+
+        if (keys == null || keys.length == 0) {
+            throw new PGPException("No public key given");
+        }
+        this.keys = keys.clone();
+        this.algorithm = algorithm == PGPCipherPolicy.AUTO
+                ? PGPCipherPolicy.select(this.keys) : algorithm;
+        this.useArmor = useArmor;
+        this.keyPrivate = keyPrivate;
+        this.hash = hash;
+        this.compression = compression != null ? compression : PGPCompression.DEFAULT;
+        this.signers = new ConcurrentLinkedQueue<PGPSignatureGenerator>();
+        this.uses = new AtomicLong();
+
+        // Resolve the signature algorithm and signer user ID
+        if (keyPrivate != null) {
+            sign = PGPInit.getKeyExchangeAlgorithm(keyPrivate.getKey().getAlgorithm());
+            Iterator<?> iterator = this.keys[0].getUserIDs();
+            if (iterator.hasNext()) {
+                PGPSignatureSubpacketGenerator gen = new PGPSignatureSubpacketGenerator();
+                gen.setSignerUserID(false, (String) iterator.next());
+                subpackets = gen.generate();
+            } else {
+                subpackets = null;
+            }
+        } else {
+            sign = 0;
+            subpackets = null;
+        }
+    }
+
+    /**
+     * Creates a profile that differs from another profile in the armor
+     * setting only; the profiles share their signature generators
+     */
+    private PGPEncryptProfile(PGPEncryptProfile profile) {
+        this.keys = profile.keys;
+        this.algorithm = profile.algorithm;
+        this.useArmor = !profile.useArmor;
+        this.keyPrivate = profile.keyPrivate;
+        this.hash = profile.hash;
+        this.sign = profile.sign;
+        this.subpackets = profile.subpackets;
+        this.compression = profile.compression;
+        this.signers = profile.signers;
+        this.uses = profile.uses;
+        this.other = profile;
+    }
+
+    /**
+     * Registers a profile by name, replacing a profile of the same name
+     *
+     * @param name The profile name
+     * @param profile The profile
+     */
+    public static void register(String name, PGPEncryptProfile profile) {
+        profiles.put(name, new Registration(profile));
+    }
+
+    /**
+     * Registers a profile with its recipients and signer given by user ID,
+     * replacing a profile of the same name. The keys are resolved now and
+     * again whenever they may have changed.
+     *
+     * @param config The profile configuration
+     * @param keyDir The directory containing the configured key files
+     * @param keyPrivate A private key for signing the data, or null to sign
+     *            with the key of the configured signer
+     * @return The profile
+     * @throws PGPException If a key or setting of the profile is not valid
+     */
+    public static PGPEncryptProfile register(PGPProfileConfig config,
+            File keyDir, PGPPrivateKey keyPrivate) throws PGPException {
+
+        Registration registration = new Registration(config, keyDir, keyPrivate, false);
+        PGPEncryptProfile profile = registration.get();
+        profiles.put(config.getName(), registration);
+        return profile;
+    }
+
+    /**
+     * Registers the profiles of the package configuration, replacing the
+     * profiles registered from a previous configuration. The keys of a
+     * profile are resolved when it is first used.
+     *
+     * @param configs The profile configurations
+     * @param keyDir The directory containing the configured key files
+     */
+    public static void load(Collection<PGPProfileConfig> configs, File keyDir) {
+
+        Set<String> names = new HashSet<String>();
+        for (PGPProfileConfig config : configs) {
+            profiles.put(config.getName(), new Registration(config, keyDir, null, true));
+            names.add(config.getName());
+        }
+        for (Map.Entry<String, Registration> entry : profiles.entrySet()) {
+            if (entry.getValue().configured && !names.contains(entry.getKey())) {
+                profiles.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Resolves the profiles that refer to a user ID again on their next
+     * use, after the keys of the user ID have been replaced
+     *
+     * @param userId The user ID
+     */
+    public static void invalidate(String userId) {
+
+        for (Registration registration : profiles.values()) {
+            PGPProfileConfig config = registration.config;
+            if (config != null && (config.getUserIds().contains(userId)
+                    || userId.equals(config.getSigner()))) {
+                registration.profile = null;
+            }
+        }
+    }
+
+    /**
+     * Returns a registered profile
+     *
+     * @param name The profile name
+     * @return The profile, or null if no profile has the name
+     * @throws PGPException If the keys of the profile have changed and
+     *             cannot be resolved again
+     */
+    public static PGPEncryptProfile get(String name) throws PGPException {
+
+        Registration registration = profiles.get(name);
+        return registration != null ? registration.get() : null;
+    }
+
+    /**
+     * Removes a registered profile. Messages that are being encrypted with
+     * the profile are completed.
+     *
+     * @param name The profile name
+     * @return True if a profile was removed
+     */
+    public static boolean remove(String name) {
+        return profiles.remove(name) != null;
+    }
+
+    /**
+     * Returns a profile for the given keys and settings, which is taken from
+     * the cache if a profile with the same recipient keys, settings and
+     * signing key was created before and has not expired
+     *
+     * @param keys The PGP public keys of the recipients
+     * @param algorithm The encryption algorithm, or
+     *            {@link PGPCipherPolicy#AUTO}
+     * @param useArmor Flag for encoding output to ASCII
+     * @param keyPrivate A private key for signing the data, or null
+     * @param hash The algorithm for signing (hash/digest)
+     * @param compression The compression settings, or null for the default
+     * @return The profile
+     * @throws PGPException If no public key is given or no encryption
+     *             algorithm is accepted by all recipients
+     */
+    public static PGPEncryptProfile lookup(PGPPublicKey[] keys, int algorithm,
+            boolean useArmor, PGPPrivateKey keyPrivate, int hash,
+            PGPCompression compression) throws PGPException {
+
+        if (keys == null || keys.length == 0 || CACHE_SIZE <= 0) {
+            return new PGPEncryptProfile(keys, algorithm, useArmor, keyPrivate,
+                    hash, compression);
+        }
+        CacheKey id = new CacheKey(keys, algorithm, keyPrivate, hash,
+                compression != null ? compression : PGPCompression.DEFAULT);
+        long now = System.currentTimeMillis();
+        Cached cached = cache.get(id);
+        // The signing key must be the same object, not just have the same ID
+        if (cached != null && cached.expires > now
+                && cached.profile.keyPrivate == keyPrivate) {
+            return cached.profile.withArmor(useArmor);
+        }
+        PGPEncryptProfile profile = new PGPEncryptProfile(keys, algorithm,
+                useArmor, keyPrivate, hash, compression);
+        cache.put(id, new Cached(profile, now + CACHE_TTL));
+        if (cache.size() > CACHE_SIZE) {
+            shrink(now);
+        }
+        return profile;
+    }
+
+    /**
+     * Removes the cached profiles that sign with a key, so they do not keep
+     * the private key; registered profiles are kept
+     *
+     * @param keyId The key identifier of the signing key
+     * @return The number of removed profiles
+     */
+    public static int evictSigner(long keyId) {
+
+        int count = 0;
+        for (Iterator<Map.Entry<CacheKey, Cached>> i = cache.entrySet().iterator(); i.hasNext();) {
+            Map.Entry<CacheKey, Cached> next = i.next();
+            if (next.getKey().signer == keyId && cache.remove(next.getKey(), next.getValue())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Removes all cached profiles; registered profiles are kept
+     *
+     * @return The number of removed profiles
+     */
+    public static int clearCache() {
+
+        int count = cache.size();
+        cache.clear();
+        return count;
+    }
+
+    /**
+     * Returns the names of the registered profiles
+     *
+     * @return The sorted profile names
+     */
+    public static List<String> list() {
+
+        List<String> names = new ArrayList<String>(profiles.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Removes expired profiles from the cache and, if it is still too large,
+     * the profiles that expire first
+     *
+     * @param now The current time
+     */
+    private static void shrink(long now) {
+
+        for (Iterator<Map.Entry<CacheKey, Cached>> i = cache.entrySet().iterator(); i.hasNext();) {
+            if (i.next().getValue().expires <= now) {
+                i.remove();
+            }
+        }
+        while (cache.size() > CACHE_SIZE) {
+            Map.Entry<CacheKey, Cached> oldest = null;
+            for (Map.Entry<CacheKey, Cached> next : cache.entrySet()) {
+                if (oldest == null || next.getValue().expires < oldest.getValue().expires) {
+                    oldest = next;
+                }
+            }
+            if (oldest == null) {
+                break;
+            }
+            cache.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    /**
+     * Returns a profile with the given armor setting and all other settings
+     * of this profile
+     *
+     * @param useArmor Flag for encoding output to ASCII
+     * @return This profile, if it has the armor setting, or the profile
+     *         with the other armor setting
+     */
+    public PGPEncryptProfile withArmor(boolean useArmor) {
+
+        if (useArmor == this.useArmor) {
+            return this;
+        }
+        if (other == null) {
+            // Created at most a few times by concurrent calls; any one will do
+            other = new PGPEncryptProfile(this);
+        }
+        return other;
+    }
+
+    /**
+     * Returns the PGP public keys of the recipients
+     * @return A copy of the keys
+     */
+    public PGPPublicKey[] getKeys() {
+        return keys.clone();
+    }
+
+    /**
+     * Returns the encryption algorithm, with AUTO resolved
+     * @return The encryption algorithm
+     */
+    public int getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Checks whether the output is encoded to ASCII
+     * @return True if the output is armored
+     */
+    public boolean isArmored() {
+        return useArmor;
+    }
+
+    /**
+     * Checks whether messages are signed
+     * @return True if messages are signed
+     */
+    public boolean isSigning() {
+        return keyPrivate != null;
+    }
+
+    /**
+     * Returns the hash algorithm for signing
+     * @return The hash algorithm, or 0 if not signing
+     */
+    public int getHashAlgorithm() {
+        return keyPrivate != null ? hash : 0;
+    }
+
+    /**
+     * Returns the compression settings
+     * @return The compression settings
+     */
+    public PGPCompression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Returns the number of messages encrypted with the profile
+     * @return The message count
+     */
+    public long getUses() {
+        return uses.get();
+    }
+
+    /**
+     * Takes a signature generator for a message, creating one if none is
+     * idle
+     *
+     * @return The generator, or null if not signing
+     * @throws PGPException If the generator cannot be initialized
+     * @throws NoSuchAlgorithmException If the algorithms are not supported
+     */
+    PGPSignatureGenerator acquireSigner() throws PGPException,
+            NoSuchAlgorithmException {
+
+        uses.incrementAndGet();
+        if (keyPrivate == null) {
+            return null;
+        }
+        PGPSignatureGenerator signer = signers.poll();
+        if (signer == null) {
+            signer = new PGPSignatureGenerator(sign, PGPInit.PROVIDER, hash,
+                    PGPInit.getDataProvider());
+            signer.initSign(PGPSignature.BINARY_DOCUMENT, keyPrivate);
+            if (subpackets != null) {
+                signer.setHashedSubpackets(subpackets);
+            }
+        }
+        return signer;
+    }
+
+    /**
+     * Returns a signature generator after its signature was generated, which
+     * resets it for the next message. Generators of incomplete messages must
+     * not be returned.
+     *
+     * @param signer The generator, or null
+     */
+    void releaseSigner(PGPSignatureGenerator signer) {
+
+        if (signer != null) {
+            signers.offer(signer);
+        }
+    }
+
+    /**
+     * Returns the PGP public keys of the recipients without copying them
+     */
+    PGPPublicKey[] keys() {
+        return keys;
+    }
+
+    /**
+     * Checks whether another profile encrypts to the same keys and signs
+     * with the same key
+     */
+    private boolean hasKeys(PGPEncryptProfile profile) {
+
+        if (profile.keys.length != keys.length) {
+            return false;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (profile.keys[i].getKeyID() != keys[i].getKeyID()) {
+                return false;
+            }
+        }
+        if (keyPrivate == null || profile.keyPrivate == null) {
+            return keyPrivate == profile.keyPrivate;
+        }
+        return keyPrivate.getKeyID() == profile.keyPrivate.getKeyID();
+    }
+
+    /**
+     * Creates a profile from a profile configuration with the keys of the
+     * configured user IDs
+     *
+     * @param profile The profile configuration
+     * @param keyDir The directory containing the configured key files
+     * @param keyPrivate A private key for signing, or null
+     * @param config The configuration of the user IDs
+     * @param previous The profile resolved before, whose private key is
+     *            taken if the signing key is unchanged, or null
+     */
+    private static PGPEncryptProfile resolve(PGPProfileConfig profile,
+            File keyDir, PGPPrivateKey keyPrivate, PGPConfig config,
+            PGPEncryptProfile previous) throws PGPException {
+
+        // Recipients; compression and armor default to the settings of the
+        // first recipient that has them
+        String compression = profile.getCompression();
+        String level = profile.getCompressionLevel();
+        String armor = profile.getArmor();
+        Map<Long, PGPPublicKey> recipients = new LinkedHashMap<Long, PGPPublicKey>();
+        for (String userId : profile.getUserIds()) {
+            PGPKeyConfig key = getKey(config, userId);
+            if (key.getPublicKeyFile() == null) {
+                throw new PGPException("No public key file configured for " + userId);
+            }
+            PGPPublicKey next = null;
+            try {
+                next = PGPKeyReader.readPublicKey(
+                        PGPKeyRegistry.getPublicKeyRing(new File(keyDir,
+                                key.getPublicKeyFile()).getPath()),
+                        key.getKeyExchangeAlgorithm() != null
+                                ? PGPInit.getKeyExchangeAlgorithm(key.getKeyExchangeAlgorithm()) : 0);
+            } catch (Exception e) {
+                throw new PGPException("Unable to read public key of " + userId
+                        + ": " + e.getMessage());
+            }
+            if (!next.isEncryptionKey()) {
+                throw new PGPException("Public key of " + userId + " is not an encryption key");
+            }
+            recipients.put(next.getKeyID(), next);
+            if (isEmpty(compression) && isEmpty(level)) {
+                compression = key.getCompression();
+                level = key.getCompressionLevel();
+            }
+            if (isEmpty(armor)) {
+                armor = key.getArmor();
+            }
+        }
+
+        // Signing key of the signer, unless a private key is given
+        String signer = profile.getSigner();
+        if (keyPrivate == null && !isEmpty(signer)) {
+            PGPKeyConfig key = getKey(config, signer);
+            if (key.getSecretKeyFile() == null) {
+                throw new PGPException("No secret key file configured for " + signer);
+            }
+            try {
+                PGPSecretKey secret = PGPKeyReader.readSecretKey(
+                        PGPKeyRegistry.getSecretKeyRing(new File(keyDir,
+                                key.getSecretKeyFile()).getPath()));
+                if (previous != null && previous.keyPrivate != null
+                        && previous.keyPrivate.getKeyID() == secret.getKeyID()) {
+                    keyPrivate = previous.keyPrivate;
+                } else {
+                    String password = PGPKeyRotation.getSecret(key);
+                    keyPrivate = PGPKeyReader.readPrivateKey(secret,
+                            password != null ? password.toCharArray() : new char[0]);
+                }
+            } catch (Exception e) {
+                throw new PGPException("Unable to read secret key of " + signer
+                        + ": " + e.getMessage());
+            }
+        }
+
+        try {
+            String algorithm = profile.getEncryptionAlgorithm();
+            return new PGPEncryptProfile(
+                    recipients.values().toArray(new PGPPublicKey[recipients.size()]),
+                    isEmpty(algorithm) ? PGPCipherPolicy.AUTO : PGPInit.getAlgorithm(algorithm),
+                    armor != null && Boolean.parseBoolean(armor.trim()), keyPrivate,
+                    keyPrivate != null ? PGPInit.getHashAlgorithm(profile.getSigningAlgorithm()) : 0,
+                    PGPCompression.getCompression(compression, level));
+        } catch (IllegalArgumentException iae) {
+            throw new PGPException("Invalid profile " + profile.getName() + ": "
+                    + iae.getMessage());
+        }
+    }
+
+    private static PGPKeyConfig getKey(PGPConfig config, String userId)
+            throws PGPException {
+
+        PGPKeyConfig key = config.getKey(userId);
+        if (key == null) {
+            throw new PGPException("User ID is not configured: " + userId);
+        }
+        return key;
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.equals("");
+    }
+
+    /**
+     * The identifier of a cached profile: the fingerprints of the recipient
+     * keys in their order, as the first key names the signer, and all
+     * settings except the armor, which is switched by
+     * {@link PGPEncryptProfile#withArmor(boolean)}
+     */
+    private static class CacheKey {
+
+        private final byte[][] fingerprints;
+        private final int algorithm;
+        private final long signer;
+        private final int hash;
+        private final PGPCompression compression;
+
+        private CacheKey(PGPPublicKey[] keys, int algorithm,
+                PGPPrivateKey keyPrivate, int hash, PGPCompression compression) {
+            this.fingerprints = new byte[keys.length][];
+            for (int i = 0; i < keys.length; i++) {
+                fingerprints[i] = keys[i].getFingerprint();
+            }
+            this.algorithm = algorithm;
+            this.signer = keyPrivate != null ? keyPrivate.getKeyID() : 0;
+            this.hash = keyPrivate != null ? hash : 0;
+            this.compression = compression;
+        }
+
+        @Override
+        public int hashCode() {
+            int code = Arrays.deepHashCode(fingerprints);
+            code = code * 31 + algorithm;
+            code = code * 31 + (int) (signer ^ (signer >>> 32));
+            code = code * 31 + hash;
+            return code * 31 + compression.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return algorithm == other.algorithm && signer == other.signer
+                    && hash == other.hash
+                    && compression.equals(other.compression)
+                    && Arrays.deepEquals(fingerprints, other.fingerprints);
+        }
+    }
+
+    /**
+     * A cached profile with its expiry time
+     */
+    private static class Cached {
+
+        private final PGPEncryptProfile profile;
+        private final long expires;
+
+        private Cached(PGPEncryptProfile profile, long expires) {
+            this.profile = profile;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * A registered profile with the configuration it is resolved from
+     */
+    private static class Registration {
+
+        final PGPProfileConfig config;
+        final File keyDir;
+        final PGPPrivateKey keyPrivate;
+
+        /**
+         * Whether the profile is defined in the package configuration
+         */
+        final boolean configured;
+
+        /**
+         * The resolved profile, or null if it must be resolved again
+         */
+        volatile PGPEncryptProfile profile;
+
+        /**
+         * The registry update count and configuration the profile was
+         * resolved with
+         */
+        volatile long updates;
+        volatile PGPConfig resolvedWith;
+
+        Registration(PGPEncryptProfile profile) {
+            this.config = null;
+            this.keyDir = null;
+            this.keyPrivate = null;
+            this.configured = false;
+            this.profile = profile;
+        }
+
+        Registration(PGPProfileConfig config, File keyDir,
+                PGPPrivateKey keyPrivate, boolean configured) {
+            this.config = config;
+            this.keyDir = keyDir;
+            this.keyPrivate = keyPrivate;
+            this.configured = configured;
+        }
+
+        /**
+         * Returns the profile, resolving it again if a key file was parsed
+         * or removed or the configuration was replaced since it was
+         * resolved. A profile with unchanged keys is kept with its idle
+         * signature generators.
+         */
+        PGPEncryptProfile get() throws PGPException {
+
+            PGPEncryptProfile current = profile;
+            if (config == null || (current != null
+                    && updates == PGPKeyRegistry.getUpdateCount()
+                    && resolvedWith == PGPConfig.getCurrent())) {
+                return current;
+            }
+            synchronized (this) {
+                // Take the update count before resolving, so that a change
+                // while resolving is picked up by the next use
+                long count = PGPKeyRegistry.getUpdateCount();
+                PGPConfig keyConfig = null;
+                try {
+                    keyConfig = PGPConfig.getConfig();
+                } catch (IOException ioe) {
+                    throw new PGPException("Unable to read configuration: " + ioe.getMessage());
+                }
+                if (keyConfig == null) {
+                    throw new PGPException("No configuration loaded");
+                }
+                current = profile;
+                if (current != null && updates == count && resolvedWith == keyConfig) {
+                    return current;
+                }
+                PGPEncryptProfile next = resolve(config, keyDir, keyPrivate, keyConfig, current);
+                if (current != null && resolvedWith == keyConfig && current.hasKeys(next)) {
+                    next = current;
+                }
+                updates = count;
+                resolvedWith = keyConfig;
+                profile = next;
+                return next;
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.SignatureException;
+
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPrivateKey;
+import org.bouncycastle.openpgp.PGPPublicKey;
+
+/**
+ * This class provides the cipher data of a message as an input stream. The
+ * plain data is encrypted as the consumer reads: every read that finds no
+ * cipher data buffered reads one block of plain data and encrypts it, so
+ * encryption overlaps with the transfer of the cipher data and at most a
+ * block of cipher data is held in memory. The message is completed when the
+ * plain data ends. The plain data block is taken from the buffer pool and
+ * returned when the stream is closed.
+ */
+public class PGPEncryptingInputStream extends InputStream {
+
+    /**
+     * The plain data block size
+     */
+    private static final int BLOCK = 8192;
+
+    private final InputStream plain;
+    private final boolean closePlain;
+    private final Buffer cipher = new Buffer();
+    private final PGPEncrypt.Writer writer;
+    private byte[] block = PGPBufferPool.acquire(BLOCK);
+    private int position = 0;
+    private boolean finished = false;
+    private boolean closed = false;
+    private IOException failure = null;
+
+    /**
+     * Creates a stream that encrypts and optionally signs plain data
+     *
+     * @param plain An input stream with plain data
+     * @param closePlain Whether to close the plain data stream at its end or
+     *            when this stream is closed
+     * @param key A PGP public key object
+     * @param algorithm The encryption algorithm
+     * @param useArmor Flag for encoding output to ASCII
+     * @param keyPrivate A private key for signing the data, or null
+     * @param hash The algorithm for signing (hash/digest)
+     * @throws PGPException If the message cannot be encrypted
+     * @throws IOException If the message header cannot be written
+     * @throws NoSuchProviderException If the key types are not supported
+     * @throws NoSuchAlgorithmException If the algorithms are not supported
+     */
+    public PGPEncryptingInputStream(InputStream plain, boolean closePlain,
+            PGPPublicKey key, int algorithm, boolean useArmor,
+            PGPPrivateKey keyPrivate, int hash) throws PGPException,
+            IOException, NoSuchProviderException, NoSuchAlgorithmException {
+        this(plain, closePlain, new PGPPublicKey[] { key }, algorithm,
+                useArmor, keyPrivate, hash, PGPCompression.DEFAULT);
+    }
+
+    /**
+     * Creates a stream that encrypts and optionally signs plain data for
+     * several recipients
+     *
+     * @param plain An input stream with plain data
+     * @param closePlain Whether to close the plain data stream at its end or
+     *            when this stream is closed
+     * @param keys The PGP public keys of the recipients
+     * @param algorithm The encryption algorithm
+     * @param useArmor Flag for encoding output to ASCII
+     * @param keyPrivate A private key for signing the data, or null
+     * @param hash The algorithm for signing (hash/digest)
+     * @param compression The compression settings
+     * @throws PGPException If the message cannot be encrypted
+     * @throws IOException If the message header cannot be written
+     * @throws NoSuchProviderException If the key types are not supported
+     * @throws NoSuchAlgorithmException If the algorithms are not supported
+     */
+    public PGPEncryptingInputStream(InputStream plain, boolean closePlain,
+            PGPPublicKey[] keys, int algorithm, boolean useArmor,
+            PGPPrivateKey keyPrivate, int hash, PGPCompression compression) throws PGPException,
+            IOException, NoSuchProviderException, NoSuchAlgorithmException {
+        this(plain, closePlain, new PGPEncryptProfile(keys, algorithm,
+                useArmor, keyPrivate, hash, compression));
+    }
+
+    /**
+     * Creates a stream that encrypts and optionally signs plain data with
+     * the settings of a profile
+     *
+     * @param plain An input stream with plain data
+     * @param closePlain Whether to close the plain data stream at its end or
+     *            when this stream is closed
+     * @param profile The recipients, algorithms and output format
+     * @throws PGPException If the message cannot be encrypted
+     * @throws IOException If the message header cannot be written
+     * @throws NoSuchProviderException If the key types are not supported
+     * @throws NoSuchAlgorithmException If the algorithms are not supported
+     */
+    public PGPEncryptingInputStream(InputStream plain, boolean closePlain,
+            PGPEncryptProfile profile) throws PGPException, IOException,
+            NoSuchProviderException, NoSuchAlgorithmException {
+        this.plain = plain;
+        this.closePlain = closePlain;
+        this.writer = PGPEncrypt.Writer.open(cipher, profile, BLOCK);
+    }
+
+    @Override
+    public int read() throws IOException {
+
+        byte[] one = new byte[1];
+        int read = read(one, 0, 1);
+        return read < 0 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+
+        if (closed) {
+            throw new IOException("Stream is closed");
+        } else if (failure != null) {
+            // Do not let an incomplete message end like a complete one
+            throw failure;
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (position == cipher.size() && !finished) {
+            fill();
+        }
+        int available = cipher.size() - position;
+        if (available == 0) {
+            return -1;
+        }
+        int count = Math.min(len, available);
+        System.arraycopy(cipher.buffer(), position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return cipher.size() - position;
+    }
+
+    /**
+     * Closes the stream. If the plain data has not been read to its end, the
+     * message is incomplete.
+     */
+    @Override
+    public void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+        closed = true;
+        PGPBufferPool.release(block);
+        block = null;
+        if (closePlain) {
+            plain.close();
+        }
+    }
+
+    /**
+     * Encrypts the next block of plain data, or completes the message at
+     * the end of the plain data
+     *
+     * @throws IOException If the plain data cannot be read or encrypted
+     */
+    private void fill() throws IOException {
+
+        cipher.reset();
+        position = 0;
+        try {
+            int read = plain.read(block);
+            if (read < 0) {
+                writer.finish();
+                finished = true;
+                if (closePlain) {
+                    plain.close();
+                }
+            } else {
+                writer.write(block, 0, read);
+            }
+        } catch (IOException ioe) {
+            failure = ioe;
+        } catch (PGPException pgpe) {
+            failure = new IOException("Unable to encrypt data: " + pgpe.getMessage(), pgpe);
+        } catch (SignatureException se) {
+            failure = new IOException("Unable to sign data: " + se.getMessage(), se);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * The cipher data encrypted from the last block
+     */
+    private static class Buffer extends ByteArrayOutputStream {
+
+        private Buffer() {
+            super(BLOCK * 2);
+        }
+
+        private byte[] buffer() {
+            return buf;
+        }
+    }
+}
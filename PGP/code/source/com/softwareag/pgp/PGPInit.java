@@ -23,6 +23,8 @@ import java.security.Security;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import javax.crypto.Cipher;
+import org.bouncycastle.bcpg.CompressionAlgorithmTags;
 import org.bouncycastle.bcpg.HashAlgorithmTags;
 import org.bouncycastle.bcpg.PublicKeyAlgorithmTags;
 import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
@@ -47,6 +49,18 @@ public class PGPInit {
      */
     public static final Provider PROVIDER = new BouncyCastleProvider();
 
+    /**
+     * The cipher backend for bulk encryption and hashing: JCA for the
+     * ciphers and digests of the Java runtime, BC for Bouncy Castle
+     */
+    private static final String BACKEND = System.getProperty(
+            "watt.pgp.cipher.backend", "JCA");
+
+    /**
+     * The provider for bulk encryption and hashing of message data
+     */
+    private static final Provider DATA_PROVIDER;
+
     /**
      * List of key encryption algorithms
      */
@@ -62,6 +76,11 @@ public class PGPInit {
      */
     private static HashMap<Integer, String> hashes = new HashMap<Integer, String>();
 
+    /**
+     * List of compression algorithms
+     */
+    private static HashMap<Integer, String> compressions = new HashMap<Integer, String>();
+
     /**
      * Initializes the Bouncy Castle security provider
      */
@@ -92,6 +111,7 @@ public class PGPInit {
         algorithms.put(SymmetricKeyAlgorithmTags.SAFER, "SAFER");
         algorithms.put(SymmetricKeyAlgorithmTags.TRIPLE_DES, "TRIPLE_DES");
         algorithms.put(SymmetricKeyAlgorithmTags.TWOFISH, "TWOFISH");
+        algorithms.put(PGPCipherPolicy.AUTO, "AUTO");
 
         // Add supported hashing keyAlgorithms
         hashes.put(HashAlgorithmTags.DOUBLE_SHA, "DOUBLE_SHA");
@@ -105,6 +125,29 @@ public class PGPInit {
         hashes.put(HashAlgorithmTags.SHA384, "SHA384");
         hashes.put(HashAlgorithmTags.SHA512, "SHA512");
         hashes.put(HashAlgorithmTags.TIGER_192, "TIGER 192");
+
+        // Add supported compression algorithms
+        compressions.put(PGPCompression.AUTO, "AUTO");
+        compressions.put(CompressionAlgorithmTags.UNCOMPRESSED, "NONE");
+        compressions.put(CompressionAlgorithmTags.ZIP, "ZIP");
+        compressions.put(CompressionAlgorithmTags.ZLIB, "ZLIB");
+        compressions.put(CompressionAlgorithmTags.BZIP2, "BZIP2");
+
+        // Select the cipher backend; fall back to Bouncy Castle if the Java
+        // runtime does not accept the JCA backend
+        Provider data = PROVIDER;
+        if (BACKEND.equalsIgnoreCase("JCA")) {
+            try {
+                Provider jca = new PGPDataProvider(PROVIDER);
+                Cipher.getInstance("AES/CFB/NoPadding", jca);
+                data = jca;
+            } catch (Exception e) {
+                // Keep Bouncy Castle
+            } catch (LinkageError le) {
+                // Keep Bouncy Castle
+            }
+        }
+        DATA_PROVIDER = data;
     }
     
     /**
@@ -114,6 +157,25 @@ public class PGPInit {
         
     }
 
+    /**
+     * Returns the provider for bulk encryption and hashing of message data.
+     * Key exchange and signatures always use {@link #PROVIDER}.
+     *
+     * @return The data provider
+     */
+    public static Provider getDataProvider() {
+        return DATA_PROVIDER;
+    }
+
+    /**
+     * Returns the cipher backend in use
+     *
+     * @return JCA or BC
+     */
+    public static String getCipherBackend() {
+        return DATA_PROVIDER == PROVIDER ? "BC" : "JCA";
+    }
+
     /**
      * Returns the name of a key algorithm
      * 
@@ -239,6 +301,29 @@ public class PGPInit {
         return hash;
     }
     
+    /**
+     * Returns the numeric identifier of a compression algorithm
+     * 
+     * @param name The constant compression name
+     * @return The identifier
+     */
+    public static int getCompressionAlgorithm(String name) {
+
+        int compression = 0;
+        if (compressions.containsValue(name)) {
+            for (Iterator<Integer> i = compressions.keySet().iterator(); i.hasNext();) {
+                int key = i.next();
+                if (name.equals(compressions.get(key))) {
+                    compression = key;
+                }
+            }
+        } else {
+            throw new IllegalArgumentException(
+                    "Compression algorithm not supported: " + name);
+        }
+        return compression;
+    }
+    
     /**
      * Returns all key exchange algorithms
      * @return A list of algorithm names
@@ -271,4 +356,15 @@ public class PGPInit {
         list.addAll(hashes.values());
         return list;
     }
+
+    /**
+     * Returns all compression algorithms
+     * @return A list of algorithm names
+     */
+    public static ArrayList<String> listCompressionAlgorithms() {
+        
+        ArrayList<String> list = new ArrayList<String>();
+        list.addAll(compressions.values());
+        return list;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,127 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+/**
+ * This class holds the configuration of a single user ID: the public key file
+ * with its key exchange algorithm and the compression and armor of messages
+ * to the user ID, and the secret key file with its password. Instances are immutable and
+ * shared between threads.
+ */
+public class PGPKeyConfig {
+
+    private final String userId;
+    private final String publicKeyFile;
+    private final String keyExchangeAlgorithm;
+    private final String secretKeyFile;
+    private final String secret;
+    private final String compression;
+    private final String compressionLevel;
+    private final String armor;
+
+    /**
+     * Creates a key configuration
+     *
+     * @param userId The user ID
+     * @param publicKeyFile The public key file name, or null
+     * @param keyExchangeAlgorithm The key exchange algorithm, or null
+     * @param secretKeyFile The secret key file name, or null
+     * @param secret The password for the secret key, or null
+     */
+    public PGPKeyConfig(String userId, String publicKeyFile,
+            String keyExchangeAlgorithm, String secretKeyFile, String secret) {
+        this(userId, publicKeyFile, keyExchangeAlgorithm, secretKeyFile,
+                secret, null, null);
+    }
+
+    /**
+     * Creates a key configuration with compression settings
+     *
+     * @param userId The user ID
+     * @param publicKeyFile The public key file name, or null
+     * @param keyExchangeAlgorithm The key exchange algorithm, or null
+     * @param secretKeyFile The secret key file name, or null
+     * @param secret The password for the secret key, or null
+     * @param compression The compression algorithm, or null
+     * @param compressionLevel The compression level, or null
+     */
+    public PGPKeyConfig(String userId, String publicKeyFile,
+            String keyExchangeAlgorithm, String secretKeyFile, String secret,
+            String compression, String compressionLevel) {
+        this(userId, publicKeyFile, keyExchangeAlgorithm, secretKeyFile,
+                secret, compression, compressionLevel, null);
+    }
+
+    /**
+     * Creates a key configuration with compression and armor settings
+     *
+     * @param userId The user ID
+     * @param publicKeyFile The public key file name, or null
+     * @param keyExchangeAlgorithm The key exchange algorithm, or null
+     * @param secretKeyFile The secret key file name, or null
+     * @param secret The password for the secret key, or null
+     * @param compression The compression algorithm, or null
+     * @param compressionLevel The compression level, or null
+     * @param armor Whether messages are armored (true or false), or null
+     */
+    public PGPKeyConfig(String userId, String publicKeyFile,
+            String keyExchangeAlgorithm, String secretKeyFile, String secret,
+            String compression, String compressionLevel, String armor) {
+        this.userId = userId;
+        this.publicKeyFile = publicKeyFile;
+        this.keyExchangeAlgorithm = keyExchangeAlgorithm;
+        this.secretKeyFile = secretKeyFile;
+        this.secret = secret;
+        this.compression = compression;
+        this.compressionLevel = compressionLevel;
+        this.armor = armor;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getPublicKeyFile() {
+        return publicKeyFile;
+    }
+
+    public String getKeyExchangeAlgorithm() {
+        return keyExchangeAlgorithm;
+    }
+
+    public String getSecretKeyFile() {
+        return secretKeyFile;
+    }
+
+    public String getSecret() {
+        return secret;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+
+    public String getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public String getArmor() {
+        return armor;
+    }
+}
@@ -0,0 +1,362 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPObjectFactory;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
+import org.bouncycastle.openpgp.PGPSecretKeyRing;
+import org.bouncycastle.openpgp.PGPUtil;
+
+/**
+ * This class loads all public key files of a directory into the key registry.
+ * The files are parsed concurrently on a fork-join pool, so the load time
+ * grows with the number of cores rather than with the number of files. Key
+ * rings contained in several files are identified by the fingerprint of their
+ * master key and kept once. Secret key files are skipped.
+ *
+ * The parallelism can be set through the system property
+ * watt.pgp.keyLoader.parallelism (default: number of processors).
+ */
+public class PGPKeyDirectoryLoader {
+
+    /**
+     * The number of threads parsing key files
+     */
+    private static final int PARALLELISM = Integer.getInteger(
+            "watt.pgp.keyLoader.parallelism",
+            Runtime.getRuntime().availableProcessors());
+
+    /**
+     * The number of files below which a task is not split further
+     */
+    private static final int THRESHOLD = 8;
+
+    /**
+     * The extensions of key files
+     */
+    private static final String[] EXTENSIONS = { ".asc", ".gpg", ".pgp", ".pkr" };
+
+    /**
+     * The result of the last directory load
+     */
+    private static final AtomicReference<Result> last = new AtomicReference<Result>();
+
+    /**
+     * Loads all key files of a directory into the key registry and publishes
+     * the de-duplicated key rings as the last result
+     *
+     * @param dir The key directory
+     * @return The load result
+     * @throws IOException If the directory cannot be read
+     */
+    public static Result load(File dir) throws IOException {
+
+        long start = System.currentTimeMillis();
+        File[] files = dir.listFiles(new FileFilter() {
+            public boolean accept(File file) {
+                return file.isFile() && isKeyFile(file.getName());
+            }
+        });
+        if (files == null) {
+            throw new IOException("Key directory is not accessible: " + dir);
+        }
+        // Sort to keep the first file of duplicate key rings deterministic
+        Arrays.sort(files);
+
+        Result result = new Result(dir, files.length);
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, PARALLELISM));
+        try {
+            pool.invoke(new LoadTask(files, 0, files.length, result));
+        } finally {
+            pool.shutdown();
+        }
+        result.duration = System.currentTimeMillis() - start;
+        last.set(result);
+        return result;
+    }
+
+    /**
+     * Returns the result of the last directory load
+     *
+     * @return The last result, or null if no directory has been loaded
+     */
+    public static Result getLastResult() {
+        return last.get();
+    }
+
+    private static boolean isKeyFile(String name) {
+
+        String lower = name.toLowerCase();
+        for (String extension : EXTENSIONS) {
+            if (lower.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses a key file, registers its public key rings and adds them to the
+     * result
+     *
+     * @param file The key file
+     * @param result The load result
+     */
+    private static void loadFile(File file, Result result) {
+
+        long modified = file.lastModified();
+        List<PGPPublicKeyRing> rings = new ArrayList<PGPPublicKeyRing>();
+
+        // Take the key rings from the keystore snapshot if the file is unchanged
+        PGPKeyRegistry.Entry<PGPPublicKeyRingCollection> entry = PGPKeyStoreSnapshot
+                .getPublicEntry(file, modified, file.length());
+        if (entry != null) {
+            PGPKeyRegistry.register(file, entry);
+            for (Iterator<?> i = entry.ring.getKeyRings(); i.hasNext();) {
+                rings.add((PGPPublicKeyRing) i.next());
+            }
+            addKeyRings(file, rings, result);
+            return;
+        }
+
+        boolean secret = false;
+        byte[] content = null;
+        try {
+            content = Files.readAllBytes(file.toPath());
+        } catch (IOException ioe) {
+            result.failures.put(file.getName(), String.valueOf(ioe.getMessage()));
+            return;
+        }
+        try (
+            InputStream din = PGPUtil.getDecoderStream(new ByteArrayInputStream(content));
+            )
+        {
+            PGPObjectFactory factory = new PGPObjectFactory(din);
+            Object object = null;
+            while ((object = factory.nextObject()) != null) {
+                if (object instanceof PGPPublicKeyRing) {
+                    rings.add((PGPPublicKeyRing) object);
+                } else if (object instanceof PGPSecretKeyRing) {
+                    secret = true;
+                }
+            }
+            if (rings.isEmpty()) {
+                if (secret) {
+                    result.skipped.incrementAndGet();
+                } else {
+                    result.failures.put(file.getName(), "No public key ring found");
+                }
+                return;
+            }
+            PGPKeyRegistry.register(file, new PGPPublicKeyRingCollection(rings),
+                    modified, content.length, PGPKeyStoreSnapshot.checksum(content));
+        } catch (IOException ioe) {
+            result.failures.put(file.getName(), String.valueOf(ioe.getMessage()));
+            return;
+        } catch (PGPException pgpe) {
+            result.failures.put(file.getName(), String.valueOf(pgpe.getMessage()));
+            return;
+        } catch (RuntimeException re) {
+            result.failures.put(file.getName(), re.toString());
+            return;
+        }
+        addKeyRings(file, rings, result);
+    }
+
+    /**
+     * Adds the key rings of a file to the result, de-duplicating them by
+     * fingerprint and keeping the ring of the first file
+     *
+     * @param file The key file
+     * @param rings The key rings of the file
+     * @param result The load result
+     */
+    private static void addKeyRings(File file, List<PGPPublicKeyRing> rings,
+            Result result) {
+
+        for (PGPPublicKeyRing ring : rings) {
+            String fingerprint = toHex(ring.getPublicKey().getFingerprint());
+            Loaded loaded = new Loaded(file.getName(), ring);
+            Loaded previous = result.rings.putIfAbsent(fingerprint, loaded);
+            if (previous != null) {
+                result.duplicates.incrementAndGet();
+                while (previous.file.compareTo(loaded.file) > 0
+                        && !result.rings.replace(fingerprint, previous, loaded)) {
+                    previous = result.rings.get(fingerprint);
+                }
+            }
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+
+        StringBuffer hex = new StringBuffer(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Splits the key files into ranges that are parsed in parallel
+     */
+    private static class LoadTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final File[] files;
+        private final int from;
+        private final int to;
+        private final Result result;
+
+        private LoadTask(File[] files, int from, int to, Result result) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+            this.result = result;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (to - from <= THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    loadFile(files[i], result);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new LoadTask(files, from, middle, result),
+                        new LoadTask(files, middle, to, result));
+            }
+        }
+    }
+
+    /**
+     * A key ring along with the file it was loaded from
+     */
+    private static class Loaded {
+
+        private final String file;
+        private final PGPPublicKeyRing ring;
+
+        private Loaded(String file, PGPPublicKeyRing ring) {
+            this.file = file;
+            this.ring = ring;
+        }
+    }
+
+    /**
+     * The result of a directory load
+     */
+    public static class Result {
+
+        private final File dir;
+        private final int fileCount;
+        private final ConcurrentHashMap<String, Loaded> rings = new ConcurrentHashMap<String, Loaded>();
+        private final ConcurrentHashMap<String, String> failures = new ConcurrentHashMap<String, String>();
+        private final AtomicInteger duplicates = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private long duration;
+
+        private Result(File dir, int fileCount) {
+            this.dir = dir;
+            this.fileCount = fileCount;
+        }
+
+        public File getDir() {
+            return dir;
+        }
+
+        /**
+         * Returns the number of key files found in the directory
+         * @return The file count
+         */
+        public int getFileCount() {
+            return fileCount;
+        }
+
+        /**
+         * Returns the distinct key rings
+         * @return The key rings loaded from the directory
+         */
+        public Collection<PGPPublicKeyRing> getKeyRings() {
+
+            List<PGPPublicKeyRing> list = new ArrayList<PGPPublicKeyRing>(rings.size());
+            for (Loaded loaded : rings.values()) {
+                list.add(loaded.ring);
+            }
+            return list;
+        }
+
+        /**
+         * Returns the number of key rings already loaded from another file
+         * @return The duplicate count
+         */
+        public int getDuplicateCount() {
+            return duplicates.get();
+        }
+
+        /**
+         * Returns the number of secret key files that were skipped
+         * @return The skipped count
+         */
+        public int getSkippedCount() {
+            return skipped.get();
+        }
+
+        /**
+         * Returns the files that could not be loaded
+         * @return The error messages by file name, sorted by file name
+         */
+        public Map<String, String> getFailures() {
+            return Collections.unmodifiableMap(new TreeMap<String, String>(failures));
+        }
+
+        /**
+         * Returns the load time
+         * @return The duration in milliseconds
+         */
+        public long getDuration() {
+            return duration;
+        }
+    }
+}
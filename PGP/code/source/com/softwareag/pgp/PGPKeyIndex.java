@@ -0,0 +1,590 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
+import org.bouncycastle.openpgp.PGPSecretKey;
+import org.bouncycastle.openpgp.PGPSecretKeyRing;
+import org.bouncycastle.openpgp.PGPSecretKeyRingCollection;
+
+/**
+ * This class provides an index from key ID to the public and secret keys of
+ * all configured key rings, the previous key generations within their
+ * overlap window and the last loaded key directory. The key IDs are kept in a primitive open
+ * addressing table, so decryption and verification can resolve the key of a
+ * packet in constant time and without knowing the user ID it was sent to.
+ * An index is immutable once built; the current index is replaced atomically.
+ *
+ * Configured key files that are current in the keystore snapshot are indexed
+ * by the key IDs stored in the snapshot; their key rings are only parsed when
+ * a key is first used. The index records the checksum of every configured key
+ * file, so key files parsed later do not make it stale unless their content
+ * differs.
+ */
+public class PGPKeyIndex {
+
+    /**
+     * The current index
+     */
+    private static final AtomicReference<PGPKeyIndex> current = new AtomicReference<PGPKeyIndex>();
+
+    /**
+     * The number of indexes built
+     */
+    private static final AtomicLong generations = new AtomicLong();
+
+    private long generation = generations.incrementAndGet();
+    private long[] ids;
+    private Entry[] entries;
+    private int size;
+    private final Object source;
+    private volatile long registryUpdates;
+    private final List<String> failures = new ArrayList<String>();
+
+    /**
+     * The checksums of the configured key files by registry type and path;
+     * null for files that could not be read
+     */
+    private final Map<String, Long> checksums = new HashMap<String, Long>();
+
+    /**
+     * The configured key files that were taken from the registry rather than
+     * the snapshot
+     */
+    private final Set<String> registered = new HashSet<String>();
+
+    private PGPKeyDirectoryLoader.Result loaded;
+
+    private PGPKeyIndex(int capacity, Object source) {
+        int length = 16;
+        while (length < capacity * 2) {
+            length <<= 1;
+        }
+        this.ids = new long[length];
+        this.entries = new Entry[length];
+        this.source = source;
+    }
+
+    /**
+     * Returns the current index
+     *
+     * @return The current index, or null if none has been built
+     */
+    public static PGPKeyIndex getIndex() {
+        return current.get();
+    }
+
+    /**
+     * Builds an index over the key files of the given key configurations and
+     * publishes it as the current index. Key files that cannot be read are
+     * skipped and reported through {@link #getFailures()}.
+     *
+     * @param keys The key configurations
+     * @param keyDir The directory containing the key files
+     * @param source The object the configurations were taken from
+     * @return The new index
+     */
+    public static PGPKeyIndex rebuild(Collection<PGPKeyConfig> keys,
+            File keyDir, Object source) {
+
+        PGPKeyIndex index = new PGPKeyIndex(keys.size() * 4, source);
+        for (PGPKeyConfig key : keys) {
+            String userId = key.getUserId();
+            if (key.getPublicKeyFile() != null) {
+                File file = new File(keyDir, key.getPublicKeyFile());
+                String path = file.getPath();
+                PGPKeyStoreSnapshot.Entry snapshot = PGPKeyRegistry.getPublicEntries()
+                        .containsKey(path) ? null : PGPKeyStoreSnapshot.findPublic(file);
+                if (snapshot != null) {
+                    // Parse the key file when a key is first used
+                    index.checksums.put("P" + path, snapshot.getChecksum());
+                    for (long keyId : snapshot.getKeyIds()) {
+                        index.addPublicFile(userId, keyId, path);
+                    }
+                } else {
+                    index.checksums.put("P" + path, null);
+                    index.registered.add("P" + path);
+                    try {
+                        PGPKeyRegistry.Entry<PGPPublicKeyRingCollection> entry = PGPKeyRegistry
+                                .getPublicEntry(path);
+                        index.checksums.put("P" + path, entry.checksum);
+                        index.addPublicKeys(userId, entry.ring.getKeyRings(),
+                                Long.MAX_VALUE);
+                    } catch (Exception e) {
+                        index.failures.add(path + ": " + e.getMessage());
+                    }
+                }
+            }
+            if (key.getSecretKeyFile() != null) {
+                File file = new File(keyDir, key.getSecretKeyFile());
+                String path = file.getPath();
+                PGPKeyStoreSnapshot.Entry snapshot = PGPKeyRegistry.getSecretEntries()
+                        .containsKey(path) ? null : PGPKeyStoreSnapshot.findSecret(file);
+                if (snapshot != null) {
+                    index.checksums.put("S" + path, snapshot.getChecksum());
+                    for (long keyId : snapshot.getKeyIds()) {
+                        index.addSecretFile(userId, keyId, path,
+                                PGPKeyRotation.getSecret(key));
+                    }
+                } else {
+                    index.checksums.put("S" + path, null);
+                    index.registered.add("S" + path);
+                    try {
+                        PGPKeyRegistry.Entry<PGPSecretKeyRingCollection> entry = PGPKeyRegistry
+                                .getSecretEntry(path);
+                        index.checksums.put("S" + path, entry.checksum);
+                        index.addSecretKeys(userId, entry.ring, PGPKeyRotation.getSecret(key),
+                                Long.MAX_VALUE);
+                    } catch (Exception e) {
+                        index.failures.add(path + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+        // Add the keys of previous generations that are still accepted and
+        // the public keys of the loaded key directory; configured keys take
+        // precedence
+        for (PGPKeyRotation.Generation generation : PGPKeyRotation.getRetiredGenerations()) {
+            if (generation.getPublicKeyRing() != null) {
+                index.addPublicKeys(generation.getUserId(),
+                        generation.getPublicKeyRing().getKeyRings(),
+                        generation.getExpires());
+            }
+            if (generation.getSecretKeyRing() != null) {
+                index.addSecretKeys(generation.getUserId(),
+                        generation.getSecretKeyRing(), generation.getSecret(),
+                        generation.getExpires());
+            }
+        }
+        index.loaded = PGPKeyDirectoryLoader.getLastResult();
+        if (index.loaded != null) {
+            index.addPublicKeys(null, index.loaded.getKeyRings().iterator(),
+                    Long.MAX_VALUE);
+        }
+        // Key files parsed while building are part of this index
+        index.registryUpdates = PGPKeyRegistry.getUpdateCount();
+        current.set(index);
+        return index;
+    }
+
+    /**
+     * Checks whether this index was built from the given source, the same
+     * key directory was loaded last and no configured key file has been
+     * parsed with a different content since
+     *
+     * @param source The object the configurations were taken from
+     * @return True if the index is up to date
+     */
+    public boolean isCurrent(Object source) {
+
+        if (this.source != source || loaded != PGPKeyDirectoryLoader.getLastResult()) {
+            return false;
+        }
+        long updates = PGPKeyRegistry.getUpdateCount();
+        if (registryUpdates == updates) {
+            return true;
+        }
+
+        // Key files were parsed or removed: compare the configured ones
+        Map<String, PGPKeyRegistry.Entry<PGPPublicKeyRingCollection>> publicEntries = PGPKeyRegistry
+                .getPublicEntries();
+        Map<String, PGPKeyRegistry.Entry<PGPSecretKeyRingCollection>> secretEntries = PGPKeyRegistry
+                .getSecretEntries();
+        for (Map.Entry<String, Long> next : checksums.entrySet()) {
+            String path = next.getKey().substring(1);
+            PGPKeyRegistry.Entry<?> entry = next.getKey().charAt(0) == 'P'
+                    ? publicEntries.get(path) : secretEntries.get(path);
+            if (entry == null ? registered.contains(next.getKey())
+                    : next.getValue() == null || entry.checksum != next.getValue()) {
+                return false;
+            }
+        }
+        registryUpdates = updates;
+        return true;
+    }
+
+    /**
+     * Returns the entry of a key ID
+     *
+     * @param keyId The key identifier
+     * @return The entry, or null if the key is not indexed or has expired
+     */
+    public Entry get(long keyId) {
+
+        Entry entry = find(keyId);
+        if (entry != null && entry.expires != Long.MAX_VALUE
+                && entry.expires <= System.currentTimeMillis()) {
+            return null;
+        }
+        return entry;
+    }
+
+    private Entry find(long keyId) {
+
+        int mask = ids.length - 1;
+        for (int i = hash(keyId) & mask; entries[i] != null; i = (i + 1) & mask) {
+            if (ids[i] == keyId) {
+                return entries[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the public key of a key ID
+     *
+     * @param keyId The key identifier
+     * @return The public key, or null if not indexed
+     */
+    public PGPPublicKey getPublicKey(long keyId) {
+
+        Entry entry = get(keyId);
+        return entry == null ? null : entry.getPublicKey();
+    }
+
+    /**
+     * Returns the secret key of a key ID
+     *
+     * @param keyId The key identifier
+     * @return The secret key, or null if not indexed
+     */
+    public PGPSecretKey getSecretKey(long keyId) {
+
+        Entry entry = get(keyId);
+        return entry == null ? null : entry.getSecretKey();
+    }
+
+    /**
+     * Returns an index over the previous key generations of the user IDs
+     * whose keys are in a secret key ring. Callers decrypting with a given
+     * key ring use it to resolve keys of a generation retired by a rotation
+     * without gaining access to the keys of other user IDs.
+     *
+     * @param ringSecret The secret key ring
+     * @return The index, or null if none of the user IDs has a previous
+     *         generation within its overlap window
+     */
+    public PGPKeyIndex getRetired(PGPSecretKeyRingCollection ringSecret) {
+
+        List<PGPKeyRotation.Generation> retired = new ArrayList<PGPKeyRotation.Generation>();
+        Set<String> userIds = new HashSet<String>();
+        long now = System.currentTimeMillis();
+        for (Iterator<?> i = ringSecret.getKeyRings(); i.hasNext();) {
+            for (Iterator<?> j = ((PGPSecretKeyRing) i.next()).getSecretKeys(); j.hasNext();) {
+                Entry entry = find(((PGPSecretKey) j.next()).getKeyID());
+                if (entry == null || entry.userId == null || !userIds.add(entry.userId)) {
+                    continue;
+                }
+                for (PGPKeyRotation.Generation generation : PGPKeyRotation
+                        .getGenerations(entry.userId)) {
+                    if (generation.getExpires() != Long.MAX_VALUE
+                            && generation.getExpires() > now) {
+                        retired.add(generation);
+                    }
+                }
+            }
+        }
+        if (retired.isEmpty()) {
+            return null;
+        }
+
+        PGPKeyIndex index = new PGPKeyIndex(retired.size() * 4, source);
+        for (PGPKeyRotation.Generation generation : retired) {
+            if (generation.getPublicKeyRing() != null) {
+                index.addPublicKeys(generation.getUserId(),
+                        generation.getPublicKeyRing().getKeyRings(),
+                        generation.getExpires());
+            }
+            if (generation.getSecretKeyRing() != null) {
+                index.addSecretKeys(generation.getUserId(),
+                        generation.getSecretKeyRing(), generation.getSecret(),
+                        generation.getExpires());
+            }
+        }
+        index.registryUpdates = registryUpdates;
+        index.loaded = loaded;
+        index.generation = generation;
+        return index;
+    }
+
+    /**
+     * Returns the generation of the index, which is unique per built index.
+     * An index returned by {@link #getRetired(PGPSecretKeyRingCollection)}
+     * has the generation of the index it was taken from.
+     *
+     * @return The generation number
+     */
+    long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the number of indexed key IDs
+     *
+     * @return The index size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the key files that could not be indexed
+     *
+     * @return The file names with error messages
+     */
+    public List<String> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    private void addPublicKeys(String userId, Iterator<?> rings, long expires) {
+
+        for (Iterator<?> i = rings; i.hasNext();) {
+            PGPPublicKeyRing ring = (PGPPublicKeyRing) i.next();
+            String ringUserId = userId != null ? userId : getUserId(ring);
+            for (Iterator<?> j = ring.getPublicKeys(); j.hasNext();) {
+                PGPPublicKey key = (PGPPublicKey) j.next();
+                Entry entry = find(key.getKeyID());
+                if (entry == null) {
+                    put(key.getKeyID(), new Entry(ringUserId, key, null, null,
+                            expires));
+                } else if (!entry.hasPublicKey()) {
+                    put(key.getKeyID(), new Entry(entry.userId, key,
+                            entry.secretKey, entry.secret, entry.expires)
+                            .withSecretFile(entry.secretFile, entry.keyId));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the first user ID of the master key of a key ring
+     *
+     * @param ring The public key ring
+     * @return The user ID, or null if the key has none
+     */
+    private static String getUserId(PGPPublicKeyRing ring) {
+
+        Iterator<?> userIds = ring.getPublicKey().getUserIDs();
+        return userIds.hasNext() ? (String) userIds.next() : null;
+    }
+
+    private void addSecretKeys(String userId, PGPSecretKeyRingCollection coll,
+            String secret, long expires) {
+
+        for (Iterator<?> i = coll.getKeyRings(); i.hasNext();) {
+            PGPSecretKeyRing ring = (PGPSecretKeyRing) i.next();
+            for (Iterator<?> j = ring.getSecretKeys(); j.hasNext();) {
+                PGPSecretKey key = (PGPSecretKey) j.next();
+                Entry entry = find(key.getKeyID());
+                if (entry == null) {
+                    put(key.getKeyID(), new Entry(userId, key.getPublicKey(),
+                            key, secret, expires));
+                } else if (!entry.hasSecretKey()) {
+                    put(key.getKeyID(), new Entry(entry.userId,
+                            entry.publicKey, key, secret, entry.expires)
+                            .withPublicFile(entry.publicFile, entry.keyId));
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a key of a configured public key file that is parsed on first use
+     */
+    private void addPublicFile(String userId, long keyId, String path) {
+
+        Entry entry = find(keyId);
+        if (entry == null) {
+            put(keyId, new Entry(userId, null, null, null, Long.MAX_VALUE)
+                    .withPublicFile(path, keyId));
+        } else if (!entry.hasPublicKey()) {
+            put(keyId, new Entry(entry.userId, null, entry.secretKey,
+                    entry.secret, entry.expires).withPublicFile(path, keyId)
+                    .withSecretFile(entry.secretFile, entry.keyId));
+        }
+    }
+
+    /**
+     * Adds a key of a configured secret key file that is parsed on first use
+     */
+    private void addSecretFile(String userId, long keyId, String path,
+            String secret) {
+
+        Entry entry = find(keyId);
+        if (entry == null) {
+            put(keyId, new Entry(userId, null, null, secret, Long.MAX_VALUE)
+                    .withSecretFile(path, keyId));
+        } else if (!entry.hasSecretKey()) {
+            put(keyId, new Entry(entry.userId, entry.publicKey, null, secret,
+                    entry.expires).withPublicFile(entry.publicFile, entry.keyId)
+                    .withSecretFile(path, keyId));
+        }
+    }
+
+    private void put(long keyId, Entry entry) {
+
+        if ((size + 1) * 2 > ids.length) {
+            grow();
+        }
+        int mask = ids.length - 1;
+        int i = hash(keyId) & mask;
+        while (entries[i] != null && ids[i] != keyId) {
+            i = (i + 1) & mask;
+        }
+        if (entries[i] == null) {
+            size++;
+        }
+        ids[i] = keyId;
+        entries[i] = entry;
+    }
+
+    private void grow() {
+
+        long[] oldIds = ids;
+        Entry[] oldEntries = entries;
+        ids = new long[oldIds.length * 2];
+        entries = new Entry[oldEntries.length * 2];
+        size = 0;
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldEntries[i] != null) {
+                put(oldIds[i], oldEntries[i]);
+            }
+        }
+    }
+
+    private static int hash(long keyId) {
+
+        long h = keyId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * The keys and user ID of an indexed key ID. Keys indexed from the
+     * keystore snapshot are resolved through the registry on first use.
+     */
+    public static class Entry {
+
+        private final String userId;
+        private volatile PGPPublicKey publicKey;
+        private volatile PGPSecretKey secretKey;
+        private final String secret;
+        private final long expires;
+        private String publicFile;
+        private String secretFile;
+        private long keyId;
+
+        private Entry(String userId, PGPPublicKey publicKey,
+                PGPSecretKey secretKey, String secret, long expires) {
+            this.userId = userId;
+            this.publicKey = publicKey;
+            this.secretKey = secretKey;
+            this.secret = secret;
+            this.expires = expires;
+            if (publicKey != null) {
+                keyId = publicKey.getKeyID();
+            } else if (secretKey != null) {
+                keyId = secretKey.getKeyID();
+            }
+        }
+
+        private Entry withPublicFile(String path, long keyId) {
+            if (path != null) {
+                publicFile = path;
+                this.keyId = keyId;
+            }
+            return this;
+        }
+
+        private Entry withSecretFile(String path, long keyId) {
+            if (path != null) {
+                secretFile = path;
+                this.keyId = keyId;
+            }
+            return this;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public PGPPublicKey getPublicKey() {
+
+            PGPPublicKey key = publicKey;
+            if (key == null && publicFile != null) {
+                try {
+                    key = PGPKeyRegistry.getPublicKeyRing(publicFile).getPublicKey(keyId);
+                } catch (Exception e) {
+                    key = null;
+                }
+                publicKey = key;
+            }
+            if (key == null && publicFile == null) {
+                // A secret key file without public key file
+                PGPSecretKey secretKey = getSecretKey();
+                key = secretKey == null ? null : secretKey.getPublicKey();
+            }
+            return key;
+        }
+
+        public PGPSecretKey getSecretKey() {
+
+            PGPSecretKey key = secretKey;
+            if (key == null && secretFile != null) {
+                try {
+                    key = PGPKeyRegistry.getSecretKeyRing(secretFile).getSecretKey(keyId);
+                } catch (Exception e) {
+                    key = null;
+                }
+                secretKey = key;
+            }
+            return key;
+        }
+
+        private boolean hasPublicKey() {
+            return publicKey != null || publicFile != null;
+        }
+
+        private boolean hasSecretKey() {
+            return secretKey != null || secretFile != null;
+        }
+
+        /**
+         * Returns the configured password of the secret key
+         * @return The password, or null if not configured
+         */
+        public char[] getPassword() {
+            return secret == null ? null : secret.toCharArray();
+        }
+    }
+}
@@ -18,12 +18,12 @@
  * */
 package com.softwareag.pgp;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.NoSuchProviderException;
-import java.util.ArrayList;
 import java.util.Iterator;
 
 import org.bouncycastle.openpgp.PGPException;
@@ -57,7 +57,7 @@ public class PGPKeyReader {
         {
                     
             // Open the key ring
-            coll = new PGPPublicKeyRingCollection(in);
+            coll = new PGPPublicKeyRingCollection(din);
         } catch (IOException ioe) {
             //logger.error(ioe.getMessage());
             throw ioe;
@@ -68,6 +68,20 @@ public class PGPKeyReader {
         return coll;
     }
 
+    /**
+     * Parses a public key ring collection from the content of a key file
+     *
+     * @param content The binary or ASCII-armored content
+     * @return The public key ring collection
+     * @throws IOException If the content cannot be decoded
+     * @throws PGPException If the content is not a valid key ring
+     */
+    public static PGPPublicKeyRingCollection readPublicKeyRing(byte[] content)
+            throws IOException, PGPException {
+        return new PGPPublicKeyRingCollection(
+                PGPUtil.getDecoderStream(new ByteArrayInputStream(content)));
+    }
+
     public static PGPPublicKey readPublicKey(String path, int algorithm)
             throws IOException, PGPException {
 
@@ -105,42 +119,14 @@ public class PGPKeyReader {
         return readPublicKey(coll, algorithm);
     }
     
+    /**
+     * Returns the first valid encryption key of an algorithm. The key is
+     * taken from the selection precomputed for the key ring collection.
+     */
     public static PGPPublicKey readPublicKey(PGPPublicKeyRingCollection coll, int algorithm) 
         throws IOException, PGPException {
 
-        ArrayList<String> others = new ArrayList<String>();
-        PGPPublicKey key = null;
-        main: for (Iterator<?> i = coll.getKeyRings(); i.hasNext();) {
-            PGPPublicKeyRing ring = (PGPPublicKeyRing) i.next();
-            for (Iterator<?> j = ring.getPublicKeys(); j.hasNext();) {
-                PGPPublicKey next = (PGPPublicKey) j.next();
-                //logger.debug("Found public key: " 
-                //        + PGPInit.getKeyExchangeAlgorithm(next.getAlgorithm()));
-                if (next.isEncryptionKey()
-                        && (next.getAlgorithm() == algorithm || algorithm == 0)) {
-                    key = next;
-                    break main;
-                } else {
-                    others.add(PGPInit.getKeyExchangeAlgorithm(next.getAlgorithm()));
-                }
-            }
-        }
-        
-        // If not found, throw error
-        if (key == null) {
-            if (others.size() > 0) {
-                StringBuffer buffer = new StringBuffer();
-                String sep = "";
-                for (int i = 0; i < others.size(); i++) {
-                    buffer.append(sep).append(others.get(i));
-                    sep = ", ";
-                }
-                throw new PGPException("Public key not found; Choose algorithm from " + buffer.toString());
-            } else {
-                throw new PGPException("Public key not found");
-            }
-        }
-        return key;
+        return PGPKeySelection.get(coll).getEncryptionKey(algorithm);
     }
 
     public static PGPSecretKeyRingCollection readSecretKeyRing(String path) 
@@ -158,7 +144,7 @@ public class PGPKeyReader {
         {
 
             // Open the key ring
-            coll = new PGPSecretKeyRingCollection(in);
+            coll = new PGPSecretKeyRingCollection(din);
         } catch (IOException ioe) {
             //logger.error(ioe.getMessage());
             throw ioe;
@@ -169,6 +155,20 @@ public class PGPKeyReader {
         return coll;
     }
     
+    /**
+     * Parses a secret key ring collection from the content of a key file
+     *
+     * @param content The binary or ASCII-armored content
+     * @return The secret key ring collection
+     * @throws IOException If the content cannot be decoded
+     * @throws PGPException If the content is not a valid key ring
+     */
+    public static PGPSecretKeyRingCollection readSecretKeyRing(byte[] content)
+            throws IOException, PGPException {
+        return new PGPSecretKeyRingCollection(
+                PGPUtil.getDecoderStream(new ByteArrayInputStream(content)));
+    }
+
     public static PGPSecretKey readSecretKey(String path)
             throws IOException, PGPException, NoSuchProviderException {
 
@@ -206,30 +206,14 @@ public class PGPKeyReader {
         return readSecretKey(coll);
     }
 
+    /**
+     * Returns the first valid signing key. The key is taken from the
+     * selection precomputed for the key ring collection.
+     */
     public static PGPSecretKey readSecretKey(PGPSecretKeyRingCollection secret)
             throws PGPException, NoSuchProviderException {
         
-        PGPSecretKey key = null;
-        main: for (Iterator<?> i = secret.getKeyRings(); i.hasNext();) {
-            PGPSecretKeyRing ring = (PGPSecretKeyRing) i.next();
-            for (Iterator<?> j = ring.getSecretKeys(); j.hasNext();) {
-                PGPSecretKey next = (PGPSecretKey) j.next();
-                //logger.debug("Found secret key: "
-                //        + PGPInit.getKeyExchangeAlgorithm(next
-                //                .getKeyEncryptionAlgorithm()));
-                if (next.isSigningKey()) {
-                    key = next;
-                    break main;
-                }
-            }
-        }
-
-        // If not found, throw error
-        if (key == null) {
-            throw new PGPException("Secret key not found");
-        }
-
-        return key;
+        return PGPKeySelection.get(secret).getSigningKey();
     }
 
     public static PGPPrivateKey readPrivateKey(PGPSecretKey secret, char[] pass)
@@ -0,0 +1,324 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
+import org.bouncycastle.openpgp.PGPSecretKeyRingCollection;
+
+/**
+ * This class provides a process-wide registry of parsed key rings. Each key
+ * file is parsed once and kept in memory until the file on disk is modified,
+ * which is detected by comparing its modification time and size on every
+ * lookup. The key files are referenced per user ID in the configuration, so
+ * every configured user ID resolves to exactly one registry entry per key type.
+ * Each entry records the checksum of the exact file content it was parsed
+ * from, so the keystore snapshot never pairs a key ring with a newer file.
+ * The encryption and signing keys of a key ring are selected when it is
+ * registered and kept in its entry.
+ */
+public class PGPKeyRegistry {
+
+    /**
+     * Parsed public key rings by key file path
+     */
+    private static final ConcurrentHashMap<String, Entry<PGPPublicKeyRingCollection>> publicRings = new ConcurrentHashMap<String, Entry<PGPPublicKeyRingCollection>>();
+
+    /**
+     * Parsed secret key rings by key file path
+     */
+    private static final ConcurrentHashMap<String, Entry<PGPSecretKeyRingCollection>> secretRings = new ConcurrentHashMap<String, Entry<PGPSecretKeyRingCollection>>();
+
+    /**
+     * The key selections of the registered key rings by key ring collection;
+     * the collections do not override equals, so they are compared by
+     * identity
+     */
+    private static final ConcurrentHashMap<Object, PGPKeySelection> selections = new ConcurrentHashMap<Object, PGPKeySelection>();
+
+    /**
+     * The number of times a key file was parsed or removed
+     */
+    private static final AtomicLong updates = new AtomicLong();
+
+    /**
+     * Returns the public key ring collection stored in a key file. The file is
+     * only parsed if it is not registered yet or has changed since it was
+     * parsed last.
+     *
+     * @param path The path to the key file
+     * @return The public key ring collection
+     * @throws IOException If the file cannot be read
+     * @throws PGPException If the file does not contain a valid key ring
+     */
+    public static PGPPublicKeyRingCollection getPublicKeyRing(String path)
+            throws IOException, PGPException {
+        return getPublicEntry(path).ring;
+    }
+
+    /**
+     * Returns the registry entry of a public key file, parsing the file if it
+     * is not registered yet or has changed since it was parsed last
+     *
+     * @param path The path to the key file
+     * @return The entry
+     * @throws IOException If the file cannot be read
+     * @throws PGPException If the file does not contain a valid key ring
+     */
+    static Entry<PGPPublicKeyRingCollection> getPublicEntry(String path)
+            throws IOException, PGPException {
+
+        File file = new File(path);
+        Entry<PGPPublicKeyRingCollection> entry = publicRings.get(file.getPath());
+        if (entry == null || !entry.isCurrent(file)) {
+            // Take the file state before parsing, so that a change while
+            // parsing is picked up by the next lookup
+            long modified = file.lastModified();
+            // Take the key ring from the keystore snapshot if it is current
+            entry = PGPKeyStoreSnapshot.getPublicEntry(file, modified, file.length());
+            if (entry == null) {
+                byte[] content = Files.readAllBytes(file.toPath());
+                entry = new Entry<PGPPublicKeyRingCollection>(
+                        PGPKeyReader.readPublicKeyRing(content), modified,
+                        content.length, PGPKeyStoreSnapshot.checksum(content));
+            }
+            put(publicRings, file.getPath(), entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the secret key ring collection stored in a key file. The file is
+     * only parsed if it is not registered yet or has changed since it was
+     * parsed last.
+     *
+     * @param path The path to the key file
+     * @return The secret key ring collection
+     * @throws IOException If the file cannot be read
+     * @throws PGPException If the file does not contain a valid key ring
+     */
+    public static PGPSecretKeyRingCollection getSecretKeyRing(String path)
+            throws IOException, PGPException {
+        return getSecretEntry(path).ring;
+    }
+
+    /**
+     * Returns the registry entry of a secret key file, parsing the file if it
+     * is not registered yet or has changed since it was parsed last
+     *
+     * @param path The path to the key file
+     * @return The entry
+     * @throws IOException If the file cannot be read
+     * @throws PGPException If the file does not contain a valid key ring
+     */
+    static Entry<PGPSecretKeyRingCollection> getSecretEntry(String path)
+            throws IOException, PGPException {
+
+        File file = new File(path);
+        Entry<PGPSecretKeyRingCollection> entry = secretRings.get(file.getPath());
+        if (entry == null || !entry.isCurrent(file)) {
+            long modified = file.lastModified();
+            entry = PGPKeyStoreSnapshot.getSecretEntry(file, modified, file.length());
+            if (entry == null) {
+                byte[] content = Files.readAllBytes(file.toPath());
+                entry = new Entry<PGPSecretKeyRingCollection>(
+                        PGPKeyReader.readSecretKeyRing(content), modified,
+                        content.length, PGPKeyStoreSnapshot.checksum(content));
+            }
+            put(secretRings, file.getPath(), entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Registers a public key ring collection that was parsed from a key file
+     * by the caller
+     *
+     * @param file The key file
+     * @param ring The public key ring collection
+     * @param modified The modification time of the file before parsing
+     * @param length The size of the parsed content
+     * @param checksum The checksum of the parsed content
+     */
+    static void register(File file, PGPPublicKeyRingCollection ring,
+            long modified, long length, long checksum) {
+
+        put(publicRings, file.getPath(), new Entry<PGPPublicKeyRingCollection>(
+                ring, modified, length, checksum));
+    }
+
+    /**
+     * Registers a public key ring collection that was taken from the keystore
+     * snapshot by the caller
+     *
+     * @param file The key file
+     * @param entry The entry
+     */
+    static void register(File file, Entry<PGPPublicKeyRingCollection> entry) {
+        put(publicRings, file.getPath(), entry);
+    }
+
+    /**
+     * Registers a secret key ring collection that was parsed from a key file
+     * by the caller
+     *
+     * @param file The key file
+     * @param ring The secret key ring collection
+     * @param modified The modification time of the file before parsing
+     * @param length The size of the parsed content
+     * @param checksum The checksum of the parsed content
+     */
+    static void register(File file, PGPSecretKeyRingCollection ring,
+            long modified, long length, long checksum) {
+
+        put(secretRings, file.getPath(), new Entry<PGPSecretKeyRingCollection>(
+                ring, modified, length, checksum));
+    }
+
+    /**
+     * Returns the key selection of a registered key ring collection
+     *
+     * @param ring The key ring collection
+     * @return The selection, or null if the collection is not registered
+     */
+    static PGPKeySelection getSelection(Object ring) {
+        return selections.get(ring);
+    }
+
+    private static <T> void put(ConcurrentHashMap<String, Entry<T>> rings,
+            String path, Entry<T> entry) {
+
+        selections.put(entry.ring, entry.selection);
+        Entry<T> previous = rings.put(path, entry);
+        if (previous != null && previous.ring != entry.ring) {
+            selections.remove(previous.ring);
+        }
+        updates.incrementAndGet();
+    }
+
+    /**
+     * Removes the key rings of a key file from the registry
+     *
+     * @param path The path to the key file
+     */
+    public static void invalidate(String path) {
+
+        String key = new File(path).getPath();
+        Entry<?> entry = publicRings.remove(key);
+        if (entry != null) {
+            selections.remove(entry.ring);
+        }
+        entry = secretRings.remove(key);
+        if (entry != null) {
+            selections.remove(entry.ring);
+        }
+        updates.incrementAndGet();
+    }
+
+    /**
+     * Removes all key rings from the registry
+     */
+    public static void clear() {
+
+        publicRings.clear();
+        secretRings.clear();
+        selections.clear();
+        updates.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of registered key files
+     *
+     * @return The number of public and secret key files
+     */
+    public static int size() {
+
+        return publicRings.size() + secretRings.size();
+    }
+
+    /**
+     * Returns the number of times a key file was parsed or removed. Callers
+     * holding data derived from the registered key rings can compare this
+     * count to detect that a key file has changed.
+     *
+     * @return The update count
+     */
+    public static long getUpdateCount() {
+        return updates.get();
+    }
+
+    /**
+     * Returns the registered public key rings
+     *
+     * @return The entries by key file path
+     */
+    static Map<String, Entry<PGPPublicKeyRingCollection>> getPublicEntries() {
+        return Collections.unmodifiableMap(publicRings);
+    }
+
+    /**
+     * Returns the registered secret key rings
+     *
+     * @return The entries by key file path
+     */
+    static Map<String, Entry<PGPSecretKeyRingCollection>> getSecretEntries() {
+        return Collections.unmodifiableMap(secretRings);
+    }
+
+    /**
+     * A parsed key ring along with its key selection and the state of the
+     * file it was read from
+     */
+    static class Entry<T> {
+
+        final T ring;
+        final PGPKeySelection selection;
+        final long modified;
+        final long length;
+        final long checksum;
+
+        Entry(T ring, long modified, long length, long checksum) {
+            this.ring = ring;
+            this.selection = ring instanceof PGPPublicKeyRingCollection
+                    ? PGPKeySelection.select((PGPPublicKeyRingCollection) ring)
+                    : PGPKeySelection.select((PGPSecretKeyRingCollection) ring);
+            this.modified = modified;
+            this.length = length;
+            this.checksum = checksum;
+        }
+
+        /**
+         * Checks whether the key file is unchanged since it was parsed
+         *
+         * @param file The key file
+         * @return True if modification time and size are unchanged
+         */
+        boolean isCurrent(File file) {
+            return file.lastModified() == modified && file.length() == length;
+        }
+    }
+}
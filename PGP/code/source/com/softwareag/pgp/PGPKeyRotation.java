@@ -0,0 +1,648 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPrivateKey;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
+import org.bouncycastle.openpgp.PGPSecretKeyRingCollection;
+import org.bouncycastle.openpgp.PGPUtil;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+/**
+ * This class rotates the keys of a configured user ID. A new key generation
+ * is staged from key files outside the key directory, validated with a test
+ * round-trip and then published: the key files are replaced atomically and
+ * the parsed key rings are registered, so no request reads a partially
+ * written file or parses the new files. The previous generation remains in
+ * the key index for decryption and verification until its overlap window
+ * has passed. Lookups never block; rotations are serialized.
+ *
+ * The key files of a previous generation are kept in the key directory as
+ * versioned copies of the configured files (e.g. partner-pub.asc.g1), and
+ * the generations are recorded in a metadata file next to the
+ * configuration, so they are restored after a restart. The copies are only
+ * deleted once the overlap window has passed.
+ *
+ * Each generation keeps the password of its secret key, so a new generation
+ * can be protected by a new password. The metadata file records the
+ * password of every previous generation, and that of the current generation
+ * if it was given on rotation; otherwise the current generation uses the
+ * configured password. Like the configuration, the metadata file must
+ * therefore only be readable by the server.
+ *
+ * The default overlap window can be set through the system property
+ * watt.pgp.keyRotation.overlap (seconds, default: 86400).
+ */
+public class PGPKeyRotation {
+
+    /**
+     * The default overlap window in milliseconds
+     */
+    public static final long OVERLAP = Long.getLong(
+            "watt.pgp.keyRotation.overlap", 86400) * 1000L;
+
+    /**
+     * The generations by user ID, replaced as a whole on every rotation
+     */
+    private static final AtomicReference<Map<String, List<Generation>>> generations = new AtomicReference<Map<String, List<Generation>>>(
+            Collections.<String, List<Generation>> emptyMap());
+
+    /**
+     * Rotates the keys of a user ID to a new generation whose secret key, if
+     * any, has the password of the current generation
+     *
+     * @param key The key configuration of the user ID
+     * @param keyDir The directory containing the key files
+     * @param metadataFile The file recording the generations
+     * @param publicKeyFile The staged public key file
+     * @param secretKeyFile The staged secret key file, or null
+     * @param overlap The time in milliseconds the previous generation is
+     *            still accepted for decryption
+     * @return The new generation
+     * @throws IOException If a key file cannot be read or written
+     * @throws PGPException If the new keys are not valid
+     */
+    public static Generation rotate(PGPKeyConfig key, File keyDir,
+            File metadataFile, File publicKeyFile, File secretKeyFile,
+            long overlap)
+            throws IOException, PGPException {
+        return rotate(key, keyDir, metadataFile, publicKeyFile, secretKeyFile,
+                null, overlap);
+    }
+
+    /**
+     * Rotates the keys of a user ID to a new generation. The staged public
+     * key file must contain an encryption key for the configured key
+     * exchange algorithm. If a secret key file is staged, it must be
+     * unlocked by the given password or, if none is given, by the password
+     * of the current generation. The previous generation keeps its password.
+     *
+     * @param key The key configuration of the user ID
+     * @param keyDir The directory containing the key files
+     * @param metadataFile The file recording the generations
+     * @param publicKeyFile The staged public key file
+     * @param secretKeyFile The staged secret key file, or null
+     * @param password The password of the staged secret key, or null
+     * @param overlap The time in milliseconds the previous generation is
+     *            still accepted for decryption
+     * @return The new generation
+     * @throws IOException If a key file cannot be read or written
+     * @throws PGPException If the new keys are not valid
+     */
+    public static synchronized Generation rotate(PGPKeyConfig key, File keyDir,
+            File metadataFile, File publicKeyFile, File secretKeyFile,
+            String password, long overlap)
+            throws IOException, PGPException {
+
+        if (key.getPublicKeyFile() == null) {
+            throw new PGPException("No public key file configured for " + key.getUserId());
+        }
+        if (secretKeyFile != null && key.getSecretKeyFile() == null) {
+            throw new PGPException("No secret key file configured for " + key.getUserId());
+        }
+
+        // Stage: read the new key files once and parse them from memory
+        byte[] publicBytes = Files.readAllBytes(publicKeyFile.toPath());
+        PGPPublicKeyRingCollection ringPub = new PGPPublicKeyRingCollection(
+                decode(publicBytes));
+        byte[] secretBytes = null;
+        PGPSecretKeyRingCollection ringSecret = null;
+        if (secretKeyFile != null) {
+            secretBytes = Files.readAllBytes(secretKeyFile.toPath());
+            ringSecret = new PGPSecretKeyRingCollection(decode(secretBytes));
+        }
+
+        // The current password stays with the retired generation; without a
+        // new password, the new generation keeps the current one
+        String retiredSecret = getSecret(key);
+        List<Generation> previous = generations.get().get(key.getUserId());
+        String secret = password;
+        if (secret == null && previous != null) {
+            secret = previous.get(previous.size() - 1).secret;
+        }
+
+        // Validate
+        validate(key, ringPub, ringSecret, secret != null ? secret : key.getSecret());
+
+        // Keep the current generation for the overlap window in versioned
+        // copies of the key files
+        File pubFile = new File(keyDir, key.getPublicKeyFile());
+        File secFile = key.getSecretKeyFile() != null ? new File(keyDir,
+                key.getSecretKeyFile()) : null;
+        long now = System.currentTimeMillis();
+        int number = previous == null ? 1 : previous.get(previous.size() - 1).number;
+        Generation retired = null;
+        if (pubFile.exists()) {
+            String retiredPub = key.getPublicKeyFile() + ".g" + number;
+            byte[] content = Files.readAllBytes(pubFile.toPath());
+            PGPPublicKeyRingCollection retiredRingPub = PGPKeyReader.readPublicKeyRing(content);
+            replace(new File(keyDir, retiredPub), content);
+
+            // An unrotated secret key stays current and is not retired
+            String retiredSec = null;
+            PGPSecretKeyRingCollection retiredRingSecret = null;
+            if (ringSecret != null && secFile.exists()) {
+                retiredSec = key.getSecretKeyFile() + ".g" + number;
+                content = Files.readAllBytes(secFile.toPath());
+                retiredRingSecret = PGPKeyReader.readSecretKeyRing(content);
+                replace(new File(keyDir, retiredSec), content);
+            }
+            retired = new Generation(key.getUserId(), number, retiredRingPub,
+                    retiredRingSecret, retiredSecret, now + overlap, keyDir,
+                    retiredPub, retiredSec);
+        }
+        Generation current = new Generation(key.getUserId(), number + 1,
+                ringPub, ringSecret, secret, Long.MAX_VALUE, keyDir,
+                null, null);
+
+        // Publish the generations before the key files, so that an index
+        // built in between already accepts the previous generation
+        List<Generation> list = new ArrayList<Generation>();
+        List<Generation> expired = new ArrayList<Generation>();
+        if (previous != null) {
+            for (Generation generation : previous) {
+                if (generation.expires > now && generation.expires != Long.MAX_VALUE) {
+                    list.add(generation);
+                } else if (generation.expires != Long.MAX_VALUE) {
+                    expired.add(generation);
+                }
+            }
+        }
+        if (retired != null) {
+            list.add(retired);
+        }
+        list.add(current);
+        Map<String, List<Generation>> next = new HashMap<String, List<Generation>>(generations.get());
+        next.put(key.getUserId(), Collections.unmodifiableList(list));
+        save(metadataFile, next);
+        generations.set(Collections.unmodifiableMap(next));
+
+        // Replace the key files and register the parsed rings
+        replace(pubFile, publicBytes);
+        PGPKeyRegistry.register(pubFile, ringPub, pubFile.lastModified(),
+                publicBytes.length, PGPKeyStoreSnapshot.checksum(publicBytes));
+        if (ringSecret != null) {
+            replace(secFile, secretBytes);
+            PGPKeyRegistry.register(secFile, ringSecret, secFile.lastModified(),
+                    secretBytes.length, PGPKeyStoreSnapshot.checksum(secretBytes));
+        }
+        delete(expired);
+
+        // Profiles encrypting to the user ID take the new keys
+        PGPEncryptProfile.invalidate(key.getUserId());
+        return current;
+    }
+
+    /**
+     * Restores the generations recorded in a metadata file. The key files of
+     * previous generations are read through the key registry when first
+     * used. Generations whose overlap window has passed are removed from the
+     * metadata file and their key files are deleted.
+     *
+     * @param metadataFile The file recording the generations
+     * @param keyDir The directory containing the key files
+     * @param keys The key configurations
+     * @throws IOException If the metadata file cannot be read or written
+     */
+    public static synchronized void load(File metadataFile, File keyDir,
+            Collection<PGPKeyConfig> keys) throws IOException {
+
+        Map<String, List<Generation>> loaded = new LinkedHashMap<String, List<Generation>>();
+        if (!metadataFile.exists()) {
+            generations.set(Collections.unmodifiableMap(loaded));
+            return;
+        }
+
+        Document doc = null;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setExpandEntityReferences(false);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            doc = builder.parse(metadataFile);
+        } catch (ParserConfigurationException pce) {
+            throw new IOException("Unable to parse key generations: " + pce.getMessage());
+        } catch (SAXException se) {
+            throw new IOException("Invalid key generations " + metadataFile + ": " + se.getMessage());
+        }
+
+        Map<String, String> secrets = new HashMap<String, String>();
+        for (PGPKeyConfig key : keys) {
+            secrets.put(key.getUserId(), key.getSecret());
+        }
+        long now = System.currentTimeMillis();
+        List<Generation> expired = new ArrayList<Generation>();
+        for (Node node = doc.getDocumentElement().getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeType() != Node.ELEMENT_NODE || !"generation".equals(node.getNodeName())) {
+                continue;
+            }
+            Element element = (Element) node;
+            String userId = element.getAttribute("userId");
+            String expires = element.getAttribute("expires");
+
+            // Generations recorded without a password have the configured
+            // one; the current generation then follows the configuration
+            String secret = getSecretText(element);
+            if (secret == null && !expires.equals("")) {
+                secret = secrets.get(userId);
+            }
+            Generation generation = null;
+            try {
+                generation = new Generation(userId,
+                        Integer.parseInt(element.getAttribute("number")), null,
+                        null, secret, expires.equals("")
+                                ? Long.MAX_VALUE : Long.parseLong(expires),
+                        keyDir, getText(element, "pub"), getText(element, "sec"));
+            } catch (NumberFormatException nfe) {
+                throw new IOException("Invalid key generation of " + userId + ": " + nfe.getMessage());
+            }
+            if (generation.expires <= now) {
+                expired.add(generation);
+                continue;
+            }
+            List<Generation> list = loaded.get(userId);
+            if (list == null) {
+                list = new ArrayList<Generation>();
+                loaded.put(userId, list);
+            }
+            list.add(generation);
+        }
+        for (Map.Entry<String, List<Generation>> next : loaded.entrySet()) {
+            next.setValue(Collections.unmodifiableList(next.getValue()));
+        }
+        if (!expired.isEmpty()) {
+            save(metadataFile, loaded);
+        }
+        generations.set(Collections.unmodifiableMap(loaded));
+        delete(expired);
+    }
+
+    /**
+     * Returns the generations of a user ID
+     *
+     * @param userId The user ID
+     * @return The recorded generations, oldest first
+     */
+    public static List<Generation> getGenerations(String userId) {
+
+        List<Generation> list = generations.get().get(userId);
+        return list == null ? Collections.<Generation> emptyList() : list;
+    }
+
+    /**
+     * Returns the password of the secret key of the current generation of a
+     * user ID: the password given when the keys were last rotated or, if
+     * none was given, the configured password
+     *
+     * @param key The key configuration of the user ID
+     * @return The password, or null if none is configured
+     */
+    public static String getSecret(PGPKeyConfig key) {
+
+        List<Generation> list = generations.get().get(key.getUserId());
+        if (list != null) {
+            Generation current = list.get(list.size() - 1);
+            if (current.expires == Long.MAX_VALUE && current.secret != null) {
+                return current.secret;
+            }
+        }
+        return key.getSecret();
+    }
+
+    /**
+     * Returns the previous generations that are still within their overlap
+     * window
+     *
+     * @return The retired generations of all user IDs
+     */
+    public static List<Generation> getRetiredGenerations() {
+
+        long now = System.currentTimeMillis();
+        List<Generation> retired = new ArrayList<Generation>();
+        for (List<Generation> list : generations.get().values()) {
+            for (Generation generation : list) {
+                if (generation.expires != Long.MAX_VALUE && generation.expires > now) {
+                    retired.add(generation);
+                }
+            }
+        }
+        return retired;
+    }
+
+    /**
+     * Validates a staged generation with a test round-trip
+     *
+     * @param key The key configuration of the user ID
+     * @param ringPub The staged public key ring
+     * @param ringSecret The staged secret key ring, or null
+     * @param secret The password of the staged secret key, or null
+     * @throws PGPException If the keys are not valid
+     */
+    private static void validate(PGPKeyConfig key,
+            PGPPublicKeyRingCollection ringPub,
+            PGPSecretKeyRingCollection ringSecret, String secret)
+            throws PGPException {
+
+        byte[] payload = new byte[1024];
+        new Random().nextBytes(payload);
+        char[] password = secret != null ? secret.toCharArray() : new char[0];
+        try {
+            int algorithm = key.getKeyExchangeAlgorithm() != null
+                    ? PGPInit.getKeyExchangeAlgorithm(key.getKeyExchangeAlgorithm()) : 0;
+            PGPPublicKey keyPub = PGPKeyReader.readPublicKey(ringPub, algorithm);
+            if (keyPub.isRevoked()) {
+                throw new PGPException("Public key is revoked");
+            }
+            ByteArrayOutputStream cipher = new ByteArrayOutputStream();
+            if (ringSecret == null) {
+                PGPEncrypt.encrypt(new ByteArrayInputStream(payload), cipher,
+                        keyPub, PGPInit.getAlgorithm("AES_256"), true, null);
+                return;
+            }
+
+            // Sign with the new signing key, decrypt and verify
+            PGPPrivateKey signer = PGPKeyReader.readPrivateKey(
+                    PGPKeyReader.readSecretKey(ringSecret), password);
+            PGPEncrypt.encryptAndSign(new ByteArrayInputStream(payload), cipher,
+                    keyPub, PGPInit.getAlgorithm("AES_256"), true, signer,
+                    password, PGPInit.getHashAlgorithm("SHA256"));
+            ByteArrayOutputStream plain = new ByteArrayOutputStream();
+            int verified = PGPDecrypt.decryptAndVerify(
+                    new ByteArrayInputStream(cipher.toByteArray()), plain,
+                    ringSecret, password, ringPub);
+            if (!Arrays.equals(plain.toByteArray(), payload) || verified != 1) {
+                throw new PGPException("Test round-trip failed");
+            }
+        } catch (IOException ioe) {
+            throw new PGPException("Test round-trip failed: " + ioe.getMessage());
+        } catch (NoSuchProviderException nspe) {
+            throw new PGPException("Test round-trip failed: " + nspe.getMessage());
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new PGPException("Test round-trip failed: " + nsae.getMessage());
+        } catch (SignatureException se) {
+            throw new PGPException("Test round-trip failed: " + se.getMessage());
+        } catch (IllegalArgumentException iae) {
+            throw new PGPException(iae.getMessage());
+        } finally {
+            Arrays.fill(password, '\0');
+        }
+    }
+
+    private static InputStream decode(byte[] bytes) throws IOException {
+        return PGPUtil.getDecoderStream(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Writes the generations to a metadata file. Previous generations are
+     * recorded with their key files, password and expiry time, the current
+     * generation with its number and the password given on rotation.
+     *
+     * @param metadataFile The file recording the generations
+     * @param map The generations by user ID
+     * @throws IOException If the file cannot be written
+     */
+    private static void save(File metadataFile, Map<String, List<Generation>> map)
+            throws IOException {
+
+        StringBuilder xml = new StringBuilder();
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<generations>\n");
+        for (List<Generation> list : map.values()) {
+            for (Generation generation : list) {
+                xml.append("\t<generation userId=\"").append(escape(generation.userId))
+                        .append("\" number=\"").append(generation.number).append('"');
+                if (generation.expires == Long.MAX_VALUE) {
+                    if (generation.secret == null) {
+                        xml.append("/>\n");
+                        continue;
+                    }
+                    xml.append(">\n");
+                } else {
+                    xml.append(" expires=\"").append(generation.expires).append("\">\n");
+                }
+                if (generation.secret != null) {
+                    xml.append("\t\t<secret>").append(escape(generation.secret)).append("</secret>\n");
+                }
+                if (generation.publicFile != null) {
+                    xml.append("\t\t<pub>").append(escape(generation.publicFile)).append("</pub>\n");
+                }
+                if (generation.secretFile != null) {
+                    xml.append("\t\t<sec>").append(escape(generation.secretFile)).append("</sec>\n");
+                }
+                xml.append("\t</generation>\n");
+            }
+        }
+        xml.append("</generations>\n");
+        File dir = metadataFile.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Configuration directory is not accessible: " + dir);
+        }
+        replace(metadataFile, xml.toString().getBytes("UTF-8"));
+    }
+
+    /**
+     * Deletes the key files of expired generations
+     *
+     * @param expired The expired generations
+     */
+    private static void delete(List<Generation> expired) {
+
+        for (Generation generation : expired) {
+            if (generation.publicFile != null) {
+                File file = new File(generation.keyDir, generation.publicFile);
+                PGPKeyRegistry.invalidate(file.getPath());
+                file.delete();
+            }
+            if (generation.secretFile != null) {
+                File file = new File(generation.keyDir, generation.secretFile);
+                PGPKeyRegistry.invalidate(file.getPath());
+                file.delete();
+            }
+        }
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;")
+                .replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static String getText(Element parent, String name) {
+
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeType() == Node.ELEMENT_NODE && name.equals(node.getNodeName())) {
+                return node.getTextContent().trim();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the recorded password of a generation, which is not trimmed
+     */
+    private static String getSecretText(Element parent) {
+
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeType() == Node.ELEMENT_NODE && "secret".equals(node.getNodeName())) {
+                return node.getTextContent();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replaces a key file by writing a temporary file and moving it into
+     * place, so readers see either the old or the new file
+     *
+     * @param file The key file
+     * @param content The new content
+     * @throws IOException If the file cannot be written
+     */
+    private static void replace(File file, byte[] content) throws IOException {
+
+        File temp = File.createTempFile(file.getName(), ".tmp",
+                file.getAbsoluteFile().getParentFile());
+        try {
+            try (OutputStream out = new FileOutputStream(temp)) {
+                out.write(content);
+            }
+            Files.move(temp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            temp.delete();
+        }
+    }
+
+    /**
+     * A key generation of a user ID. The key rings of a generation restored
+     * from the metadata file are read through the key registry when first
+     * used; those of the current generation are the configured key files.
+     */
+    public static class Generation {
+
+        private final String userId;
+        private final int number;
+        private volatile PGPPublicKeyRingCollection ringPub;
+        private volatile PGPSecretKeyRingCollection ringSecret;
+        private final String secret;
+        private final long expires;
+        private final File keyDir;
+        private final String publicFile;
+        private final String secretFile;
+
+        private Generation(String userId, int number,
+                PGPPublicKeyRingCollection ringPub,
+                PGPSecretKeyRingCollection ringSecret, String secret,
+                long expires, File keyDir, String publicFile, String secretFile) {
+            this.userId = userId;
+            this.number = number;
+            this.ringPub = ringPub;
+            this.ringSecret = ringSecret;
+            this.secret = secret;
+            this.expires = expires;
+            this.keyDir = keyDir;
+            this.publicFile = publicFile;
+            this.secretFile = secretFile;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        /**
+         * Returns the public key ring of a previous generation
+         * @return The public key ring, or null if not available
+         */
+        public PGPPublicKeyRingCollection getPublicKeyRing() {
+
+            if (ringPub == null && publicFile != null) {
+                try {
+                    ringPub = PGPKeyRegistry.getPublicKeyRing(
+                            new File(keyDir, publicFile).getPath());
+                } catch (Exception e) {
+                    return null;
+                }
+            }
+            return ringPub;
+        }
+
+        /**
+         * Returns the secret key ring of a previous generation
+         * @return The secret key ring, or null if not rotated or available
+         */
+        public PGPSecretKeyRingCollection getSecretKeyRing() {
+
+            if (ringSecret == null && secretFile != null) {
+                try {
+                    ringSecret = PGPKeyRegistry.getSecretKeyRing(
+                            new File(keyDir, secretFile).getPath());
+                } catch (Exception e) {
+                    return null;
+                }
+            }
+            return ringSecret;
+        }
+
+        String getSecret() {
+            return secret;
+        }
+
+        /**
+         * Returns the time until which the generation is accepted
+         * @return The expiry time, or Long.MAX_VALUE for the current generation
+         */
+        public long getExpires() {
+            return expires;
+        }
+    }
+}
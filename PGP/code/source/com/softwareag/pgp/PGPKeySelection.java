@@ -0,0 +1,369 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
+import org.bouncycastle.openpgp.PGPSecretKey;
+import org.bouncycastle.openpgp.PGPSecretKeyRing;
+import org.bouncycastle.openpgp.PGPSecretKeyRingCollection;
+
+/**
+ * This class holds the keys selected from a key ring collection: the
+ * encryption keys by key exchange algorithm of a public key ring collection
+ * and the signing keys of a secret key ring collection. The selection is
+ * computed once per collection, when the key file is loaded, so selecting a
+ * key does not walk the key rings. Revoked keys and keys of revoked master
+ * keys are not selected; the expiry of a key is checked on every lookup.
+ * The selection of a secret key ring collection also identifies the
+ * collection by its key IDs, for caching lookups of keys it lacks.
+ *
+ * The selection of a registered key ring is held by its registry entry. Key
+ * rings passed in by callers are selected through a small direct-mapped
+ * cache without locks, which holds the rings weakly.
+ *
+ * The size of the cache can be set through the system property
+ * watt.pgp.keySelection.cacheSize (default: 256).
+ */
+class PGPKeySelection {
+
+    /**
+     * The selections of key rings passed in by callers, indexed by the
+     * identity hash code of the key ring collection
+     */
+    private static final AtomicReferenceArray<Slot> slots = new AtomicReferenceArray<Slot>(
+            tableSize(Integer.getInteger("watt.pgp.keySelection.cacheSize", 256)));
+
+    /**
+     * The selectable keys by algorithm in key ring order; algorithm 0 holds
+     * the keys of all algorithms
+     */
+    private final Map<Integer, Candidate[]> candidates;
+
+    /**
+     * The number of keys that were not selectable because of revocation
+     */
+    private final int revoked;
+
+    /**
+     * The algorithms of all keys, listed in the error message if no key of
+     * the requested algorithm is found
+     */
+    private final String algorithms;
+
+    /**
+     * A hash of the key IDs of a secret key ring collection, or 0
+     */
+    private final long ringId;
+
+    private PGPKeySelection(Map<Integer, Candidate[]> candidates, int revoked,
+            String algorithms, long ringId) {
+        this.candidates = candidates;
+        this.revoked = revoked;
+        this.algorithms = algorithms;
+        this.ringId = ringId;
+    }
+
+    /**
+     * Returns the selection of a public key ring collection, computing it if
+     * the collection has not been seen before
+     *
+     * @param coll The public key ring collection
+     * @return The encryption key selection
+     */
+    static PGPKeySelection get(PGPPublicKeyRingCollection coll) {
+
+        PGPKeySelection selection = PGPKeyRegistry.getSelection(coll);
+        if (selection == null) {
+            int slot = slot(coll);
+            selection = lookup(slot, coll);
+            if (selection == null) {
+                selection = select(coll);
+                slots.set(slot, new Slot(coll, selection));
+            }
+        }
+        return selection;
+    }
+
+    /**
+     * Returns the selection of a secret key ring collection, computing it if
+     * the collection has not been seen before
+     *
+     * @param coll The secret key ring collection
+     * @return The signing key selection
+     */
+    static PGPKeySelection get(PGPSecretKeyRingCollection coll) {
+
+        PGPKeySelection selection = PGPKeyRegistry.getSelection(coll);
+        if (selection == null) {
+            int slot = slot(coll);
+            selection = lookup(slot, coll);
+            if (selection == null) {
+                selection = select(coll);
+                slots.set(slot, new Slot(coll, selection));
+            }
+        }
+        return selection;
+    }
+
+    /**
+     * Returns the cached selection of a key ring collection
+     *
+     * @param slot The slot of the collection
+     * @param coll The key ring collection
+     * @return The selection, or null if not cached
+     */
+    private static PGPKeySelection lookup(int slot, Object coll) {
+
+        Slot cached = slots.get(slot);
+        return cached != null && cached.coll.get() == coll ? cached.selection : null;
+    }
+
+    private static int slot(Object coll) {
+
+        int h = System.identityHashCode(coll);
+        return (h ^ (h >>> 16)) & (slots.length() - 1);
+    }
+
+    private static int tableSize(int size) {
+
+        int length = 1;
+        while (length < size) {
+            length <<= 1;
+        }
+        return length;
+    }
+
+    /**
+     * Returns a hash of the key IDs of the selected secret key ring
+     * collection, which identifies the collection in the negative cache
+     *
+     * @return The hash, or 0 for a public key ring collection
+     */
+    long getRingId() {
+        return ringId;
+    }
+
+    /**
+     * Returns the first valid encryption key of an algorithm
+     *
+     * @param algorithm The key exchange algorithm, or 0 for any algorithm
+     * @return The public key
+     * @throws PGPException If no valid encryption key is available
+     */
+    PGPPublicKey getEncryptionKey(int algorithm) throws PGPException {
+
+        PGPPublicKey key = (PGPPublicKey) find(algorithm);
+        if (key == null) {
+            if (candidates.containsKey(algorithm)) {
+                throw new PGPException("Public key expired or revoked");
+            }
+            if (algorithms.length() > 0) {
+                throw new PGPException("Public key not found; Choose algorithm from " + algorithms);
+            }
+            throw new PGPException("Public key not found");
+        }
+        return key;
+    }
+
+    /**
+     * Returns the first valid signing key
+     *
+     * @return The secret key
+     * @throws PGPException If no valid signing key is available
+     */
+    PGPSecretKey getSigningKey() throws PGPException {
+
+        PGPSecretKey key = (PGPSecretKey) find(0);
+        if (key == null) {
+            if (candidates.containsKey(0) || revoked > 0) {
+                throw new PGPException("Secret key expired or revoked");
+            }
+            throw new PGPException("Secret key not found");
+        }
+        return key;
+    }
+
+    /**
+     * Returns the first candidate of an algorithm that has not expired
+     *
+     * @param algorithm The algorithm, or 0 for any algorithm
+     * @return The key, or null if none is valid
+     */
+    private Object find(int algorithm) {
+
+        Candidate[] list = candidates.get(algorithm);
+        if (list != null) {
+            long now = System.currentTimeMillis();
+            for (Candidate candidate : list) {
+                if (candidate.expires > now) {
+                    return candidate.key;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Selects the encryption keys of a public key ring collection
+     */
+    static PGPKeySelection select(PGPPublicKeyRingCollection coll) {
+
+        Map<Integer, List<Candidate>> selected = new HashMap<Integer, List<Candidate>>();
+        StringBuffer algorithms = new StringBuffer();
+        int revoked = 0;
+        for (Iterator<?> i = coll.getKeyRings(); i.hasNext();) {
+            PGPPublicKeyRing ring = (PGPPublicKeyRing) i.next();
+            PGPPublicKey master = ring.getPublicKey();
+            boolean ringRevoked = master.isRevoked();
+            long ringExpires = expires(master);
+            for (Iterator<?> j = ring.getPublicKeys(); j.hasNext();) {
+                PGPPublicKey next = (PGPPublicKey) j.next();
+                algorithms.append(algorithms.length() > 0 ? ", " : "")
+                        .append(PGPInit.getKeyExchangeAlgorithm(next.getAlgorithm()));
+                if (!next.isEncryptionKey()) {
+                    continue;
+                }
+                if (ringRevoked || next.isRevoked()) {
+                    revoked++;
+                    add(selected, next.getAlgorithm(), null);
+                    continue;
+                }
+                PGPCipherPolicy.register(master, next);
+                add(selected, next.getAlgorithm(), new Candidate(next,
+                        Math.min(ringExpires, expires(next))));
+            }
+        }
+        return new PGPKeySelection(toArrays(selected), revoked,
+                algorithms.toString(), 0);
+    }
+
+    /**
+     * Selects the signing keys of a secret key ring collection
+     */
+    static PGPKeySelection select(PGPSecretKeyRingCollection coll) {
+
+        Map<Integer, List<Candidate>> selected = new HashMap<Integer, List<Candidate>>();
+        int revoked = 0;
+        long ringId = 1;
+        for (Iterator<?> i = coll.getKeyRings(); i.hasNext();) {
+            PGPSecretKeyRing ring = (PGPSecretKeyRing) i.next();
+            PGPPublicKey master = ring.getPublicKey();
+            boolean ringRevoked = master.isRevoked();
+            long ringExpires = expires(master);
+            for (Iterator<?> j = ring.getSecretKeys(); j.hasNext();) {
+                PGPSecretKey next = (PGPSecretKey) j.next();
+                ringId = ringId * 0x9E3779B97F4A7C15L + next.getKeyID();
+                if (!next.isSigningKey()) {
+                    continue;
+                }
+                if (ringRevoked || next.getPublicKey().isRevoked()) {
+                    revoked++;
+                    continue;
+                }
+                add(selected, 0, new Candidate(next,
+                        Math.min(ringExpires, expires(next.getPublicKey()))));
+            }
+        }
+        return new PGPKeySelection(toArrays(selected), revoked, "", ringId);
+    }
+
+    /**
+     * Adds a candidate to the list of its algorithm and to the list of all
+     * algorithms. A null candidate only marks the algorithm as present.
+     */
+    private static void add(Map<Integer, List<Candidate>> selected,
+            int algorithm, Candidate candidate) {
+
+        for (int key : algorithm == 0 ? new int[] { 0 } : new int[] { algorithm, 0 }) {
+            List<Candidate> list = selected.get(key);
+            if (list == null) {
+                list = new ArrayList<Candidate>();
+                selected.put(key, list);
+            }
+            if (candidate != null) {
+                list.add(candidate);
+            }
+        }
+    }
+
+    private static Map<Integer, Candidate[]> toArrays(
+            Map<Integer, List<Candidate>> selected) {
+
+        Map<Integer, Candidate[]> arrays = new HashMap<Integer, Candidate[]>();
+        for (Map.Entry<Integer, List<Candidate>> next : selected.entrySet()) {
+            arrays.put(next.getKey(), next.getValue().toArray(
+                    new Candidate[next.getValue().size()]));
+        }
+        return arrays;
+    }
+
+    /**
+     * Returns the expiry time of a key
+     *
+     * @param key The public key
+     * @return The expiry time, or Long.MAX_VALUE if the key does not expire
+     */
+    private static long expires(PGPPublicKey key) {
+
+        long seconds = key.getValidSeconds();
+        if (seconds <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return key.getCreationTime().getTime() + seconds * 1000L;
+    }
+
+    /**
+     * A selectable key with its expiry time
+     */
+    private static class Candidate {
+
+        private final Object key;
+        private final long expires;
+
+        private Candidate(Object key, long expires) {
+            this.key = key;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * A cached selection of a key ring collection passed in by a caller
+     */
+    private static class Slot {
+
+        private final WeakReference<Object> coll;
+        private final PGPKeySelection selection;
+
+        private Slot(Object coll, PGPKeySelection selection) {
+            this.coll = new WeakReference<Object>(coll);
+            this.selection = selection;
+        }
+    }
+}
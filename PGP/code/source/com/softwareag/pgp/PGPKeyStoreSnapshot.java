@@ -0,0 +1,564 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
+import org.bouncycastle.openpgp.PGPSecretKey;
+import org.bouncycastle.openpgp.PGPSecretKeyRing;
+import org.bouncycastle.openpgp.PGPSecretKeyRingCollection;
+
+/**
+ * This class provides a binary snapshot of the key registry. The snapshot
+ * holds the encoded (binary, not armored) key rings of all registered key
+ * files together with the modification time, size and CRC32 checksum of the
+ * file content they were parsed from, and the key IDs of every key ring, so
+ * the key index can be built without decoding the key rings. The snapshot
+ * file is read into memory once, without keeping it open or mapped, and a
+ * key ring is only decoded when the registry looks up its file, so opening a
+ * snapshot only parses the table of contents.
+ *
+ * An entry is current while the modification time and size of its key file
+ * match. If only the modification time differs, the checksum of the file is
+ * compared once per modification time; files that changed are parsed again
+ * from the key file. The snapshot is only written again if a key file has
+ * changed since.
+ *
+ * Secret key rings are stored as they are on disk, i.e. still protected by
+ * their passphrase; the snapshot should be protected like the key files.
+ */
+public class PGPKeyStoreSnapshot {
+
+    private static final int MAGIC = 0x50475053;
+    private static final int VERSION = 2;
+    private static final byte PUBLIC = 1;
+    private static final byte SECRET = 2;
+
+    /**
+     * The snapshot used for registry lookups
+     */
+    private static final AtomicReference<PGPKeyStoreSnapshot> current = new AtomicReference<PGPKeyStoreSnapshot>();
+
+    private final File file;
+    private final ByteBuffer data;
+    private final Map<String, Entry> entries;
+    private volatile boolean released;
+
+    private PGPKeyStoreSnapshot(File file, ByteBuffer data,
+            Map<String, Entry> entries) {
+        this.file = file;
+        this.data = data;
+        this.entries = entries;
+    }
+
+    /**
+     * Opens a snapshot file and publishes it for registry lookups
+     *
+     * @param file The snapshot file
+     * @return The snapshot
+     * @throws IOException If the file cannot be read or is not a snapshot
+     */
+    public static PGPKeyStoreSnapshot open(File file) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        try {
+            if (buffer.remaining() < 12 || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a keystore snapshot: " + file);
+            }
+            if (buffer.getInt() != VERSION) {
+                throw new IOException("Unsupported keystore snapshot version: " + file);
+            }
+
+            // Read the table of contents
+            int tocLength = buffer.getInt();
+            if (tocLength < 0 || tocLength > buffer.remaining()) {
+                throw new IOException("Corrupt keystore snapshot: " + file);
+            }
+            byte[] toc = new byte[tocLength];
+            buffer.get(toc);
+            ByteBuffer data = buffer.slice();
+            Map<String, Entry> entries = new HashMap<String, Entry>();
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(toc));
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                byte type = in.readByte();
+                String path = in.readUTF();
+                long modified = in.readLong();
+                long length = in.readLong();
+                long checksum = in.readLong();
+                int offset = in.readInt();
+                int size = in.readInt();
+                long[] keyIds = new long[in.readInt()];
+                for (int j = 0; j < keyIds.length; j++) {
+                    keyIds[j] = in.readLong();
+                }
+                if (offset < 0 || size < 0 || offset + size > data.capacity()) {
+                    throw new IOException("Corrupt keystore snapshot: " + file);
+                }
+                entries.put(type + path, new Entry(modified, length, checksum,
+                        offset, size, keyIds));
+            }
+
+            PGPKeyStoreSnapshot snapshot = new PGPKeyStoreSnapshot(file, data, entries);
+            PGPKeyStoreSnapshot previous = current.getAndSet(snapshot);
+            if (previous != null) {
+                previous.release();
+            }
+            return snapshot;
+        } catch (RuntimeException re) {
+            throw new IOException("Corrupt keystore snapshot: " + file);
+        }
+    }
+
+    /**
+     * Writes all key rings of the registry to a snapshot file, unless the
+     * file is the current snapshot and holds the same key file states. The
+     * file is written to a temporary file first and then moved into place,
+     * and the new file is published as the current snapshot.
+     *
+     * @param file The snapshot file
+     * @return True if the file was written, false if it was unchanged
+     * @throws IOException If the file cannot be written
+     */
+    public static boolean write(File file) throws IOException {
+
+        Map<String, PGPKeyRegistry.Entry<PGPPublicKeyRingCollection>> publicEntries = PGPKeyRegistry
+                .getPublicEntries();
+        Map<String, PGPKeyRegistry.Entry<PGPSecretKeyRingCollection>> secretEntries = PGPKeyRegistry
+                .getSecretEntries();
+        PGPKeyStoreSnapshot snapshot = current.get();
+        if (snapshot != null && snapshot.isFile(file) && file.exists()
+                && snapshot.contains(PUBLIC, publicEntries)
+                && snapshot.contains(SECRET, secretEntries)
+                && snapshot.entries.size() == publicEntries.size() + secretEntries.size()) {
+            return false;
+        }
+
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        DataOutputStream entriesOut = new DataOutputStream(entries);
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        int count = 0;
+        for (Map.Entry<String, PGPKeyRegistry.Entry<PGPPublicKeyRingCollection>> next : publicEntries
+                .entrySet()) {
+            PGPPublicKeyRingCollection ring = next.getValue().ring;
+            writeEntry(entriesOut, data, PUBLIC, next.getKey(), next.getValue(),
+                    ring.getEncoded(), getKeyIds(ring));
+            count++;
+        }
+        for (Map.Entry<String, PGPKeyRegistry.Entry<PGPSecretKeyRingCollection>> next : secretEntries
+                .entrySet()) {
+            PGPSecretKeyRingCollection ring = next.getValue().ring;
+            writeEntry(entriesOut, data, SECRET, next.getKey(), next.getValue(),
+                    ring.getEncoded(), getKeyIds(ring));
+            count++;
+        }
+        entriesOut.flush();
+        ByteArrayOutputStream toc = new ByteArrayOutputStream();
+        DataOutputStream tocOut = new DataOutputStream(toc);
+        tocOut.writeInt(count);
+        entries.writeTo(tocOut);
+        tocOut.flush();
+
+        // Write to a temporary file and replace the snapshot atomically
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Snapshot directory is not accessible: " + dir);
+        }
+        File temp = File.createTempFile(file.getName(), ".tmp", dir);
+        try {
+            try (OutputStream out = new FileOutputStream(temp)) {
+                DataOutputStream header = new DataOutputStream(out);
+                header.writeInt(MAGIC);
+                header.writeInt(VERSION);
+                header.writeInt(toc.size());
+                header.flush();
+                toc.writeTo(out);
+                data.writeTo(out);
+            }
+            Files.move(temp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            temp.delete();
+        }
+        open(file);
+        return true;
+    }
+
+    /**
+     * Adds a key ring to the table of contents and data of a snapshot
+     *
+     * @param toc The table of contents
+     * @param data The encoded key rings
+     * @param type The key ring type
+     * @param path The path to the key file
+     * @param entry The registry entry of the key file
+     * @param encoded The encoded key ring
+     * @param keyIds The key IDs of the key ring
+     * @throws IOException If the snapshot cannot be written
+     */
+    private static void writeEntry(DataOutputStream toc,
+            ByteArrayOutputStream data, byte type, String path,
+            PGPKeyRegistry.Entry<?> entry, byte[] encoded, long[] keyIds)
+            throws IOException {
+
+        toc.writeByte(type);
+        toc.writeUTF(path);
+        toc.writeLong(entry.modified);
+        toc.writeLong(entry.length);
+        toc.writeLong(entry.checksum);
+        toc.writeInt(data.size());
+        toc.writeInt(encoded.length);
+        toc.writeInt(keyIds.length);
+        for (long keyId : keyIds) {
+            toc.writeLong(keyId);
+        }
+        data.write(encoded);
+    }
+
+    /**
+     * Returns the current snapshot
+     *
+     * @return The snapshot, or null if none has been opened
+     */
+    public static PGPKeyStoreSnapshot getSnapshot() {
+        return current.get();
+    }
+
+    /**
+     * Discards the current snapshot, so that all key files are parsed again
+     */
+    public static void close() {
+
+        PGPKeyStoreSnapshot snapshot = current.getAndSet(null);
+        if (snapshot != null) {
+            snapshot.release();
+        }
+    }
+
+    /**
+     * Returns the registry entry of a public key file from the current
+     * snapshot, if the file is unchanged since the snapshot was written
+     *
+     * @param file The key file
+     * @param modified The current modification time of the key file
+     * @param length The current size of the key file
+     * @return The registry entry, or null if not available
+     */
+    static PGPKeyRegistry.Entry<PGPPublicKeyRingCollection> getPublicEntry(
+            File file, long modified, long length) {
+
+        PGPKeyStoreSnapshot snapshot = current.get();
+        Entry entry = snapshot == null ? null : snapshot.find(PUBLIC, file, modified, length);
+        byte[] encoded = entry == null ? null : snapshot.read(entry);
+        if (encoded != null) {
+            try {
+                return new PGPKeyRegistry.Entry<PGPPublicKeyRingCollection>(
+                        new PGPPublicKeyRingCollection(encoded), modified,
+                        length, entry.checksum);
+            } catch (IOException ioe) {
+                // Fall back to the key file
+            } catch (PGPException pgpe) {
+                // Fall back to the key file
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the registry entry of a secret key file from the current
+     * snapshot, if the file is unchanged since the snapshot was written
+     *
+     * @param file The key file
+     * @param modified The current modification time of the key file
+     * @param length The current size of the key file
+     * @return The registry entry, or null if not available
+     */
+    static PGPKeyRegistry.Entry<PGPSecretKeyRingCollection> getSecretEntry(
+            File file, long modified, long length) {
+
+        PGPKeyStoreSnapshot snapshot = current.get();
+        Entry entry = snapshot == null ? null : snapshot.find(SECRET, file, modified, length);
+        byte[] encoded = entry == null ? null : snapshot.read(entry);
+        if (encoded != null) {
+            try {
+                return new PGPKeyRegistry.Entry<PGPSecretKeyRingCollection>(
+                        new PGPSecretKeyRingCollection(encoded), modified,
+                        length, entry.checksum);
+            } catch (IOException ioe) {
+                // Fall back to the key file
+            } catch (PGPException pgpe) {
+                // Fall back to the key file
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the snapshot entry of a public key file, if the file is
+     * unchanged since the snapshot was written, without decoding its key ring
+     *
+     * @param file The key file
+     * @return The entry, or null if not available
+     */
+    static Entry findPublic(File file) {
+
+        PGPKeyStoreSnapshot snapshot = current.get();
+        return snapshot == null ? null : snapshot.find(PUBLIC, file,
+                file.lastModified(), file.length());
+    }
+
+    /**
+     * Returns the snapshot entry of a secret key file, if the file is
+     * unchanged since the snapshot was written, without decoding its key ring
+     *
+     * @param file The key file
+     * @return The entry, or null if not available
+     */
+    static Entry findSecret(File file) {
+
+        PGPKeyStoreSnapshot snapshot = current.get();
+        return snapshot == null ? null : snapshot.find(SECRET, file,
+                file.lastModified(), file.length());
+    }
+
+    /**
+     * Returns the CRC32 checksum of key file content
+     *
+     * @param content The content
+     * @return The checksum
+     */
+    static long checksum(byte[] content) {
+
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length);
+        return crc.getValue();
+    }
+
+    /**
+     * Returns the snapshot file
+     *
+     * @return The file this snapshot was opened from
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the number of key rings in the snapshot
+     *
+     * @return The entry count
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the entry of a key file if the file is unchanged
+     *
+     * @param type The key ring type
+     * @param file The key file
+     * @param modified The current modification time of the key file
+     * @param length The current size of the key file
+     * @return The entry, or null if not current
+     */
+    private Entry find(byte type, File file, long modified, long length) {
+
+        Entry entry = entries.get(type + file.getPath());
+        if (entry == null || entry.length != length) {
+            return null;
+        }
+        if (entry.modified == modified) {
+            return entry;
+        }
+
+        // The file was touched or copied: compare its content once
+        if (entry.checkedModified != modified) {
+            boolean match = false;
+            try {
+                match = checksum(file) == entry.checksum;
+            } catch (IOException ioe) {
+                match = false;
+            }
+            entry.checkedMatch = match;
+            entry.checkedModified = modified;
+        }
+        return entry.checkedMatch ? entry : null;
+    }
+
+    /**
+     * Reads the encoded key ring of an entry
+     *
+     * @param entry The entry
+     * @return The encoded key ring, or null if the snapshot was released
+     */
+    private byte[] read(Entry entry) {
+
+        if (released) {
+            return null;
+        }
+        byte[] encoded = new byte[entry.size];
+        ByteBuffer view = data.duplicate();
+        view.position(entry.offset);
+        view.get(encoded);
+        return encoded;
+    }
+
+    /**
+     * Checks whether the snapshot holds the same key file states as
+     * registry entries
+     */
+    private boolean contains(byte type,
+            Map<String, ? extends PGPKeyRegistry.Entry<?>> registered) {
+
+        for (Map.Entry<String, ? extends PGPKeyRegistry.Entry<?>> next : registered.entrySet()) {
+            Entry entry = entries.get(type + next.getKey());
+            PGPKeyRegistry.Entry<?> state = next.getValue();
+            if (entry == null || entry.modified != state.modified
+                    || entry.length != state.length
+                    || entry.checksum != state.checksum) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isFile(File other) {
+        return file.getAbsoluteFile().equals(other.getAbsoluteFile());
+    }
+
+    /**
+     * Releases the snapshot; key rings are no longer read from it
+     */
+    private void release() {
+        released = true;
+    }
+
+    private static long[] getKeyIds(PGPPublicKeyRingCollection coll) {
+
+        List<Long> keyIds = new ArrayList<Long>();
+        for (Iterator<?> i = coll.getKeyRings(); i.hasNext();) {
+            for (Iterator<?> j = ((PGPPublicKeyRing) i.next()).getPublicKeys(); j.hasNext();) {
+                keyIds.add(((PGPPublicKey) j.next()).getKeyID());
+            }
+        }
+        return toArray(keyIds);
+    }
+
+    private static long[] getKeyIds(PGPSecretKeyRingCollection coll) {
+
+        List<Long> keyIds = new ArrayList<Long>();
+        for (Iterator<?> i = coll.getKeyRings(); i.hasNext();) {
+            for (Iterator<?> j = ((PGPSecretKeyRing) i.next()).getSecretKeys(); j.hasNext();) {
+                keyIds.add(((PGPSecretKey) j.next()).getKeyID());
+            }
+        }
+        return toArray(keyIds);
+    }
+
+    private static long[] toArray(List<Long> list) {
+
+        long[] array = new long[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    private static long checksum(File file) throws IOException {
+
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read = 0;
+            while ((read = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * The location, key IDs and file state of a key ring in the snapshot
+     */
+    static class Entry {
+
+        private final long modified;
+        private final long length;
+        private final long checksum;
+        private final int offset;
+        private final int size;
+        private final long[] keyIds;
+
+        /**
+         * The result of the last content comparison with a key file whose
+         * modification time differs
+         */
+        private volatile boolean checkedMatch;
+        private volatile long checkedModified = Long.MIN_VALUE;
+
+        private Entry(long modified, long length, long checksum, int offset,
+                int size, long[] keyIds) {
+            this.modified = modified;
+            this.length = length;
+            this.checksum = checksum;
+            this.offset = offset;
+            this.size = size;
+            this.keyIds = keyIds;
+        }
+
+        /**
+         * Returns the checksum of the key file content
+         * @return The CRC32 checksum
+         */
+        long getChecksum() {
+            return checksum;
+        }
+
+        /**
+         * Returns the IDs of the keys in the key ring
+         * @return The key IDs
+         */
+        long[] getKeyIds() {
+            return keyIds.clone();
+        }
+    }
+}
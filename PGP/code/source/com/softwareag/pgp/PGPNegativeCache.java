@@ -0,0 +1,185 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class caches failed key lookups, i.e. key IDs that were not found and
+ * passwords that did not unlock a private key, so that retries of the same
+ * message fail immediately instead of repeating the lookup or the costly
+ * passphrase derivation. A failure is cached for a time that doubles with
+ * every repeated failure after expiry, up to a maximum.
+ *
+ * The cache size and times can be set through the system properties
+ * watt.pgp.negativeCache.size, watt.pgp.negativeCache.ttl (seconds of the
+ * first failure) and watt.pgp.negativeCache.maxTtl (seconds).
+ */
+public class PGPNegativeCache {
+
+    /**
+     * The maximum number of cached failures
+     */
+    private static final int SIZE = Integer.getInteger(
+            "watt.pgp.negativeCache.size", 1024);
+
+    /**
+     * The time a first failure is cached in milliseconds
+     */
+    private static final long TTL = Long.getLong(
+            "watt.pgp.negativeCache.ttl", 5) * 1000L;
+
+    /**
+     * The maximum time a failure is cached in milliseconds
+     */
+    private static final long MAX_TTL = Long.getLong(
+            "watt.pgp.negativeCache.maxTtl", 300) * 1000L;
+
+    /**
+     * Cached failures
+     */
+    private static final ConcurrentHashMap<Object, Entry> failures = new ConcurrentHashMap<Object, Entry>();
+
+    /**
+     * Statistics
+     */
+    private static final AtomicLong hits = new AtomicLong();
+
+    /**
+     * Returns the message of a cached failure
+     *
+     * @param key The failed lookup
+     * @return The error message, or null if the failure is not cached or has
+     *         expired
+     */
+    public static String get(Object key) {
+
+        Entry entry = failures.get(key);
+        if (entry != null && entry.expires > System.currentTimeMillis()) {
+            hits.incrementAndGet();
+            return entry.message;
+        }
+        return null;
+    }
+
+    /**
+     * Caches a failure. If the lookup has failed before, the failure is
+     * cached twice as long as the last time.
+     *
+     * @param key The failed lookup
+     * @param message The error message
+     */
+    public static void put(Object key, String message) {
+
+        if (SIZE <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Entry previous = failures.get(key);
+        int count = previous == null ? 1 : Math.min(previous.count + 1, 30);
+        long ttl = Math.min(TTL << (count - 1), MAX_TTL);
+        failures.put(key, new Entry(message, count, now + ttl));
+        if (failures.size() > SIZE) {
+            shrink(now);
+        }
+    }
+
+    /**
+     * Removes a cached failure after the lookup has succeeded
+     *
+     * @param key The lookup
+     */
+    public static void remove(Object key) {
+        failures.remove(key);
+    }
+
+    /**
+     * Removes all cached failures
+     *
+     * @return The number of removed failures
+     */
+    public static int clear() {
+
+        int count = failures.size();
+        failures.clear();
+        return count;
+    }
+
+    /**
+     * Returns the number of cached failures
+     * @return The cache size
+     */
+    public static int size() {
+        return failures.size();
+    }
+
+    /**
+     * Returns the number of lookups rejected from the cache
+     * @return The hit count
+     */
+    public static long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Removes failures whose backoff can no longer grow and, if the cache is
+     * still too large, the failures that expire first
+     *
+     * @param now The current time
+     */
+    private static void shrink(long now) {
+
+        for (Iterator<Map.Entry<Object, Entry>> i = failures.entrySet().iterator(); i.hasNext();) {
+            if (i.next().getValue().expires + MAX_TTL <= now) {
+                i.remove();
+            }
+        }
+        while (failures.size() > SIZE) {
+            Map.Entry<Object, Entry> oldest = null;
+            for (Map.Entry<Object, Entry> next : failures.entrySet()) {
+                if (oldest == null || next.getValue().expires < oldest.getValue().expires) {
+                    oldest = next;
+                }
+            }
+            if (oldest == null) {
+                break;
+            }
+            failures.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    /**
+     * A cached failure with its repeat count and expiry time
+     */
+    private static class Entry {
+
+        private final String message;
+        private final int count;
+        private final long expires;
+
+        private Entry(String message, int count, long expires) {
+            this.message = message;
+            this.count = count;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+/**
+ * This class provides an in-memory output stream whose content can be handed
+ * on without copying it. The buffer is sized from the expected output, so
+ * it is not copied while growing either, and the content is returned as an
+ * input stream or array over the internal buffer. The buffer must not be
+ * written after its content has been handed on.
+ */
+public class PGPOutputBuffer extends ByteArrayOutputStream {
+
+    /**
+     * The largest array size supported by all virtual machines
+     */
+    private static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * Creates a buffer for the cipher data of a message
+     *
+     * @param plainSize The size of the plain data, or a value less than 0 if
+     *            not known
+     * @param useArmor Whether the cipher data is armored
+     */
+    public PGPOutputBuffer(long plainSize, boolean useArmor) {
+        super(estimate(plainSize, useArmor));
+    }
+
+    /**
+     * Returns an input stream over the content of the buffer without copying
+     * it
+     *
+     * @return The input stream
+     */
+    public synchronized InputStream toInputStream() {
+        return new ByteArrayInputStream(buf, 0, count);
+    }
+
+    /**
+     * Returns the content of the buffer. The internal buffer is returned if
+     * it is filled exactly; otherwise the content is copied once.
+     *
+     * @return The content
+     */
+    public synchronized byte[] getBytes() {
+        return count == buf.length ? buf : toByteArray();
+    }
+
+    /**
+     * Estimates the size of cipher data: compressed data of incompressible
+     * input grows slightly, and armor adds a third plus line breaks
+     *
+     * @param plainSize The size of the plain data, or less than 0
+     * @param useArmor Whether the cipher data is armored
+     * @return The initial buffer size
+     */
+    private static int estimate(long plainSize, boolean useArmor) {
+
+        if (plainSize < 0) {
+            return 8192;
+        }
+        long size = plainSize + plainSize / 64 + 1024;
+        if (useArmor) {
+            size = size * 4 / 3 + size / 48 + 128;
+        }
+        return (int) Math.min(size, MAX_SIZE);
+    }
+}
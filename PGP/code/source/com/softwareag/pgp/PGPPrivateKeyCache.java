@@ -0,0 +1,319 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPrivateKey;
+import org.bouncycastle.openpgp.PGPSecretKey;
+
+/**
+ * This class caches private keys that were extracted (unlocked) from secret
+ * keys. Extracting a private key runs the passphrase derivation of the secret
+ * key and is expensive, so each key is unlocked once and reused until its
+ * time-to-live expires. Entries are identified by the key ID and a salted
+ * fingerprint of the password; the password itself is never stored.
+ * Passwords that fail to unlock a key are remembered in the
+ * {@link PGPNegativeCache}, so retries fail without the derivation.
+ * Removing a key from the cache does not erase it from memory; it is
+ * released to the garbage collector once no message uses it.
+ *
+ * The cache size and time-to-live can be set through the system properties
+ * watt.pgp.privateKeyCache.size and watt.pgp.privateKeyCache.ttl (seconds).
+ */
+public class PGPPrivateKeyCache {
+
+    /**
+     * The maximum number of cached private keys
+     */
+    private static final int SIZE = Integer.getInteger(
+            "watt.pgp.privateKeyCache.size", 256);
+
+    /**
+     * The time-to-live of a cached private key in milliseconds
+     */
+    private static final long TTL = Long.getLong(
+            "watt.pgp.privateKeyCache.ttl", 900) * 1000L;
+
+    /**
+     * Random salt for the password fingerprints of this process
+     */
+    private static final byte[] SALT = new byte[16];
+
+    /**
+     * Cached private keys
+     */
+    private static final ConcurrentHashMap<CacheKey, Entry> keys = new ConcurrentHashMap<CacheKey, Entry>();
+
+    /**
+     * Statistics
+     */
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+
+    static {
+        new SecureRandom().nextBytes(SALT);
+    }
+
+    /**
+     * Returns the private key of a secret key. The key is taken from the cache
+     * if it was extracted with the same password before and has not expired.
+     *
+     * @param secret The secret key
+     * @param password The password for the private key
+     * @return The private key
+     * @throws PGPException If the private key cannot be extracted
+     * @throws NoSuchProviderException If the key type is not supported
+     */
+    public static PGPPrivateKey extractPrivateKey(PGPSecretKey secret,
+            char[] password) throws PGPException, NoSuchProviderException {
+
+        CacheKey id = new CacheKey(secret.getKeyID(), fingerprint(password));
+        long now = System.currentTimeMillis();
+        Entry entry = keys.get(id);
+        if (entry != null) {
+            if (entry.expires > now) {
+                hits.incrementAndGet();
+                return entry.key;
+            }
+            if (keys.remove(id, entry)) {
+                evicted(entry);
+            }
+        }
+
+        // Fail fast if the password was rejected recently
+        String failure = PGPNegativeCache.get(id);
+        if (failure != null) {
+            throw new PGPException(failure);
+        }
+
+        // Unlock the key and cache it
+        misses.incrementAndGet();
+        PGPPrivateKey key = null;
+        try {
+            key = secret.extractPrivateKey(password, PGPInit.PROVIDER);
+        } catch (PGPException pgpe) {
+            if (pgpe.getMessage() != null
+                    && pgpe.getMessage().indexOf("checksum mismatch") >= 0) {
+                PGPNegativeCache.put(id, "Private key password invalid");
+                throw new PGPException("Private key password invalid");
+            }
+            throw pgpe;
+        }
+        if (key != null && SIZE > 0) {
+            keys.put(id, new Entry(key, now + TTL));
+            if (keys.size() > SIZE) {
+                shrink(now);
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Removes all cached private keys of a key ID
+     *
+     * @param keyId The key identifier
+     * @return The number of removed keys
+     */
+    public static int evict(long keyId) {
+
+        int count = 0;
+        for (Iterator<Map.Entry<CacheKey, Entry>> i = keys.entrySet().iterator(); i.hasNext();) {
+            Map.Entry<CacheKey, Entry> next = i.next();
+            if (next.getKey().keyId == keyId && keys.remove(next.getKey(), next.getValue())) {
+                evicted(next.getValue());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Removes all cached private keys
+     *
+     * @return The number of removed keys
+     */
+    public static int clear() {
+
+        int count = 0;
+        for (Iterator<Map.Entry<CacheKey, Entry>> i = keys.entrySet().iterator(); i.hasNext();) {
+            Map.Entry<CacheKey, Entry> next = i.next();
+            if (keys.remove(next.getKey(), next.getValue())) {
+                evicted(next.getValue());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of cached private keys
+     * @return The cache size
+     */
+    public static int size() {
+        return keys.size();
+    }
+
+    /**
+     * Returns the number of lookups served from the cache
+     * @return The hit count
+     */
+    public static long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups that required unlocking the key
+     * @return The miss count
+     */
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of keys removed because of expiry, size or request
+     * @return The eviction count
+     */
+    public static long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Removes expired keys and, if the cache is still too large, the keys
+     * that expire first
+     *
+     * @param now The current time
+     */
+    private static void shrink(long now) {
+
+        for (Iterator<Map.Entry<CacheKey, Entry>> i = keys.entrySet().iterator(); i.hasNext();) {
+            Map.Entry<CacheKey, Entry> next = i.next();
+            if (next.getValue().expires <= now && keys.remove(next.getKey(), next.getValue())) {
+                evicted(next.getValue());
+            }
+        }
+        while (keys.size() > SIZE) {
+            Map.Entry<CacheKey, Entry> oldest = null;
+            for (Map.Entry<CacheKey, Entry> next : keys.entrySet()) {
+                if (oldest == null || next.getValue().expires < oldest.getValue().expires) {
+                    oldest = next;
+                }
+            }
+            if (oldest == null) {
+                break;
+            }
+            if (keys.remove(oldest.getKey(), oldest.getValue())) {
+                evicted(oldest.getValue());
+            }
+        }
+    }
+
+    /**
+     * Counts an evicted key. Eviction only drops the reference of the cache:
+     * the key implementations of the provider cannot be wiped, and callers
+     * may still use the key, so the key material stays in memory until it
+     * is garbage collected.
+     *
+     * @param entry The evicted entry
+     */
+    private static void evicted(Entry entry) {
+        evictions.incrementAndGet();
+    }
+
+    /**
+     * Computes the salted fingerprint of a password
+     *
+     * @param password The password
+     * @return The SHA-256 fingerprint
+     */
+    private static byte[] fingerprint(char[] password) {
+
+        ByteBuffer bytes = Charset.forName("UTF-8").encode(CharBuffer.wrap(password));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(SALT);
+            digest.update(bytes);
+            return digest.digest();
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new IllegalStateException("SHA-256 not available", nsae);
+        } finally {
+            // Wipe the encoded password
+            bytes.clear();
+            while (bytes.hasRemaining()) {
+                bytes.put((byte) 0);
+            }
+        }
+    }
+
+    /**
+     * The identifier of a cached key
+     */
+    private static class CacheKey {
+
+        private final long keyId;
+        private final byte[] fingerprint;
+
+        private CacheKey(long keyId, byte[] fingerprint) {
+            this.keyId = keyId;
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (keyId ^ (keyId >>> 32)) * 31 + Arrays.hashCode(fingerprint);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return keyId == other.keyId
+                    && MessageDigest.isEqual(fingerprint, other.fingerprint);
+        }
+    }
+
+    /**
+     * A cached private key with its expiry time
+     */
+    private static class Entry {
+
+        private final PGPPrivateKey key;
+        private final long expires;
+
+        private Entry(PGPPrivateKey key, long expires) {
+            this.key = key;
+            this.expires = expires;
+        }
+    }
+}
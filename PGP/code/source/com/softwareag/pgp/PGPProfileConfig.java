@@ -0,0 +1,100 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class holds the configuration of a named encryption profile: the
+ * recipients by user ID, the encryption algorithm, the signer by user ID
+ * with its hash algorithm, and the compression and armor of messages.
+ * Settings that are not given are taken from the key configuration of the
+ * recipients, as for messages encrypted without a profile. Instances are
+ * immutable and shared between threads.
+ */
+public class PGPProfileConfig {
+
+    private final String name;
+    private final List<String> userIds;
+    private final String encryptionAlgorithm;
+    private final String signer;
+    private final String signingAlgorithm;
+    private final String compression;
+    private final String compressionLevel;
+    private final String armor;
+
+    /**
+     * Creates a profile configuration
+     *
+     * @param name The profile name
+     * @param userIds The user IDs of the recipients
+     * @param encryptionAlgorithm The encryption algorithm, or null for AUTO
+     * @param signer The user ID of the signing key, or null
+     * @param signingAlgorithm The hash algorithm for signing, or null
+     * @param compression The compression algorithm, or null
+     * @param compressionLevel The compression level, or null
+     * @param armor Whether messages are armored (true or false), or null
+     */
+    public PGPProfileConfig(String name, List<String> userIds,
+            String encryptionAlgorithm, String signer, String signingAlgorithm,
+            String compression, String compressionLevel, String armor) {
+        this.name = name;
+        this.userIds = Collections.unmodifiableList(new ArrayList<String>(userIds));
+        this.encryptionAlgorithm = encryptionAlgorithm;
+        this.signer = signer;
+        this.signingAlgorithm = signingAlgorithm;
+        this.compression = compression;
+        this.compressionLevel = compressionLevel;
+        this.armor = armor;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getUserIds() {
+        return userIds;
+    }
+
+    public String getEncryptionAlgorithm() {
+        return encryptionAlgorithm;
+    }
+
+    public String getSigner() {
+        return signer;
+    }
+
+    public String getSigningAlgorithm() {
+        return signingAlgorithm;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+
+    public String getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public String getArmor() {
+        return armor;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * This class provides the random number generators for session keys and
+ * initialization vectors. Creating a SecureRandom for every message seeds
+ * it from the operating system and makes all threads contend for the
+ * system generator. Instead, every thread has its own generator, seeded
+ * once from a shared seed source and reseeded after a number of messages or
+ * a period of time, whichever comes first. The generators are
+ * deterministic random bit generators (DRBG if the Java runtime provides
+ * it, SHA1PRNG otherwise), so they never block.
+ *
+ * The generator can be configured through the system properties
+ * watt.pgp.random.algorithm (a SecureRandom algorithm, default: DRBG or
+ * SHA1PRNG), watt.pgp.random.reseedUses (messages, default: 100000) and
+ * watt.pgp.random.reseedInterval (seconds, default: 600).
+ */
+public class PGPRandom {
+
+    /**
+     * The generator algorithms, in order of preference
+     */
+    private static final String[] ALGORITHMS = {
+            System.getProperty("watt.pgp.random.algorithm", "DRBG"), "DRBG", "SHA1PRNG" };
+
+    /**
+     * The number of messages after which a generator is reseeded
+     */
+    private static final long RESEED_USES = Long.getLong(
+            "watt.pgp.random.reseedUses", 100000);
+
+    /**
+     * The time after which a generator is reseeded in milliseconds
+     */
+    private static final long RESEED_INTERVAL = Long.getLong(
+            "watt.pgp.random.reseedInterval", 600) * 1000L;
+
+    /**
+     * The size of a seed in bytes
+     */
+    private static final int SEED = 32;
+
+    /**
+     * The shared seed source
+     */
+    private static final SecureRandom seeds = new SecureRandom();
+
+    /**
+     * The generator of every thread
+     */
+    private static final ThreadLocal<Generator> generators = new ThreadLocal<Generator>() {
+        @Override
+        protected Generator initialValue() {
+            return new Generator();
+        }
+    };
+
+    /**
+     * Returns the generator of the calling thread for one message. The
+     * generator is thread-safe, but sharing it between threads brings back
+     * the contention this class avoids.
+     *
+     * @return The generator
+     */
+    public static SecureRandom get() {
+
+        Generator generator = generators.get();
+        long now = System.currentTimeMillis();
+        if (++generator.uses > RESEED_USES || now - generator.seeded > RESEED_INTERVAL) {
+            generator.reseed(now);
+        }
+        return generator.random;
+    }
+
+    /**
+     * Returns the algorithm of the generators
+     *
+     * @return The algorithm name
+     */
+    public static String getAlgorithm() {
+        return generators.get().random.getAlgorithm();
+    }
+
+    /**
+     * Creates a generator of the first available algorithm
+     *
+     * @return The generator, not yet seeded
+     */
+    private static SecureRandom create() {
+
+        for (String algorithm : ALGORITHMS) {
+            try {
+                return SecureRandom.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException nsae) {
+                // Try the next algorithm
+            }
+        }
+        return new SecureRandom();
+    }
+
+    /**
+     * The generator of a thread
+     */
+    private static class Generator {
+
+        private final SecureRandom random = create();
+        private long uses = 0;
+        private long seeded = 0;
+
+        private Generator() {
+            // Seeding before the first use replaces the self-seeding
+            reseed(System.currentTimeMillis());
+        }
+
+        /**
+         * Adds a seed from the shared seed source
+         *
+         * @param now The current time
+         */
+        private void reseed(long now) {
+
+            byte[] seed = new byte[SEED];
+            seeds.nextBytes(seed);
+            random.setSeed(seed);
+            uses = 0;
+            seeded = now;
+        }
+    }
+}
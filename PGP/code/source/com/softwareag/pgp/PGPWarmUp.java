@@ -0,0 +1,346 @@
+/*
+ * * Copyright   2018 Software AG, Darmstadt, Germany and/or its licensors
+ * *
+ * * SPDX-License-Identifier: Apache-2.0
+ * *
+ * * Licensed under the Apache License, Version 2.0 (the "License");
+ * * you may not use this file except in compliance with the License.
+ * * You may obtain a copy of the License at
+ * *
+ * * http://www.apache.org/licenses/LICENSE-2.0
+ * *
+ * *  Unless required by applicable law or agreed to in writing, software
+ * *  distributed under the License is distributed on an "AS IS" BASIS,
+ * *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * *  See the License for the specific language governing permissions and
+ * *  limitations under the License.                                                            
+ * *
+ * */
+package com.softwareag.pgp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPrivateKey;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
+import org.bouncycastle.openpgp.PGPSecretKey;
+import org.bouncycastle.openpgp.PGPSecretKeyRing;
+import org.bouncycastle.openpgp.PGPSecretKeyRingCollection;
+
+/**
+ * This class warms up the package after startup. It loads the configured key
+ * files and unlocks the configured private keys once, so key parsing happens
+ * before the first real message. It then runs synthetic encrypt, decrypt,
+ * sign and verify round-trips for each warm-up algorithm against a sample of
+ * one key per key algorithm, until an iteration or time budget is reached,
+ * so class loading, provider initialization and JIT compilation happen
+ * before the first real message without startup time growing with the
+ * number of keys. It also ranks the encryption algorithms for AUTO (see
+ * {@link PGPCipherPolicy}). The package is marked ready once the warm-up has
+ * completed.
+ *
+ * The warm-up can be configured through the system properties
+ * watt.pgp.warmUp.enabled (default: true), watt.pgp.warmUp.iterations
+ * (maximum round-trips per sample key and algorithm, default: 2000),
+ * watt.pgp.warmUp.time (maximum time of the round-trips in milliseconds,
+ * default: 3000), watt.pgp.warmUp.size (payload size in bytes, default:
+ * 16384) and watt.pgp.warmUp.algorithms (comma-separated encryption
+ * algorithms, default: AES_128,AES_256).
+ */
+public class PGPWarmUp {
+
+    private static final boolean ENABLED = Boolean.parseBoolean(
+            System.getProperty("watt.pgp.warmUp.enabled", "true"));
+
+    private static final int ITERATIONS = Integer.getInteger(
+            "watt.pgp.warmUp.iterations", 2000);
+
+    private static final long TIME = Long.getLong(
+            "watt.pgp.warmUp.time", 3000L);
+
+    private static final int SIZE = Integer.getInteger(
+            "watt.pgp.warmUp.size", 16384);
+
+    private static final String ALGORITHMS = System.getProperty(
+            "watt.pgp.warmUp.algorithms", "AES_128,AES_256");
+
+    /**
+     * Whether the warm-up has completed
+     */
+    private static volatile boolean ready = false;
+
+    /**
+     * The result of the last warm-up
+     */
+    private static volatile Result last;
+
+    /**
+     * Warms up the package with the given key configurations and marks the
+     * package ready. Failures are reported in the result and do not prevent
+     * the package from becoming ready.
+     *
+     * @param keys The key configurations
+     * @param keyDir The directory containing the key files
+     * @return The warm-up result
+     */
+    public static Result run(Collection<PGPKeyConfig> keys, File keyDir) {
+
+        long start = System.currentTimeMillis();
+        Result result = new Result();
+        if (ENABLED) {
+            // Parse the encryption policy for AUTO before the first message
+            PGPCipherPolicy.listRanking();
+
+            // Load and unlock every key once, keeping a sample per key algorithm
+            Map<Integer, Sample> samples = new LinkedHashMap<Integer, Sample>();
+            for (PGPKeyConfig key : keys) {
+                Sample sample = load(key, keyDir, result);
+                if (sample != null) {
+                    Sample other = samples.get(sample.keyPub.getAlgorithm());
+                    if (other == null || (!other.roundTrip && sample.roundTrip)) {
+                        samples.put(sample.keyPub.getAlgorithm(), sample);
+                    }
+                }
+            }
+
+            byte[] payload = new byte[SIZE];
+            new Random(0).nextBytes(payload);
+            long deadline = System.currentTimeMillis() + TIME;
+            List<Sample> running = new ArrayList<Sample>(samples.values());
+            for (int i = 0; i < ITERATIONS && !running.isEmpty()
+                    && System.currentTimeMillis() < deadline; i++) {
+                for (Iterator<Sample> j = running.iterator(); j.hasNext();) {
+                    Sample sample = j.next();
+                    try {
+                        roundTrips(sample, payload, result);
+                    } catch (Exception e) {
+                        result.failures.add(sample.userId + ": " + e.getMessage());
+                        j.remove();
+                    }
+                }
+            }
+            for (Sample sample : samples.values()) {
+                Arrays.fill(sample.password, '\0');
+            }
+        }
+        result.duration = System.currentTimeMillis() - start;
+        last = result;
+        ready = true;
+        return result;
+    }
+
+    /**
+     * Checks whether the warm-up has completed
+     *
+     * @return True if the package is ready
+     */
+    public static boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Returns the result of the last warm-up
+     *
+     * @return The last result, or null if no warm-up has run
+     */
+    public static Result getLastResult() {
+        return last;
+    }
+
+    /**
+     * Loads the key files of a key configuration and unlocks its private keys
+     *
+     * @param key The key configuration
+     * @param keyDir The directory containing the key files
+     * @param result The warm-up result
+     * @return The keys for round-trips, or null if the configuration has no
+     *         encryption key
+     */
+    private static Sample load(PGPKeyConfig key, File keyDir, Result result) {
+
+        String userId = key.getUserId();
+        PGPPublicKeyRingCollection ringPub = null;
+        PGPSecretKeyRingCollection ringSecret = null;
+        String secret = PGPKeyRotation.getSecret(key);
+        char[] password = secret != null ? secret.toCharArray() : new char[0];
+        Sample sample = null;
+        try {
+            if (key.getPublicKeyFile() != null) {
+                ringPub = PGPKeyRegistry.getPublicKeyRing(
+                        new File(keyDir, key.getPublicKeyFile()).getPath());
+                result.keysLoaded++;
+            }
+            if (key.getSecretKeyFile() != null) {
+                ringSecret = PGPKeyRegistry.getSecretKeyRing(
+                        new File(keyDir, key.getSecretKeyFile()).getPath());
+                result.keysLoaded++;
+
+                // Unlock all private keys into the private key cache
+                for (Iterator<?> i = ringSecret.getKeyRings(); i.hasNext();) {
+                    PGPSecretKeyRing ring = (PGPSecretKeyRing) i.next();
+                    for (Iterator<?> j = ring.getSecretKeys(); j.hasNext();) {
+                        PGPPrivateKeyCache.extractPrivateKey((PGPSecretKey) j.next(), password);
+                        result.keysUnlocked++;
+                    }
+                }
+            }
+            if (ringPub == null || key.getKeyExchangeAlgorithm() == null) {
+                return null;
+            }
+
+            // Round-trip if the secret key for the encryption key is configured
+            PGPPublicKey keyPub = PGPKeyReader.readPublicKey(ringPub,
+                    PGPInit.getKeyExchangeAlgorithm(key.getKeyExchangeAlgorithm()));
+            PGPPrivateKey signer = null;
+            if (ringSecret != null) {
+                signer = PGPPrivateKeyCache.extractPrivateKey(
+                        PGPKeyReader.readSecretKey(ringSecret), password);
+            }
+            sample = new Sample(userId, ringPub, keyPub, ringSecret, password, signer);
+            return sample;
+        } catch (Exception e) {
+            result.failures.add(userId + ": " + e.getMessage());
+            return null;
+        } finally {
+            if (sample == null) {
+                Arrays.fill(password, '\0');
+            }
+        }
+    }
+
+    /**
+     * Runs one round-trip per warm-up algorithm with the keys of a sample
+     *
+     * @param sample The sample keys
+     * @param payload The synthetic plain data
+     * @param result The warm-up result
+     */
+    private static void roundTrips(Sample sample, byte[] payload, Result result)
+            throws Exception {
+
+        for (String name : ALGORITHMS.split(",")) {
+            int algorithm = PGPInit.getAlgorithm(name.trim());
+            ByteArrayOutputStream cipher = new ByteArrayOutputStream();
+            PGPEncrypt.encrypt(new ByteArrayInputStream(payload),
+                    cipher, sample.keyPub, algorithm, true, null);
+            if (sample.roundTrip) {
+                ByteArrayOutputStream plain = new ByteArrayOutputStream();
+                PGPDecrypt.decrypt(new ByteArrayInputStream(cipher.toByteArray()),
+                        plain, sample.ringSecret, sample.password);
+                check(plain.toByteArray(), payload);
+            }
+            if (sample.signer != null) {
+                cipher = new ByteArrayOutputStream();
+                PGPEncrypt.encryptAndSign(new ByteArrayInputStream(payload),
+                        cipher, sample.keyPub, algorithm, true, sample.signer,
+                        sample.password, PGPInit.getHashAlgorithm("SHA256"));
+                if (sample.roundTrip) {
+                    ByteArrayOutputStream plain = new ByteArrayOutputStream();
+                    PGPDecrypt.decryptAndVerify(
+                            new ByteArrayInputStream(cipher.toByteArray()),
+                            plain, sample.ringSecret, sample.password, sample.ringPub);
+                    check(plain.toByteArray(), payload);
+                }
+            }
+            result.roundTrips++;
+        }
+    }
+
+    private static void check(byte[] plain, byte[] payload) throws Exception {
+
+        if (!Arrays.equals(plain, payload)) {
+            throw new Exception("Round-trip returned different data");
+        }
+    }
+
+    /**
+     * The keys of a configuration used for round-trips
+     */
+    private static class Sample {
+
+        private final String userId;
+        private final PGPPublicKeyRingCollection ringPub;
+        private final PGPPublicKey keyPub;
+        private final PGPSecretKeyRingCollection ringSecret;
+        private final char[] password;
+        private final PGPPrivateKey signer;
+        private final boolean roundTrip;
+
+        private Sample(String userId, PGPPublicKeyRingCollection ringPub,
+                PGPPublicKey keyPub, PGPSecretKeyRingCollection ringSecret,
+                char[] password, PGPPrivateKey signer) throws PGPException {
+            this.userId = userId;
+            this.ringPub = ringPub;
+            this.keyPub = keyPub;
+            this.ringSecret = ringSecret;
+            this.password = password;
+            this.signer = signer;
+            this.roundTrip = ringSecret != null
+                    && ringSecret.getSecretKey(keyPub.getKeyID()) != null;
+        }
+    }
+
+    /**
+     * The result of a warm-up
+     */
+    public static class Result {
+
+        private int keysLoaded;
+        private int keysUnlocked;
+        private int roundTrips;
+        private long duration;
+        private final List<String> failures = new ArrayList<String>();
+
+        /**
+         * Returns the number of key files loaded
+         * @return The key file count
+         */
+        public int getKeysLoaded() {
+            return keysLoaded;
+        }
+
+        /**
+         * Returns the number of private keys unlocked
+         * @return The private key count
+         */
+        public int getKeysUnlocked() {
+            return keysUnlocked;
+        }
+
+        /**
+         * Returns the number of round-trips run
+         * @return The round-trip count
+         */
+        public int getRoundTrips() {
+            return roundTrips;
+        }
+
+        /**
+         * Returns the warm-up time
+         * @return The duration in milliseconds
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+        /**
+         * Returns the user IDs that could not be warmed up
+         * @return The user IDs with error messages
+         */
+        public List<String> getFailures() {
+            return Collections.unmodifiableList(failures);
+        }
+    }
+}
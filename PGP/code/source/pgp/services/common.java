@@ -28,13 +28,28 @@ import com.wm.app.b2b.server.ServiceException;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.nio.charset.Charset;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.concurrent.Callable;
+import com.softwareag.pgp.PGPBatchExecutor;
+import com.softwareag.pgp.PGPBufferPool;
+import com.softwareag.pgp.PGPConfig;
+import com.softwareag.pgp.PGPEncryptProfile;
+import com.softwareag.pgp.PGPInit;
+import com.softwareag.pgp.PGPKeyConfig;
+import com.softwareag.pgp.PGPKeyIndex;
+import com.softwareag.pgp.PGPKeyReader;
+import com.softwareag.pgp.PGPKeyRegistry;
+import com.softwareag.pgp.PGPKeyRotation;
+import com.softwareag.pgp.PGPNegativeCache;
+import com.softwareag.pgp.PGPWarmUp;
 import com.wm.app.b2b.server.Server;
 import com.wm.data.IData;
 import com.wm.data.IDataCursor;
+import com.wm.data.IDataFactory;
 import com.wm.data.IDataUtil;
+import org.bouncycastle.openpgp.PGPPublicKey;
 // --- <<IS-END-IMPORTS>> ---
 
 public final class common
@@ -53,6 +68,37 @@ public final class common
 
 
 
+	public static final void getBufferPoolInfo (IData pipeline)
+        throws ServiceException
+	{
+		// --- <<IS-START(getBufferPoolInfo)>> ---
+		// @sigtype java 3.5
+		// [o] field:0:required allocations
+		// [o] field:0:required allocatedBytes
+		// [o] field:0:required reuses
+		// [o] field:0:required reusedBytes
+		// [o] field:0:required discards
+		// [o] field:0:required idle
+		// [o] field:0:required idleBytes
+		
+		// Return values
+		IDataCursor pc = pipeline.getCursor();
+		IDataUtil.put(pc, "allocations", String.valueOf(PGPBufferPool.getAllocations()));
+		IDataUtil.put(pc, "allocatedBytes", String.valueOf(PGPBufferPool.getAllocatedBytes()));
+		IDataUtil.put(pc, "reuses", String.valueOf(PGPBufferPool.getReuses()));
+		IDataUtil.put(pc, "reusedBytes", String.valueOf(PGPBufferPool.getReusedBytes()));
+		IDataUtil.put(pc, "discards", String.valueOf(PGPBufferPool.getDiscards()));
+		IDataUtil.put(pc, "idle", String.valueOf(PGPBufferPool.getIdleCount()));
+		IDataUtil.put(pc, "idleBytes", String.valueOf(PGPBufferPool.getIdleBytes()));
+		pc.destroy();
+		
+		// --- <<IS-END>> ---
+
+                
+	}
+
+
+
 	public static final void getFileContent (IData pipeline)
         throws ServiceException
 	{
@@ -80,12 +126,17 @@ public final class common
 		FileInputStream in = null;
 		ByteArrayOutputStream out = null;
 		try {
-		    in = new FileInputStream(new File(path));
-		    out = new ByteArrayOutputStream();
-		    byte[] buffer = new byte[8192];
-		    int read = 0;
-		    while ((read = in.read(buffer)) > 0) {
-		        out.write(buffer, 0, read);
+		    File file = new File(path);
+		    in = new FileInputStream(file);
+		    out = new ByteArrayOutputStream((int) Math.min(file.length(), Integer.MAX_VALUE - 8));
+		    byte[] buffer = PGPBufferPool.acquire(PGPBufferPool.getBufferSize(file.length()));
+		    try {
+		        int read = 0;
+		        while ((read = in.read(buffer)) > 0) {
+		            out.write(buffer, 0, read);
+		        }
+		    } finally {
+		        PGPBufferPool.release(buffer);
 		    }
 		    out.flush();
 		    IDataUtil.put(pc, "content", out.toString(encoding));
@@ -175,68 +226,354 @@ public final class common
 
 
 
+	public static final void isReady (IData pipeline)
+        throws ServiceException
+	{
+		// --- <<IS-START(isReady)>> ---
+		// @sigtype java 3.5
+		// [o] field:0:required ready
+		// [o] field:0:optional duration
+		// [o] field:0:optional keysLoaded
+		// [o] field:0:optional keysUnlocked
+		// [o] field:0:optional roundTrips
+		// [o] field:1:optional failures
+		
+		// Return data
+		IDataCursor pc = pipeline.getCursor();
+		IDataUtil.put(pc, "ready", String.valueOf(PGPWarmUp.isReady()));
+		putWarmUpResult(pc, PGPWarmUp.getLastResult());
+		pc.destroy();
+		
+		// --- <<IS-END>> ---
+
+                
+	}
+
+
+
+	public static final void reloadConfig (IData pipeline)
+        throws ServiceException
+	{
+		// --- <<IS-START(reloadConfig)>> ---
+		// @sigtype java 3.5
+		// [i] field:0:optional path
+		// [o] field:0:required path
+		// [o] field:0:required keyCount
+		// [o] field:0:required indexedKeys
+		// [o] field:0:required profileCount
+		
+		// Get input
+		IDataCursor pc = pipeline.getCursor();
+		String path = IDataUtil.getString(pc, "path");
+		
+		// Load configuration and replace the current snapshot
+		File file = (path == null || path.equals("")) ? getConfigFile() : new File(path);
+		PGPConfig config = null;
+		try {
+		    config = PGPConfig.reload(file);
+		} catch (IOException ioe) {
+		    throw new ServiceException("Unable to read configuration: " + ioe.getMessage());
+		}
+		
+		// Restore the key generations of previous rotations
+		try {
+		    PGPKeyRotation.load(getKeyGenerationsFile(), getKeyDir(), config.getKeys());
+		} catch (IOException ioe) {
+		    throw new ServiceException("Unable to read key generations: " + ioe.getMessage());
+		}
+		
+		// Rebuild the key index over the configured key files and forget
+		// lookups that failed with the previous configuration
+		PGPKeyIndex index = PGPKeyIndex.rebuild(config.getKeys(), getKeyDir(), config);
+		PGPNegativeCache.clear();
+		
+		// Register the configured encryption profiles, resolved on first use
+		PGPEncryptProfile.load(config.getProfiles(), getKeyDir());
+		
+		// Return data
+		IDataUtil.put(pc, "path", file.getAbsolutePath());
+		IDataUtil.put(pc, "keyCount", String.valueOf(config.getKeys().size()));
+		IDataUtil.put(pc, "indexedKeys", String.valueOf(index.size()));
+		IDataUtil.put(pc, "profileCount", String.valueOf(config.getProfiles().size()));
+		pc.destroy();
+		
+		// --- <<IS-END>> ---
+
+                
+	}
+
+
+
 	public static final void selectFromConfig (IData pipeline)
         throws ServiceException
 	{
 		// --- <<IS-START(selectFromConfig)>> ---
 		// @sigtype java 3.5
-		// [i] recref:0:required config pgp.documents.config:PGPconfig
+		// [i] recref:0:optional config pgp.documents.config:PGPconfig
 		// [i] field:0:required userId
 		// [o] recref:0:required key pgp.documents.config:KeyConfig
-		Map<String, IData> configCache = new HashMap<String, IData>();
-		
-		// pipeline
-		IDataCursor pipelineCursor = pipeline.getCursor();
-		
-			// config
-			String userId  = IDataUtil.getString(pipelineCursor, "userId");
-			IData	config = IDataUtil.getIData( pipelineCursor, "config" );
-			
-			
-			if ( config != null)
-			{
-				IDataCursor configCursor = config.getCursor();
-					IData	keys = IDataUtil.getIData( configCursor, "keys" );
-					if ( keys != null)
-					{
-						IDataCursor keysCursor = keys.getCursor();
-							IData[]	key = IDataUtil.getIDataArray( keysCursor, "key" );
-							if ( key != null)
-							{
-								for ( int i = 0; i < key.length; i++ )
-								{
-									IDataCursor keyCursor = key[i].getCursor();
-										String	__userId = IDataUtil.getString( keyCursor, "@userId" );
-										
-										configCache.put(__userId, key[i]);
-		
-									keyCursor.destroy();
-								}
-							}
-						keysCursor.destroy();
-					}
-				configCursor.destroy();
-			}
-		pipelineCursor.destroy();
-		
-		
-		IData key = configCache.get(userId);
-		
-		IDataCursor pipelineCursor_1 = pipeline.getCursor();
-			 IDataUtil.put( pipelineCursor_1, "key", key );
-		pipelineCursor_1.destroy();
-		// pipeline
-		
-			
+		
+		// Get input
+		IDataCursor pc = pipeline.getCursor();
+		String userId = IDataUtil.getString(pc, "userId");
+		IData config = IDataUtil.getIData(pc, "config");
+		
+		IData key = null;
+		if (config != null) {
+		    // Select from the given configuration document
+		    IDataCursor configCursor = config.getCursor();
+		    IData keys = IDataUtil.getIData(configCursor, "keys");
+		    configCursor.destroy();
+		    if (keys != null) {
+		        IDataCursor keysCursor = keys.getCursor();
+		        IData[] entries = IDataUtil.getIDataArray(keysCursor, "key");
+		        keysCursor.destroy();
+		        for (int i = 0; entries != null && i < entries.length; i++) {
+		            IDataCursor keyCursor = entries[i].getCursor();
+		            String __userId = IDataUtil.getString(keyCursor, "@userId");
+		            keyCursor.destroy();
+		            if (__userId != null && __userId.equals(userId)) {
+		                key = entries[i];
+		                break;
+		            }
+		        }
+		    }
+		} else {
+		    // Look up in the configuration snapshot
+		    PGPKeyConfig keyConfig = getConfig().getKey(userId);
+		    if (keyConfig != null) {
+		        key = toKeyConfig(keyConfig);
+		    }
+		}
+		
+		// Return data
+		IDataUtil.put(pc, "key", key);
+		pc.destroy();
+		
 		// --- <<IS-END>> ---
 
                 
 	}
 
-	// --- <<IS-START-SHARED>> ---
 
 
+	public static final void warmUp (IData pipeline)
+        throws ServiceException
+	{
+		// --- <<IS-START(warmUp)>> ---
+		// @sigtype java 3.5
+		// [o] field:0:required ready
+		// [o] field:0:required duration
+		// [o] field:0:required keysLoaded
+		// [o] field:0:required keysUnlocked
+		// [o] field:0:required roundTrips
+		// [o] field:1:optional failures
+		
+		// Preload keys and run the synthetic round-trips
+		PGPWarmUp.Result result = PGPWarmUp.run(getConfig().getKeys(), getKeyDir());
+		
+		// Return data
+		IDataCursor pc = pipeline.getCursor();
+		IDataUtil.put(pc, "ready", String.valueOf(PGPWarmUp.isReady()));
+		putWarmUpResult(pc, result);
+		pc.destroy();
+		
+		// --- <<IS-END>> ---
+
+                
+	}
 
+	// --- <<IS-START-SHARED>> ---
+	
+	/**
+	 * Returns the current configuration snapshot, loading the package
+	 * configuration file if no snapshot exists yet
+	 */
+	static PGPConfig getConfig() throws ServiceException {
+	    try {
+	        PGPConfig config = PGPConfig.getConfig();
+	        if (config == null) {
+	            config = PGPConfig.reload(getConfigFile());
+	        }
+	        return config;
+	    } catch (IOException ioe) {
+	        throw new ServiceException("Unable to read configuration: " + ioe.getMessage());
+	    }
+	}
+	
+	/**
+	 * Returns the package configuration file
+	 */
+	static File getConfigFile() {
+	    String packageName = Service.getServiceEntry().getPackage().getName();
+	    return new File(Server.getResources().getPackageDir(packageName), 
+	            "config" + File.separator + "config.xml");
+	}
+	
+	/**
+	 * Returns the directory containing the configured key files
+	 */
+	static File getKeyDir() {
+	    String packageName = Service.getServiceEntry().getPackage().getName();
+	    return new File(Server.getResources().getPackageDir(packageName), 
+	            "pub" + File.separator + "keys");
+	}
+	
+	/**
+	 * Returns the file recording the key generations of rotations
+	 */
+	static File getKeyGenerationsFile() {
+	    String packageName = Service.getServiceEntry().getPackage().getName();
+	    return new File(Server.getResources().getPackageDir(packageName), 
+	            "config" + File.separator + "keyGenerations.xml");
+	}
+	
+	/**
+	 * Returns the default keystore snapshot file
+	 */
+	static File getKeySnapshotFile() {
+	    String packageName = Service.getServiceEntry().getPackage().getName();
+	    return new File(Server.getResources().getPackageDir(packageName), 
+	            "config" + File.separator + "keys.snapshot");
+	}
+	
+	/**
+	 * Returns the key index over all configured key files, building it again
+	 * if the configuration or a key file has changed since it was built
+	 */
+	static PGPKeyIndex getKeyIndex() throws ServiceException {
+	    PGPConfig config = getConfig();
+	    PGPKeyIndex index = PGPKeyIndex.getIndex();
+	    if (index == null || !index.isCurrent(config)) {
+	        index = PGPKeyIndex.rebuild(config.getKeys(), getKeyDir(), config);
+	    }
+	    return index;
+	}
+	
+	/**
+	 * Returns the encryption key of a configured user ID from its public key
+	 * file
+	 */
+	static PGPPublicKey getPublicKey(String userId) throws ServiceException {
+	    PGPKeyConfig key = getConfig().getKey(userId);
+	    if (key == null) {
+	        throw new ServiceException("User ID is not configured: " + userId);
+	    } else if (key.getPublicKeyFile() == null) {
+	        throw new ServiceException("No public key file configured for " + userId);
+	    }
+	    try {
+	        File file = new File(getKeyDir(), key.getPublicKeyFile());
+	        return PGPKeyReader.readPublicKey(
+	                PGPKeyRegistry.getPublicKeyRing(file.getPath()),
+	                key.getKeyExchangeAlgorithm() != null
+	                        ? PGPInit.getKeyExchangeAlgorithm(key.getKeyExchangeAlgorithm()) : 0);
+	    } catch (Exception e) {
+	        throw new ServiceException("Unable to read public key of " + userId
+	                + ": " + e.getMessage());
+	    }
+	}
+	
+	/**
+	 * Creates the result document of a batch item, carrying over its id
+	 */
+	static IData createBatchResult(IData item) {
+	    IData result = IDataFactory.create();
+	    IDataCursor ic = item.getCursor();
+	    String id = IDataUtil.getString(ic, "id");
+	    ic.destroy();
+	    if (id != null) {
+	        IDataCursor rc = result.getCursor();
+	        IDataUtil.put(rc, "id", id);
+	        rc.destroy();
+	    }
+	    return result;
+	}
+	
+	/**
+	 * Runs the tasks of a batch on the batch workers and adds the error of
+	 * every failed or skipped item to its result
+	 *
+	 * @return The number of items that were not processed successfully
+	 */
+	static int runBatch(List<Callable<Object>> tasks, IData[] results,
+	        String parallelism, String failFast) throws ServiceException {
+	    int threads = 0;
+	    if (parallelism != null && !parallelism.equals("")) {
+	        try {
+	            threads = Integer.parseInt(parallelism);
+	        } catch (NumberFormatException nfe) {
+	            throw new ServiceException("Invalid parallelism: " + parallelism);
+	        }
+	    }
+	    List<PGPBatchExecutor.Result<Object>> done = PGPBatchExecutor.execute(
+	            tasks, threads, "true".equals(failFast));
+	    int errorCount = 0;
+	    for (int i = 0; i < results.length; i++) {
+	        PGPBatchExecutor.Result<Object> next = done.get(i);
+	        String error = null;
+	        if (next.isSkipped()) {
+	            error = "Skipped after a previous error";
+	        } else if (next.getError() != null) {
+	            error = next.getError().getMessage();
+	        }
+	        if (error != null) {
+	            IDataCursor rc = results[i].getCursor();
+	            IDataUtil.put(rc, "error", error);
+	            rc.destroy();
+	            errorCount++;
+	        }
+	    }
+	    return errorCount;
+	}
+	
+	/**
+	 * Adds the result of a warm-up to the pipeline
+	 */
+	static void putWarmUpResult(IDataCursor pc, PGPWarmUp.Result result) {
+	    if (result != null) {
+	        IDataUtil.put(pc, "duration", String.valueOf(result.getDuration()));
+	        IDataUtil.put(pc, "keysLoaded", String.valueOf(result.getKeysLoaded()));
+	        IDataUtil.put(pc, "keysUnlocked", String.valueOf(result.getKeysUnlocked()));
+	        IDataUtil.put(pc, "roundTrips", String.valueOf(result.getRoundTrips()));
+	        if (!result.getFailures().isEmpty()) {
+	            IDataUtil.put(pc, "failures", result.getFailures().toArray(new String[0]));
+	        }
+	    }
+	}
+	
+	/**
+	 * Creates a KeyConfig document from a key configuration
+	 */
+	static IData toKeyConfig(PGPKeyConfig keyConfig) {
+	    IData pub = IDataFactory.create();
+	    IDataCursor pubCursor = pub.getCursor();
+	    IDataUtil.put(pubCursor, "filename", keyConfig.getPublicKeyFile());
+	    IDataUtil.put(pubCursor, "exchangeAlgorithm", keyConfig.getKeyExchangeAlgorithm());
+	    if (keyConfig.getCompression() != null) {
+	        IDataUtil.put(pubCursor, "compression", keyConfig.getCompression());
+	    }
+	    if (keyConfig.getCompressionLevel() != null) {
+	        IDataUtil.put(pubCursor, "compressionLevel", keyConfig.getCompressionLevel());
+	    }
+	    if (keyConfig.getArmor() != null) {
+	        IDataUtil.put(pubCursor, "armor", keyConfig.getArmor());
+	    }
+	    pubCursor.destroy();
+	    
+	    IData sec = IDataFactory.create();
+	    IDataCursor secCursor = sec.getCursor();
+	    IDataUtil.put(secCursor, "filename", keyConfig.getSecretKeyFile());
+	    IDataUtil.put(secCursor, "secret", PGPKeyRotation.getSecret(keyConfig));
+	    secCursor.destroy();
+	    
+	    IData key = IDataFactory.create();
+	    IDataCursor keyCursor = key.getCursor();
+	    IDataUtil.put(keyCursor, "@userId", keyConfig.getUserId());
+	    IDataUtil.put(keyCursor, "pub", pub);
+	    IDataUtil.put(keyCursor, "sec", sec);
+	    keyCursor.destroy();
+	    return key;
+	}
 	
 	// --- <<IS-END-SHARED>> ---
 }
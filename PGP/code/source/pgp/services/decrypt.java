@@ -36,13 +36,21 @@ import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
 import java.security.NoSuchProviderException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import org.bouncycastle.openpgp.PGPException;
 import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
 import org.bouncycastle.openpgp.PGPSecretKeyRingCollection;
 import com.softwareag.pgp.PGPDecrypt;
+import com.softwareag.pgp.PGPDecryptingInputStream;
+import com.softwareag.pgp.PGPKeyIndex;
 import com.wm.app.b2b.server.ServiceException;
 import com.wm.data.IData;
 import com.wm.data.IDataCursor;
+import com.wm.data.IDataFactory;
 import com.wm.data.IDataUtil;
 // --- <<IS-END-IMPORTS>> ---
 
@@ -122,10 +130,20 @@ public final class decrypt
 		String password = IDataUtil.getString(pc, "privateKeyPassword");
 		
 		// Validate key input
-		if (ringSecret == null || ringSecret.size() == 0) {
+		PGPKeyIndex index = null;
+		boolean verify = ringPub != null;
+		if (ringSecret == null) {
+		    // Resolve keys from all configured key rings by key ID
+		    index = common.getKeyIndex();
+		    verify = true;
+		} else if (ringSecret.size() == 0) {
 		    throw new ServiceException("Private key ring is empty");
 		} else if (password == null || password.equals("")) {
 		    throw new ServiceException("Private key password is empty");
+		} else {
+		    // Keys of a previous generation of the given rings are resolved
+		    // by key ID if a configuration exists
+		    index = getRetiredKeyIndex(ringSecret);
 		}
 		
 		// Get output settings
@@ -152,14 +170,26 @@ public final class decrypt
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
 		int verified = 0;
 		try {
-		    char[] pasw = password.toCharArray();
-		    if (ringPub != null) {
-		        // Decrypt & verify
-		        verified = PGPDecrypt.decryptAndVerify(cipherTextStream, out,
-		                ringSecret, pasw, ringPub);
+		    char[] pasw = password != null ? password.toCharArray() : null;
+		    if (outputType.equals("LazyStream")) {
+		        // Decrypt as the consumer reads; the signature is verified at
+		        // the end of the stream, which fails unless it verifies, and
+		        // the cipher text stream is closed with it if created in service
+		        IDataUtil.put(pc, "plainTextStream", new PGPDecryptingInputStream(
+		                cipherTextStream, autoClose, ringSecret, pasw, ringPub,
+		                index, verify, true));
+		        autoClose = false;
+		    } else if (verify) {
+		        // Decrypt & verify; the signer is returned with the result
+		        long size = cipherTextStream.available();
+		        PGPDecryptingInputStream clear = new PGPDecryptingInputStream(
+		                cipherTextStream, false, ringSecret, pasw, ringPub, index, true);
+		        PGPDecrypt.decrypt(clear, out, size);
+		        verified = clear.getVerified();
+		        putSigner(pc, clear);
 		    } else {
 		        // Decrypt
-		        PGPDecrypt.decrypt(cipherTextStream, out, ringSecret, pasw);
+		        PGPDecrypt.decrypt(cipherTextStream, out, ringSecret, pasw, index);
 		    }
 		    if (autoClose) {
 		        // Close streams created in service
@@ -222,12 +252,219 @@ public final class decrypt
 		    }
 		}
 		
+		// Return data; the verification of LazyStream output is only known at
+		// the end of the stream
+		if (!outputType.equals("LazyStream")) {
+		    IDataUtil.put(pc, "verified", String.valueOf(verified));
+		}
+		pc.destroy();
+		// --- <<IS-END>> ---
+
+                
+	}
+
+
+
+	public static final void decryptBatch (IData pipeline)
+        throws ServiceException
+	{
+		// --- <<IS-START(decryptBatch)>> ---
+		// @sigtype java 3.5
+		// [i] record:1:required items
+		// [i] - field:0:optional id
+		// [i] - object:0:optional cipherTextBytes
+		// [i] - field:0:optional cipherTextString
+		// [i] field:0:optional plainTextEncoding
+		// [i] object:0:optional privateKeyRingCollection
+		// [i] field:0:optional privateKeyPassword
+		// [i] object:0:optional publicKeyRingCollection
+		// [i] field:0:optional outputType {"String","Bytes"}
+		// [i] field:0:optional parallelism
+		// [i] field:0:optional failFast {"false","true"}
+		// [o] record:1:required results
+		// [o] - field:0:optional id
+		// [o] - object:0:optional plainTextBytes
+		// [o] - field:0:optional plainTextString
+		// [o] - field:0:optional verified
+		// [o] - field:0:optional signerKeyId
+		// [o] - field:0:optional signerUserId
+		// [o] - field:0:optional error
+		// [o] field:0:required successCount
+		// [o] field:0:required errorCount
+		
+		// Get input
+		IDataCursor pc = pipeline.getCursor();
+		IData[] items = IDataUtil.getIDataArray(pc, "items");
+		String plainTextEncoding = IDataUtil.getString(pc, "plainTextEncoding");
+		PGPPublicKeyRingCollection ringPub = (PGPPublicKeyRingCollection) IDataUtil
+		        .get(pc, "publicKeyRingCollection");
+		PGPSecretKeyRingCollection ringSecret = (PGPSecretKeyRingCollection) IDataUtil
+		        .get(pc, "privateKeyRingCollection");
+		String password = IDataUtil.getString(pc, "privateKeyPassword");
+		String outputType = IDataUtil.getString(pc, "outputType");
+		String parallelism = IDataUtil.getString(pc, "parallelism");
+		String failFast = IDataUtil.getString(pc, "failFast");
+		
+		// Validate input once for all items
+		if (items == null) {
+		    items = new IData[0];
+		}
+		if (plainTextEncoding == null || plainTextEncoding.equals("")) {
+		    plainTextEncoding = "UTF-8";
+		} else if (!Charset.isSupported(plainTextEncoding)) {
+		    throw new ServiceException("Unsupported character encoding");
+		}
+		PGPKeyIndex index = null;
+		boolean verify = ringPub != null;
+		if (ringSecret == null) {
+		    // Resolve keys from all configured key rings by key ID
+		    index = common.getKeyIndex();
+		    verify = true;
+		} else if (ringSecret.size() == 0) {
+		    throw new ServiceException("Private key ring is empty");
+		} else if (password == null || password.equals("")) {
+		    throw new ServiceException("Private key password is empty");
+		} else {
+		    index = getRetiredKeyIndex(ringSecret);
+		}
+		if (outputType == null || outputType.equals("")) {
+		    outputType = "String";
+		} else if (!outputType.equals("String") && !outputType.equals("Bytes")) {
+		    throw new ServiceException("Output type is not supported for batches: "
+		            + outputType);
+		}
+		
+		// Decrypt the items on the batch workers with the resolved keys,
+		// reusing the output buffers; a failed item is reported in its result
+		char[] pasw = password != null ? password.toCharArray() : null;
+		Queue<ByteArrayOutputStream> buffers = new ConcurrentLinkedQueue<ByteArrayOutputStream>();
+		IData[] results = new IData[items.length];
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(items.length);
+		for (int i = 0; i < items.length; i++) {
+		    results[i] = common.createBatchResult(items[i]);
+		    tasks.add(decryptTask(items[i], results[i], plainTextEncoding,
+		            ringSecret, pasw, ringPub, index, verify, outputType, buffers));
+		}
+		int errorCount = common.runBatch(tasks, results, parallelism, failFast);
+		
 		// Return data
-		IDataUtil.put(pc, "verified", String.valueOf(verified));
+		IDataUtil.put(pc, "results", results);
+		IDataUtil.put(pc, "successCount", String.valueOf(items.length - errorCount));
+		IDataUtil.put(pc, "errorCount", String.valueOf(errorCount));
 		pc.destroy();
+		
 		// --- <<IS-END>> ---
 
                 
 	}
+
+	// --- <<IS-START-SHARED>> ---
+	
+	/**
+	 * Returns the key index used with a given private key ring: the previous
+	 * key generations of the user IDs whose keys are in the ring, or null if
+	 * there are none or no configuration exists
+	 */
+	static PGPKeyIndex getRetiredKeyIndex(PGPSecretKeyRingCollection ringSecret) {
+	    try {
+	        return common.getKeyIndex().getRetired(ringSecret);
+	    } catch (ServiceException se) {
+	        return null;
+	    }
+	}
+	
+	/**
+	 * Returns the key ID and user ID of the key that verified the signature
+	 * of a message
+	 */
+	static void putSigner(IDataCursor pc, PGPDecryptingInputStream clear) {
+	    if (clear.getVerified() == 1) {
+	        IDataUtil.put(pc, "signerKeyId", String.valueOf(clear.getSignerKeyId()));
+	        if (clear.getSignerUserId() != null) {
+	            IDataUtil.put(pc, "signerUserId", clear.getSignerUserId());
+	        }
+	    }
+	}
+	
+	/**
+	 * Returns a task that decrypts a batch item into its result with a
+	 * buffer taken from the given buffers
+	 */
+	static Callable<Object> decryptTask(final IData item, final IData result,
+	        final String encoding, final PGPSecretKeyRingCollection ringSecret,
+	        final char[] password, final PGPPublicKeyRingCollection ringPub,
+	        final PGPKeyIndex index, final boolean verify,
+	        final String outputType, final Queue<ByteArrayOutputStream> buffers) {
+	    return new Callable<Object>() {
+	        public Object call() throws ServiceException {
+	            ByteArrayOutputStream buffer = buffers.poll();
+	            if (buffer == null) {
+	                buffer = new ByteArrayOutputStream();
+	            }
+	            IDataCursor rc = result.getCursor();
+	            try {
+	                decryptItem(item, rc, encoding, ringSecret, password, ringPub,
+	                        index, verify, outputType, buffer);
+	            } finally {
+	                rc.destroy();
+	                buffers.offer(buffer);
+	            }
+	            return null;
+	        }
+	    };
+	}
+	
+	/**
+	 * Decrypts a single batch item into its result
+	 */
+	static void decryptItem(IData item, IDataCursor rc, String encoding,
+	        PGPSecretKeyRingCollection ringSecret, char[] password,
+	        PGPPublicKeyRingCollection ringPub, PGPKeyIndex index,
+	        boolean verify, String outputType, ByteArrayOutputStream buffer)
+	        throws ServiceException {
+	    IDataCursor ic = item.getCursor();
+	    byte[] bytes = (byte[]) IDataUtil.get(ic, "cipherTextBytes");
+	    String string = IDataUtil.getString(ic, "cipherTextString");
+	    ic.destroy();
+	    try {
+	        if (bytes == null && string != null) {
+	            bytes = string.getBytes("UTF-8");
+	        } else if (bytes == null) {
+	            throw new ServiceException("No cipher data available");
+	        }
+	        buffer.reset();
+	        PGPDecryptingInputStream clear = null;
+	        if (verify) {
+	            clear = new PGPDecryptingInputStream(new ByteArrayInputStream(bytes),
+	                    false, ringSecret, password, ringPub, index, true);
+	            PGPDecrypt.decrypt(clear, buffer, bytes.length);
+	        } else {
+	            PGPDecrypt.decrypt(new ByteArrayInputStream(bytes), buffer,
+	                    ringSecret, password, index);
+	        }
+	
+	        // Copy the output, as the buffer is reused by the next item
+	        if (outputType.equals("Bytes")) {
+	            IDataUtil.put(rc, "plainTextBytes", buffer.toByteArray());
+	        } else {
+	            IDataUtil.put(rc, "plainTextString", buffer.toString(encoding));
+	        }
+	        IDataUtil.put(rc, "verified", String.valueOf(clear != null ? clear.getVerified() : 0));
+	        if (clear != null) {
+	            putSigner(rc, clear);
+	        }
+	    } catch (PGPException pgpe) {
+	        throw new ServiceException("Unable to decrypt data (possibly invalid password): "
+	                + pgpe.getMessage());
+	    } catch (NoSuchProviderException nspe) {
+	        throw new ServiceException("Unable to decrypt data with given keys: "
+	                + nspe.getMessage());
+	    } catch (IOException ioe) {
+	        throw new ServiceException("Unable to write decrypted data: "
+	                + ioe.getMessage());
+	    }
+	}
+	
+	// --- <<IS-END-SHARED>> ---
 }
 
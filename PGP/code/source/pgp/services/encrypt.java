@@ -25,26 +25,41 @@ import com.wm.util.Values;
 import com.wm.app.b2b.server.Service;
 import com.wm.app.b2b.server.ServiceException;
 // --- <<IS-START-IMPORTS>> ---
+import com.softwareag.pgp.PGPAtomicFileOutputStream;
+import com.softwareag.pgp.PGPCompression;
 import com.softwareag.pgp.PGPEncrypt;
+import com.softwareag.pgp.PGPEncryptProfile;
+import com.softwareag.pgp.PGPEncryptingInputStream;
 import com.softwareag.pgp.PGPInit;
+import com.softwareag.pgp.PGPKeyConfig;
+import com.softwareag.pgp.PGPKeyIndex;
+import com.softwareag.pgp.PGPOutputBuffer;
+import com.softwareag.pgp.PGPProfileConfig;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import org.bouncycastle.openpgp.PGPException;
 import org.bouncycastle.openpgp.PGPPrivateKey;
 import org.bouncycastle.openpgp.PGPPublicKey;
 import com.wm.data.IData;
 import com.wm.data.IDataCursor;
+import com.wm.data.IDataFactory;
 import com.wm.data.IDataUtil;
 // --- <<IS-END-IMPORTS>> ---
 
@@ -64,6 +79,53 @@ public final class encrypt
 
 
 
+	public static final void createProfile (IData pipeline)
+        throws ServiceException
+	{
+		// --- <<IS-START(createProfile)>> ---
+		// @sigtype java 3.5
+		// [i] field:0:required profileName
+		// [i] object:0:optional publicKey
+		// [i] object:1:optional publicKeys
+		// [i] field:1:optional userIds
+		// [i] field:0:required encryptionAlgorithm
+		// [i] object:0:optional privateKey
+		// [i] field:0:optional privateKeyPassword
+		// [i] field:0:optional signingAlgorithm
+		// [i] field:0:optional compression {"AUTO","NONE","ZIP","ZLIB","BZIP2"}
+		// [i] field:0:optional compressionLevel
+		// [i] field:0:optional useArmor {"true","false"}
+		// [o] field:0:required encryptionAlgorithm
+		
+		// Get input
+		IDataCursor pc = pipeline.getCursor();
+		String profileName = IDataUtil.getString(pc, "profileName");
+		if (profileName == null || profileName.equals("")) {
+		    throw new ServiceException("Profile name is empty");
+		}
+		
+		// Resolve the keys and algorithms once for all messages; recipients
+		// given by user ID only are resolved again when their keys change
+		PGPEncryptProfile profile = null;
+		if (IDataUtil.get(pc, "publicKey") == null
+		        && IDataUtil.getObjectArray(pc, "publicKeys") == null) {
+		    profile = registerProfile(profileName, pc);
+		} else {
+		    profile = createProfile(pc, false);
+		    PGPEncryptProfile.register(profileName, profile);
+		}
+		
+		// Return data
+		IDataUtil.put(pc, "encryptionAlgorithm", PGPInit.getAlgorithm(profile.getAlgorithm()));
+		pc.destroy();
+		
+		// --- <<IS-END>> ---
+
+                
+	}
+
+
+
 	public static final void encryptAndSign (IData pipeline)
         throws ServiceException
 	{
@@ -81,16 +143,21 @@ public final class encrypt
 		
 		// Validate plain text input
 		boolean autoClose = false;
+		long plainSize = -1;
 		try {
 		    if (plainTextPath != null && !plainTextPath.equals("")) {
-		        plainTextStream = new FileInputStream(new File(plainTextPath));
+		        File file = new File(plainTextPath);
+		        plainTextStream = new FileInputStream(file);
+		        plainSize = file.length();
 		        autoClose = true;
 		    } else if (plainTextBytes != null && plainTextBytes.length > 0) {
 		        plainTextStream = new ByteArrayInputStream(plainTextBytes);
+		        plainSize = plainTextBytes.length;
 		        autoClose = true;
 		    } else if (plainTextString != null && !plainTextString.equals("")) {
-		        plainTextStream = new ByteArrayInputStream(
-		                plainTextString.getBytes(plainTextEncoding));
+		        byte[] bytes = plainTextString.getBytes(plainTextEncoding);
+		        plainTextStream = new ByteArrayInputStream(bytes);
+		        plainSize = bytes.length;
 		        autoClose = true;
 		    } else {
 		        // Throws an exception if unavailable
@@ -111,20 +178,6 @@ public final class encrypt
 		    throw new ServiceException("Unsupported character encoding");
 		}
 		
-		// Get key input
-		PGPPublicKey publicKey = (PGPPublicKey) IDataUtil.get(pc, "publicKey");
-		String eAlgorithm = IDataUtil.getString(pc, "encryptionAlgorithm");
-		PGPPrivateKey privateKey = (PGPPrivateKey) IDataUtil.get(pc, "privateKey");
-		String password = IDataUtil.getString(pc, "privateKeyPassword");
-		String sAlgorithm = IDataUtil.getString(pc, "signingAlgorithm");
-		
-		// Validate key input
-		if (publicKey == null  || !publicKey.isEncryptionKey()) {
-		    throw new ServiceException("Public key is empty or not an encryption key");
-		} else if (privateKey != null && (password == null || password.equals(""))) {
-		    throw new ServiceException("Private key password is empty");
-		}
-		
 		// Get output settings
 		String outputType = IDataUtil.getString(pc, "outputType");
 		String outputPath = IDataUtil.getString(pc, "outputPath");
@@ -145,27 +198,45 @@ public final class encrypt
 		    }
 		}
 		
-		// Encrypt data
-		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		int signed = 0;
+		// Get the keys, algorithms and armor from the named profile or the input
+		PGPEncryptProfile profile = getProfile(pc, outputType);
+		
+		// Stream File output to a temporary file that replaces the destination
+		// when complete; buffer other output types in memory, except for
+		// LazyStream output, which is encrypted as the consumer reads it
+		PGPAtomicFileOutputStream fileOut = null;
+		PGPOutputBuffer buffer = null;
+		OutputStream out = null;
+		if (outputType.equals("File")) {
+		    try {
+		        out = fileOut = new PGPAtomicFileOutputStream(new File(outputPath));
+		    } catch (IOException ioe) {
+		        throw new ServiceException("Unable to write cipher text to file: " 
+		                + ioe.getMessage());
+		    }
+		} else if (!outputType.equals("LazyStream")) {
+		    out = buffer = new PGPOutputBuffer(plainSize, profile.isArmored());
+		}
+		
+		// Encrypt & sign, if the profile has a signing key
+		int signed = profile.isSigning() ? 1 : 0;
 		try {
-		    if (privateKey != null) {
-		        // Encrypt & sign
-		        char[] pasw = password.toCharArray();
-		        PGPEncrypt.encryptAndSign(plainTextStream, out, publicKey,
-		                PGPInit.getAlgorithm(eAlgorithm), true, privateKey,
-		                pasw, PGPInit.getHashAlgorithm(sAlgorithm));
-		        signed = 1;
+		    if (outputType.equals("LazyStream")) {
+		        // Hand the plain text stream over to the encrypting stream,
+		        // which closes it at its end if created in service
+		        IDataUtil.put(pc, "cipherTextStream", new PGPEncryptingInputStream(
+		                plainTextStream, autoClose, profile));
+		        autoClose = false;
 		    } else {
-		        // Encrypt
-		        PGPEncrypt.encrypt(plainTextStream, out, publicKey, 
-		                PGPInit.getAlgorithm(eAlgorithm), true, null);
+		        PGPEncrypt.encrypt(plainTextStream, out, profile);
 		    }
-		    if (autoClose) {
-		        // Close streams created in service
+		    if (fileOut != null) {
 		        try {
-		            plainTextStream.close();
-		        } catch (Exception e) {}
+		            fileOut.commit();
+		        } catch (IOException ioe) {
+		            throw new ServiceException("Unable to write cipher text to file: " 
+		                    + ioe.getMessage());
+		        }
 		    }
 		} catch (PGPException pgpe) {
 			Exception e = pgpe.getUnderlyingException();
@@ -184,46 +255,31 @@ public final class encrypt
 		} catch (IOException ioe) {
 		    throw new ServiceException("Unable to write encrypted data: "
 		            + ioe.getMessage());
+		} finally {
+		    if (autoClose) {
+		        // Close streams created in service
+		        try {
+		            plainTextStream.close();
+		        } catch (Exception e) {}
+		    }
+		    if (fileOut != null) {
+		        // Discard the temporary file if not committed
+		        try {
+		            fileOut.close();
+		        } catch (Exception e) {}
+		    }
 		}
 		
 		// Generate output
 		if (outputType.equals("File")) {
-		    try {
-		        File file = new File(outputPath);
-		        FileOutputStream fout = new FileOutputStream(file);
-		        out.flush();
-		        fout.write(out.toByteArray());
-		        fout.flush();
-		        fout.close();
-		        out.close();
-		        IDataUtil.put(pc, "cipherTextPath", file.getAbsolutePath());
-		    } catch (Exception e) {
-		        throw new ServiceException("Unable to write cipher text to file: " 
-		                + e.getMessage());
-		    }
+		    IDataUtil.put(pc, "cipherTextPath", fileOut.getFile().getAbsolutePath());
 		} else if (outputType.equals("Bytes")) {
-		    try {
-		        out.flush();
-		        IDataUtil.put(pc, "cipherTextBytes", out.toByteArray());
-		        out.close();
-		    } catch (Exception e) {
-		        throw new ServiceException("Unable to decode cipher data: "
-		                + e.getMessage());
-		    }
+		    IDataUtil.put(pc, "cipherTextBytes", buffer.getBytes());
 		} else if (outputType.equals("Stream")) {
-		    try {
-		        out.flush();
-		        ByteArrayInputStream stream = new ByteArrayInputStream(out.toByteArray());
-		        IDataUtil.put(pc, "cipherTextStream", stream);
-		    } catch (Exception e) {
-		        throw new ServiceException("Unable to decode cipher data: "
-		                + e.getMessage());
-		    }
+		    IDataUtil.put(pc, "cipherTextStream", buffer.toInputStream());
 		} else if (outputType.equals("String")) {
 		    try {
-		        out.flush();
-		        IDataUtil.put(pc, "cipherTextString", out.toString("UTF-8"));
-		        out.close();
+		        IDataUtil.put(pc, "cipherTextString", buffer.toString("UTF-8"));
 		    } catch (Exception e) {
 		        throw new ServiceException("Unable to decode cipher data: "
 		                + e.getMessage());
@@ -238,5 +294,405 @@ public final class encrypt
 
                 
 	}
+
+
+
+	public static final void encryptBatch (IData pipeline)
+        throws ServiceException
+	{
+		// --- <<IS-START(encryptBatch)>> ---
+		// @sigtype java 3.5
+		// [i] record:1:required items
+		// [i] - field:0:optional id
+		// [i] - object:0:optional plainTextBytes
+		// [i] - field:0:optional plainTextString
+		// [i] field:0:optional plainTextEncoding
+		// [i] field:0:optional profileName
+		// [i] object:0:optional publicKey
+		// [i] object:1:optional publicKeys
+		// [i] field:1:optional userIds
+		// [i] field:0:optional encryptionAlgorithm
+		// [i] object:0:optional privateKey
+		// [i] field:0:optional privateKeyPassword
+		// [i] field:0:optional signingAlgorithm
+		// [i] field:0:optional compression {"AUTO","NONE","ZIP","ZLIB","BZIP2"}
+		// [i] field:0:optional compressionLevel
+		// [i] field:0:optional outputType {"String","Bytes"}
+		// [i] field:0:optional useArmor {"true","false"}
+		// [i] field:0:optional parallelism
+		// [i] field:0:optional failFast {"false","true"}
+		// [o] record:1:required results
+		// [o] - field:0:optional id
+		// [o] - object:0:optional cipherTextBytes
+		// [o] - field:0:optional cipherTextString
+		// [o] - field:0:optional signed
+		// [o] - field:0:optional error
+		// [o] field:0:required successCount
+		// [o] field:0:required errorCount
+		
+		// Get input
+		IDataCursor pc = pipeline.getCursor();
+		IData[] items = IDataUtil.getIDataArray(pc, "items");
+		String plainTextEncoding = IDataUtil.getString(pc, "plainTextEncoding");
+		String outputType = IDataUtil.getString(pc, "outputType");
+		String parallelism = IDataUtil.getString(pc, "parallelism");
+		String failFast = IDataUtil.getString(pc, "failFast");
+		
+		// Validate input once for all items
+		if (items == null) {
+		    items = new IData[0];
+		}
+		if (plainTextEncoding == null || plainTextEncoding.equals("")) {
+		    plainTextEncoding = "UTF-8";
+		} else if (!Charset.isSupported(plainTextEncoding)) {
+		    throw new ServiceException("Unsupported character encoding");
+		}
+		if (outputType == null || outputType.equals("")) {
+		    outputType = "String";
+		} else if (!outputType.equals("String") && !outputType.equals("Bytes")) {
+		    throw new ServiceException("Output type is not supported for batches: "
+		            + outputType);
+		}
+		PGPEncryptProfile profile = getProfile(pc, outputType);
+		
+		// Encrypt the items on the batch workers with the profile, reusing
+		// the output buffers; a failed item is reported in its result
+		Queue<PGPOutputBuffer> buffers = new ConcurrentLinkedQueue<PGPOutputBuffer>();
+		IData[] results = new IData[items.length];
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(items.length);
+		for (int i = 0; i < items.length; i++) {
+		    results[i] = common.createBatchResult(items[i]);
+		    tasks.add(encryptTask(items[i], results[i], plainTextEncoding, profile,
+		            outputType, buffers));
+		}
+		int errorCount = common.runBatch(tasks, results, parallelism, failFast);
+		
+		// Return data
+		IDataUtil.put(pc, "results", results);
+		IDataUtil.put(pc, "successCount", String.valueOf(items.length - errorCount));
+		IDataUtil.put(pc, "errorCount", String.valueOf(errorCount));
+		pc.destroy();
+		
+		// --- <<IS-END>> ---
+
+                
+	}
+
+
+
+	public static final void removeProfile (IData pipeline)
+        throws ServiceException
+	{
+		// --- <<IS-START(removeProfile)>> ---
+		// @sigtype java 3.5
+		// [i] field:0:required profileName
+		// [o] field:0:required removed
+		
+		// Remove the profile; messages being encrypted with it are completed
+		IDataCursor pc = pipeline.getCursor();
+		String profileName = IDataUtil.getString(pc, "profileName");
+		boolean removed = profileName != null && PGPEncryptProfile.remove(profileName);
+		IDataUtil.put(pc, "removed", String.valueOf(removed));
+		pc.destroy();
+		
+		// --- <<IS-END>> ---
+
+                
+	}
+
+	// --- <<IS-START-SHARED>> ---
+	
+	/**
+	 * Returns the profile named by profileName or, if no name is given, the
+	 * profile of the recipient, algorithm, signing, compression and armor
+	 * inputs, which is cached for later calls with the same inputs. A
+	 * useArmor input overrides the armor of a named profile; String output
+	 * is always armored.
+	 */
+	static PGPEncryptProfile getProfile(IDataCursor pc, String outputType)
+	        throws ServiceException {
+	    String profileName = IDataUtil.getString(pc, "profileName");
+	    String useArmor = IDataUtil.getString(pc, "useArmor");
+	    PGPEncryptProfile profile = null;
+	    if (profileName == null || profileName.equals("")) {
+	        profile = createProfile(pc, true);
+	    } else {
+	        try {
+	            profile = PGPEncryptProfile.get(profileName);
+	        } catch (PGPException pgpe) {
+	            throw new ServiceException("Unable to encrypt data: " + pgpe.getMessage());
+	        }
+	        if (profile == null) {
+	            throw new ServiceException("Encryption profile not found: " + profileName);
+	        }
+	        if (useArmor != null && !useArmor.equals("")) {
+	            profile = profile.withArmor(Boolean.parseBoolean(useArmor));
+	        }
+	    }
+	    return outputType.equals("String") ? profile.withArmor(true) : profile;
+	}
+	
+	/**
+	 * Creates a profile from the recipient, algorithm, signing and
+	 * compression inputs, or takes it from the profile cache
+	 */
+	static PGPEncryptProfile createProfile(IDataCursor pc, boolean cached)
+	        throws ServiceException {
+	    String eAlgorithm = IDataUtil.getString(pc, "encryptionAlgorithm");
+	    PGPPrivateKey privateKey = (PGPPrivateKey) IDataUtil.get(pc, "privateKey");
+	    String password = IDataUtil.getString(pc, "privateKeyPassword");
+	    String sAlgorithm = IDataUtil.getString(pc, "signingAlgorithm");
+	    PGPPublicKey[] keys = getRecipients(pc);
+	    if (privateKey != null && (password == null || password.equals(""))) {
+	        throw new ServiceException("Private key password is empty");
+	    }
+	    PGPCompression compression = getCompression(pc);
+	    int algorithm = 0;
+	    int hash = 0;
+	    try {
+	        algorithm = PGPInit.getAlgorithm(eAlgorithm);
+	        hash = privateKey != null ? PGPInit.getHashAlgorithm(sAlgorithm) : 0;
+	    } catch (Exception e) {
+	        throw new ServiceException("Invalid algorithm: " + e.getMessage());
+	    }
+	    try {
+	        if (cached) {
+	            return PGPEncryptProfile.lookup(keys, algorithm, getArmor(pc),
+	                    privateKey, hash, compression);
+	        }
+	        return new PGPEncryptProfile(keys, algorithm, getArmor(pc), privateKey,
+	                hash, compression);
+	    } catch (PGPException pgpe) {
+	        throw new ServiceException("Unable to encrypt data: " + pgpe.getMessage());
+	    }
+	}
+	
+	/**
+	 * Registers a profile for the recipients given as userIds, which is
+	 * resolved again from the configured key files when they change
+	 */
+	static PGPEncryptProfile registerProfile(String profileName, IDataCursor pc)
+	        throws ServiceException {
+	    PGPPrivateKey privateKey = (PGPPrivateKey) IDataUtil.get(pc, "privateKey");
+	    String password = IDataUtil.getString(pc, "privateKeyPassword");
+	    String[] userIds = IDataUtil.getStringArray(pc, "userIds");
+	    if (privateKey != null && (password == null || password.equals(""))) {
+	        throw new ServiceException("Private key password is empty");
+	    }
+	    List<String> recipients = new ArrayList<String>();
+	    for (int i = 0; userIds != null && i < userIds.length; i++) {
+	        if (userIds[i] != null && !userIds[i].equals("")) {
+	            recipients.add(userIds[i]);
+	        }
+	    }
+	    if (recipients.isEmpty()) {
+	        throw new ServiceException("Public key is empty or not an encryption key");
+	    }
+	    PGPProfileConfig config = new PGPProfileConfig(profileName, recipients,
+	            IDataUtil.getString(pc, "encryptionAlgorithm"), null,
+	            IDataUtil.getString(pc, "signingAlgorithm"),
+	            IDataUtil.getString(pc, "compression"),
+	            IDataUtil.getString(pc, "compressionLevel"),
+	            IDataUtil.getString(pc, "useArmor"));
+	    common.getConfig();
+	    try {
+	        return PGPEncryptProfile.register(config, common.getKeyDir(), privateKey);
+	    } catch (PGPException pgpe) {
+	        throw new ServiceException("Unable to encrypt data: " + pgpe.getMessage());
+	    }
+	}
+	
+	/**
+	 * Returns the recipients given as publicKey, publicKeys and userIds; the
+	 * session key is encrypted for each distinct key, the data only once
+	 */
+	static PGPPublicKey[] getRecipients(IDataCursor pc) throws ServiceException {
+	    PGPPublicKey publicKey = (PGPPublicKey) IDataUtil.get(pc, "publicKey");
+	    Object[] publicKeys = IDataUtil.getObjectArray(pc, "publicKeys");
+	    String[] userIds = IDataUtil.getStringArray(pc, "userIds");
+	    Map<Long, PGPPublicKey> recipients = new LinkedHashMap<Long, PGPPublicKey>();
+	    if (publicKey != null) {
+	        recipients.put(publicKey.getKeyID(), publicKey);
+	    }
+	    for (int i = 0; publicKeys != null && i < publicKeys.length; i++) {
+	        if (!(publicKeys[i] instanceof PGPPublicKey)) {
+	            throw new ServiceException("Public key is empty or not an encryption key");
+	        }
+	        PGPPublicKey next = (PGPPublicKey) publicKeys[i];
+	        recipients.put(next.getKeyID(), next);
+	    }
+	    for (int i = 0; userIds != null && i < userIds.length; i++) {
+	        if (userIds[i] != null && !userIds[i].equals("")) {
+	            PGPPublicKey next = common.getPublicKey(userIds[i]);
+	            recipients.put(next.getKeyID(), next);
+	        }
+	    }
+	    if (recipients.isEmpty()) {
+	        throw new ServiceException("Public key is empty or not an encryption key");
+	    }
+	    for (PGPPublicKey next : recipients.values()) {
+	        if (!next.isEncryptionKey()) {
+	            throw new ServiceException("Public key is empty or not an encryption key");
+	        }
+	    }
+	    return recipients.values().toArray(new PGPPublicKey[recipients.size()]);
+	}
+	
+	/**
+	 * Returns the configuration of the recipients that have one: the user
+	 * IDs given as userIds, then the configured user IDs of the keys given as
+	 * publicKey and publicKeys, as found in the key index
+	 */
+	static List<PGPKeyConfig> getRecipientConfigs(IDataCursor pc) throws ServiceException {
+	    List<PGPKeyConfig> configs = new ArrayList<PGPKeyConfig>();
+	    String[] userIds = IDataUtil.getStringArray(pc, "userIds");
+	    for (int i = 0; userIds != null && i < userIds.length; i++) {
+	        PGPKeyConfig key = userIds[i] != null ? common.getConfig().getKey(userIds[i]) : null;
+	        if (key != null) {
+	            configs.add(key);
+	        }
+	    }
+	    List<Object> keys = new ArrayList<Object>();
+	    keys.add(IDataUtil.get(pc, "publicKey"));
+	    Object[] publicKeys = IDataUtil.getObjectArray(pc, "publicKeys");
+	    for (int i = 0; publicKeys != null && i < publicKeys.length; i++) {
+	        keys.add(publicKeys[i]);
+	    }
+	    PGPKeyIndex index = null;
+	    for (Object key : keys) {
+	        if (!(key instanceof PGPPublicKey)) {
+	            continue;
+	        }
+	        try {
+	            if (index == null) {
+	                index = common.getKeyIndex();
+	            }
+	        } catch (ServiceException se) {
+	            // Without configuration, keys have no settings
+	            break;
+	        }
+	        PGPKeyIndex.Entry entry = index.get(((PGPPublicKey) key).getKeyID());
+	        PGPKeyConfig config = entry != null && entry.getUserId() != null
+	                ? common.getConfig().getKey(entry.getUserId()) : null;
+	        if (config != null) {
+	            configs.add(config);
+	        }
+	    }
+	    return configs;
+	}
+	
+	/**
+	 * Returns the compression settings given as compression and
+	 * compressionLevel or, if not given, configured for the first recipient
+	 * that has compression settings
+	 */
+	static PGPCompression getCompression(IDataCursor pc) throws ServiceException {
+	    String compression = IDataUtil.getString(pc, "compression");
+	    String level = IDataUtil.getString(pc, "compressionLevel");
+	    if ((compression == null || compression.equals(""))
+	            && (level == null || level.equals(""))) {
+	        for (PGPKeyConfig key : getRecipientConfigs(pc)) {
+	            compression = key.getCompression();
+	            level = key.getCompressionLevel();
+	            if ((compression != null && !compression.equals(""))
+	                    || (level != null && !level.equals(""))) {
+	                break;
+	            }
+	        }
+	    }
+	    try {
+	        return PGPCompression.getCompression(compression, level);
+	    } catch (IllegalArgumentException iae) {
+	        throw new ServiceException("Invalid compression: " + iae.getMessage());
+	    }
+	}
+	
+	/**
+	 * Returns whether to armor the output as given by useArmor or, if not
+	 * given, configured for the first recipient that has an armor setting;
+	 * without settings, the output is binary
+	 */
+	static boolean getArmor(IDataCursor pc) throws ServiceException {
+	    String useArmor = IDataUtil.getString(pc, "useArmor");
+	    if (useArmor == null || useArmor.equals("")) {
+	        for (PGPKeyConfig key : getRecipientConfigs(pc)) {
+	            useArmor = key.getArmor();
+	            if (useArmor != null && !useArmor.equals("")) {
+	                break;
+	            }
+	        }
+	    }
+	    return useArmor != null && Boolean.parseBoolean(useArmor.trim());
+	}
+	
+	/**
+	 * Returns a task that encrypts a batch item into its result with a
+	 * buffer taken from the given buffers
+	 */
+	static Callable<Object> encryptTask(final IData item, final IData result,
+	        final String encoding, final PGPEncryptProfile profile,
+	        final String outputType, final Queue<PGPOutputBuffer> buffers) {
+	    return new Callable<Object>() {
+	        public Object call() throws ServiceException {
+	            PGPOutputBuffer buffer = buffers.poll();
+	            if (buffer == null) {
+	                buffer = new PGPOutputBuffer(-1, profile.isArmored());
+	            }
+	            IDataCursor rc = result.getCursor();
+	            try {
+	                encryptItem(item, rc, encoding, profile, outputType, buffer);
+	            } finally {
+	                rc.destroy();
+	                buffers.offer(buffer);
+	            }
+	            return null;
+	        }
+	    };
+	}
+	
+	/**
+	 * Encrypts a single batch item into its result
+	 */
+	static void encryptItem(IData item, IDataCursor rc, String encoding,
+	        PGPEncryptProfile profile, String outputType, PGPOutputBuffer buffer)
+	        throws ServiceException {
+	    IDataCursor ic = item.getCursor();
+	    byte[] bytes = (byte[]) IDataUtil.get(ic, "plainTextBytes");
+	    String string = IDataUtil.getString(ic, "plainTextString");
+	    ic.destroy();
+	    try {
+	        if (bytes == null && string != null) {
+	            bytes = string.getBytes(encoding);
+	        } else if (bytes == null) {
+	            throw new ServiceException("No plain data available");
+	        }
+	        buffer.reset();
+	        PGPEncrypt.encrypt(new ByteArrayInputStream(bytes), buffer, profile);
+	
+	        // Copy the output, as the buffer is reused by the next item
+	        if (outputType.equals("Bytes")) {
+	            IDataUtil.put(rc, "cipherTextBytes", buffer.toByteArray());
+	        } else {
+	            IDataUtil.put(rc, "cipherTextString", buffer.toString("UTF-8"));
+	        }
+	        IDataUtil.put(rc, "signed", profile.isSigning() ? "1" : "0");
+	    } catch (PGPException pgpe) {
+	        throw new ServiceException("Unable to encrypt data: " + pgpe.getMessage());
+	    } catch (NoSuchProviderException nspe) {
+	        throw new ServiceException("Unable to encrypt data with keys: "
+	                + nspe.getMessage());
+	    } catch (NoSuchAlgorithmException nsae) {
+	        throw new ServiceException("Invalid encryption algorithm: "
+	                + nsae.getMessage());
+	    } catch (SignatureException se) {
+	        throw new ServiceException("Invalid signature algorithm: "
+	                + se.getMessage());
+	    } catch (IOException ioe) {
+	        throw new ServiceException("Unable to write encrypted data: "
+	                + ioe.getMessage());
+	    }
+	}
+	
+	// --- <<IS-END-SHARED>> ---
 }
 
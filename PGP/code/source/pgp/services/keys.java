@@ -25,15 +25,27 @@ import com.wm.util.Values;
 import com.wm.app.b2b.server.Service;
 import com.wm.app.b2b.server.ServiceException;
 // --- <<IS-START-IMPORTS>> ---
+import java.io.File;
+import java.io.IOException;
 import java.util.Iterator;
+import java.util.Map;
+import org.bouncycastle.openpgp.PGPException;
 import org.bouncycastle.openpgp.PGPPrivateKey;
 import org.bouncycastle.openpgp.PGPPublicKey;
 import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
 import org.bouncycastle.openpgp.PGPSecretKey;
 import org.bouncycastle.openpgp.PGPSecretKeyRing;
 import org.bouncycastle.openpgp.PGPSecretKeyRingCollection;
+import com.softwareag.pgp.PGPEncryptProfile;
 import com.softwareag.pgp.PGPInit;
+import com.softwareag.pgp.PGPKeyConfig;
+import com.softwareag.pgp.PGPKeyDirectoryLoader;
 import com.softwareag.pgp.PGPKeyReader;
+import com.softwareag.pgp.PGPKeyRegistry;
+import com.softwareag.pgp.PGPKeyRotation;
+import com.softwareag.pgp.PGPKeyStoreSnapshot;
+import com.softwareag.pgp.PGPNegativeCache;
+import com.softwareag.pgp.PGPPrivateKeyCache;
 import com.wm.data.IData;
 import com.wm.data.IDataCursor;
 import com.wm.data.IDataFactory;
@@ -56,6 +68,129 @@ public final class keys
 
 
 
+	public static final void clearNegativeCache (IData pipeline)
+        throws ServiceException
+	{
+		// --- <<IS-START(clearNegativeCache)>> ---
+		// @sigtype java 3.5
+		// [o] field:0:required count
+		
+		// Remove cached failures
+		IDataCursor pc = pipeline.getCursor();
+		IDataUtil.put(pc, "count", String.valueOf(PGPNegativeCache.clear()));
+		pc.destroy();
+		
+		// --- <<IS-END>> ---
+
+                
+	}
+
+
+
+	public static final void clearPrivateKeyCache (IData pipeline)
+        throws ServiceException
+	{
+		// --- <<IS-START(clearPrivateKeyCache)>> ---
+		// @sigtype java 3.5
+		// [i] field:0:optional keyId
+		// [o] field:0:required count
+		
+		// Get input
+		IDataCursor pc = pipeline.getCursor();
+		String keyId = IDataUtil.getString(pc, "keyId");
+		
+		// Remove unlocked private keys
+		int count = 0;
+		if (keyId != null && !keyId.equals("")) {
+		    try {
+		        count = PGPPrivateKeyCache.evict(Long.parseLong(keyId));
+		        PGPEncryptProfile.evictSigner(Long.parseLong(keyId));
+		    } catch (NumberFormatException nfe) {
+		        throw new ServiceException("Invalid key identifier: " + keyId);
+		    }
+		} else {
+		    count = PGPPrivateKeyCache.clear();
+		    PGPEncryptProfile.clearCache();
+		}
+		
+		// Return data
+		IDataUtil.put(pc, "count", String.valueOf(count));
+		pc.destroy();
+		
+		// --- <<IS-END>> ---
+
+                
+	}
+
+
+
+	public static final void getNegativeCacheInfo (IData pipeline)
+        throws ServiceException
+	{
+		// --- <<IS-START(getNegativeCacheInfo)>> ---
+		// @sigtype java 3.5
+		// [o] field:0:required size
+		// [o] field:0:required hits
+		
+		// Return values
+		IDataCursor pc = pipeline.getCursor();
+		IDataUtil.put(pc, "size", String.valueOf(PGPNegativeCache.size()));
+		IDataUtil.put(pc, "hits", String.valueOf(PGPNegativeCache.getHits()));
+		pc.destroy();
+		
+		// --- <<IS-END>> ---
+
+                
+	}
+
+
+
+	public static final void getPrivateKeyCacheInfo (IData pipeline)
+        throws ServiceException
+	{
+		// --- <<IS-START(getPrivateKeyCacheInfo)>> ---
+		// @sigtype java 3.5
+		// [o] field:0:required size
+		// [o] field:0:required hits
+		// [o] field:0:required misses
+		// [o] field:0:required evictions
+		
+		// Return values
+		IDataCursor pc = pipeline.getCursor();
+		IDataUtil.put(pc, "size", String.valueOf(PGPPrivateKeyCache.size()));
+		IDataUtil.put(pc, "hits", String.valueOf(PGPPrivateKeyCache.getHits()));
+		IDataUtil.put(pc, "misses", String.valueOf(PGPPrivateKeyCache.getMisses()));
+		IDataUtil.put(pc, "evictions", String.valueOf(PGPPrivateKeyCache.getEvictions()));
+		pc.destroy();
+		
+		// --- <<IS-END>> ---
+
+                
+	}
+
+
+
+	public static final void listCompressionAlgorithms (IData pipeline)
+        throws ServiceException
+	{
+		// --- <<IS-START(listCompressionAlgorithms)>> ---
+		// @specification pgp.specifications:listAlgorithmsSpec
+		// @subtype unknown
+		// @sigtype java 3.5
+		// Return values
+		IDataCursor pc = pipeline.getCursor();
+		IDataUtil.put(pc, "algorithms", 
+		        PGPInit.listCompressionAlgorithms().toArray(new String[0]));
+		pc.destroy();
+		
+			
+		// --- <<IS-END>> ---
+
+                
+	}
+
+
+
 	public static final void listEncryptionAlgorithms (IData pipeline)
         throws ServiceException
 	{
@@ -119,6 +254,102 @@ public final class keys
 
 
 
+	public static final void loadKeyDirectory (IData pipeline)
+        throws ServiceException
+	{
+		// --- <<IS-START(loadKeyDirectory)>> ---
+		// @sigtype java 3.5
+		// [i] field:0:optional path
+		// [o] field:0:required path
+		// [o] field:0:required fileCount
+		// [o] field:0:required keyRingCount
+		// [o] field:0:required duplicateCount
+		// [o] field:0:required skippedCount
+		// [o] field:0:required duration
+		// [o] record:1:optional failures
+		// [o] - field:0:required file
+		// [o] - field:0:required message
+		
+		// Get input
+		IDataCursor pc = pipeline.getCursor();
+		String path = IDataUtil.getString(pc, "path");
+		
+		// Load all key files of the directory in parallel
+		File dir = (path == null || path.equals("")) ? common.getKeyDir() : new File(path);
+		PGPKeyDirectoryLoader.Result result = null;
+		try {
+		    result = PGPKeyDirectoryLoader.load(dir);
+		} catch (IOException ioe) {
+		    throw new ServiceException("Unable to load key directory: " + ioe.getMessage());
+		}
+		
+		// Report failures per file
+		Map<String, String> errors = result.getFailures();
+		IData[] failures = new IData[errors.size()];
+		int i = 0;
+		for (Map.Entry<String, String> error : errors.entrySet()) {
+		    failures[i] = IDataFactory.create();
+		    IDataCursor fc = failures[i++].getCursor();
+		    IDataUtil.put(fc, "file", error.getKey());
+		    IDataUtil.put(fc, "message", error.getValue());
+		    fc.destroy();
+		}
+		
+		// Return data
+		IDataUtil.put(pc, "path", dir.getAbsolutePath());
+		IDataUtil.put(pc, "fileCount", String.valueOf(result.getFileCount()));
+		IDataUtil.put(pc, "keyRingCount", String.valueOf(result.getKeyRings().size()));
+		IDataUtil.put(pc, "duplicateCount", String.valueOf(result.getDuplicateCount()));
+		IDataUtil.put(pc, "skippedCount", String.valueOf(result.getSkippedCount()));
+		IDataUtil.put(pc, "duration", String.valueOf(result.getDuration()));
+		if (failures.length > 0) {
+		    IDataUtil.put(pc, "failures", failures);
+		}
+		pc.destroy();
+		
+		// --- <<IS-END>> ---
+
+                
+	}
+
+
+
+	public static final void openKeySnapshot (IData pipeline)
+        throws ServiceException
+	{
+		// --- <<IS-START(openKeySnapshot)>> ---
+		// @sigtype java 3.5
+		// [i] field:0:optional path
+		// [o] field:0:required path
+		// [o] field:0:required keyRingCount
+		
+		// Get input
+		IDataCursor pc = pipeline.getCursor();
+		String path = IDataUtil.getString(pc, "path");
+		
+		// Map the snapshot, key rings are decoded on first lookup
+		File file = (path == null || path.equals("")) ? common.getKeySnapshotFile() : new File(path);
+		int count = 0;
+		if (file.exists()) {
+		    try {
+		        count = PGPKeyStoreSnapshot.open(file).size();
+		    } catch (IOException ioe) {
+		        throw new ServiceException("Unable to open keystore snapshot: " + ioe.getMessage());
+		    }
+		}
+		
+		// Return data
+		IDataUtil.put(pc, "path", file.getAbsolutePath());
+		IDataUtil.put(pc, "keyRingCount", String.valueOf(count));
+		pc.destroy();
+		
+		// --- <<IS-END>> ---
+
+                
+	}
+
+
+
 	public static final void readPrivateKeys (IData pipeline)
         throws ServiceException
 	{
@@ -139,7 +370,7 @@ public final class keys
 		    IDataCursor dc = data.getCursor();
 		    //path = Test.test();
 		    //path = PGPKeyReader.test();
-		    ringSecret = PGPKeyReader.readSecretKeyRing(path);
+		    ringSecret = PGPKeyRegistry.getSecretKeyRing(path);
 		    IDataUtil.put(dc, "privateKeyRing", ringSecret);
 		    if (pasw != null) {
 		        main: for (Iterator<?> i = ringSecret.getKeyRings(); i.hasNext();) {
@@ -147,7 +378,7 @@ public final class keys
 		            for (Iterator<?> j = ring.getSecretKeys(); j.hasNext();) {
 		                PGPSecretKey next = (PGPSecretKey) j.next();
 		                try {
-		                    PGPPrivateKey key = next.extractPrivateKey(pasw.toCharArray(), PGPInit.PROVIDER);
+		                    PGPPrivateKey key = PGPPrivateKeyCache.extractPrivateKey(next, pasw.toCharArray());
 		                    if (key != null) {
 		                        IDataUtil.put(dc, "privateKey", key);
 		                        IDataUtil.put(dc, "keyId", String.valueOf(key.getKeyID()));
@@ -196,7 +427,7 @@ public final class keys
 		PGPPublicKey keyPub = null;
 		try {
 		    IDataCursor dc = data.getCursor();
-		    ringPub = PGPKeyReader.readPublicKeyRing(path);
+		    ringPub = PGPKeyRegistry.getPublicKeyRing(path);
 		    IDataUtil.put(dc, "publicKeyRing", ringPub);
 		    if (alg != null) {
 		        keyPub = PGPKeyReader.readPublicKey(ringPub,
@@ -223,5 +454,105 @@ public final class keys
 
                 
 	}
+
+
+
+	public static final void rotateKey (IData pipeline)
+        throws ServiceException
+	{
+		// --- <<IS-START(rotateKey)>> ---
+		// @sigtype java 3.5
+		// [i] field:0:required userId
+		// [i] field:0:required publicKeyPath
+		// [i] field:0:optional privateKeyPath
+		// [i] field:0:optional privateKeyPassword
+		// [i] field:0:optional overlap
+		// [o] field:0:required generation
+		// [o] field:0:required overlap
+		
+		// Get input
+		IDataCursor pc = pipeline.getCursor();
+		String userId = IDataUtil.getString(pc, "userId");
+		String publicKeyPath = IDataUtil.getString(pc, "publicKeyPath");
+		String privateKeyPath = IDataUtil.getString(pc, "privateKeyPath");
+		String password = IDataUtil.getString(pc, "privateKeyPassword");
+		String overlap = IDataUtil.getString(pc, "overlap");
+		
+		// Validate input
+		PGPKeyConfig key = common.getConfig().getKey(userId);
+		if (key == null) {
+		    throw new ServiceException("User ID is not configured: " + userId);
+		} else if (publicKeyPath == null || publicKeyPath.equals("")) {
+		    throw new ServiceException("Public key path is empty");
+		}
+		long overlapMillis = PGPKeyRotation.OVERLAP;
+		if (overlap != null && !overlap.equals("")) {
+		    try {
+		        overlapMillis = Long.parseLong(overlap) * 1000L;
+		    } catch (NumberFormatException nfe) {
+		        throw new ServiceException("Invalid overlap: " + overlap);
+		    }
+		}
+		
+		// Stage, validate and publish the new generation
+		PGPKeyRotation.Generation generation = null;
+		try {
+		    generation = PGPKeyRotation.rotate(key, common.getKeyDir(),
+		            common.getKeyGenerationsFile(), new File(publicKeyPath),
+		            (privateKeyPath == null || privateKeyPath.equals("")) ? null : new File(privateKeyPath),
+		            (password == null || password.equals("")) ? null : password,
+		            overlapMillis);
+		} catch (IOException ioe) {
+		    throw new ServiceException("Unable to rotate key: " + ioe.getMessage());
+		} catch (PGPException pgpe) {
+		    throw new ServiceException("Invalid key generation: " + pgpe.getMessage());
+		}
+		
+		// Return data
+		IDataUtil.put(pc, "generation", String.valueOf(generation.getNumber()));
+		IDataUtil.put(pc, "overlap", String.valueOf(overlapMillis / 1000L));
+		pc.destroy();
+		
+		// --- <<IS-END>> ---
+
+                
+	}
+
+
+
+	public static final void writeKeySnapshot (IData pipeline)
+        throws ServiceException
+	{
+		// --- <<IS-START(writeKeySnapshot)>> ---
+		// @sigtype java 3.5
+		// [i] field:0:optional path
+		// [o] field:0:required path
+		// [o] field:0:required keyRingCount
+		// [o] field:0:required written
+		
+		// Get input
+		IDataCursor pc = pipeline.getCursor();
+		String path = IDataUtil.getString(pc, "path");
+		
+		// Write all registered key rings, unless the snapshot is unchanged
+		File file = (path == null || path.equals("")) ? common.getKeySnapshotFile() : new File(path);
+		boolean written = false;
+		try {
+		    written = PGPKeyStoreSnapshot.write(file);
+		} catch (IOException ioe) {
+		    throw new ServiceException("Unable to write keystore snapshot: " + ioe.getMessage());
+		}
+		PGPKeyStoreSnapshot snapshot = PGPKeyStoreSnapshot.getSnapshot();
+		
+		// Return data
+		IDataUtil.put(pc, "path", file.getAbsolutePath());
+		IDataUtil.put(pc, "keyRingCount", String.valueOf(snapshot == null ? 0 : snapshot.size()));
+		IDataUtil.put(pc, "written", String.valueOf(written));
+		pc.destroy();
+		
+		// --- <<IS-END>> ---
+
+                
+	}
 }
 
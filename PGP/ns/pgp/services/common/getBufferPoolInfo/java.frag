@@ -0,0 +1,18 @@
+<?xml version="1.0" encoding="UTF-8"?>
+
+<Values version="2.0">
+  <value name="name">getBufferPoolInfo</value>
+  <value name="encodeutf8">true</value>
+  <value name="body">DQovLyBSZXR1cm4gdmFsdWVzDQpJRGF0YUN1cnNvciBwYyA9IHBpcGVsaW5lLmdldEN1cnNvcigp
+Ow0KSURhdGFVdGlsLnB1dChwYywgImFsbG9jYXRpb25zIiwgU3RyaW5nLnZhbHVlT2YoUEdQQnVm
+ZmVyUG9vbC5nZXRBbGxvY2F0aW9ucygpKSk7DQpJRGF0YVV0aWwucHV0KHBjLCAiYWxsb2NhdGVk
+Qnl0ZXMiLCBTdHJpbmcudmFsdWVPZihQR1BCdWZmZXJQb29sLmdldEFsbG9jYXRlZEJ5dGVzKCkp
+KTsNCklEYXRhVXRpbC5wdXQocGMsICJyZXVzZXMiLCBTdHJpbmcudmFsdWVPZihQR1BCdWZmZXJQ
+b29sLmdldFJldXNlcygpKSk7DQpJRGF0YVV0aWwucHV0KHBjLCAicmV1c2VkQnl0ZXMiLCBTdHJp
+bmcudmFsdWVPZihQR1BCdWZmZXJQb29sLmdldFJldXNlZEJ5dGVzKCkpKTsNCklEYXRhVXRpbC5w
+dXQocGMsICJkaXNjYXJkcyIsIFN0cmluZy52YWx1ZU9mKFBHUEJ1ZmZlclBvb2wuZ2V0RGlzY2Fy
+ZHMoKSkpOw0KSURhdGFVdGlsLnB1dChwYywgImlkbGUiLCBTdHJpbmcudmFsdWVPZihQR1BCdWZm
+ZXJQb29sLmdldElkbGVDb3VudCgpKSk7DQpJRGF0YVV0aWwucHV0KHBjLCAiaWRsZUJ5dGVzIiwg
+U3RyaW5nLnZhbHVlT2YoUEdQQnVmZmVyUG9vbC5nZXRJZGxlQnl0ZXMoKSkpOw0KcGMuZGVzdHJv
+eSgpOw0K</value>
+</Values>
@@ -15,14 +15,18 @@ ZW5jb2RpbmcgPT0gbnVsbCB8fCBlbmNvZGluZy5lcXVhbHMoIiIpKSB7DQogICAgZW5jb2Rpbmcg
 PSAiVVRGLTgiOw0KfSBlbHNlIGlmICghQ2hhcnNldC5pc1N1cHBvcnRlZChlbmNvZGluZykpIHsN
 CiAgICB0aHJvdyBuZXcgU2VydmljZUV4Y2VwdGlvbigiVW5zdXBwb3J0ZWQgY2hhcmFjdGVyIGVu
 Y29kaW5nIik7DQp9DQoNCi8vIFJlYWQgZmlsZSANCkZpbGVJbnB1dFN0cmVhbSBpbiA9IG51bGw7
-DQpCeXRlQXJyYXlPdXRwdXRTdHJlYW0gb3V0ID0gbnVsbDsNCnRyeSB7DQogICAgaW4gPSBuZXcg
-RmlsZUlucHV0U3RyZWFtKG5ldyBGaWxlKHBhdGgpKTsNCiAgICBvdXQgPSBuZXcgQnl0ZUFycmF5
-T3V0cHV0U3RyZWFtKCk7DQogICAgYnl0ZVtdIGJ1ZmZlciA9IG5ldyBieXRlWzgxOTJdOw0KICAg
-IGludCByZWFkID0gMDsNCiAgICB3aGlsZSAoKHJlYWQgPSBpbi5yZWFkKGJ1ZmZlcikpID4gMCkg
-ew0KICAgICAgICBvdXQud3JpdGUoYnVmZmVyLCAwLCByZWFkKTsNCiAgICB9DQogICAgb3V0LmZs
-dXNoKCk7DQogICAgSURhdGFVdGlsLnB1dChwYywgImNvbnRlbnQiLCBvdXQudG9TdHJpbmcoZW5j
-b2RpbmcpKTsNCn0gY2F0Y2ggKEV4Y2VwdGlvbiBlKSB7DQogICAgdGhyb3cgbmV3IFNlcnZpY2VF
-eGNlcHRpb24oIlVuYWJsZSB0byByZWFkIGZpbGUgY29udGVudCIpOw0KfSBmaW5hbGx5IHsNCiAg
-ICB0cnkgew0KICAgICAgICBpbi5jbG9zZSgpOw0KICAgICAgICBvdXQuY2xvc2UoKTsNCiAgICB9
-IGNhdGNoIChFeGNlcHRpb24gZSkge30NCn0NCnBjLmRlc3Ryb3koKTsNCg0K</value>
+DQpCeXRlQXJyYXlPdXRwdXRTdHJlYW0gb3V0ID0gbnVsbDsNCnRyeSB7DQogICAgRmlsZSBmaWxl
+ID0gbmV3IEZpbGUocGF0aCk7DQogICAgaW4gPSBuZXcgRmlsZUlucHV0U3RyZWFtKGZpbGUpOw0K
+ICAgIG91dCA9IG5ldyBCeXRlQXJyYXlPdXRwdXRTdHJlYW0oKGludCkgTWF0aC5taW4oZmlsZS5s
+ZW5ndGgoKSwgSW50ZWdlci5NQVhfVkFMVUUgLSA4KSk7DQogICAgYnl0ZVtdIGJ1ZmZlciA9IFBH
+UEJ1ZmZlclBvb2wuYWNxdWlyZShQR1BCdWZmZXJQb29sLmdldEJ1ZmZlclNpemUoZmlsZS5sZW5n
+dGgoKSkpOw0KICAgIHRyeSB7DQogICAgICAgIGludCByZWFkID0gMDsNCiAgICAgICAgd2hpbGUg
+KChyZWFkID0gaW4ucmVhZChidWZmZXIpKSA+IDApIHsNCiAgICAgICAgICAgIG91dC53cml0ZShi
+dWZmZXIsIDAsIHJlYWQpOw0KICAgICAgICB9DQogICAgfSBmaW5hbGx5IHsNCiAgICAgICAgUEdQ
+QnVmZmVyUG9vbC5yZWxlYXNlKGJ1ZmZlcik7DQogICAgfQ0KICAgIG91dC5mbHVzaCgpOw0KICAg
+IElEYXRhVXRpbC5wdXQocGMsICJjb250ZW50Iiwgb3V0LnRvU3RyaW5nKGVuY29kaW5nKSk7DQp9
+IGNhdGNoIChFeGNlcHRpb24gZSkgew0KICAgIHRocm93IG5ldyBTZXJ2aWNlRXhjZXB0aW9uKCJV
+bmFibGUgdG8gcmVhZCBmaWxlIGNvbnRlbnQiKTsNCn0gZmluYWxseSB7DQogICAgdHJ5IHsNCiAg
+ICAgICAgaW4uY2xvc2UoKTsNCiAgICAgICAgb3V0LmNsb3NlKCk7DQogICAgfSBjYXRjaCAoRXhj
+ZXB0aW9uIGUpIHt9DQp9DQpwYy5kZXN0cm95KCk7DQo=</value>
 </Values>
@@ -0,0 +1,10 @@
+<?xml version="1.0" encoding="UTF-8"?>
+
+<Values version="2.0">
+  <value name="name">isReady</value>
+  <value name="encodeutf8">true</value>
+  <value name="body">DQovLyBSZXR1cm4gZGF0YQ0KSURhdGFDdXJzb3IgcGMgPSBwaXBlbGluZS5nZXRDdXJzb3IoKTsN
+CklEYXRhVXRpbC5wdXQocGMsICJyZWFkeSIsIFN0cmluZy52YWx1ZU9mKFBHUFdhcm1VcC5pc1Jl
+YWR5KCkpKTsNCnB1dFdhcm1VcFJlc3VsdChwYywgUEdQV2FybVVwLmdldExhc3RSZXN1bHQoKSk7
+DQpwYy5kZXN0cm95KCk7DQo=</value>
+</Values>
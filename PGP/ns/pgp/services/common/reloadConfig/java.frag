@@ -0,0 +1,31 @@
+<?xml version="1.0" encoding="UTF-8"?>
+
+<Values version="2.0">
+  <value name="name">reloadConfig</value>
+  <value name="encodeutf8">true</value>
+  <value name="body">DQovLyBHZXQgaW5wdXQNCklEYXRhQ3Vyc29yIHBjID0gcGlwZWxpbmUuZ2V0Q3Vyc29yKCk7DQpT
+dHJpbmcgcGF0aCA9IElEYXRhVXRpbC5nZXRTdHJpbmcocGMsICJwYXRoIik7DQoNCi8vIExvYWQg
+Y29uZmlndXJhdGlvbiBhbmQgcmVwbGFjZSB0aGUgY3VycmVudCBzbmFwc2hvdA0KRmlsZSBmaWxl
+ID0gKHBhdGggPT0gbnVsbCB8fCBwYXRoLmVxdWFscygiIikpID8gZ2V0Q29uZmlnRmlsZSgpIDog
+bmV3IEZpbGUocGF0aCk7DQpQR1BDb25maWcgY29uZmlnID0gbnVsbDsNCnRyeSB7DQogICAgY29u
+ZmlnID0gUEdQQ29uZmlnLnJlbG9hZChmaWxlKTsNCn0gY2F0Y2ggKElPRXhjZXB0aW9uIGlvZSkg
+ew0KICAgIHRocm93IG5ldyBTZXJ2aWNlRXhjZXB0aW9uKCJVbmFibGUgdG8gcmVhZCBjb25maWd1
+cmF0aW9uOiAiICsgaW9lLmdldE1lc3NhZ2UoKSk7DQp9DQoNCi8vIFJlc3RvcmUgdGhlIGtleSBn
+ZW5lcmF0aW9ucyBvZiBwcmV2aW91cyByb3RhdGlvbnMNCnRyeSB7DQogICAgUEdQS2V5Um90YXRp
+b24ubG9hZChnZXRLZXlHZW5lcmF0aW9uc0ZpbGUoKSwgZ2V0S2V5RGlyKCksIGNvbmZpZy5nZXRL
+ZXlzKCkpOw0KfSBjYXRjaCAoSU9FeGNlcHRpb24gaW9lKSB7DQogICAgdGhyb3cgbmV3IFNlcnZp
+Y2VFeGNlcHRpb24oIlVuYWJsZSB0byByZWFkIGtleSBnZW5lcmF0aW9uczogIiArIGlvZS5nZXRN
+ZXNzYWdlKCkpOw0KfQ0KDQovLyBSZWJ1aWxkIHRoZSBrZXkgaW5kZXggb3ZlciB0aGUgY29uZmln
+dXJlZCBrZXkgZmlsZXMgYW5kIGZvcmdldA0KLy8gbG9va3VwcyB0aGF0IGZhaWxlZCB3aXRoIHRo
+ZSBwcmV2aW91cyBjb25maWd1cmF0aW9uDQpQR1BLZXlJbmRleCBpbmRleCA9IFBHUEtleUluZGV4
+LnJlYnVpbGQoY29uZmlnLmdldEtleXMoKSwgZ2V0S2V5RGlyKCksIGNvbmZpZyk7DQpQR1BOZWdh
+dGl2ZUNhY2hlLmNsZWFyKCk7DQoNCi8vIFJlZ2lzdGVyIHRoZSBjb25maWd1cmVkIGVuY3J5cHRp
+b24gcHJvZmlsZXMsIHJlc29sdmVkIG9uIGZpcnN0IHVzZQ0KUEdQRW5jcnlwdFByb2ZpbGUubG9h
+ZChjb25maWcuZ2V0UHJvZmlsZXMoKSwgZ2V0S2V5RGlyKCkpOw0KDQovLyBSZXR1cm4gZGF0YQ0K
+SURhdGFVdGlsLnB1dChwYywgInBhdGgiLCBmaWxlLmdldEFic29sdXRlUGF0aCgpKTsNCklEYXRh
+VXRpbC5wdXQocGMsICJrZXlDb3VudCIsIFN0cmluZy52YWx1ZU9mKGNvbmZpZy5nZXRLZXlzKCku
+c2l6ZSgpKSk7DQpJRGF0YVV0aWwucHV0KHBjLCAiaW5kZXhlZEtleXMiLCBTdHJpbmcudmFsdWVP
+ZihpbmRleC5zaXplKCkpKTsNCklEYXRhVXRpbC5wdXQocGMsICJwcm9maWxlQ291bnQiLCBTdHJp
+bmcudmFsdWVPZihjb25maWcuZ2V0UHJvZmlsZXMoKS5zaXplKCkpKTsNCnBjLmRlc3Ryb3koKTsN
+Cg==</value>
+</Values>
@@ -3,25 +3,26 @@
 <Values version="2.0">
   <value name="name">selectFromConfig</value>
   <value name="encodeutf8">true</value>
-  <value name="body">TWFwPFN0cmluZywgSURhdGE+IGNvbmZpZ0NhY2hlID0gbmV3IEhhc2hNYXA8U3RyaW5nLCBJRGF0
-YT4oKTsNCg0KLy8gcGlwZWxpbmUNCklEYXRhQ3Vyc29yIHBpcGVsaW5lQ3Vyc29yID0gcGlwZWxp
-bmUuZ2V0Q3Vyc29yKCk7DQoNCgkvLyBjb25maWcNCglTdHJpbmcgdXNlcklkICA9IElEYXRhVXRp
-bC5nZXRTdHJpbmcocGlwZWxpbmVDdXJzb3IsICJ1c2VySWQiKTsNCglJRGF0YQljb25maWcgPSBJ
-RGF0YVV0aWwuZ2V0SURhdGEoIHBpcGVsaW5lQ3Vyc29yLCAiY29uZmlnIiApOw0KCQ0KCQ0KCWlm
-ICggY29uZmlnICE9IG51bGwpDQoJew0KCQlJRGF0YUN1cnNvciBjb25maWdDdXJzb3IgPSBjb25m
-aWcuZ2V0Q3Vyc29yKCk7DQoJCQlJRGF0YQlrZXlzID0gSURhdGFVdGlsLmdldElEYXRhKCBjb25m
-aWdDdXJzb3IsICJrZXlzIiApOw0KCQkJaWYgKCBrZXlzICE9IG51bGwpDQoJCQl7DQoJCQkJSURh
-dGFDdXJzb3Iga2V5c0N1cnNvciA9IGtleXMuZ2V0Q3Vyc29yKCk7DQoJCQkJCUlEYXRhW10Ja2V5
-ID0gSURhdGFVdGlsLmdldElEYXRhQXJyYXkoIGtleXNDdXJzb3IsICJrZXkiICk7DQoJCQkJCWlm
-ICgga2V5ICE9IG51bGwpDQoJCQkJCXsNCgkJCQkJCWZvciAoIGludCBpID0gMDsgaSA8IGtleS5s
-ZW5ndGg7IGkrKyApDQoJCQkJCQl7DQoJCQkJCQkJSURhdGFDdXJzb3Iga2V5Q3Vyc29yID0ga2V5
-W2ldLmdldEN1cnNvcigpOw0KCQkJCQkJCQlTdHJpbmcJX191c2VySWQgPSBJRGF0YVV0aWwuZ2V0
-U3RyaW5nKCBrZXlDdXJzb3IsICJAdXNlcklkIiApOw0KCQkJCQkJCQkNCgkJCQkJCQkJY29uZmln
-Q2FjaGUucHV0KF9fdXNlcklkLCBrZXlbaV0pOw0KDQoJCQkJCQkJa2V5Q3Vyc29yLmRlc3Ryb3ko
-KTsNCgkJCQkJCX0NCgkJCQkJfQ0KCQkJCWtleXNDdXJzb3IuZGVzdHJveSgpOw0KCQkJfQ0KCQlj
-b25maWdDdXJzb3IuZGVzdHJveSgpOw0KCX0NCnBpcGVsaW5lQ3Vyc29yLmRlc3Ryb3koKTsNCg0K
-DQpJRGF0YSBrZXkgPSBjb25maWdDYWNoZS5nZXQodXNlcklkKTsNCg0KSURhdGFDdXJzb3IgcGlw
-ZWxpbmVDdXJzb3JfMSA9IHBpcGVsaW5lLmdldEN1cnNvcigpOw0KCSBJRGF0YVV0aWwucHV0KCBw
-aXBlbGluZUN1cnNvcl8xLCAia2V5Iiwga2V5ICk7DQpwaXBlbGluZUN1cnNvcl8xLmRlc3Ryb3ko
-KTsNCi8vIHBpcGVsaW5lDQoNCgk=</value>
+  <value name="body">DQovLyBHZXQgaW5wdXQNCklEYXRhQ3Vyc29yIHBjID0gcGlwZWxpbmUuZ2V0Q3Vyc29yKCk7DQpT
+dHJpbmcgdXNlcklkID0gSURhdGFVdGlsLmdldFN0cmluZyhwYywgInVzZXJJZCIpOw0KSURhdGEg
+Y29uZmlnID0gSURhdGFVdGlsLmdldElEYXRhKHBjLCAiY29uZmlnIik7DQoNCklEYXRhIGtleSA9
+IG51bGw7DQppZiAoY29uZmlnICE9IG51bGwpIHsNCiAgICAvLyBTZWxlY3QgZnJvbSB0aGUgZ2l2
+ZW4gY29uZmlndXJhdGlvbiBkb2N1bWVudA0KICAgIElEYXRhQ3Vyc29yIGNvbmZpZ0N1cnNvciA9
+IGNvbmZpZy5nZXRDdXJzb3IoKTsNCiAgICBJRGF0YSBrZXlzID0gSURhdGFVdGlsLmdldElEYXRh
+KGNvbmZpZ0N1cnNvciwgImtleXMiKTsNCiAgICBjb25maWdDdXJzb3IuZGVzdHJveSgpOw0KICAg
+IGlmIChrZXlzICE9IG51bGwpIHsNCiAgICAgICAgSURhdGFDdXJzb3Iga2V5c0N1cnNvciA9IGtl
+eXMuZ2V0Q3Vyc29yKCk7DQogICAgICAgIElEYXRhW10gZW50cmllcyA9IElEYXRhVXRpbC5nZXRJ
+RGF0YUFycmF5KGtleXNDdXJzb3IsICJrZXkiKTsNCiAgICAgICAga2V5c0N1cnNvci5kZXN0cm95
+KCk7DQogICAgICAgIGZvciAoaW50IGkgPSAwOyBlbnRyaWVzICE9IG51bGwgJiYgaSA8IGVudHJp
+ZXMubGVuZ3RoOyBpKyspIHsNCiAgICAgICAgICAgIElEYXRhQ3Vyc29yIGtleUN1cnNvciA9IGVu
+dHJpZXNbaV0uZ2V0Q3Vyc29yKCk7DQogICAgICAgICAgICBTdHJpbmcgX191c2VySWQgPSBJRGF0
+YVV0aWwuZ2V0U3RyaW5nKGtleUN1cnNvciwgIkB1c2VySWQiKTsNCiAgICAgICAgICAgIGtleUN1
+cnNvci5kZXN0cm95KCk7DQogICAgICAgICAgICBpZiAoX191c2VySWQgIT0gbnVsbCAmJiBfX3Vz
+ZXJJZC5lcXVhbHModXNlcklkKSkgew0KICAgICAgICAgICAgICAgIGtleSA9IGVudHJpZXNbaV07
+DQogICAgICAgICAgICAgICAgYnJlYWs7DQogICAgICAgICAgICB9DQogICAgICAgIH0NCiAgICB9
+DQp9IGVsc2Ugew0KICAgIC8vIExvb2sgdXAgaW4gdGhlIGNvbmZpZ3VyYXRpb24gc25hcHNob3QN
+CiAgICBQR1BLZXlDb25maWcga2V5Q29uZmlnID0gZ2V0Q29uZmlnKCkuZ2V0S2V5KHVzZXJJZCk7
+DQogICAgaWYgKGtleUNvbmZpZyAhPSBudWxsKSB7DQogICAgICAgIGtleSA9IHRvS2V5Q29uZmln
+KGtleUNvbmZpZyk7DQogICAgfQ0KfQ0KDQovLyBSZXR1cm4gZGF0YQ0KSURhdGFVdGlsLnB1dChw
+YywgImtleSIsIGtleSk7DQpwYy5kZXN0cm95KCk7DQo=</value>
 </Values>
@@ -45,69 +45,90 @@ Y3Rpb24pIElEYXRhVXRpbA0KICAgICAgICAuZ2V0KHBjLCAicHVibGljS2V5UmluZ0NvbGxlY3Rp
 b24iKTsNClBHUFNlY3JldEtleVJpbmdDb2xsZWN0aW9uIHJpbmdTZWNyZXQgPSAoUEdQU2VjcmV0
 S2V5UmluZ0NvbGxlY3Rpb24pIElEYXRhVXRpbA0KICAgICAgICAuZ2V0KHBjLCAicHJpdmF0ZUtl
 eVJpbmdDb2xsZWN0aW9uIik7DQpTdHJpbmcgcGFzc3dvcmQgPSBJRGF0YVV0aWwuZ2V0U3RyaW5n
-KHBjLCAicHJpdmF0ZUtleVBhc3N3b3JkIik7DQoNCi8vIFZhbGlkYXRlIGtleSBpbnB1dA0KaWYg
-KHJpbmdTZWNyZXQgPT0gbnVsbCB8fCByaW5nU2VjcmV0LnNpemUoKSA9PSAwKSB7DQogICAgdGhy
-b3cgbmV3IFNlcnZpY2VFeGNlcHRpb24oIlByaXZhdGUga2V5IHJpbmcgaXMgZW1wdHkiKTsNCn0g
-ZWxzZSBpZiAocGFzc3dvcmQgPT0gbnVsbCB8fCBwYXNzd29yZC5lcXVhbHMoIiIpKSB7DQogICAg
-dGhyb3cgbmV3IFNlcnZpY2VFeGNlcHRpb24oIlByaXZhdGUga2V5IHBhc3N3b3JkIGlzIGVtcHR5
-Iik7DQp9DQoNCi8vIEdldCBvdXRwdXQgc2V0dGluZ3MNClN0cmluZyBvdXRwdXRUeXBlID0gSURh
-dGFVdGlsLmdldFN0cmluZyhwYywgIm91dHB1dFR5cGUiKTsNClN0cmluZyBvdXRwdXRQYXRoID0g
-SURhdGFVdGlsLmdldFN0cmluZyhwYywgIm91dHB1dFBhdGgiKTsNCg0KLy8gVmFsaWRhdGUgb3V0
-cHV0IHNldHRpbmdzDQppZiAob3V0cHV0VHlwZSA9PSBudWxsIHx8IG91dHB1dFR5cGUuZXF1YWxz
-KCIiKSkgew0KICAgIG91dHB1dFR5cGUgPSAiU3RyaW5nIjsNCn0gZWxzZSBpZiAob3V0cHV0VHlw
-ZS5lcXVhbHMoIkZpbGUiKSkgew0KICAgIHRyeSB7DQogICAgICAgIEZpbGUgZmlsZSA9IG5ldyBG
-aWxlKG91dHB1dFBhdGgpOw0KICAgICAgICBpZiAoZmlsZS5leGlzdHMoKSAmJiAhZmlsZS5jYW5X
-cml0ZSgpKSB7DQogICAgICAgICAgICB0aHJvdyBuZXcgRXhjZXB0aW9uKCJEZXN0aW5hdGlvbiBm
-aWxlIGlzIG5vdCBhY2Nlc3NpYmxlIik7DQogICAgICAgIH0gZWxzZSBpZiAoIShmaWxlLmdldFBh
-cmVudEZpbGUoKS5leGlzdHMoKSB8fCBmaWxlLmdldFBhcmVudEZpbGUoKS5ta2RpcnMoKSkpIHsN
-CiAgICAgICAgICAgIHRocm93IG5ldyBFeGNlcHRpb24oIkRlc3RpbmF0aW9uIGRpcmVjdG9yeSBp
-cyBub3QgYWNjZXNzaWJsZSIpOw0KICAgICAgICB9DQogICAgfSBjYXRjaCAoRXhjZXB0aW9uIGUp
-IHsNCiAgICAgICAgdGhyb3cgbmV3IFNlcnZpY2VFeGNlcHRpb24oZS5nZXRNZXNzYWdlKCkpOw0K
-ICAgIH0NCn0NCg0KLy8gRGVjcnlwdCBkYXRhDQpCeXRlQXJyYXlPdXRwdXRTdHJlYW0gb3V0ID0g
-bmV3IEJ5dGVBcnJheU91dHB1dFN0cmVhbSgpOw0KaW50IHZlcmlmaWVkID0gMDsNCnRyeSB7DQog
-ICAgY2hhcltdIHBhc3cgPSBwYXNzd29yZC50b0NoYXJBcnJheSgpOw0KICAgIGlmIChyaW5nUHVi
-ICE9IG51bGwpIHsNCiAgICAgICAgLy8gRGVjcnlwdCAmIHZlcmlmeQ0KICAgICAgICB2ZXJpZmll
-ZCA9IFBHUERlY3J5cHQuZGVjcnlwdEFuZFZlcmlmeShjaXBoZXJUZXh0U3RyZWFtLCBvdXQsDQog
-ICAgICAgICAgICAgICAgcmluZ1NlY3JldCwgcGFzdywgcmluZ1B1Yik7DQogICAgfSBlbHNlIHsN
-CiAgICAgICAgLy8gRGVjcnlwdA0KICAgICAgICBQR1BEZWNyeXB0LmRlY3J5cHQoY2lwaGVyVGV4
-dFN0cmVhbSwgb3V0LCByaW5nU2VjcmV0LCBwYXN3KTsNCiAgICB9DQogICAgaWYgKGF1dG9DbG9z
-ZSkgew0KICAgICAgICAvLyBDbG9zZSBzdHJlYW1zIGNyZWF0ZWQgaW4gc2VydmljZQ0KICAgICAg
-ICB0cnkgew0KICAgICAgICAgICAgY2lwaGVyVGV4dFN0cmVhbS5jbG9zZSgpOw0KICAgICAgICB9
-IGNhdGNoIChFeGNlcHRpb24gZSkge30NCiAgICB9DQp9IGNhdGNoIChQR1BFeGNlcHRpb24gcGdw
-ZSkgew0KICAgIHRocm93IG5ldyBTZXJ2aWNlRXhjZXB0aW9uKCJVbmFibGUgdG8gZGVjcnlwdCBk
-YXRhIChwb3NzaWJseSBpbnZhbGlkIHBhc3N3b3JkKTogIg0KICAgICAgICAgICAgKyBwZ3BlLmdl
-dE1lc3NhZ2UoKSk7DQp9IGNhdGNoIChOb1N1Y2hQcm92aWRlckV4Y2VwdGlvbiBuc3BlKSB7DQog
-ICAgdGhyb3cgbmV3IFNlcnZpY2VFeGNlcHRpb24oIlVuYWJsZSB0byBkZWNyeXB0IGRhdGEgd2l0
-aCBnaXZlbiBrZXlzOiAiDQogICAgICAgICAgICArIG5zcGUuZ2V0TWVzc2FnZSgpKTsNCn0gY2F0
-Y2ggKElPRXhjZXB0aW9uIGlvZSkgew0KICAgIHRocm93IG5ldyBTZXJ2aWNlRXhjZXB0aW9uKCJV
-bmFibGUgdG8gd3JpdGUgZGVjcnlwdGVkIGRhdGE6ICINCiAgICAgICAgICAgICsgaW9lLmdldE1l
-c3NhZ2UoKSk7DQp9DQoNCi8vIEdlbmVyYXRlIG91dHB1dA0KaWYgKG91dHB1dFR5cGUuZXF1YWxz
-KCJGaWxlIikpIHsNCiAgICB0cnkgew0KICAgICAgICBGaWxlIGZpbGUgPSBuZXcgRmlsZShvdXRw
-dXRQYXRoKTsNCiAgICAgICAgRmlsZU91dHB1dFN0cmVhbSBmb3V0ID0gbmV3IEZpbGVPdXRwdXRT
-dHJlYW0oZmlsZSk7DQogICAgICAgIG91dC5mbHVzaCgpOw0KICAgICAgICBmb3V0LndyaXRlKG91
-dC50b0J5dGVBcnJheSgpKTsNCiAgICAgICAgZm91dC5mbHVzaCgpOw0KICAgICAgICBmb3V0LmNs
-b3NlKCk7DQogICAgICAgIG91dC5jbG9zZSgpOw0KICAgICAgICBJRGF0YVV0aWwucHV0KHBjLCAi
-cGxhaW5UZXh0UGF0aCIsIGZpbGUuZ2V0QWJzb2x1dGVQYXRoKCkpOw0KICAgIH0gY2F0Y2ggKEV4
-Y2VwdGlvbiBlKSB7DQogICAgICAgIHRocm93IG5ldyBTZXJ2aWNlRXhjZXB0aW9uKCJVbmFibGUg
-dG8gd3JpdGUgcGxhaW4gdGV4dCB0byBmaWxlOiAiIA0KICAgICAgICAgICAgICAgICsgZS5nZXRN
-ZXNzYWdlKCkpOw0KICAgIH0NCn0gZWxzZSBpZiAob3V0cHV0VHlwZS5lcXVhbHMoIkJ5dGVzIikp
-IHsNCiAgICB0cnkgew0KICAgICAgICBvdXQuZmx1c2goKTsNCiAgICAgICAgSURhdGFVdGlsLnB1
-dChwYywgInBsYWluVGV4dEJ5dGVzIiwgb3V0LnRvQnl0ZUFycmF5KCkpOw0KICAgICAgICBvdXQu
-Y2xvc2UoKTsNCiAgICB9IGNhdGNoIChFeGNlcHRpb24gZSkgew0KICAgICAgICB0aHJvdyBuZXcg
-U2VydmljZUV4Y2VwdGlvbigiVW5hYmxlIHRvIGVuY29kZSBwbGFpbiBkYXRhOiAiDQogICAgICAg
-ICAgICAgICAgKyBlLmdldE1lc3NhZ2UoKSk7DQogICAgfQ0KfSBlbHNlIGlmIChvdXRwdXRUeXBl
-LmVxdWFscygiU3RyZWFtIikpIHsNCiAgICB0cnkgew0KICAgICAgICBvdXQuZmx1c2goKTsNCiAg
-ICAgICAgQnl0ZUFycmF5SW5wdXRTdHJlYW0gc3RyZWFtID0gbmV3IEJ5dGVBcnJheUlucHV0U3Ry
-ZWFtKG91dC50b0J5dGVBcnJheSgpKTsNCiAgICAgICAgSURhdGFVdGlsLnB1dChwYywgInBsYWlu
-VGV4dFN0cmVhbSIsc3RyZWFtKTsNCiAgICB9IGNhdGNoIChFeGNlcHRpb24gZSkgew0KICAgICAg
-ICB0aHJvdyBuZXcgU2VydmljZUV4Y2VwdGlvbigiVW5hYmxlIHRvIGVuY29kZSBwbGFpbiBkYXRh
-OiAiDQogICAgICAgICAgICAgICAgKyBlLmdldE1lc3NhZ2UoKSk7DQogICAgfQ0KfSBlbHNlIGlm
-IChvdXRwdXRUeXBlLmVxdWFscygiU3RyaW5nIikpIHsNCiAgICB0cnkgew0KICAgICAgICBvdXQu
-Zmx1c2goKTsNCiAgICAgICAgSURhdGFVdGlsLnB1dChwYywgInBsYWluVGV4dFN0cmluZyIsIG91
-dC50b1N0cmluZyhwbGFpblRleHRFbmNvZGluZykpOw0KICAgICAgICBvdXQuY2xvc2UoKTsNCiAg
-ICB9IGNhdGNoIChFeGNlcHRpb24gZSkgew0KICAgICAgICB0aHJvdyBuZXcgU2VydmljZUV4Y2Vw
-dGlvbigiVW5hYmxlIHRvIGVuY29kZSBwbGFpbiBkYXRhOiAiDQogICAgICAgICAgICAgICAgKyBl
-LmdldE1lc3NhZ2UoKSk7DQogICAgfQ0KfQ0KDQovLyBSZXR1cm4gZGF0YQ0KSURhdGFVdGlsLnB1
-dChwYywgInZlcmlmaWVkIiwgU3RyaW5nLnZhbHVlT2YodmVyaWZpZWQpKTsNCnBjLmRlc3Ryb3ko
-KTsNCg==</value>
+KHBjLCAicHJpdmF0ZUtleVBhc3N3b3JkIik7DQoNCi8vIFZhbGlkYXRlIGtleSBpbnB1dA0KUEdQ
+S2V5SW5kZXggaW5kZXggPSBudWxsOw0KYm9vbGVhbiB2ZXJpZnkgPSByaW5nUHViICE9IG51bGw7
+DQppZiAocmluZ1NlY3JldCA9PSBudWxsKSB7DQogICAgLy8gUmVzb2x2ZSBrZXlzIGZyb20gYWxs
+IGNvbmZpZ3VyZWQga2V5IHJpbmdzIGJ5IGtleSBJRA0KICAgIGluZGV4ID0gY29tbW9uLmdldEtl
+eUluZGV4KCk7DQogICAgdmVyaWZ5ID0gdHJ1ZTsNCn0gZWxzZSBpZiAocmluZ1NlY3JldC5zaXpl
+KCkgPT0gMCkgew0KICAgIHRocm93IG5ldyBTZXJ2aWNlRXhjZXB0aW9uKCJQcml2YXRlIGtleSBy
+aW5nIGlzIGVtcHR5Iik7DQp9IGVsc2UgaWYgKHBhc3N3b3JkID09IG51bGwgfHwgcGFzc3dvcmQu
+ZXF1YWxzKCIiKSkgew0KICAgIHRocm93IG5ldyBTZXJ2aWNlRXhjZXB0aW9uKCJQcml2YXRlIGtl
+eSBwYXNzd29yZCBpcyBlbXB0eSIpOw0KfSBlbHNlIHsNCiAgICAvLyBLZXlzIG9mIGEgcHJldmlv
+dXMgZ2VuZXJhdGlvbiBvZiB0aGUgZ2l2ZW4gcmluZ3MgYXJlIHJlc29sdmVkDQogICAgLy8gYnkg
+a2V5IElEIGlmIGEgY29uZmlndXJhdGlvbiBleGlzdHMNCiAgICBpbmRleCA9IGdldFJldGlyZWRL
+ZXlJbmRleChyaW5nU2VjcmV0KTsNCn0NCg0KLy8gR2V0IG91dHB1dCBzZXR0aW5ncw0KU3RyaW5n
+IG91dHB1dFR5cGUgPSBJRGF0YVV0aWwuZ2V0U3RyaW5nKHBjLCAib3V0cHV0VHlwZSIpOw0KU3Ry
+aW5nIG91dHB1dFBhdGggPSBJRGF0YVV0aWwuZ2V0U3RyaW5nKHBjLCAib3V0cHV0UGF0aCIpOw0K
+DQovLyBWYWxpZGF0ZSBvdXRwdXQgc2V0dGluZ3MNCmlmIChvdXRwdXRUeXBlID09IG51bGwgfHwg
+b3V0cHV0VHlwZS5lcXVhbHMoIiIpKSB7DQogICAgb3V0cHV0VHlwZSA9ICJTdHJpbmciOw0KfSBl
+bHNlIGlmIChvdXRwdXRUeXBlLmVxdWFscygiRmlsZSIpKSB7DQogICAgdHJ5IHsNCiAgICAgICAg
+RmlsZSBmaWxlID0gbmV3IEZpbGUob3V0cHV0UGF0aCk7DQogICAgICAgIGlmIChmaWxlLmV4aXN0
+cygpICYmICFmaWxlLmNhbldyaXRlKCkpIHsNCiAgICAgICAgICAgIHRocm93IG5ldyBFeGNlcHRp
+b24oIkRlc3RpbmF0aW9uIGZpbGUgaXMgbm90IGFjY2Vzc2libGUiKTsNCiAgICAgICAgfSBlbHNl
+IGlmICghKGZpbGUuZ2V0UGFyZW50RmlsZSgpLmV4aXN0cygpIHx8IGZpbGUuZ2V0UGFyZW50Rmls
+ZSgpLm1rZGlycygpKSkgew0KICAgICAgICAgICAgdGhyb3cgbmV3IEV4Y2VwdGlvbigiRGVzdGlu
+YXRpb24gZGlyZWN0b3J5IGlzIG5vdCBhY2Nlc3NpYmxlIik7DQogICAgICAgIH0NCiAgICB9IGNh
+dGNoIChFeGNlcHRpb24gZSkgew0KICAgICAgICB0aHJvdyBuZXcgU2VydmljZUV4Y2VwdGlvbihl
+LmdldE1lc3NhZ2UoKSk7DQogICAgfQ0KfQ0KDQovLyBEZWNyeXB0IGRhdGENCkJ5dGVBcnJheU91
+dHB1dFN0cmVhbSBvdXQgPSBuZXcgQnl0ZUFycmF5T3V0cHV0U3RyZWFtKCk7DQppbnQgdmVyaWZp
+ZWQgPSAwOw0KdHJ5IHsNCiAgICBjaGFyW10gcGFzdyA9IHBhc3N3b3JkICE9IG51bGwgPyBwYXNz
+d29yZC50b0NoYXJBcnJheSgpIDogbnVsbDsNCiAgICBpZiAob3V0cHV0VHlwZS5lcXVhbHMoIkxh
+enlTdHJlYW0iKSkgew0KICAgICAgICAvLyBEZWNyeXB0IGFzIHRoZSBjb25zdW1lciByZWFkczsg
+dGhlIHNpZ25hdHVyZSBpcyB2ZXJpZmllZCBhdA0KICAgICAgICAvLyB0aGUgZW5kIG9mIHRoZSBz
+dHJlYW0sIHdoaWNoIGZhaWxzIHVubGVzcyBpdCB2ZXJpZmllcywgYW5kDQogICAgICAgIC8vIHRo
+ZSBjaXBoZXIgdGV4dCBzdHJlYW0gaXMgY2xvc2VkIHdpdGggaXQgaWYgY3JlYXRlZCBpbiBzZXJ2
+aWNlDQogICAgICAgIElEYXRhVXRpbC5wdXQocGMsICJwbGFpblRleHRTdHJlYW0iLCBuZXcgUEdQ
+RGVjcnlwdGluZ0lucHV0U3RyZWFtKA0KICAgICAgICAgICAgICAgIGNpcGhlclRleHRTdHJlYW0s
+IGF1dG9DbG9zZSwgcmluZ1NlY3JldCwgcGFzdywgcmluZ1B1YiwNCiAgICAgICAgICAgICAgICBp
+bmRleCwgdmVyaWZ5LCB0cnVlKSk7DQogICAgICAgIGF1dG9DbG9zZSA9IGZhbHNlOw0KICAgIH0g
+ZWxzZSBpZiAodmVyaWZ5KSB7DQogICAgICAgIC8vIERlY3J5cHQgJiB2ZXJpZnk7IHRoZSBzaWdu
+ZXIgaXMgcmV0dXJuZWQgd2l0aCB0aGUgcmVzdWx0DQogICAgICAgIGxvbmcgc2l6ZSA9IGNpcGhl
+clRleHRTdHJlYW0uYXZhaWxhYmxlKCk7DQogICAgICAgIFBHUERlY3J5cHRpbmdJbnB1dFN0cmVh
+bSBjbGVhciA9IG5ldyBQR1BEZWNyeXB0aW5nSW5wdXRTdHJlYW0oDQogICAgICAgICAgICAgICAg
+Y2lwaGVyVGV4dFN0cmVhbSwgZmFsc2UsIHJpbmdTZWNyZXQsIHBhc3csIHJpbmdQdWIsIGluZGV4
+LCB0cnVlKTsNCiAgICAgICAgUEdQRGVjcnlwdC5kZWNyeXB0KGNsZWFyLCBvdXQsIHNpemUpOw0K
+ICAgICAgICB2ZXJpZmllZCA9IGNsZWFyLmdldFZlcmlmaWVkKCk7DQogICAgICAgIHB1dFNpZ25l
+cihwYywgY2xlYXIpOw0KICAgIH0gZWxzZSB7DQogICAgICAgIC8vIERlY3J5cHQNCiAgICAgICAg
+UEdQRGVjcnlwdC5kZWNyeXB0KGNpcGhlclRleHRTdHJlYW0sIG91dCwgcmluZ1NlY3JldCwgcGFz
+dywgaW5kZXgpOw0KICAgIH0NCiAgICBpZiAoYXV0b0Nsb3NlKSB7DQogICAgICAgIC8vIENsb3Nl
+IHN0cmVhbXMgY3JlYXRlZCBpbiBzZXJ2aWNlDQogICAgICAgIHRyeSB7DQogICAgICAgICAgICBj
+aXBoZXJUZXh0U3RyZWFtLmNsb3NlKCk7DQogICAgICAgIH0gY2F0Y2ggKEV4Y2VwdGlvbiBlKSB7
+fQ0KICAgIH0NCn0gY2F0Y2ggKFBHUEV4Y2VwdGlvbiBwZ3BlKSB7DQogICAgdGhyb3cgbmV3IFNl
+cnZpY2VFeGNlcHRpb24oIlVuYWJsZSB0byBkZWNyeXB0IGRhdGEgKHBvc3NpYmx5IGludmFsaWQg
+cGFzc3dvcmQpOiAiDQogICAgICAgICAgICArIHBncGUuZ2V0TWVzc2FnZSgpKTsNCn0gY2F0Y2gg
+KE5vU3VjaFByb3ZpZGVyRXhjZXB0aW9uIG5zcGUpIHsNCiAgICB0aHJvdyBuZXcgU2VydmljZUV4
+Y2VwdGlvbigiVW5hYmxlIHRvIGRlY3J5cHQgZGF0YSB3aXRoIGdpdmVuIGtleXM6ICINCiAgICAg
+ICAgICAgICsgbnNwZS5nZXRNZXNzYWdlKCkpOw0KfSBjYXRjaCAoSU9FeGNlcHRpb24gaW9lKSB7
+DQogICAgdGhyb3cgbmV3IFNlcnZpY2VFeGNlcHRpb24oIlVuYWJsZSB0byB3cml0ZSBkZWNyeXB0
+ZWQgZGF0YTogIg0KICAgICAgICAgICAgKyBpb2UuZ2V0TWVzc2FnZSgpKTsNCn0NCg0KLy8gR2Vu
+ZXJhdGUgb3V0cHV0DQppZiAob3V0cHV0VHlwZS5lcXVhbHMoIkZpbGUiKSkgew0KICAgIHRyeSB7
+DQogICAgICAgIEZpbGUgZmlsZSA9IG5ldyBGaWxlKG91dHB1dFBhdGgpOw0KICAgICAgICBGaWxl
+T3V0cHV0U3RyZWFtIGZvdXQgPSBuZXcgRmlsZU91dHB1dFN0cmVhbShmaWxlKTsNCiAgICAgICAg
+b3V0LmZsdXNoKCk7DQogICAgICAgIGZvdXQud3JpdGUob3V0LnRvQnl0ZUFycmF5KCkpOw0KICAg
+ICAgICBmb3V0LmZsdXNoKCk7DQogICAgICAgIGZvdXQuY2xvc2UoKTsNCiAgICAgICAgb3V0LmNs
+b3NlKCk7DQogICAgICAgIElEYXRhVXRpbC5wdXQocGMsICJwbGFpblRleHRQYXRoIiwgZmlsZS5n
+ZXRBYnNvbHV0ZVBhdGgoKSk7DQogICAgfSBjYXRjaCAoRXhjZXB0aW9uIGUpIHsNCiAgICAgICAg
+dGhyb3cgbmV3IFNlcnZpY2VFeGNlcHRpb24oIlVuYWJsZSB0byB3cml0ZSBwbGFpbiB0ZXh0IHRv
+IGZpbGU6ICIgDQogICAgICAgICAgICAgICAgKyBlLmdldE1lc3NhZ2UoKSk7DQogICAgfQ0KfSBl
+bHNlIGlmIChvdXRwdXRUeXBlLmVxdWFscygiQnl0ZXMiKSkgew0KICAgIHRyeSB7DQogICAgICAg
+IG91dC5mbHVzaCgpOw0KICAgICAgICBJRGF0YVV0aWwucHV0KHBjLCAicGxhaW5UZXh0Qnl0ZXMi
+LCBvdXQudG9CeXRlQXJyYXkoKSk7DQogICAgICAgIG91dC5jbG9zZSgpOw0KICAgIH0gY2F0Y2gg
+KEV4Y2VwdGlvbiBlKSB7DQogICAgICAgIHRocm93IG5ldyBTZXJ2aWNlRXhjZXB0aW9uKCJVbmFi
+bGUgdG8gZW5jb2RlIHBsYWluIGRhdGE6ICINCiAgICAgICAgICAgICAgICArIGUuZ2V0TWVzc2Fn
+ZSgpKTsNCiAgICB9DQp9IGVsc2UgaWYgKG91dHB1dFR5cGUuZXF1YWxzKCJTdHJlYW0iKSkgew0K
+ICAgIHRyeSB7DQogICAgICAgIG91dC5mbHVzaCgpOw0KICAgICAgICBCeXRlQXJyYXlJbnB1dFN0
+cmVhbSBzdHJlYW0gPSBuZXcgQnl0ZUFycmF5SW5wdXRTdHJlYW0ob3V0LnRvQnl0ZUFycmF5KCkp
+Ow0KICAgICAgICBJRGF0YVV0aWwucHV0KHBjLCAicGxhaW5UZXh0U3RyZWFtIixzdHJlYW0pOw0K
+ICAgIH0gY2F0Y2ggKEV4Y2VwdGlvbiBlKSB7DQogICAgICAgIHRocm93IG5ldyBTZXJ2aWNlRXhj
+ZXB0aW9uKCJVbmFibGUgdG8gZW5jb2RlIHBsYWluIGRhdGE6ICINCiAgICAgICAgICAgICAgICAr
+IGUuZ2V0TWVzc2FnZSgpKTsNCiAgICB9DQp9IGVsc2UgaWYgKG91dHB1dFR5cGUuZXF1YWxzKCJT
+dHJpbmciKSkgew0KICAgIHRyeSB7DQogICAgICAgIG91dC5mbHVzaCgpOw0KICAgICAgICBJRGF0
+YVV0aWwucHV0KHBjLCAicGxhaW5UZXh0U3RyaW5nIiwgb3V0LnRvU3RyaW5nKHBsYWluVGV4dEVu
+Y29kaW5nKSk7DQogICAgICAgIG91dC5jbG9zZSgpOw0KICAgIH0gY2F0Y2ggKEV4Y2VwdGlvbiBl
+KSB7DQogICAgICAgIHRocm93IG5ldyBTZXJ2aWNlRXhjZXB0aW9uKCJVbmFibGUgdG8gZW5jb2Rl
+IHBsYWluIGRhdGE6ICINCiAgICAgICAgICAgICAgICArIGUuZ2V0TWVzc2FnZSgpKTsNCiAgICB9
+DQp9DQoNCi8vIFJldHVybiBkYXRhOyB0aGUgdmVyaWZpY2F0aW9uIG9mIExhenlTdHJlYW0gb3V0
+cHV0IGlzIG9ubHkga25vd24gYXQNCi8vIHRoZSBlbmQgb2YgdGhlIHN0cmVhbQ0KaWYgKCFvdXRw
+dXRUeXBlLmVxdWFscygiTGF6eVN0cmVhbSIpKSB7DQogICAgSURhdGFVdGlsLnB1dChwYywgInZl
+cmlmaWVkIiwgU3RyaW5nLnZhbHVlT2YodmVyaWZpZWQpKTsNCn0NCnBjLmRlc3Ryb3koKTs=</value>
 </Values>
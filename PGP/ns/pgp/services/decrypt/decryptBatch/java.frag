@@ -0,0 +1,54 @@
+<?xml version="1.0" encoding="UTF-8"?>
+
+<Values version="2.0">
+  <value name="name">decryptBatch</value>
+  <value name="encodeutf8">true</value>
+  <value name="body">DQovLyBHZXQgaW5wdXQNCklEYXRhQ3Vyc29yIHBjID0gcGlwZWxpbmUuZ2V0Q3Vyc29yKCk7DQpJ
+RGF0YVtdIGl0ZW1zID0gSURhdGFVdGlsLmdldElEYXRhQXJyYXkocGMsICJpdGVtcyIpOw0KU3Ry
+aW5nIHBsYWluVGV4dEVuY29kaW5nID0gSURhdGFVdGlsLmdldFN0cmluZyhwYywgInBsYWluVGV4
+dEVuY29kaW5nIik7DQpQR1BQdWJsaWNLZXlSaW5nQ29sbGVjdGlvbiByaW5nUHViID0gKFBHUFB1
+YmxpY0tleVJpbmdDb2xsZWN0aW9uKSBJRGF0YVV0aWwNCiAgICAgICAgLmdldChwYywgInB1Ymxp
+Y0tleVJpbmdDb2xsZWN0aW9uIik7DQpQR1BTZWNyZXRLZXlSaW5nQ29sbGVjdGlvbiByaW5nU2Vj
+cmV0ID0gKFBHUFNlY3JldEtleVJpbmdDb2xsZWN0aW9uKSBJRGF0YVV0aWwNCiAgICAgICAgLmdl
+dChwYywgInByaXZhdGVLZXlSaW5nQ29sbGVjdGlvbiIpOw0KU3RyaW5nIHBhc3N3b3JkID0gSURh
+dGFVdGlsLmdldFN0cmluZyhwYywgInByaXZhdGVLZXlQYXNzd29yZCIpOw0KU3RyaW5nIG91dHB1
+dFR5cGUgPSBJRGF0YVV0aWwuZ2V0U3RyaW5nKHBjLCAib3V0cHV0VHlwZSIpOw0KU3RyaW5nIHBh
+cmFsbGVsaXNtID0gSURhdGFVdGlsLmdldFN0cmluZyhwYywgInBhcmFsbGVsaXNtIik7DQpTdHJp
+bmcgZmFpbEZhc3QgPSBJRGF0YVV0aWwuZ2V0U3RyaW5nKHBjLCAiZmFpbEZhc3QiKTsNCg0KLy8g
+VmFsaWRhdGUgaW5wdXQgb25jZSBmb3IgYWxsIGl0ZW1zDQppZiAoaXRlbXMgPT0gbnVsbCkgew0K
+ICAgIGl0ZW1zID0gbmV3IElEYXRhWzBdOw0KfQ0KaWYgKHBsYWluVGV4dEVuY29kaW5nID09IG51
+bGwgfHwgcGxhaW5UZXh0RW5jb2RpbmcuZXF1YWxzKCIiKSkgew0KICAgIHBsYWluVGV4dEVuY29k
+aW5nID0gIlVURi04IjsNCn0gZWxzZSBpZiAoIUNoYXJzZXQuaXNTdXBwb3J0ZWQocGxhaW5UZXh0
+RW5jb2RpbmcpKSB7DQogICAgdGhyb3cgbmV3IFNlcnZpY2VFeGNlcHRpb24oIlVuc3VwcG9ydGVk
+IGNoYXJhY3RlciBlbmNvZGluZyIpOw0KfQ0KUEdQS2V5SW5kZXggaW5kZXggPSBudWxsOw0KYm9v
+bGVhbiB2ZXJpZnkgPSByaW5nUHViICE9IG51bGw7DQppZiAocmluZ1NlY3JldCA9PSBudWxsKSB7
+DQogICAgLy8gUmVzb2x2ZSBrZXlzIGZyb20gYWxsIGNvbmZpZ3VyZWQga2V5IHJpbmdzIGJ5IGtl
+eSBJRA0KICAgIGluZGV4ID0gY29tbW9uLmdldEtleUluZGV4KCk7DQogICAgdmVyaWZ5ID0gdHJ1
+ZTsNCn0gZWxzZSBpZiAocmluZ1NlY3JldC5zaXplKCkgPT0gMCkgew0KICAgIHRocm93IG5ldyBT
+ZXJ2aWNlRXhjZXB0aW9uKCJQcml2YXRlIGtleSByaW5nIGlzIGVtcHR5Iik7DQp9IGVsc2UgaWYg
+KHBhc3N3b3JkID09IG51bGwgfHwgcGFzc3dvcmQuZXF1YWxzKCIiKSkgew0KICAgIHRocm93IG5l
+dyBTZXJ2aWNlRXhjZXB0aW9uKCJQcml2YXRlIGtleSBwYXNzd29yZCBpcyBlbXB0eSIpOw0KfSBl
+bHNlIHsNCiAgICBpbmRleCA9IGdldFJldGlyZWRLZXlJbmRleChyaW5nU2VjcmV0KTsNCn0NCmlm
+IChvdXRwdXRUeXBlID09IG51bGwgfHwgb3V0cHV0VHlwZS5lcXVhbHMoIiIpKSB7DQogICAgb3V0
+cHV0VHlwZSA9ICJTdHJpbmciOw0KfSBlbHNlIGlmICghb3V0cHV0VHlwZS5lcXVhbHMoIlN0cmlu
+ZyIpICYmICFvdXRwdXRUeXBlLmVxdWFscygiQnl0ZXMiKSkgew0KICAgIHRocm93IG5ldyBTZXJ2
+aWNlRXhjZXB0aW9uKCJPdXRwdXQgdHlwZSBpcyBub3Qgc3VwcG9ydGVkIGZvciBiYXRjaGVzOiAi
+DQogICAgICAgICAgICArIG91dHB1dFR5cGUpOw0KfQ0KDQovLyBEZWNyeXB0IHRoZSBpdGVtcyBv
+biB0aGUgYmF0Y2ggd29ya2VycyB3aXRoIHRoZSByZXNvbHZlZCBrZXlzLA0KLy8gcmV1c2luZyB0
+aGUgb3V0cHV0IGJ1ZmZlcnM7IGEgZmFpbGVkIGl0ZW0gaXMgcmVwb3J0ZWQgaW4gaXRzIHJlc3Vs
+dA0KY2hhcltdIHBhc3cgPSBwYXNzd29yZCAhPSBudWxsID8gcGFzc3dvcmQudG9DaGFyQXJyYXko
+KSA6IG51bGw7DQpRdWV1ZTxCeXRlQXJyYXlPdXRwdXRTdHJlYW0+IGJ1ZmZlcnMgPSBuZXcgQ29u
+Y3VycmVudExpbmtlZFF1ZXVlPEJ5dGVBcnJheU91dHB1dFN0cmVhbT4oKTsNCklEYXRhW10gcmVz
+dWx0cyA9IG5ldyBJRGF0YVtpdGVtcy5sZW5ndGhdOw0KTGlzdDxDYWxsYWJsZTxPYmplY3Q+PiB0
+YXNrcyA9IG5ldyBBcnJheUxpc3Q8Q2FsbGFibGU8T2JqZWN0Pj4oaXRlbXMubGVuZ3RoKTsNCmZv
+ciAoaW50IGkgPSAwOyBpIDwgaXRlbXMubGVuZ3RoOyBpKyspIHsNCiAgICByZXN1bHRzW2ldID0g
+Y29tbW9uLmNyZWF0ZUJhdGNoUmVzdWx0KGl0ZW1zW2ldKTsNCiAgICB0YXNrcy5hZGQoZGVjcnlw
+dFRhc2soaXRlbXNbaV0sIHJlc3VsdHNbaV0sIHBsYWluVGV4dEVuY29kaW5nLA0KICAgICAgICAg
+ICAgcmluZ1NlY3JldCwgcGFzdywgcmluZ1B1YiwgaW5kZXgsIHZlcmlmeSwgb3V0cHV0VHlwZSwg
+YnVmZmVycykpOw0KfQ0KaW50IGVycm9yQ291bnQgPSBjb21tb24ucnVuQmF0Y2godGFza3MsIHJl
+c3VsdHMsIHBhcmFsbGVsaXNtLCBmYWlsRmFzdCk7DQoNCi8vIFJldHVybiBkYXRhDQpJRGF0YVV0
+aWwucHV0KHBjLCAicmVzdWx0cyIsIHJlc3VsdHMpOw0KSURhdGFVdGlsLnB1dChwYywgInN1Y2Nl
+c3NDb3VudCIsIFN0cmluZy52YWx1ZU9mKGl0ZW1zLmxlbmd0aCAtIGVycm9yQ291bnQpKTsNCklE
+YXRhVXRpbC5wdXQocGMsICJlcnJvckNvdW50IiwgU3RyaW5nLnZhbHVlT2YoZXJyb3JDb3VudCkp
+Ow0KcGMuZGVzdHJveSgpOw0K</value>
+</Values>
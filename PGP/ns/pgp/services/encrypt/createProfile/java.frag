@@ -0,0 +1,20 @@
+<?xml version="1.0" encoding="UTF-8"?>
+
+<Values version="2.0">
+  <value name="name">createProfile</value>
+  <value name="encodeutf8">true</value>
+  <value name="body">DQovLyBHZXQgaW5wdXQNCklEYXRhQ3Vyc29yIHBjID0gcGlwZWxpbmUuZ2V0Q3Vyc29yKCk7DQpT
+dHJpbmcgcHJvZmlsZU5hbWUgPSBJRGF0YVV0aWwuZ2V0U3RyaW5nKHBjLCAicHJvZmlsZU5hbWUi
+KTsNCmlmIChwcm9maWxlTmFtZSA9PSBudWxsIHx8IHByb2ZpbGVOYW1lLmVxdWFscygiIikpIHsN
+CiAgICB0aHJvdyBuZXcgU2VydmljZUV4Y2VwdGlvbigiUHJvZmlsZSBuYW1lIGlzIGVtcHR5Iik7
+DQp9DQoNCi8vIFJlc29sdmUgdGhlIGtleXMgYW5kIGFsZ29yaXRobXMgb25jZSBmb3IgYWxsIG1l
+c3NhZ2VzOyByZWNpcGllbnRzDQovLyBnaXZlbiBieSB1c2VyIElEIG9ubHkgYXJlIHJlc29sdmVk
+IGFnYWluIHdoZW4gdGhlaXIga2V5cyBjaGFuZ2UNClBHUEVuY3J5cHRQcm9maWxlIHByb2ZpbGUg
+PSBudWxsOw0KaWYgKElEYXRhVXRpbC5nZXQocGMsICJwdWJsaWNLZXkiKSA9PSBudWxsDQogICAg
+ICAgICYmIElEYXRhVXRpbC5nZXRPYmplY3RBcnJheShwYywgInB1YmxpY0tleXMiKSA9PSBudWxs
+KSB7DQogICAgcHJvZmlsZSA9IHJlZ2lzdGVyUHJvZmlsZShwcm9maWxlTmFtZSwgcGMpOw0KfSBl
+bHNlIHsNCiAgICBwcm9maWxlID0gY3JlYXRlUHJvZmlsZShwYywgZmFsc2UpOw0KICAgIFBHUEVu
+Y3J5cHRQcm9maWxlLnJlZ2lzdGVyKHByb2ZpbGVOYW1lLCBwcm9maWxlKTsNCn0NCg0KLy8gUmV0
+dXJuIGRhdGENCklEYXRhVXRpbC5wdXQocGMsICJlbmNyeXB0aW9uQWxnb3JpdGhtIiwgUEdQSW5p
+dC5nZXRBbGdvcml0aG0ocHJvZmlsZS5nZXRBbGdvcml0aG0oKSkpOw0KcGMuZGVzdHJveSgpOw0K</value>
+</Values>
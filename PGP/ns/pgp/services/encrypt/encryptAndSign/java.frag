@@ -11,107 +11,104 @@ YXRhVXRpbC5nZXRTdHJpbmcocGMsICJwbGFpblRleHRTdHJpbmciKTsNCklucHV0U3RyZWFtIHBs
 YWluVGV4dFN0cmVhbSA9IChJbnB1dFN0cmVhbSlJRGF0YVV0aWwuZ2V0KHBjLCAicGxhaW5UZXh0
 U3RyZWFtIik7DQpTdHJpbmcgcGxhaW5UZXh0RW5jb2RpbmcgPSBJRGF0YVV0aWwuZ2V0U3RyaW5n
 KHBjLCAicGxhaW5UZXh0RW5jb2RpbmciKTsNCg0KLy8gVmFsaWRhdGUgcGxhaW4gdGV4dCBpbnB1
-dA0KYm9vbGVhbiBhdXRvQ2xvc2UgPSBmYWxzZTsNCnRyeSB7DQogICAgaWYgKHBsYWluVGV4dFBh
-dGggIT0gbnVsbCAmJiAhcGxhaW5UZXh0UGF0aC5lcXVhbHMoIiIpKSB7DQogICAgICAgIHBsYWlu
-VGV4dFN0cmVhbSA9IG5ldyBGaWxlSW5wdXRTdHJlYW0obmV3IEZpbGUocGxhaW5UZXh0UGF0aCkp
-Ow0KICAgICAgICBhdXRvQ2xvc2UgPSB0cnVlOw0KICAgIH0gZWxzZSBpZiAocGxhaW5UZXh0Qnl0
-ZXMgIT0gbnVsbCAmJiBwbGFpblRleHRCeXRlcy5sZW5ndGggPiAwKSB7DQogICAgICAgIHBsYWlu
-VGV4dFN0cmVhbSA9IG5ldyBCeXRlQXJyYXlJbnB1dFN0cmVhbShwbGFpblRleHRCeXRlcyk7DQog
-ICAgICAgIGF1dG9DbG9zZSA9IHRydWU7DQogICAgfSBlbHNlIGlmIChwbGFpblRleHRTdHJpbmcg
-IT0gbnVsbCAmJiAhcGxhaW5UZXh0U3RyaW5nLmVxdWFscygiIikpIHsNCiAgICAgICAgcGxhaW5U
-ZXh0U3RyZWFtID0gbmV3IEJ5dGVBcnJheUlucHV0U3RyZWFtKA0KICAgICAgICAgICAgICAgIHBs
-YWluVGV4dFN0cmluZy5nZXRCeXRlcyhwbGFpblRleHRFbmNvZGluZykpOw0KICAgICAgICBhdXRv
-Q2xvc2UgPSB0cnVlOw0KICAgIH0gZWxzZSB7DQogICAgICAgIC8vIFRocm93cyBhbiBleGNlcHRp
-b24gaWYgdW5hdmFpbGFibGUNCiAgICAgICAgcGxhaW5UZXh0U3RyZWFtLmF2YWlsYWJsZSgpOw0K
-ICAgIH0gDQp9IGNhdGNoIChGaWxlTm90Rm91bmRFeGNlcHRpb24gZm5mZSkgew0KICAgIHRocm93
-IG5ldyBTZXJ2aWNlRXhjZXB0aW9uKCJQbGFpbiB0ZXh0IGZpbGUgd2FzIG5vdCBmb3VuZCIpOw0K
-fSBjYXRjaCAoVW5zdXBwb3J0ZWRFbmNvZGluZ0V4Y2VwdGlvbiB1ZWUpIHsNCiAgICB0aHJvdyBu
-ZXcgU2VydmljZUV4Y2VwdGlvbigiUGxhaW4gdGV4dCBlbmNvZGluZyBpcyBpbnZhbGlkIik7DQp9
-IGNhdGNoIChJT0V4Y2VwdGlvbiBpb2UpIHsNCiAgICB0aHJvdyBuZXcgU2VydmljZUV4Y2VwdGlv
-bigiUGxhaW4gdGV4dCBzdHJlYW0gaXMgZW1wdHkiKTsNCn0gY2F0Y2ggKE51bGxQb2ludGVyRXhj
-ZXB0aW9uIG5wZSkgew0KICAgIHRocm93IG5ldyBTZXJ2aWNlRXhjZXB0aW9uKCJObyBwbGFpbiBk
-YXRhIGF2YWlsYWJsZSIpOw0KfQ0KaWYgKHBsYWluVGV4dEVuY29kaW5nID09IG51bGwgfHwgcGxh
-aW5UZXh0RW5jb2RpbmcuZXF1YWxzKCIiKSkgew0KICAgIHBsYWluVGV4dEVuY29kaW5nID0gIlVU
-Ri04IjsNCn0gZWxzZSBpZiAoIUNoYXJzZXQuaXNTdXBwb3J0ZWQocGxhaW5UZXh0RW5jb2Rpbmcp
-KSB7DQogICAgdGhyb3cgbmV3IFNlcnZpY2VFeGNlcHRpb24oIlVuc3VwcG9ydGVkIGNoYXJhY3Rl
-ciBlbmNvZGluZyIpOw0KfQ0KDQovLyBHZXQga2V5IGlucHV0DQpQR1BQdWJsaWNLZXkgcHVibGlj
-S2V5ID0gKFBHUFB1YmxpY0tleSkgSURhdGFVdGlsLmdldChwYywgInB1YmxpY0tleSIpOw0KU3Ry
-aW5nIGVBbGdvcml0aG0gPSBJRGF0YVV0aWwuZ2V0U3RyaW5nKHBjLCAiZW5jcnlwdGlvbkFsZ29y
-aXRobSIpOw0KUEdQUHJpdmF0ZUtleSBwcml2YXRlS2V5ID0gKFBHUFByaXZhdGVLZXkpIElEYXRh
-VXRpbC5nZXQocGMsICJwcml2YXRlS2V5Iik7DQpTdHJpbmcgcGFzc3dvcmQgPSBJRGF0YVV0aWwu
-Z2V0U3RyaW5nKHBjLCAicHJpdmF0ZUtleVBhc3N3b3JkIik7DQpTdHJpbmcgc0FsZ29yaXRobSA9
-IElEYXRhVXRpbC5nZXRTdHJpbmcocGMsICJzaWduaW5nQWxnb3JpdGhtIik7DQoNCi8vIFZhbGlk
-YXRlIGtleSBpbnB1dA0KaWYgKHB1YmxpY0tleSA9PSBudWxsICB8fCAhcHVibGljS2V5LmlzRW5j
-cnlwdGlvbktleSgpKSB7DQogICAgdGhyb3cgbmV3IFNlcnZpY2VFeGNlcHRpb24oIlB1YmxpYyBr
-ZXkgaXMgZW1wdHkgb3Igbm90IGFuIGVuY3J5cHRpb24ga2V5Iik7DQp9IGVsc2UgaWYgKHByaXZh
-dGVLZXkgIT0gbnVsbCAmJiAocGFzc3dvcmQgPT0gbnVsbCB8fCBwYXNzd29yZC5lcXVhbHMoIiIp
-KSkgew0KICAgIHRocm93IG5ldyBTZXJ2aWNlRXhjZXB0aW9uKCJQcml2YXRlIGtleSBwYXNzd29y
-ZCBpcyBlbXB0eSIpOw0KfQ0KDQovLyBHZXQgb3V0cHV0IHNldHRpbmdzDQpTdHJpbmcgb3V0cHV0
-VHlwZSA9IElEYXRhVXRpbC5nZXRTdHJpbmcocGMsICJvdXRwdXRUeXBlIik7DQpTdHJpbmcgb3V0
-cHV0UGF0aCA9IElEYXRhVXRpbC5nZXRTdHJpbmcocGMsICJvdXRwdXRQYXRoIik7DQoNCi8vIFZh
-bGlkYXRlIG91dHB1dCBzZXR0aW5ncw0KaWYgKG91dHB1dFR5cGUgPT0gbnVsbCB8fCBvdXRwdXRU
-eXBlLmVxdWFscygiIikpIHsNCiAgICBvdXRwdXRUeXBlID0gIlN0cmluZyI7DQp9IGVsc2UgaWYg
-KG91dHB1dFR5cGUuZXF1YWxzKCJGaWxlIikpIHsNCiAgICB0cnkgew0KICAgICAgICBGaWxlIGZp
-bGUgPSBuZXcgRmlsZShvdXRwdXRQYXRoKTsNCiAgICAgICAgaWYgKGZpbGUuZXhpc3RzKCkgJiYg
-IWZpbGUuY2FuV3JpdGUoKSkgew0KICAgICAgICAgICAgdGhyb3cgbmV3IEV4Y2VwdGlvbigiRGVz
-dGluYXRpb24gZmlsZSBpcyBub3QgYWNjZXNzaWJsZSIpOw0KICAgICAgICB9IGVsc2UgaWYgKCEo
-ZmlsZS5nZXRQYXJlbnRGaWxlKCkuZXhpc3RzKCkgfHwgZmlsZS5nZXRQYXJlbnRGaWxlKCkubWtk
-aXJzKCkpKSB7DQogICAgICAgICAgICB0aHJvdyBuZXcgRXhjZXB0aW9uKCJEZXN0aW5hdGlvbiBk
-aXJlY3RvcnkgaXMgbm90IGFjY2Vzc2libGUiKTsNCiAgICAgICAgfQ0KICAgIH0gY2F0Y2ggKEV4
-Y2VwdGlvbiBlKSB7DQogICAgICAgIHRocm93IG5ldyBTZXJ2aWNlRXhjZXB0aW9uKGUuZ2V0TWVz
-c2FnZSgpKTsNCiAgICB9DQp9DQoNCi8vIEVuY3J5cHQgZGF0YQ0KQnl0ZUFycmF5T3V0cHV0U3Ry
-ZWFtIG91dCA9IG5ldyBCeXRlQXJyYXlPdXRwdXRTdHJlYW0oKTsNCmludCBzaWduZWQgPSAwOw0K
-dHJ5IHsNCiAgICBpZiAocHJpdmF0ZUtleSAhPSBudWxsKSB7DQogICAgICAgIC8vIEVuY3J5cHQg
-JiBzaWduDQogICAgICAgIGNoYXJbXSBwYXN3ID0gcGFzc3dvcmQudG9DaGFyQXJyYXkoKTsNCiAg
-ICAgICAgUEdQRW5jcnlwdC5lbmNyeXB0QW5kU2lnbihwbGFpblRleHRTdHJlYW0sIG91dCwgcHVi
-bGljS2V5LA0KICAgICAgICAgICAgICAgIFBHUEluaXQuZ2V0QWxnb3JpdGhtKGVBbGdvcml0aG0p
-LCB0cnVlLCBwcml2YXRlS2V5LA0KICAgICAgICAgICAgICAgIHBhc3csIFBHUEluaXQuZ2V0SGFz
-aEFsZ29yaXRobShzQWxnb3JpdGhtKSk7DQogICAgICAgIHNpZ25lZCA9IDE7DQogICAgfSBlbHNl
-IHsNCiAgICAgICAgLy8gRW5jcnlwdA0KICAgICAgICBQR1BFbmNyeXB0LmVuY3J5cHQocGxhaW5U
-ZXh0U3RyZWFtLCBvdXQsIHB1YmxpY0tleSwgDQogICAgICAgICAgICAgICAgUEdQSW5pdC5nZXRB
-bGdvcml0aG0oZUFsZ29yaXRobSksIHRydWUsIG51bGwpOw0KICAgIH0NCiAgICBpZiAoYXV0b0Ns
-b3NlKSB7DQogICAgICAgIC8vIENsb3NlIHN0cmVhbXMgY3JlYXRlZCBpbiBzZXJ2aWNlDQogICAg
-ICAgIHRyeSB7DQogICAgICAgICAgICBwbGFpblRleHRTdHJlYW0uY2xvc2UoKTsNCiAgICAgICAg
-fSBjYXRjaCAoRXhjZXB0aW9uIGUpIHt9DQogICAgfQ0KfSBjYXRjaCAoUEdQRXhjZXB0aW9uIHBn
-cGUpIHsNCglFeGNlcHRpb24gZSA9IHBncGUuZ2V0VW5kZXJseWluZ0V4Y2VwdGlvbigpOw0KCXRo
-cm93IG5ldyBTZXJ2aWNlRXhjZXB0aW9uIChlKTsNCiAgICAvL3Rocm93IG5ldyBTZXJ2aWNlRXhj
-ZXB0aW9uKCJVbmFibGUgdG8gZW5jcnlwdCBkYXRhOiAiDQogICAgLy8gICAgICAgICsgcGdwZS5n
-ZXRNZXNzYWdlKCkpOw0KfSBjYXRjaCAoTm9TdWNoUHJvdmlkZXJFeGNlcHRpb24gbnNwZSkgew0K
-ICAgIHRocm93IG5ldyBTZXJ2aWNlRXhjZXB0aW9uKCJVbmFibGUgdG8gZW5jcnlwdCBkYXRhIHdp
-dGgga2V5czogIg0KICAgICAgICAgICAgKyBuc3BlLmdldE1lc3NhZ2UoKSk7DQp9IGNhdGNoIChO
-b1N1Y2hBbGdvcml0aG1FeGNlcHRpb24gbnNhZSkgew0KICAgIHRocm93IG5ldyBTZXJ2aWNlRXhj
-ZXB0aW9uKCJJbnZhbGlkIGVuY3J5cHRpb24gYWxnb3JpdGhtOiAiDQogICAgICAgICAgICArIG5z
-YWUuZ2V0TWVzc2FnZSgpKTsNCn0gY2F0Y2ggKFNpZ25hdHVyZUV4Y2VwdGlvbiBzZSkgew0KICAg
-IHRocm93IG5ldyBTZXJ2aWNlRXhjZXB0aW9uKCJJbnZhbGlkIHNpZ25hdHVyZSBhbGdvcml0aG06
-ICINCiAgICAgICAgICAgICsgc2UuZ2V0TWVzc2FnZSgpKTsNCn0gY2F0Y2ggKElPRXhjZXB0aW9u
-IGlvZSkgew0KICAgIHRocm93IG5ldyBTZXJ2aWNlRXhjZXB0aW9uKCJVbmFibGUgdG8gd3JpdGUg
-ZW5jcnlwdGVkIGRhdGE6ICINCiAgICAgICAgICAgICsgaW9lLmdldE1lc3NhZ2UoKSk7DQp9DQoN
-Ci8vIEdlbmVyYXRlIG91dHB1dA0KaWYgKG91dHB1dFR5cGUuZXF1YWxzKCJGaWxlIikpIHsNCiAg
-ICB0cnkgew0KICAgICAgICBGaWxlIGZpbGUgPSBuZXcgRmlsZShvdXRwdXRQYXRoKTsNCiAgICAg
-ICAgRmlsZU91dHB1dFN0cmVhbSBmb3V0ID0gbmV3IEZpbGVPdXRwdXRTdHJlYW0oZmlsZSk7DQog
-ICAgICAgIG91dC5mbHVzaCgpOw0KICAgICAgICBmb3V0LndyaXRlKG91dC50b0J5dGVBcnJheSgp
-KTsNCiAgICAgICAgZm91dC5mbHVzaCgpOw0KICAgICAgICBmb3V0LmNsb3NlKCk7DQogICAgICAg
-IG91dC5jbG9zZSgpOw0KICAgICAgICBJRGF0YVV0aWwucHV0KHBjLCAiY2lwaGVyVGV4dFBhdGgi
-LCBmaWxlLmdldEFic29sdXRlUGF0aCgpKTsNCiAgICB9IGNhdGNoIChFeGNlcHRpb24gZSkgew0K
-ICAgICAgICB0aHJvdyBuZXcgU2VydmljZUV4Y2VwdGlvbigiVW5hYmxlIHRvIHdyaXRlIGNpcGhl
-ciB0ZXh0IHRvIGZpbGU6ICIgDQogICAgICAgICAgICAgICAgKyBlLmdldE1lc3NhZ2UoKSk7DQog
-ICAgfQ0KfSBlbHNlIGlmIChvdXRwdXRUeXBlLmVxdWFscygiQnl0ZXMiKSkgew0KICAgIHRyeSB7
-DQogICAgICAgIG91dC5mbHVzaCgpOw0KICAgICAgICBJRGF0YVV0aWwucHV0KHBjLCAiY2lwaGVy
-VGV4dEJ5dGVzIiwgb3V0LnRvQnl0ZUFycmF5KCkpOw0KICAgICAgICBvdXQuY2xvc2UoKTsNCiAg
-ICB9IGNhdGNoIChFeGNlcHRpb24gZSkgew0KICAgICAgICB0aHJvdyBuZXcgU2VydmljZUV4Y2Vw
-dGlvbigiVW5hYmxlIHRvIGRlY29kZSBjaXBoZXIgZGF0YTogIg0KICAgICAgICAgICAgICAgICsg
-ZS5nZXRNZXNzYWdlKCkpOw0KICAgIH0NCn0gZWxzZSBpZiAob3V0cHV0VHlwZS5lcXVhbHMoIlN0
-cmVhbSIpKSB7DQogICAgdHJ5IHsNCiAgICAgICAgb3V0LmZsdXNoKCk7DQogICAgICAgIEJ5dGVB
-cnJheUlucHV0U3RyZWFtIHN0cmVhbSA9IG5ldyBCeXRlQXJyYXlJbnB1dFN0cmVhbShvdXQudG9C
-eXRlQXJyYXkoKSk7DQogICAgICAgIElEYXRhVXRpbC5wdXQocGMsICJjaXBoZXJUZXh0U3RyZWFt
-Iiwgc3RyZWFtKTsNCiAgICB9IGNhdGNoIChFeGNlcHRpb24gZSkgew0KICAgICAgICB0aHJvdyBu
-ZXcgU2VydmljZUV4Y2VwdGlvbigiVW5hYmxlIHRvIGRlY29kZSBjaXBoZXIgZGF0YTogIg0KICAg
-ICAgICAgICAgICAgICsgZS5nZXRNZXNzYWdlKCkpOw0KICAgIH0NCn0gZWxzZSBpZiAob3V0cHV0
-VHlwZS5lcXVhbHMoIlN0cmluZyIpKSB7DQogICAgdHJ5IHsNCiAgICAgICAgb3V0LmZsdXNoKCk7
-DQogICAgICAgIElEYXRhVXRpbC5wdXQocGMsICJjaXBoZXJUZXh0U3RyaW5nIiwgb3V0LnRvU3Ry
-aW5nKCJVVEYtOCIpKTsNCiAgICAgICAgb3V0LmNsb3NlKCk7DQogICAgfSBjYXRjaCAoRXhjZXB0
-aW9uIGUpIHsNCiAgICAgICAgdGhyb3cgbmV3IFNlcnZpY2VFeGNlcHRpb24oIlVuYWJsZSB0byBk
-ZWNvZGUgY2lwaGVyIGRhdGE6ICINCiAgICAgICAgICAgICAgICArIGUuZ2V0TWVzc2FnZSgpKTsN
-CiAgICB9DQp9DQoNCi8vIFJldHVybiBkYXRhDQpJRGF0YVV0aWwucHV0KHBjLCAic2lnbmVkIiwg
-U3RyaW5nLnZhbHVlT2Yoc2lnbmVkKSk7DQpwYy5kZXN0cm95KCk7DQoJ</value>
+dA0KYm9vbGVhbiBhdXRvQ2xvc2UgPSBmYWxzZTsNCmxvbmcgcGxhaW5TaXplID0gLTE7DQp0cnkg
+ew0KICAgIGlmIChwbGFpblRleHRQYXRoICE9IG51bGwgJiYgIXBsYWluVGV4dFBhdGguZXF1YWxz
+KCIiKSkgew0KICAgICAgICBGaWxlIGZpbGUgPSBuZXcgRmlsZShwbGFpblRleHRQYXRoKTsNCiAg
+ICAgICAgcGxhaW5UZXh0U3RyZWFtID0gbmV3IEZpbGVJbnB1dFN0cmVhbShmaWxlKTsNCiAgICAg
+ICAgcGxhaW5TaXplID0gZmlsZS5sZW5ndGgoKTsNCiAgICAgICAgYXV0b0Nsb3NlID0gdHJ1ZTsN
+CiAgICB9IGVsc2UgaWYgKHBsYWluVGV4dEJ5dGVzICE9IG51bGwgJiYgcGxhaW5UZXh0Qnl0ZXMu
+bGVuZ3RoID4gMCkgew0KICAgICAgICBwbGFpblRleHRTdHJlYW0gPSBuZXcgQnl0ZUFycmF5SW5w
+dXRTdHJlYW0ocGxhaW5UZXh0Qnl0ZXMpOw0KICAgICAgICBwbGFpblNpemUgPSBwbGFpblRleHRC
+eXRlcy5sZW5ndGg7DQogICAgICAgIGF1dG9DbG9zZSA9IHRydWU7DQogICAgfSBlbHNlIGlmIChw
+bGFpblRleHRTdHJpbmcgIT0gbnVsbCAmJiAhcGxhaW5UZXh0U3RyaW5nLmVxdWFscygiIikpIHsN
+CiAgICAgICAgYnl0ZVtdIGJ5dGVzID0gcGxhaW5UZXh0U3RyaW5nLmdldEJ5dGVzKHBsYWluVGV4
+dEVuY29kaW5nKTsNCiAgICAgICAgcGxhaW5UZXh0U3RyZWFtID0gbmV3IEJ5dGVBcnJheUlucHV0
+U3RyZWFtKGJ5dGVzKTsNCiAgICAgICAgcGxhaW5TaXplID0gYnl0ZXMubGVuZ3RoOw0KICAgICAg
+ICBhdXRvQ2xvc2UgPSB0cnVlOw0KICAgIH0gZWxzZSB7DQogICAgICAgIC8vIFRocm93cyBhbiBl
+eGNlcHRpb24gaWYgdW5hdmFpbGFibGUNCiAgICAgICAgcGxhaW5UZXh0U3RyZWFtLmF2YWlsYWJs
+ZSgpOw0KICAgIH0gDQp9IGNhdGNoIChGaWxlTm90Rm91bmRFeGNlcHRpb24gZm5mZSkgew0KICAg
+IHRocm93IG5ldyBTZXJ2aWNlRXhjZXB0aW9uKCJQbGFpbiB0ZXh0IGZpbGUgd2FzIG5vdCBmb3Vu
+ZCIpOw0KfSBjYXRjaCAoVW5zdXBwb3J0ZWRFbmNvZGluZ0V4Y2VwdGlvbiB1ZWUpIHsNCiAgICB0
+aHJvdyBuZXcgU2VydmljZUV4Y2VwdGlvbigiUGxhaW4gdGV4dCBlbmNvZGluZyBpcyBpbnZhbGlk
+Iik7DQp9IGNhdGNoIChJT0V4Y2VwdGlvbiBpb2UpIHsNCiAgICB0aHJvdyBuZXcgU2VydmljZUV4
+Y2VwdGlvbigiUGxhaW4gdGV4dCBzdHJlYW0gaXMgZW1wdHkiKTsNCn0gY2F0Y2ggKE51bGxQb2lu
+dGVyRXhjZXB0aW9uIG5wZSkgew0KICAgIHRocm93IG5ldyBTZXJ2aWNlRXhjZXB0aW9uKCJObyBw
+bGFpbiBkYXRhIGF2YWlsYWJsZSIpOw0KfQ0KaWYgKHBsYWluVGV4dEVuY29kaW5nID09IG51bGwg
+fHwgcGxhaW5UZXh0RW5jb2RpbmcuZXF1YWxzKCIiKSkgew0KICAgIHBsYWluVGV4dEVuY29kaW5n
+ID0gIlVURi04IjsNCn0gZWxzZSBpZiAoIUNoYXJzZXQuaXNTdXBwb3J0ZWQocGxhaW5UZXh0RW5j
+b2RpbmcpKSB7DQogICAgdGhyb3cgbmV3IFNlcnZpY2VFeGNlcHRpb24oIlVuc3VwcG9ydGVkIGNo
+YXJhY3RlciBlbmNvZGluZyIpOw0KfQ0KDQovLyBHZXQgb3V0cHV0IHNldHRpbmdzDQpTdHJpbmcg
+b3V0cHV0VHlwZSA9IElEYXRhVXRpbC5nZXRTdHJpbmcocGMsICJvdXRwdXRUeXBlIik7DQpTdHJp
+bmcgb3V0cHV0UGF0aCA9IElEYXRhVXRpbC5nZXRTdHJpbmcocGMsICJvdXRwdXRQYXRoIik7DQoN
+Ci8vIFZhbGlkYXRlIG91dHB1dCBzZXR0aW5ncw0KaWYgKG91dHB1dFR5cGUgPT0gbnVsbCB8fCBv
+dXRwdXRUeXBlLmVxdWFscygiIikpIHsNCiAgICBvdXRwdXRUeXBlID0gIlN0cmluZyI7DQp9IGVs
+c2UgaWYgKG91dHB1dFR5cGUuZXF1YWxzKCJGaWxlIikpIHsNCiAgICB0cnkgew0KICAgICAgICBG
+aWxlIGZpbGUgPSBuZXcgRmlsZShvdXRwdXRQYXRoKTsNCiAgICAgICAgaWYgKGZpbGUuZXhpc3Rz
+KCkgJiYgIWZpbGUuY2FuV3JpdGUoKSkgew0KICAgICAgICAgICAgdGhyb3cgbmV3IEV4Y2VwdGlv
+bigiRGVzdGluYXRpb24gZmlsZSBpcyBub3QgYWNjZXNzaWJsZSIpOw0KICAgICAgICB9IGVsc2Ug
+aWYgKCEoZmlsZS5nZXRQYXJlbnRGaWxlKCkuZXhpc3RzKCkgfHwgZmlsZS5nZXRQYXJlbnRGaWxl
+KCkubWtkaXJzKCkpKSB7DQogICAgICAgICAgICB0aHJvdyBuZXcgRXhjZXB0aW9uKCJEZXN0aW5h
+dGlvbiBkaXJlY3RvcnkgaXMgbm90IGFjY2Vzc2libGUiKTsNCiAgICAgICAgfQ0KICAgIH0gY2F0
+Y2ggKEV4Y2VwdGlvbiBlKSB7DQogICAgICAgIHRocm93IG5ldyBTZXJ2aWNlRXhjZXB0aW9uKGUu
+Z2V0TWVzc2FnZSgpKTsNCiAgICB9DQp9DQoNCi8vIEdldCB0aGUga2V5cywgYWxnb3JpdGhtcyBh
+bmQgYXJtb3IgZnJvbSB0aGUgbmFtZWQgcHJvZmlsZSBvciB0aGUgaW5wdXQNClBHUEVuY3J5cHRQ
+cm9maWxlIHByb2ZpbGUgPSBnZXRQcm9maWxlKHBjLCBvdXRwdXRUeXBlKTsNCg0KLy8gU3RyZWFt
+IEZpbGUgb3V0cHV0IHRvIGEgdGVtcG9yYXJ5IGZpbGUgdGhhdCByZXBsYWNlcyB0aGUgZGVzdGlu
+YXRpb24NCi8vIHdoZW4gY29tcGxldGU7IGJ1ZmZlciBvdGhlciBvdXRwdXQgdHlwZXMgaW4gbWVt
+b3J5LCBleGNlcHQgZm9yDQovLyBMYXp5U3RyZWFtIG91dHB1dCwgd2hpY2ggaXMgZW5jcnlwdGVk
+IGFzIHRoZSBjb25zdW1lciByZWFkcyBpdA0KUEdQQXRvbWljRmlsZU91dHB1dFN0cmVhbSBmaWxl
+T3V0ID0gbnVsbDsNClBHUE91dHB1dEJ1ZmZlciBidWZmZXIgPSBudWxsOw0KT3V0cHV0U3RyZWFt
+IG91dCA9IG51bGw7DQppZiAob3V0cHV0VHlwZS5lcXVhbHMoIkZpbGUiKSkgew0KICAgIHRyeSB7
+DQogICAgICAgIG91dCA9IGZpbGVPdXQgPSBuZXcgUEdQQXRvbWljRmlsZU91dHB1dFN0cmVhbShu
+ZXcgRmlsZShvdXRwdXRQYXRoKSk7DQogICAgfSBjYXRjaCAoSU9FeGNlcHRpb24gaW9lKSB7DQog
+ICAgICAgIHRocm93IG5ldyBTZXJ2aWNlRXhjZXB0aW9uKCJVbmFibGUgdG8gd3JpdGUgY2lwaGVy
+IHRleHQgdG8gZmlsZTogIiANCiAgICAgICAgICAgICAgICArIGlvZS5nZXRNZXNzYWdlKCkpOw0K
+ICAgIH0NCn0gZWxzZSBpZiAoIW91dHB1dFR5cGUuZXF1YWxzKCJMYXp5U3RyZWFtIikpIHsNCiAg
+ICBvdXQgPSBidWZmZXIgPSBuZXcgUEdQT3V0cHV0QnVmZmVyKHBsYWluU2l6ZSwgcHJvZmlsZS5p
+c0FybW9yZWQoKSk7DQp9DQoNCi8vIEVuY3J5cHQgJiBzaWduLCBpZiB0aGUgcHJvZmlsZSBoYXMg
+YSBzaWduaW5nIGtleQ0KaW50IHNpZ25lZCA9IHByb2ZpbGUuaXNTaWduaW5nKCkgPyAxIDogMDsN
+CnRyeSB7DQogICAgaWYgKG91dHB1dFR5cGUuZXF1YWxzKCJMYXp5U3RyZWFtIikpIHsNCiAgICAg
+ICAgLy8gSGFuZCB0aGUgcGxhaW4gdGV4dCBzdHJlYW0gb3ZlciB0byB0aGUgZW5jcnlwdGluZyBz
+dHJlYW0sDQogICAgICAgIC8vIHdoaWNoIGNsb3NlcyBpdCBhdCBpdHMgZW5kIGlmIGNyZWF0ZWQg
+aW4gc2VydmljZQ0KICAgICAgICBJRGF0YVV0aWwucHV0KHBjLCAiY2lwaGVyVGV4dFN0cmVhbSIs
+IG5ldyBQR1BFbmNyeXB0aW5nSW5wdXRTdHJlYW0oDQogICAgICAgICAgICAgICAgcGxhaW5UZXh0
+U3RyZWFtLCBhdXRvQ2xvc2UsIHByb2ZpbGUpKTsNCiAgICAgICAgYXV0b0Nsb3NlID0gZmFsc2U7
+DQogICAgfSBlbHNlIHsNCiAgICAgICAgUEdQRW5jcnlwdC5lbmNyeXB0KHBsYWluVGV4dFN0cmVh
+bSwgb3V0LCBwcm9maWxlKTsNCiAgICB9DQogICAgaWYgKGZpbGVPdXQgIT0gbnVsbCkgew0KICAg
+ICAgICB0cnkgew0KICAgICAgICAgICAgZmlsZU91dC5jb21taXQoKTsNCiAgICAgICAgfSBjYXRj
+aCAoSU9FeGNlcHRpb24gaW9lKSB7DQogICAgICAgICAgICB0aHJvdyBuZXcgU2VydmljZUV4Y2Vw
+dGlvbigiVW5hYmxlIHRvIHdyaXRlIGNpcGhlciB0ZXh0IHRvIGZpbGU6ICIgDQogICAgICAgICAg
+ICAgICAgICAgICsgaW9lLmdldE1lc3NhZ2UoKSk7DQogICAgICAgIH0NCiAgICB9DQp9IGNhdGNo
+IChQR1BFeGNlcHRpb24gcGdwZSkgew0KCUV4Y2VwdGlvbiBlID0gcGdwZS5nZXRVbmRlcmx5aW5n
+RXhjZXB0aW9uKCk7DQoJdGhyb3cgbmV3IFNlcnZpY2VFeGNlcHRpb24gKGUpOw0KICAgIC8vdGhy
+b3cgbmV3IFNlcnZpY2VFeGNlcHRpb24oIlVuYWJsZSB0byBlbmNyeXB0IGRhdGE6ICINCiAgICAv
+LyAgICAgICAgKyBwZ3BlLmdldE1lc3NhZ2UoKSk7DQp9IGNhdGNoIChOb1N1Y2hQcm92aWRlckV4
+Y2VwdGlvbiBuc3BlKSB7DQogICAgdGhyb3cgbmV3IFNlcnZpY2VFeGNlcHRpb24oIlVuYWJsZSB0
+byBlbmNyeXB0IGRhdGEgd2l0aCBrZXlzOiAiDQogICAgICAgICAgICArIG5zcGUuZ2V0TWVzc2Fn
+ZSgpKTsNCn0gY2F0Y2ggKE5vU3VjaEFsZ29yaXRobUV4Y2VwdGlvbiBuc2FlKSB7DQogICAgdGhy
+b3cgbmV3IFNlcnZpY2VFeGNlcHRpb24oIkludmFsaWQgZW5jcnlwdGlvbiBhbGdvcml0aG06ICIN
+CiAgICAgICAgICAgICsgbnNhZS5nZXRNZXNzYWdlKCkpOw0KfSBjYXRjaCAoU2lnbmF0dXJlRXhj
+ZXB0aW9uIHNlKSB7DQogICAgdGhyb3cgbmV3IFNlcnZpY2VFeGNlcHRpb24oIkludmFsaWQgc2ln
+bmF0dXJlIGFsZ29yaXRobTogIg0KICAgICAgICAgICAgKyBzZS5nZXRNZXNzYWdlKCkpOw0KfSBj
+YXRjaCAoSU9FeGNlcHRpb24gaW9lKSB7DQogICAgdGhyb3cgbmV3IFNlcnZpY2VFeGNlcHRpb24o
+IlVuYWJsZSB0byB3cml0ZSBlbmNyeXB0ZWQgZGF0YTogIg0KICAgICAgICAgICAgKyBpb2UuZ2V0
+TWVzc2FnZSgpKTsNCn0gZmluYWxseSB7DQogICAgaWYgKGF1dG9DbG9zZSkgew0KICAgICAgICAv
+LyBDbG9zZSBzdHJlYW1zIGNyZWF0ZWQgaW4gc2VydmljZQ0KICAgICAgICB0cnkgew0KICAgICAg
+ICAgICAgcGxhaW5UZXh0U3RyZWFtLmNsb3NlKCk7DQogICAgICAgIH0gY2F0Y2ggKEV4Y2VwdGlv
+biBlKSB7fQ0KICAgIH0NCiAgICBpZiAoZmlsZU91dCAhPSBudWxsKSB7DQogICAgICAgIC8vIERp
+c2NhcmQgdGhlIHRlbXBvcmFyeSBmaWxlIGlmIG5vdCBjb21taXR0ZWQNCiAgICAgICAgdHJ5IHsN
+CiAgICAgICAgICAgIGZpbGVPdXQuY2xvc2UoKTsNCiAgICAgICAgfSBjYXRjaCAoRXhjZXB0aW9u
+IGUpIHt9DQogICAgfQ0KfQ0KDQovLyBHZW5lcmF0ZSBvdXRwdXQNCmlmIChvdXRwdXRUeXBlLmVx
+dWFscygiRmlsZSIpKSB7DQogICAgSURhdGFVdGlsLnB1dChwYywgImNpcGhlclRleHRQYXRoIiwg
+ZmlsZU91dC5nZXRGaWxlKCkuZ2V0QWJzb2x1dGVQYXRoKCkpOw0KfSBlbHNlIGlmIChvdXRwdXRU
+eXBlLmVxdWFscygiQnl0ZXMiKSkgew0KICAgIElEYXRhVXRpbC5wdXQocGMsICJjaXBoZXJUZXh0
+Qnl0ZXMiLCBidWZmZXIuZ2V0Qnl0ZXMoKSk7DQp9IGVsc2UgaWYgKG91dHB1dFR5cGUuZXF1YWxz
+KCJTdHJlYW0iKSkgew0KICAgIElEYXRhVXRpbC5wdXQocGMsICJjaXBoZXJUZXh0U3RyZWFtIiwg
+YnVmZmVyLnRvSW5wdXRTdHJlYW0oKSk7DQp9IGVsc2UgaWYgKG91dHB1dFR5cGUuZXF1YWxzKCJT
+dHJpbmciKSkgew0KICAgIHRyeSB7DQogICAgICAgIElEYXRhVXRpbC5wdXQocGMsICJjaXBoZXJU
+ZXh0U3RyaW5nIiwgYnVmZmVyLnRvU3RyaW5nKCJVVEYtOCIpKTsNCiAgICB9IGNhdGNoIChFeGNl
+cHRpb24gZSkgew0KICAgICAgICB0aHJvdyBuZXcgU2VydmljZUV4Y2VwdGlvbigiVW5hYmxlIHRv
+IGRlY29kZSBjaXBoZXIgZGF0YTogIg0KICAgICAgICAgICAgICAgICsgZS5nZXRNZXNzYWdlKCkp
+Ow0KICAgIH0NCn0NCg0KLy8gUmV0dXJuIGRhdGENCklEYXRhVXRpbC5wdXQocGMsICJzaWduZWQi
+LCBTdHJpbmcudmFsdWVPZihzaWduZWQpKTsNCnBjLmRlc3Ryb3koKTsNCgk=</value>
 </Values>
@@ -0,0 +1,39 @@
+<?xml version="1.0" encoding="UTF-8"?>
+
+<Values version="2.0">
+  <value name="name">encryptBatch</value>
+  <value name="encodeutf8">true</value>
+  <value name="body">DQovLyBHZXQgaW5wdXQNCklEYXRhQ3Vyc29yIHBjID0gcGlwZWxpbmUuZ2V0Q3Vyc29yKCk7DQpJ
+RGF0YVtdIGl0ZW1zID0gSURhdGFVdGlsLmdldElEYXRhQXJyYXkocGMsICJpdGVtcyIpOw0KU3Ry
+aW5nIHBsYWluVGV4dEVuY29kaW5nID0gSURhdGFVdGlsLmdldFN0cmluZyhwYywgInBsYWluVGV4
+dEVuY29kaW5nIik7DQpTdHJpbmcgb3V0cHV0VHlwZSA9IElEYXRhVXRpbC5nZXRTdHJpbmcocGMs
+ICJvdXRwdXRUeXBlIik7DQpTdHJpbmcgcGFyYWxsZWxpc20gPSBJRGF0YVV0aWwuZ2V0U3RyaW5n
+KHBjLCAicGFyYWxsZWxpc20iKTsNClN0cmluZyBmYWlsRmFzdCA9IElEYXRhVXRpbC5nZXRTdHJp
+bmcocGMsICJmYWlsRmFzdCIpOw0KDQovLyBWYWxpZGF0ZSBpbnB1dCBvbmNlIGZvciBhbGwgaXRl
+bXMNCmlmIChpdGVtcyA9PSBudWxsKSB7DQogICAgaXRlbXMgPSBuZXcgSURhdGFbMF07DQp9DQpp
+ZiAocGxhaW5UZXh0RW5jb2RpbmcgPT0gbnVsbCB8fCBwbGFpblRleHRFbmNvZGluZy5lcXVhbHMo
+IiIpKSB7DQogICAgcGxhaW5UZXh0RW5jb2RpbmcgPSAiVVRGLTgiOw0KfSBlbHNlIGlmICghQ2hh
+cnNldC5pc1N1cHBvcnRlZChwbGFpblRleHRFbmNvZGluZykpIHsNCiAgICB0aHJvdyBuZXcgU2Vy
+dmljZUV4Y2VwdGlvbigiVW5zdXBwb3J0ZWQgY2hhcmFjdGVyIGVuY29kaW5nIik7DQp9DQppZiAo
+b3V0cHV0VHlwZSA9PSBudWxsIHx8IG91dHB1dFR5cGUuZXF1YWxzKCIiKSkgew0KICAgIG91dHB1
+dFR5cGUgPSAiU3RyaW5nIjsNCn0gZWxzZSBpZiAoIW91dHB1dFR5cGUuZXF1YWxzKCJTdHJpbmci
+KSAmJiAhb3V0cHV0VHlwZS5lcXVhbHMoIkJ5dGVzIikpIHsNCiAgICB0aHJvdyBuZXcgU2Vydmlj
+ZUV4Y2VwdGlvbigiT3V0cHV0IHR5cGUgaXMgbm90IHN1cHBvcnRlZCBmb3IgYmF0Y2hlczogIg0K
+ICAgICAgICAgICAgKyBvdXRwdXRUeXBlKTsNCn0NClBHUEVuY3J5cHRQcm9maWxlIHByb2ZpbGUg
+PSBnZXRQcm9maWxlKHBjLCBvdXRwdXRUeXBlKTsNCg0KLy8gRW5jcnlwdCB0aGUgaXRlbXMgb24g
+dGhlIGJhdGNoIHdvcmtlcnMgd2l0aCB0aGUgcHJvZmlsZSwgcmV1c2luZw0KLy8gdGhlIG91dHB1
+dCBidWZmZXJzOyBhIGZhaWxlZCBpdGVtIGlzIHJlcG9ydGVkIGluIGl0cyByZXN1bHQNClF1ZXVl
+PFBHUE91dHB1dEJ1ZmZlcj4gYnVmZmVycyA9IG5ldyBDb25jdXJyZW50TGlua2VkUXVldWU8UEdQ
+T3V0cHV0QnVmZmVyPigpOw0KSURhdGFbXSByZXN1bHRzID0gbmV3IElEYXRhW2l0ZW1zLmxlbmd0
+aF07DQpMaXN0PENhbGxhYmxlPE9iamVjdD4+IHRhc2tzID0gbmV3IEFycmF5TGlzdDxDYWxsYWJs
+ZTxPYmplY3Q+PihpdGVtcy5sZW5ndGgpOw0KZm9yIChpbnQgaSA9IDA7IGkgPCBpdGVtcy5sZW5n
+dGg7IGkrKykgew0KICAgIHJlc3VsdHNbaV0gPSBjb21tb24uY3JlYXRlQmF0Y2hSZXN1bHQoaXRl
+bXNbaV0pOw0KICAgIHRhc2tzLmFkZChlbmNyeXB0VGFzayhpdGVtc1tpXSwgcmVzdWx0c1tpXSwg
+cGxhaW5UZXh0RW5jb2RpbmcsIHByb2ZpbGUsDQogICAgICAgICAgICBvdXRwdXRUeXBlLCBidWZm
+ZXJzKSk7DQp9DQppbnQgZXJyb3JDb3VudCA9IGNvbW1vbi5ydW5CYXRjaCh0YXNrcywgcmVzdWx0
+cywgcGFyYWxsZWxpc20sIGZhaWxGYXN0KTsNCg0KLy8gUmV0dXJuIGRhdGENCklEYXRhVXRpbC5w
+dXQocGMsICJyZXN1bHRzIiwgcmVzdWx0cyk7DQpJRGF0YVV0aWwucHV0KHBjLCAic3VjY2Vzc0Nv
+dW50IiwgU3RyaW5nLnZhbHVlT2YoaXRlbXMubGVuZ3RoIC0gZXJyb3JDb3VudCkpOw0KSURhdGFV
+dGlsLnB1dChwYywgImVycm9yQ291bnQiLCBTdHJpbmcudmFsdWVPZihlcnJvckNvdW50KSk7DQpw
+Yy5kZXN0cm95KCk7DQo=</value>
+</Values>
@@ -0,0 +1,12 @@
+<?xml version="1.0" encoding="UTF-8"?>
+
+<Values version="2.0">
+  <value name="name">removeProfile</value>
+  <value name="encodeutf8">true</value>
+  <value name="body">DQovLyBSZW1vdmUgdGhlIHByb2ZpbGU7IG1lc3NhZ2VzIGJlaW5nIGVuY3J5cHRlZCB3aXRoIGl0
+IGFyZSBjb21wbGV0ZWQNCklEYXRhQ3Vyc29yIHBjID0gcGlwZWxpbmUuZ2V0Q3Vyc29yKCk7DQpT
+dHJpbmcgcHJvZmlsZU5hbWUgPSBJRGF0YVV0aWwuZ2V0U3RyaW5nKHBjLCAicHJvZmlsZU5hbWUi
+KTsNCmJvb2xlYW4gcmVtb3ZlZCA9IHByb2ZpbGVOYW1lICE9IG51bGwgJiYgUEdQRW5jcnlwdFBy
+b2ZpbGUucmVtb3ZlKHByb2ZpbGVOYW1lKTsNCklEYXRhVXRpbC5wdXQocGMsICJyZW1vdmVkIiwg
+U3RyaW5nLnZhbHVlT2YocmVtb3ZlZCkpOw0KcGMuZGVzdHJveSgpOw0K</value>
+</Values>
@@ -0,0 +1,9 @@
+<?xml version="1.0" encoding="UTF-8"?>
+
+<Values version="2.0">
+  <value name="name">clearNegativeCache</value>
+  <value name="encodeutf8">true</value>
+  <value name="body">DQovLyBSZW1vdmUgY2FjaGVkIGZhaWx1cmVzDQpJRGF0YUN1cnNvciBwYyA9IHBpcGVsaW5lLmdl
+dEN1cnNvcigpOw0KSURhdGFVdGlsLnB1dChwYywgImNvdW50IiwgU3RyaW5nLnZhbHVlT2YoUEdQ
+TmVnYXRpdmVDYWNoZS5jbGVhcigpKSk7DQpwYy5kZXN0cm95KCk7DQo=</value>
+</Values>
@@ -0,0 +1,18 @@
+<?xml version="1.0" encoding="UTF-8"?>
+
+<Values version="2.0">
+  <value name="name">clearPrivateKeyCache</value>
+  <value name="encodeutf8">true</value>
+  <value name="body">DQovLyBHZXQgaW5wdXQNCklEYXRhQ3Vyc29yIHBjID0gcGlwZWxpbmUuZ2V0Q3Vyc29yKCk7DQpT
+dHJpbmcga2V5SWQgPSBJRGF0YVV0aWwuZ2V0U3RyaW5nKHBjLCAia2V5SWQiKTsNCg0KLy8gUmVt
+b3ZlIHVubG9ja2VkIHByaXZhdGUga2V5cw0KaW50IGNvdW50ID0gMDsNCmlmIChrZXlJZCAhPSBu
+dWxsICYmICFrZXlJZC5lcXVhbHMoIiIpKSB7DQogICAgdHJ5IHsNCiAgICAgICAgY291bnQgPSBQ
+R1BQcml2YXRlS2V5Q2FjaGUuZXZpY3QoTG9uZy5wYXJzZUxvbmcoa2V5SWQpKTsNCiAgICAgICAg
+UEdQRW5jcnlwdFByb2ZpbGUuZXZpY3RTaWduZXIoTG9uZy5wYXJzZUxvbmcoa2V5SWQpKTsNCiAg
+ICB9IGNhdGNoIChOdW1iZXJGb3JtYXRFeGNlcHRpb24gbmZlKSB7DQogICAgICAgIHRocm93IG5l
+dyBTZXJ2aWNlRXhjZXB0aW9uKCJJbnZhbGlkIGtleSBpZGVudGlmaWVyOiAiICsga2V5SWQpOw0K
+ICAgIH0NCn0gZWxzZSB7DQogICAgY291bnQgPSBQR1BQcml2YXRlS2V5Q2FjaGUuY2xlYXIoKTsN
+CiAgICBQR1BFbmNyeXB0UHJvZmlsZS5jbGVhckNhY2hlKCk7DQp9DQoNCi8vIFJldHVybiBkYXRh
+DQpJRGF0YVV0aWwucHV0KHBjLCAiY291bnQiLCBTdHJpbmcudmFsdWVPZihjb3VudCkpOw0KcGMu
+ZGVzdHJveSgpOw0K</value>
+</Values>
@@ -0,0 +1,10 @@
+<?xml version="1.0" encoding="UTF-8"?>
+
+<Values version="2.0">
+  <value name="name">getNegativeCacheInfo</value>
+  <value name="encodeutf8">true</value>
+  <value name="body">DQovLyBSZXR1cm4gdmFsdWVzDQpJRGF0YUN1cnNvciBwYyA9IHBpcGVsaW5lLmdldEN1cnNvcigp
+Ow0KSURhdGFVdGlsLnB1dChwYywgInNpemUiLCBTdHJpbmcudmFsdWVPZihQR1BOZWdhdGl2ZUNh
+Y2hlLnNpemUoKSkpOw0KSURhdGFVdGlsLnB1dChwYywgImhpdHMiLCBTdHJpbmcudmFsdWVPZihQ
+R1BOZWdhdGl2ZUNhY2hlLmdldEhpdHMoKSkpOw0KcGMuZGVzdHJveSgpOw0K</value>
+</Values>
@@ -0,0 +1,13 @@
+<?xml version="1.0" encoding="UTF-8"?>
+
+<Values version="2.0">
+  <value name="name">getPrivateKeyCacheInfo</value>
+  <value name="encodeutf8">true</value>
+  <value name="body">DQovLyBSZXR1cm4gdmFsdWVzDQpJRGF0YUN1cnNvciBwYyA9IHBpcGVsaW5lLmdldEN1cnNvcigp
+Ow0KSURhdGFVdGlsLnB1dChwYywgInNpemUiLCBTdHJpbmcudmFsdWVPZihQR1BQcml2YXRlS2V5
+Q2FjaGUuc2l6ZSgpKSk7DQpJRGF0YVV0aWwucHV0KHBjLCAiaGl0cyIsIFN0cmluZy52YWx1ZU9m
+KFBHUFByaXZhdGVLZXlDYWNoZS5nZXRIaXRzKCkpKTsNCklEYXRhVXRpbC5wdXQocGMsICJtaXNz
+ZXMiLCBTdHJpbmcudmFsdWVPZihQR1BQcml2YXRlS2V5Q2FjaGUuZ2V0TWlzc2VzKCkpKTsNCklE
+YXRhVXRpbC5wdXQocGMsICJldmljdGlvbnMiLCBTdHJpbmcudmFsdWVPZihQR1BQcml2YXRlS2V5
+Q2FjaGUuZ2V0RXZpY3Rpb25zKCkpKTsNCnBjLmRlc3Ryb3koKTsNCg==</value>
+</Values>
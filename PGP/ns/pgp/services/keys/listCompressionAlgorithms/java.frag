@@ -0,0 +1,10 @@
+<?xml version="1.0" encoding="UTF-8"?>
+
+<Values version="2.0">
+  <value name="name">listCompressionAlgorithms</value>
+  <value name="encodeutf8">true</value>
+  <value name="body">Ly8gUmV0dXJuIHZhbHVlcw0KSURhdGFDdXJzb3IgcGMgPSBwaXBlbGluZS5nZXRDdXJzb3IoKTsN
+CklEYXRhVXRpbC5wdXQocGMsICJhbGdvcml0aG1zIiwgDQogICAgICAgIFBHUEluaXQubGlzdENv
+bXByZXNzaW9uQWxnb3JpdGhtcygpLnRvQXJyYXkobmV3IFN0cmluZ1swXSkpOw0KcGMuZGVzdHJv
+eSgpOw0KDQoJ</value>
+</Values>
@@ -0,0 +1,31 @@
+<?xml version="1.0" encoding="UTF-8"?>
+
+<Values version="2.0">
+  <value name="name">loadKeyDirectory</value>
+  <value name="encodeutf8">true</value>
+  <value name="body">DQovLyBHZXQgaW5wdXQNCklEYXRhQ3Vyc29yIHBjID0gcGlwZWxpbmUuZ2V0Q3Vyc29yKCk7DQpT
+dHJpbmcgcGF0aCA9IElEYXRhVXRpbC5nZXRTdHJpbmcocGMsICJwYXRoIik7DQoNCi8vIExvYWQg
+YWxsIGtleSBmaWxlcyBvZiB0aGUgZGlyZWN0b3J5IGluIHBhcmFsbGVsDQpGaWxlIGRpciA9IChw
+YXRoID09IG51bGwgfHwgcGF0aC5lcXVhbHMoIiIpKSA/IGNvbW1vbi5nZXRLZXlEaXIoKSA6IG5l
+dyBGaWxlKHBhdGgpOw0KUEdQS2V5RGlyZWN0b3J5TG9hZGVyLlJlc3VsdCByZXN1bHQgPSBudWxs
+Ow0KdHJ5IHsNCiAgICByZXN1bHQgPSBQR1BLZXlEaXJlY3RvcnlMb2FkZXIubG9hZChkaXIpOw0K
+fSBjYXRjaCAoSU9FeGNlcHRpb24gaW9lKSB7DQogICAgdGhyb3cgbmV3IFNlcnZpY2VFeGNlcHRp
+b24oIlVuYWJsZSB0byBsb2FkIGtleSBkaXJlY3Rvcnk6ICIgKyBpb2UuZ2V0TWVzc2FnZSgpKTsN
+Cn0NCg0KLy8gUmVwb3J0IGZhaWx1cmVzIHBlciBmaWxlDQpNYXA8U3RyaW5nLCBTdHJpbmc+IGVy
+cm9ycyA9IHJlc3VsdC5nZXRGYWlsdXJlcygpOw0KSURhdGFbXSBmYWlsdXJlcyA9IG5ldyBJRGF0
+YVtlcnJvcnMuc2l6ZSgpXTsNCmludCBpID0gMDsNCmZvciAoTWFwLkVudHJ5PFN0cmluZywgU3Ry
+aW5nPiBlcnJvciA6IGVycm9ycy5lbnRyeVNldCgpKSB7DQogICAgZmFpbHVyZXNbaV0gPSBJRGF0
+YUZhY3RvcnkuY3JlYXRlKCk7DQogICAgSURhdGFDdXJzb3IgZmMgPSBmYWlsdXJlc1tpKytdLmdl
+dEN1cnNvcigpOw0KICAgIElEYXRhVXRpbC5wdXQoZmMsICJmaWxlIiwgZXJyb3IuZ2V0S2V5KCkp
+Ow0KICAgIElEYXRhVXRpbC5wdXQoZmMsICJtZXNzYWdlIiwgZXJyb3IuZ2V0VmFsdWUoKSk7DQog
+ICAgZmMuZGVzdHJveSgpOw0KfQ0KDQovLyBSZXR1cm4gZGF0YQ0KSURhdGFVdGlsLnB1dChwYywg
+InBhdGgiLCBkaXIuZ2V0QWJzb2x1dGVQYXRoKCkpOw0KSURhdGFVdGlsLnB1dChwYywgImZpbGVD
+b3VudCIsIFN0cmluZy52YWx1ZU9mKHJlc3VsdC5nZXRGaWxlQ291bnQoKSkpOw0KSURhdGFVdGls
+LnB1dChwYywgImtleVJpbmdDb3VudCIsIFN0cmluZy52YWx1ZU9mKHJlc3VsdC5nZXRLZXlSaW5n
+cygpLnNpemUoKSkpOw0KSURhdGFVdGlsLnB1dChwYywgImR1cGxpY2F0ZUNvdW50IiwgU3RyaW5n
+LnZhbHVlT2YocmVzdWx0LmdldER1cGxpY2F0ZUNvdW50KCkpKTsNCklEYXRhVXRpbC5wdXQocGMs
+ICJza2lwcGVkQ291bnQiLCBTdHJpbmcudmFsdWVPZihyZXN1bHQuZ2V0U2tpcHBlZENvdW50KCkp
+KTsNCklEYXRhVXRpbC5wdXQocGMsICJkdXJhdGlvbiIsIFN0cmluZy52YWx1ZU9mKHJlc3VsdC5n
+ZXREdXJhdGlvbigpKSk7DQppZiAoZmFpbHVyZXMubGVuZ3RoID4gMCkgew0KICAgIElEYXRhVXRp
+bC5wdXQocGMsICJmYWlsdXJlcyIsIGZhaWx1cmVzKTsNCn0NCnBjLmRlc3Ryb3koKTsNCg==</value>
+</Values>
@@ -0,0 +1,18 @@
+<?xml version="1.0" encoding="UTF-8"?>
+
+<Values version="2.0">
+  <value name="name">openKeySnapshot</value>
+  <value name="encodeutf8">true</value>
+  <value name="body">DQovLyBHZXQgaW5wdXQNCklEYXRhQ3Vyc29yIHBjID0gcGlwZWxpbmUuZ2V0Q3Vyc29yKCk7DQpT
+dHJpbmcgcGF0aCA9IElEYXRhVXRpbC5nZXRTdHJpbmcocGMsICJwYXRoIik7DQoNCi8vIE1hcCB0
+aGUgc25hcHNob3QsIGtleSByaW5ncyBhcmUgZGVjb2RlZCBvbiBmaXJzdCBsb29rdXANCkZpbGUg
+ZmlsZSA9IChwYXRoID09IG51bGwgfHwgcGF0aC5lcXVhbHMoIiIpKSA/IGNvbW1vbi5nZXRLZXlT
+bmFwc2hvdEZpbGUoKSA6IG5ldyBGaWxlKHBhdGgpOw0KaW50IGNvdW50ID0gMDsNCmlmIChmaWxl
+LmV4aXN0cygpKSB7DQogICAgdHJ5IHsNCiAgICAgICAgY291bnQgPSBQR1BLZXlTdG9yZVNuYXBz
+aG90Lm9wZW4oZmlsZSkuc2l6ZSgpOw0KICAgIH0gY2F0Y2ggKElPRXhjZXB0aW9uIGlvZSkgew0K
+ICAgICAgICB0aHJvdyBuZXcgU2VydmljZUV4Y2VwdGlvbigiVW5hYmxlIHRvIG9wZW4ga2V5c3Rv
+cmUgc25hcHNob3Q6ICIgKyBpb2UuZ2V0TWVzc2FnZSgpKTsNCiAgICB9DQp9DQoNCi8vIFJldHVy
+biBkYXRhDQpJRGF0YVV0aWwucHV0KHBjLCAicGF0aCIsIGZpbGUuZ2V0QWJzb2x1dGVQYXRoKCkp
+Ow0KSURhdGFVdGlsLnB1dChwYywgImtleVJpbmdDb3VudCIsIFN0cmluZy52YWx1ZU9mKGNvdW50
+KSk7DQpwYy5kZXN0cm95KCk7DQo=</value>
+</Values>
@@ -13,30 +13,30 @@ dGUga2V5cyBmcm9tIGZpbGUNCklEYXRhIGRhdGEgPSBJRGF0YUZhY3RvcnkuY3JlYXRlKCk7DQpQ
 R1BTZWNyZXRLZXlSaW5nQ29sbGVjdGlvbiByaW5nU2VjcmV0ID0gbnVsbDsNCnRyeSB7DQogICAg
 SURhdGFDdXJzb3IgZGMgPSBkYXRhLmdldEN1cnNvcigpOw0KICAgIC8vcGF0aCA9IFRlc3QudGVz
 dCgpOw0KICAgIC8vcGF0aCA9IFBHUEtleVJlYWRlci50ZXN0KCk7DQogICAgcmluZ1NlY3JldCA9
-IFBHUEtleVJlYWRlci5yZWFkU2VjcmV0S2V5UmluZyhwYXRoKTsNCiAgICBJRGF0YVV0aWwucHV0
-KGRjLCAicHJpdmF0ZUtleVJpbmciLCByaW5nU2VjcmV0KTsNCiAgICBpZiAocGFzdyAhPSBudWxs
-KSB7DQogICAgICAgIG1haW46IGZvciAoSXRlcmF0b3I8Pz4gaSA9IHJpbmdTZWNyZXQuZ2V0S2V5
-UmluZ3MoKTsgaS5oYXNOZXh0KCk7KSB7DQogICAgICAgICAgICBQR1BTZWNyZXRLZXlSaW5nIHJp
-bmcgPSAoUEdQU2VjcmV0S2V5UmluZykgaS5uZXh0KCk7DQogICAgICAgICAgICBmb3IgKEl0ZXJh
-dG9yPD8+IGogPSByaW5nLmdldFNlY3JldEtleXMoKTsgai5oYXNOZXh0KCk7KSB7DQogICAgICAg
-ICAgICAgICAgUEdQU2VjcmV0S2V5IG5leHQgPSAoUEdQU2VjcmV0S2V5KSBqLm5leHQoKTsNCiAg
-ICAgICAgICAgICAgICB0cnkgew0KICAgICAgICAgICAgICAgICAgICBQR1BQcml2YXRlS2V5IGtl
-eSA9IG5leHQuZXh0cmFjdFByaXZhdGVLZXkocGFzdy50b0NoYXJBcnJheSgpLCBQR1BJbml0LlBS
-T1ZJREVSKTsNCiAgICAgICAgICAgICAgICAgICAgaWYgKGtleSAhPSBudWxsKSB7DQogICAgICAg
-ICAgICAgICAgICAgICAgICBJRGF0YVV0aWwucHV0KGRjLCAicHJpdmF0ZUtleSIsIGtleSk7DQog
-ICAgICAgICAgICAgICAgICAgICAgICBJRGF0YVV0aWwucHV0KGRjLCAia2V5SWQiLCBTdHJpbmcu
-dmFsdWVPZihrZXkuZ2V0S2V5SUQoKSkpOw0KICAgICAgICAgICAgICAgICAgICAgICAgSURhdGFV
-dGlsLnB1dChkYywgImFsZ29yaXRobSIsIGtleS5nZXRLZXkoKS5nZXRBbGdvcml0aG0oKSk7DQog
-ICAgICAgICAgICAgICAgICAgICAgICBJRGF0YVV0aWwucHV0KGRjLCAiZm9ybWF0Iiwga2V5Lmdl
-dEtleSgpLmdldEZvcm1hdCgpKTsNCiAgICAgICAgICAgICAgICAgICAgICAgIElEYXRhVXRpbC5w
-dXQoZGMsICJpc1NpZ25pbmdLZXkiLCBTdHJpbmcudmFsdWVPZihuZXh0LmlzU2lnbmluZ0tleSgp
-KSk7DQogICAgICAgICAgICAgICAgICAgICAgICBJRGF0YVV0aWwucHV0KGRjLCAiaXNNYXN0ZXJL
-ZXkiLCBTdHJpbmcudmFsdWVPZihuZXh0LmlzTWFzdGVyS2V5KCkpKTsNCiAgICAgICAgICAgICAg
-ICAgICAgICAgIGJyZWFrIG1haW47DQogICAgICAgICAgICAgICAgICAgIH0NCiAgICAgICAgICAg
-ICAgICB9IGNhdGNoIChFeGNlcHRpb24gZSkge30NCiAgICAgICAgICAgIH0NCiAgICAgICAgfQ0K
-ICAgIH0NCiAgICBkYy5kZXN0cm95KCk7DQp9IGNhdGNoIChFeGNlcHRpb24gZSkgew0KICAgIHRo
-cm93IG5ldyBSdW50aW1lRXhjZXB0aW9uKCJVbmFibGUgdG8gcmVhZCBwcml2YXRlIGtleSBmaWxl
-OiAiDQogICAgICAgICAgICArIGUuZ2V0TWVzc2FnZSgpKTsNCn0NCg0KLy8gUmV0dXJuIGRhdGEN
-CklEYXRhVXRpbC5wdXQocGMsICJwcml2YXRlS2V5RGF0YSIsIGRhdGEpOw0KcGMuZGVzdHJveSgp
-Ow0K</value>
+IFBHUEtleVJlZ2lzdHJ5LmdldFNlY3JldEtleVJpbmcocGF0aCk7DQogICAgSURhdGFVdGlsLnB1
+dChkYywgInByaXZhdGVLZXlSaW5nIiwgcmluZ1NlY3JldCk7DQogICAgaWYgKHBhc3cgIT0gbnVs
+bCkgew0KICAgICAgICBtYWluOiBmb3IgKEl0ZXJhdG9yPD8+IGkgPSByaW5nU2VjcmV0LmdldEtl
+eVJpbmdzKCk7IGkuaGFzTmV4dCgpOykgew0KICAgICAgICAgICAgUEdQU2VjcmV0S2V5UmluZyBy
+aW5nID0gKFBHUFNlY3JldEtleVJpbmcpIGkubmV4dCgpOw0KICAgICAgICAgICAgZm9yIChJdGVy
+YXRvcjw/PiBqID0gcmluZy5nZXRTZWNyZXRLZXlzKCk7IGouaGFzTmV4dCgpOykgew0KICAgICAg
+ICAgICAgICAgIFBHUFNlY3JldEtleSBuZXh0ID0gKFBHUFNlY3JldEtleSkgai5uZXh0KCk7DQog
+ICAgICAgICAgICAgICAgdHJ5IHsNCiAgICAgICAgICAgICAgICAgICAgUEdQUHJpdmF0ZUtleSBr
+ZXkgPSBQR1BQcml2YXRlS2V5Q2FjaGUuZXh0cmFjdFByaXZhdGVLZXkobmV4dCwgcGFzdy50b0No
+YXJBcnJheSgpKTsNCiAgICAgICAgICAgICAgICAgICAgaWYgKGtleSAhPSBudWxsKSB7DQogICAg
+ICAgICAgICAgICAgICAgICAgICBJRGF0YVV0aWwucHV0KGRjLCAicHJpdmF0ZUtleSIsIGtleSk7
+DQogICAgICAgICAgICAgICAgICAgICAgICBJRGF0YVV0aWwucHV0KGRjLCAia2V5SWQiLCBTdHJp
+bmcudmFsdWVPZihrZXkuZ2V0S2V5SUQoKSkpOw0KICAgICAgICAgICAgICAgICAgICAgICAgSURh
+dGFVdGlsLnB1dChkYywgImFsZ29yaXRobSIsIGtleS5nZXRLZXkoKS5nZXRBbGdvcml0aG0oKSk7
+DQogICAgICAgICAgICAgICAgICAgICAgICBJRGF0YVV0aWwucHV0KGRjLCAiZm9ybWF0Iiwga2V5
+LmdldEtleSgpLmdldEZvcm1hdCgpKTsNCiAgICAgICAgICAgICAgICAgICAgICAgIElEYXRhVXRp
+bC5wdXQoZGMsICJpc1NpZ25pbmdLZXkiLCBTdHJpbmcudmFsdWVPZihuZXh0LmlzU2lnbmluZ0tl
+eSgpKSk7DQogICAgICAgICAgICAgICAgICAgICAgICBJRGF0YVV0aWwucHV0KGRjLCAiaXNNYXN0
+ZXJLZXkiLCBTdHJpbmcudmFsdWVPZihuZXh0LmlzTWFzdGVyS2V5KCkpKTsNCiAgICAgICAgICAg
+ICAgICAgICAgICAgIGJyZWFrIG1haW47DQogICAgICAgICAgICAgICAgICAgIH0NCiAgICAgICAg
+ICAgICAgICB9IGNhdGNoIChFeGNlcHRpb24gZSkge30NCiAgICAgICAgICAgIH0NCiAgICAgICAg
+fQ0KICAgIH0NCiAgICBkYy5kZXN0cm95KCk7DQp9IGNhdGNoIChFeGNlcHRpb24gZSkgew0KICAg
+IHRocm93IG5ldyBSdW50aW1lRXhjZXB0aW9uKCJVbmFibGUgdG8gcmVhZCBwcml2YXRlIGtleSBm
+aWxlOiAiDQogICAgICAgICAgICArIGUuZ2V0TWVzc2FnZSgpKTsNCn0NCg0KLy8gUmV0dXJuIGRh
+dGENCklEYXRhVXRpbC5wdXQocGMsICJwcml2YXRlS2V5RGF0YSIsIGRhdGEpOw0KcGMuZGVzdHJv
+eSgpOw==</value>
 </Values>
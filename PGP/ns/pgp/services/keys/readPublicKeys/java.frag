@@ -12,22 +12,22 @@ IElEYXRhVXRpbC5nZXRTdHJpbmcocGMsICJrZXlFeGNoYW5nZUFsZ29yaXRobSIpOw0KDQoNCi8v
 IFJlYWQgcHVibGljIGtleXMgZnJvbSBmaWxlDQpJRGF0YSBkYXRhID0gSURhdGFGYWN0b3J5LmNy
 ZWF0ZSgpOw0KUEdQUHVibGljS2V5UmluZ0NvbGxlY3Rpb24gcmluZ1B1YiA9IG51bGw7DQpQR1BQ
 dWJsaWNLZXkga2V5UHViID0gbnVsbDsNCnRyeSB7DQogICAgSURhdGFDdXJzb3IgZGMgPSBkYXRh
-LmdldEN1cnNvcigpOw0KICAgIHJpbmdQdWIgPSBQR1BLZXlSZWFkZXIucmVhZFB1YmxpY0tleVJp
-bmcocGF0aCk7DQogICAgSURhdGFVdGlsLnB1dChkYywgInB1YmxpY0tleVJpbmciLCByaW5nUHVi
-KTsNCiAgICBpZiAoYWxnICE9IG51bGwpIHsNCiAgICAgICAga2V5UHViID0gUEdQS2V5UmVhZGVy
-LnJlYWRQdWJsaWNLZXkocmluZ1B1YiwNCiAgICAgICAgICAgICAgICBQR1BJbml0LmdldEtleUV4
-Y2hhbmdlQWxnb3JpdGhtKGFsZykpOw0KICAgICAgICBJRGF0YVV0aWwucHV0KGRjLCAicHVibGlj
-S2V5Iiwga2V5UHViKTsNCiAgICAgICAgSURhdGFVdGlsLnB1dChkYywgImtleUlkIiwgU3RyaW5n
-LnZhbHVlT2Yoa2V5UHViLmdldEtleUlEKCkpKTsNCiAgICAgICAgSURhdGFVdGlsLnB1dChkYywg
-ImFsZ29yaXRobSIsIFN0cmluZy52YWx1ZU9mKGtleVB1Yi5nZXRBbGdvcml0aG0oKSkpOw0KICAg
-ICAgICBJRGF0YVV0aWwucHV0KGRjLCAiYml0U3RyZW5ndGgiLCBTdHJpbmcudmFsdWVPZihrZXlQ
-dWIuZ2V0Qml0U3RyZW5ndGgoKSkpOw0KICAgICAgICBJRGF0YVV0aWwucHV0KGRjLCAiaXNFbmNy
-eXB0aW9uS2V5IiwgU3RyaW5nLnZhbHVlT2Yoa2V5UHViLmlzRW5jcnlwdGlvbktleSgpKSk7DQog
-ICAgICAgIElEYXRhVXRpbC5wdXQoZGMsICJpc01hc3RlcktleSIsIFN0cmluZy52YWx1ZU9mKGtl
-eVB1Yi5pc01hc3RlcktleSgpKSk7DQogICAgICAgIElEYXRhVXRpbC5wdXQoZGMsICJpc1Jldm9r
-ZWQiLCBTdHJpbmcudmFsdWVPZihrZXlQdWIuaXNSZXZva2VkKCkpKTsNCiAgICB9DQogICAgZGMu
-ZGVzdHJveSgpOw0KfSBjYXRjaCAoRXhjZXB0aW9uIGUpIHsNCiAgICB0aHJvdyBuZXcgU2Vydmlj
-ZUV4Y2VwdGlvbigiVW5hYmxlIHRvIHJlYWQga2V5IGZpbGU6ICINCiAgICAgICAgICAgICsgZS5n
-ZXRNZXNzYWdlKCkpOw0KfQ0KDQovLyBSZXR1cm4gZGF0YQ0KSURhdGFVdGlsLnB1dChwYywgInB1
-YmxpY0tleURhdGEiLCBkYXRhKTsNCnBjLmRlc3Ryb3koKTsNCgkNCg==</value>
+LmdldEN1cnNvcigpOw0KICAgIHJpbmdQdWIgPSBQR1BLZXlSZWdpc3RyeS5nZXRQdWJsaWNLZXlS
+aW5nKHBhdGgpOw0KICAgIElEYXRhVXRpbC5wdXQoZGMsICJwdWJsaWNLZXlSaW5nIiwgcmluZ1B1
+Yik7DQogICAgaWYgKGFsZyAhPSBudWxsKSB7DQogICAgICAgIGtleVB1YiA9IFBHUEtleVJlYWRl
+ci5yZWFkUHVibGljS2V5KHJpbmdQdWIsDQogICAgICAgICAgICAgICAgUEdQSW5pdC5nZXRLZXlF
+eGNoYW5nZUFsZ29yaXRobShhbGcpKTsNCiAgICAgICAgSURhdGFVdGlsLnB1dChkYywgInB1Ymxp
+Y0tleSIsIGtleVB1Yik7DQogICAgICAgIElEYXRhVXRpbC5wdXQoZGMsICJrZXlJZCIsIFN0cmlu
+Zy52YWx1ZU9mKGtleVB1Yi5nZXRLZXlJRCgpKSk7DQogICAgICAgIElEYXRhVXRpbC5wdXQoZGMs
+ICJhbGdvcml0aG0iLCBTdHJpbmcudmFsdWVPZihrZXlQdWIuZ2V0QWxnb3JpdGhtKCkpKTsNCiAg
+ICAgICAgSURhdGFVdGlsLnB1dChkYywgImJpdFN0cmVuZ3RoIiwgU3RyaW5nLnZhbHVlT2Yoa2V5
+UHViLmdldEJpdFN0cmVuZ3RoKCkpKTsNCiAgICAgICAgSURhdGFVdGlsLnB1dChkYywgImlzRW5j
+cnlwdGlvbktleSIsIFN0cmluZy52YWx1ZU9mKGtleVB1Yi5pc0VuY3J5cHRpb25LZXkoKSkpOw0K
+ICAgICAgICBJRGF0YVV0aWwucHV0KGRjLCAiaXNNYXN0ZXJLZXkiLCBTdHJpbmcudmFsdWVPZihr
+ZXlQdWIuaXNNYXN0ZXJLZXkoKSkpOw0KICAgICAgICBJRGF0YVV0aWwucHV0KGRjLCAiaXNSZXZv
+a2VkIiwgU3RyaW5nLnZhbHVlT2Yoa2V5UHViLmlzUmV2b2tlZCgpKSk7DQogICAgfQ0KICAgIGRj
+LmRlc3Ryb3koKTsNCn0gY2F0Y2ggKEV4Y2VwdGlvbiBlKSB7DQogICAgdGhyb3cgbmV3IFNlcnZp
+Y2VFeGNlcHRpb24oIlVuYWJsZSB0byByZWFkIGtleSBmaWxlOiAiDQogICAgICAgICAgICArIGUu
+Z2V0TWVzc2FnZSgpKTsNCn0NCg0KLy8gUmV0dXJuIGRhdGENCklEYXRhVXRpbC5wdXQocGMsICJw
+dWJsaWNLZXlEYXRhIiwgZGF0YSk7DQpwYy5kZXN0cm95KCk7DQoJ</value>
 </Values>
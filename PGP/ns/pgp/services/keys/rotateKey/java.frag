@@ -0,0 +1,38 @@
+<?xml version="1.0" encoding="UTF-8"?>
+
+<Values version="2.0">
+  <value name="name">rotateKey</value>
+  <value name="encodeutf8">true</value>
+  <value name="body">DQovLyBHZXQgaW5wdXQNCklEYXRhQ3Vyc29yIHBjID0gcGlwZWxpbmUuZ2V0Q3Vyc29yKCk7DQpT
+dHJpbmcgdXNlcklkID0gSURhdGFVdGlsLmdldFN0cmluZyhwYywgInVzZXJJZCIpOw0KU3RyaW5n
+IHB1YmxpY0tleVBhdGggPSBJRGF0YVV0aWwuZ2V0U3RyaW5nKHBjLCAicHVibGljS2V5UGF0aCIp
+Ow0KU3RyaW5nIHByaXZhdGVLZXlQYXRoID0gSURhdGFVdGlsLmdldFN0cmluZyhwYywgInByaXZh
+dGVLZXlQYXRoIik7DQpTdHJpbmcgcGFzc3dvcmQgPSBJRGF0YVV0aWwuZ2V0U3RyaW5nKHBjLCAi
+cHJpdmF0ZUtleVBhc3N3b3JkIik7DQpTdHJpbmcgb3ZlcmxhcCA9IElEYXRhVXRpbC5nZXRTdHJp
+bmcocGMsICJvdmVybGFwIik7DQoNCi8vIFZhbGlkYXRlIGlucHV0DQpQR1BLZXlDb25maWcga2V5
+ID0gY29tbW9uLmdldENvbmZpZygpLmdldEtleSh1c2VySWQpOw0KaWYgKGtleSA9PSBudWxsKSB7
+DQogICAgdGhyb3cgbmV3IFNlcnZpY2VFeGNlcHRpb24oIlVzZXIgSUQgaXMgbm90IGNvbmZpZ3Vy
+ZWQ6ICIgKyB1c2VySWQpOw0KfSBlbHNlIGlmIChwdWJsaWNLZXlQYXRoID09IG51bGwgfHwgcHVi
+bGljS2V5UGF0aC5lcXVhbHMoIiIpKSB7DQogICAgdGhyb3cgbmV3IFNlcnZpY2VFeGNlcHRpb24o
+IlB1YmxpYyBrZXkgcGF0aCBpcyBlbXB0eSIpOw0KfQ0KbG9uZyBvdmVybGFwTWlsbGlzID0gUEdQ
+S2V5Um90YXRpb24uT1ZFUkxBUDsNCmlmIChvdmVybGFwICE9IG51bGwgJiYgIW92ZXJsYXAuZXF1
+YWxzKCIiKSkgew0KICAgIHRyeSB7DQogICAgICAgIG92ZXJsYXBNaWxsaXMgPSBMb25nLnBhcnNl
+TG9uZyhvdmVybGFwKSAqIDEwMDBMOw0KICAgIH0gY2F0Y2ggKE51bWJlckZvcm1hdEV4Y2VwdGlv
+biBuZmUpIHsNCiAgICAgICAgdGhyb3cgbmV3IFNlcnZpY2VFeGNlcHRpb24oIkludmFsaWQgb3Zl
+cmxhcDogIiArIG92ZXJsYXApOw0KICAgIH0NCn0NCg0KLy8gU3RhZ2UsIHZhbGlkYXRlIGFuZCBw
+dWJsaXNoIHRoZSBuZXcgZ2VuZXJhdGlvbg0KUEdQS2V5Um90YXRpb24uR2VuZXJhdGlvbiBnZW5l
+cmF0aW9uID0gbnVsbDsNCnRyeSB7DQogICAgZ2VuZXJhdGlvbiA9IFBHUEtleVJvdGF0aW9uLnJv
+dGF0ZShrZXksIGNvbW1vbi5nZXRLZXlEaXIoKSwNCiAgICAgICAgICAgIGNvbW1vbi5nZXRLZXlH
+ZW5lcmF0aW9uc0ZpbGUoKSwgbmV3IEZpbGUocHVibGljS2V5UGF0aCksDQogICAgICAgICAgICAo
+cHJpdmF0ZUtleVBhdGggPT0gbnVsbCB8fCBwcml2YXRlS2V5UGF0aC5lcXVhbHMoIiIpKSA/IG51
+bGwgOiBuZXcgRmlsZShwcml2YXRlS2V5UGF0aCksDQogICAgICAgICAgICAocGFzc3dvcmQgPT0g
+bnVsbCB8fCBwYXNzd29yZC5lcXVhbHMoIiIpKSA/IG51bGwgOiBwYXNzd29yZCwNCiAgICAgICAg
+ICAgIG92ZXJsYXBNaWxsaXMpOw0KfSBjYXRjaCAoSU9FeGNlcHRpb24gaW9lKSB7DQogICAgdGhy
+b3cgbmV3IFNlcnZpY2VFeGNlcHRpb24oIlVuYWJsZSB0byByb3RhdGUga2V5OiAiICsgaW9lLmdl
+dE1lc3NhZ2UoKSk7DQp9IGNhdGNoIChQR1BFeGNlcHRpb24gcGdwZSkgew0KICAgIHRocm93IG5l
+dyBTZXJ2aWNlRXhjZXB0aW9uKCJJbnZhbGlkIGtleSBnZW5lcmF0aW9uOiAiICsgcGdwZS5nZXRN
+ZXNzYWdlKCkpOw0KfQ0KDQovLyBSZXR1cm4gZGF0YQ0KSURhdGFVdGlsLnB1dChwYywgImdlbmVy
+YXRpb24iLCBTdHJpbmcudmFsdWVPZihnZW5lcmF0aW9uLmdldE51bWJlcigpKSk7DQpJRGF0YVV0
+aWwucHV0KHBjLCAib3ZlcmxhcCIsIFN0cmluZy52YWx1ZU9mKG92ZXJsYXBNaWxsaXMgLyAxMDAw
+TCkpOw0KcGMuZGVzdHJveSgpOw0K</value>
+</Values>